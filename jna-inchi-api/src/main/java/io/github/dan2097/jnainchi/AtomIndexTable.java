@@ -0,0 +1,82 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.List;
+
+/**
+ * Immutable identity-based lookup from an atom to its index in a list of atoms.
+ * Uses open addressing with primitive int values, so that no per-atom objects are allocated.
+ */
+final class AtomIndexTable {
+
+  private final InchiAtom[] keys;
+  private final int[] indices;
+  private final int mask;
+
+  AtomIndexTable(List<InchiAtom> atoms) {
+    int atomCount = atoms.size();
+    //Power of two, at least twice the number of atoms
+    int capacity = Integer.highestOneBit(Math.max(atomCount, 1) * 2 - 1) << 1;
+    keys = new InchiAtom[capacity];
+    indices = new int[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < atomCount; i++) {
+      InchiAtom atom = atoms.get(i);
+      if (atom == null) {
+        continue;
+      }
+      int slot = hash(atom) & mask;
+      InchiAtom existing;
+      while ((existing = keys[slot]) != null && existing != atom) {
+        slot = (slot + 1) & mask;
+      }
+      //If an atom is present more than once, its first index is used, as with List.indexOf
+      if (existing == null) {
+        keys[slot] = atom;
+        indices[slot] = i;
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the given atom, or -1 if it is not present
+   * @param atom
+   * @return
+   */
+  int indexOf(InchiAtom atom) {
+    if (atom == null) {
+      return -1;
+    }
+    int slot = hash(atom) & mask;
+    InchiAtom existing;
+    while ((existing = keys[slot]) != null) {
+      if (existing == atom) {
+        return indices[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private static int hash(InchiAtom atom) {
+    int h = System.identityHashCode(atom);
+    return h ^ (h >>> 16);
+  }
+
+}
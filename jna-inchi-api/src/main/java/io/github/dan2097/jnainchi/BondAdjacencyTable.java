@@ -0,0 +1,93 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.List;
+
+/**
+ * Immutable compressed sparse row index of the bonds of each atom of an {@link InchiInput}.
+ * The bonds of the atom with index i are at positions offsets[i] to offsets[i + 1] - 1 of bondIndices, in the order of the bond list.
+ */
+final class BondAdjacencyTable {
+
+  private final int[] offsets;
+  private final int[] bondIndices;
+
+  BondAdjacencyTable(InchiInput inchiInput) {
+    List<InchiAtom> atoms = inchiInput.getAtoms();
+    List<InchiBond> bonds = inchiInput.getBonds();
+    int atomCount = atoms.size();
+    int bondCount = bonds.size();
+    int[] startIndices = new int[bondCount];
+    int[] endIndices = new int[bondCount];
+    offsets = new int[atomCount + 1];
+    for (int i = 0; i < bondCount; i++) {
+      InchiBond bond = bonds.get(i);
+      //Atoms that are not part of the input have an index of -1, and are not indexed
+      int start = inchiInput.getAtomIndex(bond.getStart());
+      int end = inchiInput.getAtomIndex(bond.getEnd());
+      startIndices[i] = start;
+      endIndices[i] = end;
+      if (start >= 0) {
+        offsets[start + 1]++;
+      }
+      if (end >= 0) {
+        offsets[end + 1]++;
+      }
+    }
+    for (int i = 0; i < atomCount; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    bondIndices = new int[offsets[atomCount]];
+    int[] nextPosition = new int[atomCount];
+    System.arraycopy(offsets, 0, nextPosition, 0, atomCount);
+    for (int i = 0; i < bondCount; i++) {
+      int start = startIndices[i];
+      if (start >= 0) {
+        bondIndices[nextPosition[start]++] = i;
+      }
+      int end = endIndices[i];
+      if (end >= 0) {
+        bondIndices[nextPosition[end]++] = i;
+      }
+    }
+  }
+
+  /**
+   * Position in {@link #bondIndexAt(int)} of the first bond of the atom with the given index
+   * @param atomIndex
+   * @return
+   */
+  int start(int atomIndex) {
+    return offsets[atomIndex];
+  }
+
+  /**
+   * Position in {@link #bondIndexAt(int)} after the last bond of the atom with the given index
+   * @param atomIndex
+   * @return
+   */
+  int end(int atomIndex) {
+    return offsets[atomIndex + 1];
+  }
+
+  int bondIndexAt(int position) {
+    return bondIndices[position];
+  }
+
+}
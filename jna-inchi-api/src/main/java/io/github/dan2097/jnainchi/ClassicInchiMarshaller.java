@@ -0,0 +1,496 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import io.github.dan2097.jnainchi.inchi.InchiLibrary;
+import io.github.dan2097.jnainchi.inchi.tagINCHIStereo0D;
+import io.github.dan2097.jnainchi.inchi.tagINCHI_Input;
+import io.github.dan2097.jnainchi.inchi.tagINCHI_Output;
+import io.github.dan2097.jnainchi.inchi.tagInchiAtom;
+
+/**
+ * Generates InChI using the classic GetINCHI API. The inchi_Input structure, its atoms, its stereo elements
+ * and the options string are written into a single block of native memory, so only one native call is needed per molecule
+ * (compared to several per atom when using IXA).
+ * <br>
+ * The native memory is reused between calls, hence instances are NOT thread-safe.
+ */
+final class ClassicInchiMarshaller {
+
+  private static final int INPUT_SIZE;
+  private static final int INPUT_ATOM;
+  private static final int INPUT_STEREO;
+  private static final int INPUT_OPTIONS;
+  private static final int INPUT_NUM_ATOMS;
+  private static final int INPUT_NUM_STEREO;
+
+  private static final int ATOM_SIZE;
+  private static final int ATOM_X;
+  private static final int ATOM_Y;
+  private static final int ATOM_Z;
+  private static final int ATOM_NEIGHBOR;
+  private static final int ATOM_BOND_TYPE;
+  private static final int ATOM_BOND_STEREO;
+  private static final int ATOM_ELNAME;
+  private static final int ATOM_NUM_BONDS;
+  private static final int ATOM_NUM_ISO_H;
+  private static final int ATOM_ISOTOPIC_MASS;
+  private static final int ATOM_RADICAL;
+  private static final int ATOM_CHARGE;
+
+  /** 27 character InChIKey and a trailing null */
+  static final int INCHIKEY_BUFFER_SIZE = 28;
+
+  private static final int OUTPUT_SIZE;
+  private static final int OUTPUT_INCHI;
+  private static final int OUTPUT_AUXINFO;
+  private static final int OUTPUT_MESSAGE;
+  private static final int OUTPUT_LOG;
+
+  private static final int STEREO_SIZE;
+  private static final int STEREO_NEIGHBOR;
+  private static final int STEREO_CENTRAL_ATOM;
+  private static final int STEREO_TYPE;
+  private static final int STEREO_PARITY;
+
+  static {
+    //Offsets are taken from the JNA structures, so match the native layout on the current platform
+    InputLayout input = new InputLayout();
+    INPUT_SIZE = input.size();
+    INPUT_ATOM = input.offset("atom");
+    INPUT_STEREO = input.offset("stereo0D");
+    INPUT_OPTIONS = input.offset("szOptions");
+    INPUT_NUM_ATOMS = input.offset("num_atoms");
+    INPUT_NUM_STEREO = input.offset("num_stereo0D");
+
+    AtomLayout atom = new AtomLayout();
+    ATOM_SIZE = atom.size();
+    ATOM_X = atom.offset("x");
+    ATOM_Y = atom.offset("y");
+    ATOM_Z = atom.offset("z");
+    ATOM_NEIGHBOR = atom.offset("neighbor");
+    ATOM_BOND_TYPE = atom.offset("bond_type");
+    ATOM_BOND_STEREO = atom.offset("bond_stereo");
+    ATOM_ELNAME = atom.offset("elname");
+    ATOM_NUM_BONDS = atom.offset("num_bonds");
+    ATOM_NUM_ISO_H = atom.offset("num_iso_H");
+    ATOM_ISOTOPIC_MASS = atom.offset("isotopic_mass");
+    ATOM_RADICAL = atom.offset("radical");
+    ATOM_CHARGE = atom.offset("charge");
+
+    OutputLayout output = new OutputLayout();
+    OUTPUT_SIZE = output.size();
+    OUTPUT_INCHI = output.offset("szInChI");
+    OUTPUT_AUXINFO = output.offset("szAuxInfo");
+    OUTPUT_MESSAGE = output.offset("szMessage");
+    OUTPUT_LOG = output.offset("szLog");
+
+    StereoLayout stereo = new StereoLayout();
+    STEREO_SIZE = stereo.size();
+    STEREO_NEIGHBOR = stereo.offset("neighbor");
+    STEREO_CENTRAL_ATOM = stereo.offset("central_atom");
+    STEREO_TYPE = stereo.offset("type");
+    STEREO_PARITY = stereo.offset("parity");
+  }
+
+  private Memory memory;
+  private final Memory output = allocateOutput();
+  /** Created when first needed, for {@link #toInchiWithKey} */
+  private Memory inchiKeyBuffer;
+  private long atomsOffset;
+  private long stereosOffset;
+  /** Number of bonds to each atom */
+  private int[] degrees = new int[0];
+
+  /**
+   * Generates InChI for the given input, giving the same output as the IXA API.
+   * Returns null if the input is not supported, in which case the IXA API should be used
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  InchiOutput toInchi(InchiInput inchiInput, InchiOptions options) {
+    return write(inchiInput, options) ? getInchi(options, false).getInchiOutput() : null;
+  }
+
+  /**
+   * As {@link #toInchi(InchiInput, InchiOptions)}, additionally generating the InChIKey from the native InChI string
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput, InchiOptions options) {
+    return write(inchiInput, options) ? getInchi(options, true) : null;
+  }
+
+  /**
+   * Writes the input to native memory, returning false if it is not supported
+   */
+  private boolean write(InchiInput inchiInput, InchiOptions options) {
+    List<InchiAtom> atoms = inchiInput.getAtoms();
+    List<InchiBond> bonds = inchiInput.getBonds();
+    List<InchiStereo> stereos = inchiInput.getStereos();
+    int atomCount = atoms.size();
+    int stereoCount = 0;
+    for (InchiStereo stereo : stereos) {
+      InchiStereoType type = stereo.getType();
+      if (!isSupported(type)) {
+        return false;
+      }
+      if (type != InchiStereoType.None) {
+        stereoCount++;
+      }
+    }
+    allocate(atomCount, stereoCount, options);
+
+    for (int i = 0; i < atomCount; i++) {
+      InchiAtom atom = atoms.get(i);
+      writeAtom(i, atom.getElName(), atom.getX(), atom.getY(), atom.getZ(), atom.getIsotopicMass(), atom.getCharge(), atom.getRadical(),
+          atom.getImplicitHydrogen(), atom.getImplicitProtium(), atom.getImplicitDeuterium(), atom.getImplicitTritium());
+    }
+    for (InchiBond bond : bonds) {
+      int start = inchiInput.getAtomIndex(bond.getStart());
+      int end = inchiInput.getAtomIndex(bond.getEnd());
+      if (start < 0 || end < 0) {
+        throw new IllegalStateException("Bond referenced an atom that was not part of the InchiInput");
+      }
+      if (!writeBond(start, end, bond.getType(), bond.getStereo())) {
+        return false;
+      }
+    }
+    int stereoIdx = 0;
+    for (InchiStereo stereo : stereos) {
+      InchiStereoType type = stereo.getType();
+      if (type == InchiStereoType.None) {
+        continue;
+      }
+      InchiAtom[] vertexes = stereo.getAtoms();
+      int vertex1 = getStereoVertex(inchiInput, vertexes[0]);
+      int vertex2 = getStereoVertex(inchiInput, vertexes[1]);
+      int vertex3 = getStereoVertex(inchiInput, vertexes[2]);
+      int vertex4 = getStereoVertex(inchiInput, vertexes[3]);
+      int centralAtom = inchiInput.getAtomIndex(stereo.getCentralAtom());
+      if (!writeStereo(stereoIdx++, type, centralAtom, vertex1, vertex2, vertex3, vertex4, stereo.getParity())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Generates InChI for the given input, giving the same output as the IXA API.
+   * Returns null if the input is not supported, in which case the IXA API should be used
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  InchiOutput toInchi(CompactInchiInput inchiInput, InchiOptions options) {
+    return write(inchiInput, options) ? getInchi(options, false).getInchiOutput() : null;
+  }
+
+  /**
+   * As {@link #toInchi(CompactInchiInput, InchiOptions)}, additionally generating the InChIKey from the native InChI string
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  InchiWithKeyOutput toInchiWithKey(CompactInchiInput inchiInput, InchiOptions options) {
+    return write(inchiInput, options) ? getInchi(options, true) : null;
+  }
+
+  /**
+   * Writes the input to native memory, returning false if it is not supported
+   */
+  private boolean write(CompactInchiInput inchiInput, InchiOptions options) {
+    int atomCount = inchiInput.getAtomCount();
+    int bondCount = inchiInput.getBondCount();
+    int stereoCount = inchiInput.getStereoCount();
+    for (int i = 0; i < stereoCount; i++) {
+      if (!isSupported(inchiInput.getStereoType(i))) {
+        return false;
+      }
+    }
+    allocate(atomCount, stereoCount, options);
+
+    for (int i = 0; i < atomCount; i++) {
+      writeAtom(i, inchiInput.getElName(i), inchiInput.getX(i), inchiInput.getY(i), inchiInput.getZ(i),
+          inchiInput.getIsotopicMass(i), inchiInput.getCharge(i), inchiInput.getRadical(i), inchiInput.getImplicitHydrogen(i),
+          inchiInput.getImplicitProtium(i), inchiInput.getImplicitDeuterium(i), inchiInput.getImplicitTritium(i));
+    }
+    for (int i = 0; i < bondCount; i++) {
+      if (!writeBond(inchiInput.getBondStart(i), inchiInput.getBondEnd(i), inchiInput.getBondType(i), inchiInput.getBondStereo(i))) {
+        return false;
+      }
+    }
+    for (int i = 0; i < stereoCount; i++) {
+      if (!writeStereo(i, inchiInput.getStereoType(i), inchiInput.getStereoCentralAtom(i), inchiInput.getStereoAtom(i, 0),
+          inchiInput.getStereoAtom(i, 1), inchiInput.getStereoAtom(i, 2), inchiInput.getStereoAtom(i, 3), inchiInput.getStereoParity(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Allenal stereo is defined by its four substituents, whereas the classic API is defined in terms of the terminal allene atoms.
+   * IXA does this conversion internally, so such inputs are left to IXA
+   * @param type
+   * @return
+   */
+  private static boolean isSupported(InchiStereoType type) {
+    return type != InchiStereoType.Allene;
+  }
+
+  /**
+   * Ensures the native memory is large enough, zeroes it and writes the inchi_Input structure
+   */
+  private void allocate(int atomCount, int stereoCount, InchiOptions options) {
+    byte[] optionsBytes = options.toIxaEquivalentString().getBytes(StandardCharsets.US_ASCII);
+    atomsOffset = align(INPUT_SIZE);
+    stereosOffset = align(atomsOffset + (long) atomCount * ATOM_SIZE);
+    long optionsOffset = stereosOffset + (long) stereoCount * STEREO_SIZE;
+    long size = optionsOffset + optionsBytes.length + 1;
+    if (memory == null || memory.size() < size) {
+      memory = new Memory(Math.max(size, memory != null ? memory.size() * 2 : 0));
+    }
+    memory.clear(size);
+    if (degrees.length < atomCount) {
+      degrees = new int[Math.max(atomCount, degrees.length * 2)];
+    }
+    else {
+      Arrays.fill(degrees, 0, atomCount, 0);
+    }
+
+    memory.setPointer(INPUT_ATOM, atomCount > 0 ? memory.share(atomsOffset) : null);
+    memory.setPointer(INPUT_STEREO, stereoCount > 0 ? memory.share(stereosOffset) : null);
+    memory.write(optionsOffset, optionsBytes, 0, optionsBytes.length);
+    memory.setPointer(INPUT_OPTIONS, memory.share(optionsOffset));
+    memory.setShort(INPUT_NUM_ATOMS, (short) atomCount);
+    memory.setShort(INPUT_NUM_STEREO, (short) stereoCount);
+  }
+
+  private static long align(long offset) {
+    long alignment = Math.max(Native.POINTER_SIZE, 8);
+    return (offset + alignment - 1) / alignment * alignment;
+  }
+
+  private void writeAtom(int atomIdx, String elName, double x, double y, double z, int isotopicMass, int charge, InchiRadical radical,
+      int implicitHydrogen, int implicitProtium, int implicitDeuterium, int implicitTritium) {
+    long offset = atomsOffset + (long) atomIdx * ATOM_SIZE;
+    memory.setDouble(offset + ATOM_X, x);
+    memory.setDouble(offset + ATOM_Y, y);
+    memory.setDouble(offset + ATOM_Z, z);
+    int elNameLength = elName.length();
+    if (elNameLength >= InchiLibrary.ATOM_EL_LEN) {
+      throw new IllegalArgumentException("Element name was too long: " + elName);
+    }
+    for (int i = 0; i < elNameLength; i++) {
+      memory.setByte(offset + ATOM_ELNAME + i, (byte) elName.charAt(i));
+    }
+    memory.setByte(offset + ATOM_NUM_ISO_H, (byte) implicitHydrogen);
+    memory.setByte(offset + ATOM_NUM_ISO_H + 1, (byte) implicitProtium);
+    memory.setByte(offset + ATOM_NUM_ISO_H + 2, (byte) implicitDeuterium);
+    memory.setByte(offset + ATOM_NUM_ISO_H + 3, (byte) implicitTritium);
+    memory.setShort(offset + ATOM_ISOTOPIC_MASS, (short) isotopicMass);
+    memory.setByte(offset + ATOM_RADICAL, radical.getCode());
+    memory.setByte(offset + ATOM_CHARGE, (byte) charge);
+  }
+
+  /**
+   * Each bond only needs to be listed in one of its atom's neighbor lists, the start atom's list is used,
+   * as the wedge stereo codes are relative to this atom.
+   * @return false if either atom has more bonds than InChI supports
+   */
+  private boolean writeBond(int start, int end, InchiBondType type, InchiBondStereo stereo) {
+    if (degrees[start] == InchiLibrary.MAXVAL || degrees[end] == InchiLibrary.MAXVAL) {
+      //IXA reports this error differently to the classic API
+      return false;
+    }
+    degrees[end]++;
+    degrees[start]++;
+    long offset = atomsOffset + (long) start * ATOM_SIZE;
+    int listIdx = memory.getShort(offset + ATOM_NUM_BONDS);
+    memory.setShort(offset + ATOM_NEIGHBOR + listIdx * 2L, (short) end);
+    memory.setByte(offset + ATOM_BOND_TYPE + listIdx, type.getCode());
+    memory.setByte(offset + ATOM_BOND_STEREO + listIdx, stereo.getCode());
+    memory.setShort(offset + ATOM_NUM_BONDS, (short) (listIdx + 1));
+    return true;
+  }
+
+  /**
+   * @return false if the stereo element cannot be expressed in the same way as IXA would
+   */
+  private boolean writeStereo(int stereoIdx, InchiStereoType type, int centralAtom,
+      int vertex1, int vertex2, int vertex3, int vertex4, InchiStereoParity parity) {
+    if (type == InchiStereoType.DoubleBond) {
+      //IXA determines the double bond/cumulene from its neighbors, only the simple X-A=B-Y case is handled here
+      if (!isBonded(vertex1, vertex2) || !isBonded(vertex2, vertex3) || !isBonded(vertex3, vertex4)) {
+        return false;
+      }
+    }
+    else if (centralAtom < 0) {
+      throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
+    }
+    long offset = stereosOffset + (long) stereoIdx * STEREO_SIZE;
+    //The classic API represents an implicit hydrogen by the central atom
+    memory.setShort(offset + STEREO_NEIGHBOR, (short) (vertex1 == CompactInchiInput.IMPLICIT_H ? centralAtom : vertex1));
+    memory.setShort(offset + STEREO_NEIGHBOR + 2, (short) (vertex2 == CompactInchiInput.IMPLICIT_H ? centralAtom : vertex2));
+    memory.setShort(offset + STEREO_NEIGHBOR + 4, (short) (vertex3 == CompactInchiInput.IMPLICIT_H ? centralAtom : vertex3));
+    memory.setShort(offset + STEREO_NEIGHBOR + 6, (short) (vertex4 == CompactInchiInput.IMPLICIT_H ? centralAtom : vertex4));
+    memory.setShort(offset + STEREO_CENTRAL_ATOM, (short) (type == InchiStereoType.DoubleBond ? -1 : centralAtom));
+    memory.setByte(offset + STEREO_TYPE, type.getCode());
+    memory.setByte(offset + STEREO_PARITY, parity.getCode());
+    return true;
+  }
+
+  private boolean isBonded(int atom1, int atom2) {
+    return atom1 >= 0 && atom2 >= 0 && (isInNeighborList(atom1, atom2) || isInNeighborList(atom2, atom1));
+  }
+
+  private boolean isInNeighborList(int atomIdx, int neighbor) {
+    long offset = atomsOffset + (long) atomIdx * ATOM_SIZE;
+    int numBonds = memory.getShort(offset + ATOM_NUM_BONDS);
+    for (int i = 0; i < numBonds; i++) {
+      if (memory.getShort(offset + ATOM_NEIGHBOR + i * 2L) == neighbor) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int getStereoVertex(InchiInput inchiInput, InchiAtom atom) {
+    if (atom == InchiStereo.STEREO_IMPLICIT_H) {
+      return CompactInchiInput.IMPLICIT_H;
+    }
+    int idx = inchiInput.getAtomIndex(atom);
+    if (idx < 0) {
+      throw new IllegalStateException("Stereo configuration referenced an atom that does not exist");
+    }
+    return idx;
+  }
+
+  private InchiWithKeyOutput getInchi(InchiOptions options, boolean withKey) {
+    output.clear();
+    try {
+      InchiStatus status = JnaInchi.getInchiStatus(InchiLibrary.GetINCHI(memory, output));
+      Set<InchiOutputPart> outputParts = options.getOutputParts();
+      String inchi = outputParts.contains(InchiOutputPart.INCHI) ? readString(output, OUTPUT_INCHI) : null;
+      String auxInfo = outputParts.contains(InchiOutputPart.AUXINFO) ? readString(output, OUTPUT_AUXINFO) : null;
+      //Match IXA, which gives an empty rather than null message, and no log on error (unless OutErrInChI is used)
+      String message = null;
+      if (outputParts.contains(InchiOutputPart.MESSAGES)) {
+        message = readString(output, OUTPUT_MESSAGE);
+        if (message == null) {
+          message = "";
+        }
+      }
+      String log = null;
+      if (outputParts.contains(InchiOutputPart.LOG) && (status != InchiStatus.ERROR || options.getFlags().contains(InchiFlag.OutErrInChI))) {
+        log = readString(output, OUTPUT_LOG);
+      }
+      InchiKeyOutput inchiKey = null;
+      if (withKey) {
+        if (inchiKeyBuffer == null) {
+          inchiKeyBuffer = new Memory(INCHIKEY_BUFFER_SIZE);
+        }
+        inchiKey = getInchiKey(output, inchiKeyBuffer);
+      }
+      return new InchiWithKeyOutput(new InchiOutput(inchi, auxInfo, message, log, status), inchiKey);
+    }
+    finally {
+      InchiLibrary.FreeINCHI(output);
+    }
+  }
+
+  /**
+   * Allocates zeroed native memory for an inchi_Output
+   * @return
+   */
+  static Memory allocateOutput() {
+    Memory output = new Memory(OUTPUT_SIZE);
+    output.clear();
+    return output;
+  }
+
+  /**
+   * Creates an InchiOutput with the requested parts of the given inchi_Output
+   * @param output
+   * @param status
+   * @param outputParts
+   * @return
+   */
+  static InchiOutput readOutput(Pointer output, InchiStatus status, Set<InchiOutputPart> outputParts) {
+    String inchi = outputParts.contains(InchiOutputPart.INCHI) ? readString(output, OUTPUT_INCHI) : null;
+    String auxInfo = outputParts.contains(InchiOutputPart.AUXINFO) ? readString(output, OUTPUT_AUXINFO) : null;
+    String message = outputParts.contains(InchiOutputPart.MESSAGES) ? readString(output, OUTPUT_MESSAGE) : null;
+    String log = outputParts.contains(InchiOutputPart.LOG) ? readString(output, OUTPUT_LOG) : null;
+    return new InchiOutput(inchi, auxInfo, message, log, status);
+  }
+
+  /**
+   * Generates the InChIKey of the InChI in the given inchi_Output, without copying the InChI into Java.
+   * Hash extensions are not calculated
+   * @param output
+   * @param inchiKeyBuffer at least {@value #INCHIKEY_BUFFER_SIZE} bytes
+   * @return
+   */
+  static InchiKeyOutput getInchiKey(Pointer output, Memory inchiKeyBuffer) {
+    inchiKeyBuffer.clear();
+    InchiKeyStatus status = InchiKeyStatus.of(InchiLibrary.GetINCHIKeyFromINCHI(output.getPointer(OUTPUT_INCHI), 0, 0, inchiKeyBuffer, null, null));
+    return new InchiKeyOutput(inchiKeyBuffer.getString(0).trim(), status, null, null);
+  }
+
+  private static String readString(Pointer output, int offset) {
+    Pointer str = output.getPointer(offset);
+    return str != null ? str.getString(0) : null;
+  }
+
+  private static final class InputLayout extends tagINCHI_Input {
+    private int offset(String field) {
+      return fieldOffset(field);
+    }
+  }
+
+  private static final class AtomLayout extends tagInchiAtom {
+    private int offset(String field) {
+      return fieldOffset(field);
+    }
+  }
+
+  private static final class OutputLayout extends tagINCHI_Output {
+    private int offset(String field) {
+      return fieldOffset(field);
+    }
+  }
+
+  private static final class StereoLayout extends tagINCHIStereo0D {
+    private int offset(String field) {
+      return fieldOffset(field);
+    }
+  }
+
+}
@@ -0,0 +1,498 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory efficient alternative to {@link InchiInput}, that stores atoms, bonds and stereochemistry in primitive arrays
+ * rather than as individual objects. Atoms are referred to by their index, in the order they were added.
+ * <br>
+ * Elements are restricted to those in the periodic table, D, T and Zz.
+ */
+public class CompactInchiInput {
+
+  /** Use as a stereo vertex when the vertex is an implicit hydrogen */
+  public static final int IMPLICIT_H = -1;
+
+  private static final String[] ELEMENTS = {null,
+      "H", "He", "Li", "Be", "B", "C", "N", "O", "F", "Ne", "Na", "Mg", "Al", "Si", "P", "S", "Cl", "Ar",
+      "K", "Ca", "Sc", "Ti", "V", "Cr", "Mn", "Fe", "Co", "Ni", "Cu", "Zn", "Ga", "Ge", "As", "Se", "Br", "Kr",
+      "Rb", "Sr", "Y", "Zr", "Nb", "Mo", "Tc", "Ru", "Rh", "Pd", "Ag", "Cd", "In", "Sn", "Sb", "Te", "I", "Xe",
+      "Cs", "Ba", "La", "Ce", "Pr", "Nd", "Pm", "Sm", "Eu", "Gd", "Tb", "Dy", "Ho", "Er", "Tm", "Yb", "Lu",
+      "Hf", "Ta", "W", "Re", "Os", "Ir", "Pt", "Au", "Hg", "Tl", "Pb", "Bi", "Po", "At", "Rn",
+      "Fr", "Ra", "Ac", "Th", "Pa", "U", "Np", "Pu", "Am", "Cm", "Bk", "Cf", "Es", "Fm", "Md", "No", "Lr",
+      "Rf", "Db", "Sg", "Bh", "Hs", "Mt", "Ds", "Rg", "Cn", "Nh", "Fl", "Mc", "Lv", "Ts", "Og",
+      "D", "T", "Zz"};
+
+  private static final Map<String, Byte> elementToCode = new HashMap<>();
+
+  private static final InchiRadical[] RADICALS = InchiRadical.values();
+  private static final InchiBondType[] BOND_TYPES = InchiBondType.values();
+  private static final InchiBondStereo[] BOND_STEREOS = InchiBondStereo.values();
+  private static final InchiStereoType[] STEREO_TYPES = InchiStereoType.values();
+  private static final InchiStereoParity[] STEREO_PARITIES = InchiStereoParity.values();
+
+  static {
+    for (int i = 1; i < ELEMENTS.length; i++) {
+      elementToCode.put(ELEMENTS[i], (byte) i);
+    }
+  }
+
+  private int atomCount = 0;
+  private byte[] elements = new byte[8];
+  /** x, y and z for each atom */
+  private double[] coordinates = new double[8 * 3];
+  /** Implicit hydrogen, protium, deuterium and tritium counts for each atom */
+  private byte[] implicitHydrogens = new byte[8 * 4];
+  private short[] isotopicMasses = new short[8];
+  private byte[] charges = new byte[8];
+  /** {@link InchiRadical} ordinals */
+  private byte[] radicals = new byte[8];
+
+  private int bondCount = 0;
+  /** start and end atom index of each bond */
+  private int[] bondAtoms = new int[8 * 2];
+  /** {@link InchiBondType} ordinals */
+  private byte[] bondTypes = new byte[8];
+  /** {@link InchiBondStereo} ordinals */
+  private byte[] bondStereos = new byte[8];
+
+  private int stereoCount = 0;
+  /** The four vertexes of each stereo element */
+  private int[] stereoAtoms = new int[0];
+  /** -1 for {@link InchiStereoType#DoubleBond} */
+  private int[] stereoCentralAtoms = new int[0];
+  /** {@link InchiStereoType} ordinals */
+  private byte[] stereoTypes = new byte[0];
+  /** {@link InchiStereoParity} ordinals */
+  private byte[] stereoParities = new byte[0];
+
+  /**
+   * Adds an atom with no implicit hydrogens, charge, isotope or radical at the origin
+   * @param elName
+   * @return index of the new atom
+   */
+  public int addAtom(String elName) {
+    Byte elementCode = elementToCode.get(elName);
+    if (elementCode == null) {
+      throw new IllegalArgumentException("Unsupported element: " + elName);
+    }
+    if (atomCount == elements.length) {
+      int newCapacity = atomCount * 2;
+      elements = Arrays.copyOf(elements, newCapacity);
+      coordinates = Arrays.copyOf(coordinates, newCapacity * 3);
+      implicitHydrogens = Arrays.copyOf(implicitHydrogens, newCapacity * 4);
+      isotopicMasses = Arrays.copyOf(isotopicMasses, newCapacity);
+      charges = Arrays.copyOf(charges, newCapacity);
+      radicals = Arrays.copyOf(radicals, newCapacity);
+    }
+    elements[atomCount] = elementCode;
+    return atomCount++;
+  }
+
+  public int addAtom(String elName, double x, double y, double z) {
+    int atom = addAtom(elName);
+    setCoordinates(atom, x, y, z);
+    return atom;
+  }
+
+  public int addBond(int start, int end, InchiBondType type) {
+    return addBond(start, end, type, InchiBondStereo.NONE);
+  }
+
+  /**
+   * @param start index of the start atom
+   * @param end index of the end atom
+   * @param type
+   * @param stereo
+   * @return index of the new bond
+   */
+  public int addBond(int start, int end, InchiBondType type, InchiBondStereo stereo) {
+    checkAtomIndex(start);
+    checkAtomIndex(end);
+    if (start == end) {
+      throw new IllegalArgumentException("start and end must be different atoms");
+    }
+    if (type == null) {
+      throw new IllegalArgumentException("type must not be null");
+    }
+    if (stereo == null) {
+      throw new IllegalArgumentException("stereo must not be null, use InchiBondStereo.NONE");
+    }
+    if (bondCount == bondTypes.length) {
+      int newCapacity = bondCount * 2;
+      bondAtoms = Arrays.copyOf(bondAtoms, newCapacity * 2);
+      bondTypes = Arrays.copyOf(bondTypes, newCapacity);
+      bondStereos = Arrays.copyOf(bondStereos, newCapacity);
+    }
+    bondAtoms[bondCount * 2] = start;
+    bondAtoms[bondCount * 2 + 1] = end;
+    bondTypes[bondCount] = (byte) type.ordinal();
+    bondStereos[bondCount] = (byte) stereo.ordinal();
+    return bondCount++;
+  }
+
+  /**
+   * See {@link InchiStereo#createTetrahedralStereo(InchiAtom, InchiAtom, InchiAtom, InchiAtom, InchiAtom, InchiStereoParity)}.
+   * Use {@link #IMPLICIT_H} for an implicit hydrogen vertex
+   * @return index of the new stereo element
+   */
+  public int addTetrahedralStereo(int centralAtom, int atom1, int atom2, int atom3, int atom4, InchiStereoParity parity) {
+    checkAtomIndex(centralAtom);
+    return addStereo(InchiStereoType.Tetrahedral, centralAtom, atom1, atom2, atom3, atom4, parity);
+  }
+
+  /**
+   * See {@link InchiStereo#createDoubleBondStereo(InchiAtom, InchiAtom, InchiAtom, InchiAtom, InchiStereoParity)}
+   * @return index of the new stereo element
+   */
+  public int addDoubleBondStereo(int atom1, int atom2, int atom3, int atom4, InchiStereoParity parity) {
+    if (atom1 == IMPLICIT_H || atom2 == IMPLICIT_H || atom3 == IMPLICIT_H || atom4 == IMPLICIT_H) {
+      throw new IllegalArgumentException("Double bond stereo should use non-implicit hydrogn atoms");
+    }
+    return addStereo(InchiStereoType.DoubleBond, -1, atom1, atom2, atom3, atom4, parity);
+  }
+
+  /**
+   * See {@link InchiStereo#createAllenalStereo(InchiAtom, InchiAtom, InchiAtom, InchiAtom, InchiAtom, InchiStereoParity)}.
+   * Use {@link #IMPLICIT_H} for an implicit hydrogen vertex
+   * @return index of the new stereo element
+   */
+  public int addAllenalStereo(int centralAtom, int atom1, int atom2, int atom3, int atom4, InchiStereoParity parity) {
+    checkAtomIndex(centralAtom);
+    return addStereo(InchiStereoType.Allene, centralAtom, atom1, atom2, atom3, atom4, parity);
+  }
+
+  private int addStereo(InchiStereoType type, int centralAtom, int atom1, int atom2, int atom3, int atom4, InchiStereoParity parity) {
+    if (parity == null) {
+      throw new IllegalArgumentException("parity was null");
+    }
+    checkStereoVertex(atom1);
+    checkStereoVertex(atom2);
+    checkStereoVertex(atom3);
+    checkStereoVertex(atom4);
+    if (stereoCount == stereoTypes.length) {
+      int newCapacity = Math.max(stereoCount * 2, 4);
+      stereoAtoms = Arrays.copyOf(stereoAtoms, newCapacity * 4);
+      stereoCentralAtoms = Arrays.copyOf(stereoCentralAtoms, newCapacity);
+      stereoTypes = Arrays.copyOf(stereoTypes, newCapacity);
+      stereoParities = Arrays.copyOf(stereoParities, newCapacity);
+    }
+    int offset = stereoCount * 4;
+    stereoAtoms[offset] = atom1;
+    stereoAtoms[offset + 1] = atom2;
+    stereoAtoms[offset + 2] = atom3;
+    stereoAtoms[offset + 3] = atom4;
+    stereoCentralAtoms[stereoCount] = centralAtom;
+    stereoTypes[stereoCount] = (byte) type.ordinal();
+    stereoParities[stereoCount] = (byte) parity.ordinal();
+    return stereoCount++;
+  }
+
+  private void checkAtomIndex(int atom) {
+    if (atom < 0 || atom >= atomCount) {
+      throw new IllegalArgumentException("No atom with index: " + atom);
+    }
+  }
+
+  private void checkStereoVertex(int atom) {
+    if (atom != IMPLICIT_H) {
+      checkAtomIndex(atom);
+    }
+  }
+
+  public int getAtomCount() {
+    return atomCount;
+  }
+
+  public int getBondCount() {
+    return bondCount;
+  }
+
+  public int getStereoCount() {
+    return stereoCount;
+  }
+
+  public String getElName(int atom) {
+    checkAtomIndex(atom);
+    return ELEMENTS[elements[atom]];
+  }
+
+  public void setCoordinates(int atom, double x, double y, double z) {
+    checkAtomIndex(atom);
+    coordinates[atom * 3] = x;
+    coordinates[atom * 3 + 1] = y;
+    coordinates[atom * 3 + 2] = z;
+  }
+
+  public double getX(int atom) {
+    checkAtomIndex(atom);
+    return coordinates[atom * 3];
+  }
+
+  public double getY(int atom) {
+    checkAtomIndex(atom);
+    return coordinates[atom * 3 + 1];
+  }
+
+  public double getZ(int atom) {
+    checkAtomIndex(atom);
+    return coordinates[atom * 3 + 2];
+  }
+
+  /**
+   * See {@link InchiAtom#setImplicitHydrogen(int)}
+   * @param atom
+   * @param implicitHydrogen
+   */
+  public void setImplicitHydrogen(int atom, int implicitHydrogen) {
+    if (implicitHydrogen > Byte.MAX_VALUE  || implicitHydrogen < -1) {
+      throw new IllegalArgumentException("Unacceptable implicitHydrogen:" + implicitHydrogen);
+    }
+    setImplicitHydrogen(atom, 0, implicitHydrogen);
+  }
+
+  public int getImplicitHydrogen(int atom) {
+    return getImplicitHydrogen(atom, 0);
+  }
+
+  public void setImplicitProtium(int atom, int implicitProtium) {
+    if (implicitProtium > Byte.MAX_VALUE  || implicitProtium < 0) {
+      throw new IllegalArgumentException("Unacceptable implicitProtium:" + implicitProtium);
+    }
+    setImplicitHydrogen(atom, 1, implicitProtium);
+  }
+
+  public int getImplicitProtium(int atom) {
+    return getImplicitHydrogen(atom, 1);
+  }
+
+  public void setImplicitDeuterium(int atom, int implicitDeuterium) {
+    if (implicitDeuterium > Byte.MAX_VALUE  || implicitDeuterium < 0) {
+      throw new IllegalArgumentException("Unacceptable implicitDeuterium:" + implicitDeuterium);
+    }
+    setImplicitHydrogen(atom, 2, implicitDeuterium);
+  }
+
+  public int getImplicitDeuterium(int atom) {
+    return getImplicitHydrogen(atom, 2);
+  }
+
+  public void setImplicitTritium(int atom, int implicitTritium) {
+    if (implicitTritium > Byte.MAX_VALUE  || implicitTritium < 0) {
+      throw new IllegalArgumentException("Unacceptable implicitTritium:" + implicitTritium);
+    }
+    setImplicitHydrogen(atom, 3, implicitTritium);
+  }
+
+  public int getImplicitTritium(int atom) {
+    return getImplicitHydrogen(atom, 3);
+  }
+
+  private void setImplicitHydrogen(int atom, int isotope, int count) {
+    checkAtomIndex(atom);
+    implicitHydrogens[atom * 4 + isotope] = (byte) count;
+  }
+
+  private int getImplicitHydrogen(int atom, int isotope) {
+    checkAtomIndex(atom);
+    return implicitHydrogens[atom * 4 + isotope];
+  }
+
+  public void setIsotopicMass(int atom, int isotopicMass) {
+    checkAtomIndex(atom);
+    if (isotopicMass > Short.MAX_VALUE || isotopicMass < 0) {
+      throw new IllegalArgumentException("Unacceptable isotopicMass:" + isotopicMass);
+    }
+    isotopicMasses[atom] = (short) isotopicMass;
+  }
+
+  public int getIsotopicMass(int atom) {
+    checkAtomIndex(atom);
+    return isotopicMasses[atom];
+  }
+
+  public void setCharge(int atom, int charge) {
+    checkAtomIndex(atom);
+    if (charge > Byte.MAX_VALUE || charge < Byte.MIN_VALUE) {
+      throw new IllegalArgumentException("Unacceptable charge:" + charge);
+    }
+    charges[atom] = (byte) charge;
+  }
+
+  public int getCharge(int atom) {
+    checkAtomIndex(atom);
+    return charges[atom];
+  }
+
+  public void setRadical(int atom, InchiRadical radical) {
+    checkAtomIndex(atom);
+    radicals[atom] = (byte) radical.ordinal();
+  }
+
+  public InchiRadical getRadical(int atom) {
+    checkAtomIndex(atom);
+    return RADICALS[radicals[atom]];
+  }
+
+  public int getBondStart(int bond) {
+    checkBondIndex(bond);
+    return bondAtoms[bond * 2];
+  }
+
+  public int getBondEnd(int bond) {
+    checkBondIndex(bond);
+    return bondAtoms[bond * 2 + 1];
+  }
+
+  public InchiBondType getBondType(int bond) {
+    checkBondIndex(bond);
+    return BOND_TYPES[bondTypes[bond]];
+  }
+
+  public InchiBondStereo getBondStereo(int bond) {
+    checkBondIndex(bond);
+    return BOND_STEREOS[bondStereos[bond]];
+  }
+
+  private void checkBondIndex(int bond) {
+    if (bond < 0 || bond >= bondCount) {
+      throw new IllegalArgumentException("No bond with index: " + bond);
+    }
+  }
+
+  /**
+   * Returns the index of the given vertex (0-3) of the stereo element, or {@link #IMPLICIT_H}
+   * @param stereo
+   * @param vertex
+   * @return
+   */
+  public int getStereoAtom(int stereo, int vertex) {
+    checkStereoIndex(stereo);
+    if (vertex < 0 || vertex > 3) {
+      throw new IllegalArgumentException("Stereo vertex should be between 0 and 3: " + vertex);
+    }
+    return stereoAtoms[stereo * 4 + vertex];
+  }
+
+  /**
+   * Returns the index of the central atom of the stereo element, or -1 for {@link InchiStereoType#DoubleBond}
+   * @param stereo
+   * @return
+   */
+  public int getStereoCentralAtom(int stereo) {
+    checkStereoIndex(stereo);
+    return stereoCentralAtoms[stereo];
+  }
+
+  public InchiStereoType getStereoType(int stereo) {
+    checkStereoIndex(stereo);
+    return STEREO_TYPES[stereoTypes[stereo]];
+  }
+
+  public InchiStereoParity getStereoParity(int stereo) {
+    checkStereoIndex(stereo);
+    return STEREO_PARITIES[stereoParities[stereo]];
+  }
+
+  private void checkStereoIndex(int stereo) {
+    if (stereo < 0 || stereo >= stereoCount) {
+      throw new IllegalArgumentException("No stereo element with index: " + stereo);
+    }
+  }
+
+  /**
+   * Creates a CompactInchiInput with the same atoms (in the same order), bonds and stereochemistry as the given {@link InchiInput}
+   * @param inchiInput
+   * @return
+   */
+  public static CompactInchiInput fromInchiInput(InchiInput inchiInput) {
+    CompactInchiInput compact = new CompactInchiInput();
+    for (InchiAtom atom : inchiInput.getAtoms()) {
+      int i = compact.addAtom(atom.getElName(), atom.getX(), atom.getY(), atom.getZ());
+      compact.implicitHydrogens[i * 4] = (byte) atom.getImplicitHydrogen();
+      compact.implicitHydrogens[i * 4 + 1] = (byte) atom.getImplicitProtium();
+      compact.implicitHydrogens[i * 4 + 2] = (byte) atom.getImplicitDeuterium();
+      compact.implicitHydrogens[i * 4 + 3] = (byte) atom.getImplicitTritium();
+      compact.isotopicMasses[i] = (short) atom.getIsotopicMass();
+      compact.charges[i] = (byte) atom.getCharge();
+      compact.radicals[i] = (byte) atom.getRadical().ordinal();
+    }
+    for (InchiBond bond : inchiInput.getBonds()) {
+      compact.addBond(toAtomIndex(inchiInput, bond.getStart()), toAtomIndex(inchiInput, bond.getEnd()), bond.getType(), bond.getStereo());
+    }
+    for (InchiStereo stereo : inchiInput.getStereos()) {
+      InchiAtom[] atoms = stereo.getAtoms();
+      InchiAtom centralAtom = stereo.getCentralAtom();
+      compact.addStereo(stereo.getType(), centralAtom != null ? toAtomIndex(inchiInput, centralAtom) : -1,
+          toStereoVertex(inchiInput, atoms[0]), toStereoVertex(inchiInput, atoms[1]),
+          toStereoVertex(inchiInput, atoms[2]), toStereoVertex(inchiInput, atoms[3]), stereo.getParity());
+    }
+    return compact;
+  }
+
+  private static int toAtomIndex(InchiInput inchiInput, InchiAtom atom) {
+    int idx = inchiInput.getAtomIndex(atom);
+    if (idx < 0) {
+      throw new IllegalArgumentException("Bond or stereo configuration referenced an atom that was not part of the InchiInput");
+    }
+    return idx;
+  }
+
+  private static int toStereoVertex(InchiInput inchiInput, InchiAtom atom) {
+    return atom == InchiStereo.STEREO_IMPLICIT_H ? IMPLICIT_H : toAtomIndex(inchiInput, atom);
+  }
+
+  /**
+   * Creates the equivalent {@link InchiInput}
+   * @return
+   */
+  public InchiInput toInchiInput() {
+    InchiInput inchiInput = new InchiInput();
+    for (int i = 0; i < atomCount; i++) {
+      InchiAtom atom = new InchiAtom(ELEMENTS[elements[i]], coordinates[i * 3], coordinates[i * 3 + 1], coordinates[i * 3 + 2]);
+      atom.setImplicitHydrogen(implicitHydrogens[i * 4]);
+      atom.setImplicitProtium(implicitHydrogens[i * 4 + 1]);
+      atom.setImplicitDeuterium(implicitHydrogens[i * 4 + 2]);
+      atom.setImplicitTritium(implicitHydrogens[i * 4 + 3]);
+      atom.setIsotopicMass(isotopicMasses[i]);
+      atom.setCharge(charges[i]);
+      atom.setRadical(RADICALS[radicals[i]]);
+      inchiInput.addAtom(atom);
+    }
+    List<InchiAtom> atoms = inchiInput.getAtoms();
+    for (int i = 0; i < bondCount; i++) {
+      inchiInput.addBond(new InchiBond(atoms.get(bondAtoms[i * 2]), atoms.get(bondAtoms[i * 2 + 1]), BOND_TYPES[bondTypes[i]], BOND_STEREOS[bondStereos[i]]));
+    }
+    for (int i = 0; i < stereoCount; i++) {
+      InchiAtom[] vertexes = new InchiAtom[4];
+      for (int j = 0; j < 4; j++) {
+        int idx = stereoAtoms[i * 4 + j];
+        vertexes[j] = idx == IMPLICIT_H ? InchiStereo.STEREO_IMPLICIT_H : atoms.get(idx);
+      }
+      int centralAtom = stereoCentralAtoms[i];
+      inchiInput.addStereo(new InchiStereo(vertexes, centralAtom >= 0 ? atoms.get(centralAtom) : null, STEREO_TYPES[stereoTypes[i]], STEREO_PARITIES[stereoParities[i]]));
+    }
+    return inchiInput;
+  }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.List;
+
+public class InchiBatchOutput {
+
+  private final List<InchiOutput> outputs;
+  private final long elapsedNanoSecs;
+  private final int slowestIndex;
+  private final long slowestNanoSecs;
+
+  InchiBatchOutput(List<InchiOutput> outputs, long elapsedNanoSecs, int slowestIndex, long slowestNanoSecs) {
+    this.outputs = outputs;
+    this.elapsedNanoSecs = elapsedNanoSecs;
+    this.slowestIndex = slowestIndex;
+    this.slowestNanoSecs = slowestNanoSecs;
+  }
+
+  /**
+   * The output for each input, in the same order as the inputs.
+   * Inputs that could not be converted have an output with {@link InchiStatus#ERROR}
+   * @return
+   */
+  public List<InchiOutput> getOutputs() {
+    return outputs;
+  }
+
+  /**
+   * Wall-clock time taken to process the batch
+   * @return
+   */
+  public long getElapsedNanoSeconds() {
+    return elapsedNanoSecs;
+  }
+
+  public double getMoleculesPerSecond() {
+    if (elapsedNanoSecs == 0) {
+      return 0;
+    }
+    return outputs.size() / (elapsedNanoSecs / 1e9);
+  }
+
+  /**
+   * Index of the input that took longest to process, or -1 if the batch was empty
+   * @return
+   */
+  public int getSlowestIndex() {
+    return slowestIndex;
+  }
+
+  /**
+   * Time taken to process the input at {@link #getSlowestIndex()}
+   * @return
+   */
+  public long getSlowestNanoSeconds() {
+    return slowestNanoSecs;
+  }
+
+}
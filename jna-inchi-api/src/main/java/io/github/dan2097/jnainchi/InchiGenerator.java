@@ -0,0 +1,209 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import io.github.dan2097.jnainchi.inchi.IxaFunctions;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIKEYBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_MOL_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STATUS_HANDLE;
+
+/**
+ * Generates InChIs using native handles that are kept alive between calls, avoiding the cost of creating and
+ * destroying them for every molecule as the static methods on {@link JnaInchi} do.
+ * The output is identical to that of the equivalent {@link JnaInchi} method.
+ * <br>
+ * Instances are NOT thread-safe; use one instance per thread. {@link #close()} must be called to release the native handles.
+ * <pre>
+ * try (InchiGenerator generator = new InchiGenerator()) {
+ *   for (InchiInput input : inputs) {
+ *     InchiOutput output = generator.toInchi(input);
+ *   }
+ * }
+ * </pre>
+ */
+public class InchiGenerator implements AutoCloseable {
+
+  private final IXA_STATUS_HANDLE logger;
+  private final IXA_MOL_HANDLE nativeMol;
+  private IXA_INCHIBUILDER_HANDLE builder;
+  /** The options currently applied to the builder */
+  private InchiOptions builderOptions = InchiOptions.DEFAULT_OPTIONS;
+  /** Created when first needed, by {@link #toInchiWithKey(InchiInput, InchiOptions)} */
+  private IXA_INCHIKEYBUILDER_HANDLE keyBuilder;
+  /** Created when first needed, for inputs using {@link InchiApi#CLASSIC} */
+  private ClassicInchiMarshaller classicMarshaller;
+  private boolean closed = false;
+
+  public InchiGenerator() {
+    JnaInchi.checkLibrary();
+    logger = IxaFunctions.IXA_STATUS_Create();
+    nativeMol = IxaFunctions.IXA_MOL_Create(logger);
+    builder = IxaFunctions.IXA_INCHIBUILDER_Create(logger);
+  }
+
+  public InchiOutput toInchi(InchiInput inchiInput) {
+    return toInchi(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  public InchiOutput toInchi(InchiInput inchiInput, InchiOptions options) {
+    checkOpen();
+    JnaInchi.checkInputSize(inchiInput);
+    if (options.getApi() == InchiApi.CLASSIC) {
+      InchiOutput output = getClassicMarshaller().toInchi(inchiInput, options);
+      if (output != null) {
+        return output;
+      }
+    }
+    return generate(() -> JnaInchi.populateMolecule(logger, nativeMol, inchiInput), options);
+  }
+
+  public InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput) {
+    return toInchiWithKey(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * Generates the InChI and InChIKey, see {@link JnaInchi#toInchiWithKey(InchiInput, InchiOptions)}
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput, InchiOptions options) {
+    checkOpen();
+    JnaInchi.checkInputSize(inchiInput);
+    if (options.getApi() == InchiApi.CLASSIC) {
+      InchiWithKeyOutput output = getClassicMarshaller().toInchiWithKey(inchiInput, options);
+      if (output != null) {
+        return output;
+      }
+    }
+    InchiOutput output = generate(() -> JnaInchi.populateMolecule(logger, nativeMol, inchiInput), options);
+    if (keyBuilder == null) {
+      keyBuilder = IxaFunctions.IXA_INCHIKEYBUILDER_Create(logger);
+    }
+    return new InchiWithKeyOutput(output, JnaInchi.getInchiKey(logger, builder, keyBuilder, output));
+  }
+
+  public InchiOutput toInchi(CompactInchiInput inchiInput) {
+    return toInchi(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  public InchiOutput toInchi(CompactInchiInput inchiInput, InchiOptions options) {
+    checkOpen();
+    JnaInchi.checkInputSize(inchiInput);
+    if (options.getApi() == InchiApi.CLASSIC) {
+      InchiOutput output = getClassicMarshaller().toInchi(inchiInput, options);
+      if (output != null) {
+        return output;
+      }
+    }
+    return generate(() -> JnaInchi.populateMolecule(logger, nativeMol, inchiInput), options);
+  }
+
+  /**
+   * Converts InChI into InChI, see {@link JnaInchi#inchiToInchi(String, InchiOptions)}
+   * @param inchi
+   * @param options
+   * @return
+   */
+  public InchiOutput inchiToInchi(String inchi, InchiOptions options) {
+    checkOpen();
+    return generate(() -> IxaFunctions.IXA_MOL_ReadInChI(logger, nativeMol, inchi), options);
+  }
+
+  /**
+   * Loads the molecule using populateMolecule, then generates its InChI
+   * @param populateMolecule
+   * @param options
+   * @return
+   */
+  private InchiOutput generate(Runnable populateMolecule, InchiOptions options) {
+    reset();
+    populateMolecule.run();
+    InchiOutput output = buildInchi(options);
+    if (output.getStatus() == InchiStatus.ERROR) {
+      //On failure the builder may still hold the outputs of the previous molecule, so repeat using a new builder
+      replaceBuilder();
+      reset();
+      populateMolecule.run();
+      output = buildInchi(options);
+    }
+    return output;
+  }
+
+  private ClassicInchiMarshaller getClassicMarshaller() {
+    if (classicMarshaller == null) {
+      classicMarshaller = new ClassicInchiMarshaller();
+    }
+    return classicMarshaller;
+  }
+
+  private void reset() {
+    IxaFunctions.IXA_STATUS_Clear(logger);
+    IxaFunctions.IXA_MOL_Clear(logger, nativeMol);
+  }
+
+  private void replaceBuilder() {
+    IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder);
+    builder = IxaFunctions.IXA_INCHIBUILDER_Create(logger);
+    builderOptions = InchiOptions.DEFAULT_OPTIONS;
+  }
+
+  private InchiOutput buildInchi(InchiOptions options) {
+    IxaFunctions.IXA_INCHIBUILDER_SetMolecule(logger, builder, nativeMol);
+    JnaInchi.applyMolOptions(logger, nativeMol, options);
+    if (!hasSameBuilderOptions(options)) {
+      //Options persist on the builder, so undo the previous options before applying the new ones
+      JnaInchi.resetBuilderOptions(logger, builder, builderOptions);
+      builderOptions = InchiOptions.DEFAULT_OPTIONS;
+      JnaInchi.applyBuilderOptions(logger, builder, options);
+      builderOptions = options;
+    }
+    return JnaInchi.getOutput(logger, builder, options);
+  }
+
+  private boolean hasSameBuilderOptions(InchiOptions options) {
+    return options == builderOptions ||
+        (options.getTimeoutMilliSeconds() == builderOptions.getTimeoutMilliSeconds() && options.getFlags().equals(builderOptions.getFlags()));
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("InchiGenerator has been closed");
+    }
+  }
+
+  /**
+   * Releases the native handles. The generator cannot be used after it has been closed.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    classicMarshaller = null;
+    if (keyBuilder != null) {
+      IxaFunctions.IXA_INCHIKEYBUILDER_Destroy(logger, keyBuilder);
+    }
+    IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder);
+    IxaFunctions.IXA_MOL_Destroy(logger, nativeMol);
+    IxaFunctions.IXA_STATUS_Destroy(logger);
+  }
+
+}
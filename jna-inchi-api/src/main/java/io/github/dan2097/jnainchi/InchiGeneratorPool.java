@@ -0,0 +1,167 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides each thread with its own {@link InchiGenerator}, so that the static methods on {@link JnaInchi} can reuse native handles.
+ * Generators are released by a background daemon thread when their thread has terminated, or when they have not been used for longer
+ * than the idle timeout.
+ */
+class InchiGeneratorPool {
+
+  private static final int IDLE = 0;
+  private static final int IN_USE = 1;
+  private static final int CLOSED = 2;
+
+  private final long idleTimeoutNanos;
+  private final ThreadLocal<PooledGenerator> threadGenerator = new ThreadLocal<>();
+  private final Set<PooledGenerator> generators = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService reaper;
+  private volatile boolean shutdown = false;
+
+  InchiGeneratorPool(long idleTimeoutMilliSecs) {
+    if (idleTimeoutMilliSecs <= 0) {
+      throw new IllegalArgumentException("Idle timeout should be a positive time in milliseconds: " + idleTimeoutMilliSecs);
+    }
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMilliSecs);
+    this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "jnainchi-generator-reaper");
+      t.setDaemon(true);
+      return t;
+    });
+    long period = Math.max(idleTimeoutMilliSecs / 2, 1);
+    reaper.scheduleWithFixedDelay(this::releaseUnusedGenerators, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  InchiOutput toInchi(InchiInput inchiInput, InchiOptions options) {
+    PooledGenerator pooled = acquire();
+    try {
+      return pooled.generator.toInchi(inchiInput, options);
+    }
+    finally {
+      release(pooled);
+    }
+  }
+
+  InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput, InchiOptions options) {
+    PooledGenerator pooled = acquire();
+    try {
+      return pooled.generator.toInchiWithKey(inchiInput, options);
+    }
+    finally {
+      release(pooled);
+    }
+  }
+
+  InchiOutput toInchi(CompactInchiInput inchiInput, InchiOptions options) {
+    PooledGenerator pooled = acquire();
+    try {
+      return pooled.generator.toInchi(inchiInput, options);
+    }
+    finally {
+      release(pooled);
+    }
+  }
+
+  InchiOutput inchiToInchi(String inchi, InchiOptions options) {
+    PooledGenerator pooled = acquire();
+    try {
+      return pooled.generator.inchiToInchi(inchi, options);
+    }
+    finally {
+      release(pooled);
+    }
+  }
+
+  private PooledGenerator acquire() {
+    PooledGenerator pooled = threadGenerator.get();
+    if (pooled == null || !pooled.state.compareAndSet(IDLE, IN_USE)) {
+      //No generator for this thread yet, or it was released whilst idle
+      pooled = new PooledGenerator(Thread.currentThread());
+      generators.add(pooled);
+      threadGenerator.set(pooled);
+    }
+    return pooled;
+  }
+
+  private void release(PooledGenerator pooled) {
+    pooled.lastUsed = System.nanoTime();
+    pooled.state.set(IDLE);
+    if (shutdown) {
+      close(pooled);
+    }
+  }
+
+  /**
+   * Number of generators that currently hold native handles
+   * @return
+   */
+  int size() {
+    return generators.size();
+  }
+
+  void releaseUnusedGenerators() {
+    long now = System.nanoTime();
+    for (PooledGenerator pooled : generators) {
+      Thread owner = pooled.owner.get();
+      if (owner == null || !owner.isAlive() || now - pooled.lastUsed > idleTimeoutNanos) {
+        close(pooled);
+      }
+    }
+  }
+
+  /**
+   * Releases all generators. Generators that are in use are released when their current call completes.
+   */
+  void shutdown() {
+    shutdown = true;
+    reaper.shutdownNow();
+    for (PooledGenerator pooled : generators) {
+      close(pooled);
+    }
+  }
+
+  private void close(PooledGenerator pooled) {
+    //Only idle generators may be closed, a generator that is in use is owned by its thread
+    if (pooled.state.compareAndSet(IDLE, CLOSED)) {
+      generators.remove(pooled);
+      pooled.generator.close();
+    }
+  }
+
+  private static class PooledGenerator {
+
+    private final InchiGenerator generator = new InchiGenerator();
+    /** Weakly referenced, so that threads that have finished can be garbage collected before the generator is released */
+    private final WeakReference<Thread> owner;
+    private final AtomicInteger state = new AtomicInteger(IN_USE);
+    private volatile long lastUsed = System.nanoTime();
+
+    private PooledGenerator(Thread owner) {
+      this.owner = new WeakReference<>(owner);
+    }
+  }
+}
@@ -26,13 +26,20 @@ public class InchiInput {
   private List<InchiAtom> atoms = new ArrayList<>();
   private List<InchiBond> bonds = new ArrayList<>();
   private List<InchiStereo> stereos = new ArrayList<>();
+  /** Lazily created, and discarded when atoms are added */
+  private AtomIndexTable atomIndexTable;
+  /** Lazily created, and discarded when atoms or bonds are added */
+  private BondAdjacencyTable bondAdjacencyTable;
 
   public void addAtom(InchiAtom atom) {
     this.atoms.add(atom);
+    this.atomIndexTable = null;
+    this.bondAdjacencyTable = null;
   }
 
   public void addBond(InchiBond bond) {
     this.bonds.add(bond);
+    this.bondAdjacencyTable = null;
   }
   
   public void addStereo(InchiStereo stereo) {
@@ -47,6 +54,95 @@ public class InchiInput {
     return bonds.get(i);
   }
   
+  /**
+   * Returns the index of the given atom in this input, or -1 if the atom is not part of this input.
+   * Atoms are compared by identity. Unlike getAtoms().indexOf(atom) this is a constant time operation
+   * @param atom
+   * @return
+   */
+  public int getAtomIndex(InchiAtom atom) {
+    AtomIndexTable table = atomIndexTable;
+    if (table == null) {
+      table = new AtomIndexTable(atoms);
+      atomIndexTable = table;
+    }
+    return table.indexOf(atom);
+  }
+
+  private BondAdjacencyTable getBondAdjacencyTable() {
+    BondAdjacencyTable table = bondAdjacencyTable;
+    if (table == null) {
+      table = new BondAdjacencyTable(this);
+      bondAdjacencyTable = table;
+    }
+    return table;
+  }
+
+  /**
+   * Returns the atoms that are bonded to the given atom, in the order of the bonds.
+   * The bonds of each atom are indexed when first needed, so this takes time proportional to the number of bonds of the atom
+   * @param atom
+   * @return list of connected atoms, or null if atom is null
+   */
+  public List<InchiAtom> getConnectedAtomList(InchiAtom atom) {
+    if (atom == null) {
+      return null;
+    }
+    List<InchiAtom> connectedAtoms = new ArrayList<>();
+    int atomIndex = getAtomIndex(atom);
+    if (atomIndex < 0) {
+      //Not part of this input, but it may still be referenced by a bond
+      for (InchiBond bond : bonds) {
+        InchiAtom other = bond.getOther(atom);
+        if (other != null) {
+          connectedAtoms.add(other);
+        }
+      }
+      return connectedAtoms;
+    }
+    BondAdjacencyTable table = getBondAdjacencyTable();
+    for (int i = table.start(atomIndex), end = table.end(atomIndex); i < end; i++) {
+      connectedAtoms.add(bonds.get(table.bondIndexAt(i)).getOther(atom));
+    }
+    return connectedAtoms;
+  }
+
+  /**
+   * Returns the bond that connects the two given atoms.
+   * The bonds of each atom are indexed when first needed, so this takes time proportional to the number of bonds of the atoms
+   * @param atom1
+   * @param atom2
+   * @return the bond, or null if the atoms are not bonded
+   */
+  public InchiBond getBond(InchiAtom atom1, InchiAtom atom2) {
+    InchiAtom indexedAtom = atom1;
+    InchiAtom otherAtom = atom2;
+    int atomIndex = getAtomIndex(atom1);
+    if (atomIndex < 0) {
+      indexedAtom = atom2;
+      otherAtom = atom1;
+      atomIndex = getAtomIndex(atom2);
+    }
+    if (atomIndex < 0) {
+      //Neither atom is part of this input, but they may still be referenced by a bond
+      for (InchiBond bond : bonds) {
+        InchiAtom other = bond.getOther(atom1);
+        if (other != null && other == atom2) {
+          return bond;
+        }
+      }
+      return null;
+    }
+    BondAdjacencyTable table = getBondAdjacencyTable();
+    for (int i = table.start(atomIndex), end = table.end(atomIndex); i < end; i++) {
+      InchiBond bond = bonds.get(table.bondIndexAt(i));
+      if (bond.getOther(indexedAtom) == otherAtom) {
+        return bond;
+      }
+    }
+    return null;
+  }
+  
   public List<InchiAtom> getAtoms() {
     return Collections.unmodifiableList(atoms);
   }
@@ -0,0 +1,245 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * An InChIKey packed into two longs, for holding large numbers of InChIKeys compactly.
+ * <br>
+ * The 25 letters of the key are stored as base-26 numbers: the high long holds the first 13 letters of the connectivity block,
+ * the low long holds the 14th letter of the connectivity block in its top bits, followed by the remaining 11 letters.
+ * Hence comparing the longs gives the same ordering as comparing the InChIKey strings.
+ * <br>
+ * A 14 letter connectivity block encodes 65 bits of hash so does not fit in a single long; connectivity comparison is a
+ * comparison of the high long, then of the top bits of the low long.
+ */
+public final class InchiKey implements Comparable<InchiKey> {
+
+  private static final int HIGH_LETTERS = 13;
+  /** Bit offset in the low long of the last letter of the connectivity block */
+  static final int CONNECTIVITY_SHIFT = 52;
+  private static final long LOW_LETTERS_MASK = (1L << CONNECTIVITY_SHIFT) - 1;
+  private static final long HIGH_LIMIT = pow26(HIGH_LETTERS);
+  private static final long LOW_LETTERS_LIMIT = pow26(11);
+
+  private final long high;
+  private final long low;
+
+  /**
+   * Creates an InChIKey from the values returned by {@link #getMostSignificantBits()} and {@link #getLeastSignificantBits()}
+   * @param mostSigBits
+   * @param leastSigBits
+   */
+  public InchiKey(long mostSigBits, long leastSigBits) {
+    if (mostSigBits < 0 || mostSigBits >= HIGH_LIMIT || (leastSigBits >>> CONNECTIVITY_SHIFT) >= 26 || (leastSigBits & LOW_LETTERS_MASK) >= LOW_LETTERS_LIMIT) {
+      throw new IllegalArgumentException("Not a packed InChIKey: " + mostSigBits + ", " + leastSigBits);
+    }
+    this.high = mostSigBits;
+    this.low = leastSigBits;
+  }
+
+  /**
+   * Parses a 27 character InChIKey e.g. VNWKTOKETHGBQD-UHFFFAOYSA-N
+   * @param inchiKey
+   * @return
+   * @throws IllegalArgumentException if the InChIKey is not 14 letters, hyphen, 10 letters, hyphen, letter
+   */
+  public static InchiKey parse(CharSequence inchiKey) {
+    checkInchiKey(inchiKey);
+    return new InchiKey(encodeHigh(inchiKey), encodeLow(inchiKey));
+  }
+
+  /**
+   * Creates an InChIKey from a successful InChIKey generation
+   * @param output
+   * @return
+   * @throws IllegalArgumentException if the output's status is not {@link InchiKeyStatus#OK}
+   */
+  public static InchiKey from(InchiKeyOutput output) {
+    if (output.getStatus() != InchiKeyStatus.OK) {
+      throw new IllegalArgumentException("InChIKey generation was not successful: " + output.getStatus());
+    }
+    return parse(output.getInchiKey());
+  }
+
+  static void checkInchiKey(CharSequence inchiKey) {
+    if (inchiKey.length() != InchiKeyGenerator.INCHIKEY_LENGTH) {
+      throw new IllegalArgumentException("InChIKey should be " + InchiKeyGenerator.INCHIKEY_LENGTH + " characters: " + inchiKey);
+    }
+    for (int i = 0; i < InchiKeyGenerator.INCHIKEY_LENGTH; i++) {
+      char ch = inchiKey.charAt(i);
+      boolean valid = (i == 14 || i == 25) ? ch == '-' : (ch >= 'A' && ch <= 'Z');
+      if (!valid) {
+        throw new IllegalArgumentException("Invalid character at position " + i + " of InChIKey: " + inchiKey);
+      }
+    }
+  }
+
+  /**
+   * Checks that the given string is a 14 letter connectivity block
+   * @param connectivityBlock
+   */
+  static void checkConnectivityBlock(CharSequence connectivityBlock) {
+    if (connectivityBlock.length() != 14) {
+      throw new IllegalArgumentException("InChIKey connectivity block should be 14 letters: " + connectivityBlock);
+    }
+    for (int i = 0; i < 14; i++) {
+      char ch = connectivityBlock.charAt(i);
+      if (ch < 'A' || ch > 'Z') {
+        throw new IllegalArgumentException("Invalid character at position " + i + " of InChIKey connectivity block: " + connectivityBlock);
+      }
+    }
+  }
+
+  /**
+   * Packs the first 13 letters of an already validated InChIKey or connectivity block
+   */
+  static long encodeHigh(CharSequence inchiKey) {
+    long value = 0;
+    for (int i = 0; i < HIGH_LETTERS; i++) {
+      value = value * 26 + (inchiKey.charAt(i) - 'A');
+    }
+    return value;
+  }
+
+  /**
+   * Packs the remaining letters of an already validated InChIKey
+   */
+  static long encodeLow(CharSequence inchiKey) {
+    long value = 0;
+    for (int i = 15; i < 25; i++) {
+      value = value * 26 + (inchiKey.charAt(i) - 'A');
+    }
+    value = value * 26 + (inchiKey.charAt(26) - 'A');
+    return encodeConnectivityLetter(inchiKey) << CONNECTIVITY_SHIFT | value;
+  }
+
+  /**
+   * The 14th letter of an already validated InChIKey or connectivity block, as stored in the top bits of the low long
+   */
+  static long encodeConnectivityLetter(CharSequence inchiKey) {
+    return inchiKey.charAt(HIGH_LETTERS) - 'A';
+  }
+
+  public long getMostSignificantBits() {
+    return high;
+  }
+
+  public long getLeastSignificantBits() {
+    return low;
+  }
+
+  /**
+   * The first block of the InChIKey, which encodes the molecular skeleton (connectivity)
+   * @return
+   */
+  public String getConnectivityBlock() {
+    return toString().substring(0, 14);
+  }
+
+  /**
+   * Whether the InChIKey was generated from a standard InChI i.e. the flag character is S
+   * @return
+   */
+  public boolean isStandard() {
+    //flag, version and protonation letters are the last three base-26 digits
+    return (low & LOW_LETTERS_MASK) / (26 * 26) % 26 == 'S' - 'A';
+  }
+
+  /**
+   * Compares only the connectivity blocks of two InChIKeys, consistent with comparing the first 14 characters of their strings
+   * @param other
+   * @return
+   */
+  public int compareConnectivity(InchiKey other) {
+    int cmp = Long.compare(high, other.high);
+    if (cmp != 0) {
+      return cmp;
+    }
+    return Long.compare(low >>> CONNECTIVITY_SHIFT, other.low >>> CONNECTIVITY_SHIFT);
+  }
+
+  /**
+   * Whether the two InChIKeys have the same connectivity block, and hence differ at most by tautomerism, stereochemistry,
+   * isotopes or protonation
+   * @param other
+   * @return
+   */
+  public boolean hasSameConnectivity(InchiKey other) {
+    return high == other.high && (low >>> CONNECTIVITY_SHIFT) == (other.low >>> CONNECTIVITY_SHIFT);
+  }
+
+  @Override
+  public int compareTo(InchiKey other) {
+    return compare(high, low, other.high, other.low);
+  }
+
+  static int compare(long high1, long low1, long high2, long low2) {
+    int cmp = Long.compare(high1, high2);
+    return cmp != 0 ? cmp : Long.compare(low1, low2);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof InchiKey)) {
+      return false;
+    }
+    InchiKey other = (InchiKey) obj;
+    return high == other.high && low == other.low;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(high) + Long.hashCode(low);
+  }
+
+  @Override
+  public String toString() {
+    return toString(high, low);
+  }
+
+  static String toString(long high, long low) {
+    char[] key = new char[InchiKeyGenerator.INCHIKEY_LENGTH];
+    long value = high;
+    for (int i = HIGH_LETTERS - 1; i >= 0; i--) {
+      key[i] = (char) ('A' + value % 26);
+      value /= 26;
+    }
+    key[HIGH_LETTERS] = (char) ('A' + (low >>> CONNECTIVITY_SHIFT));
+    key[14] = '-';
+    value = low & LOW_LETTERS_MASK;
+    key[26] = (char) ('A' + value % 26);
+    value /= 26;
+    key[25] = '-';
+    for (int i = 24; i >= 15; i--) {
+      key[i] = (char) ('A' + value % 26);
+      value /= 26;
+    }
+    return new String(key);
+  }
+
+  private static long pow26(int exponent) {
+    long value = 1;
+    for (int i = 0; i < exponent; i++) {
+      value *= 26;
+    }
+    return value;
+  }
+}
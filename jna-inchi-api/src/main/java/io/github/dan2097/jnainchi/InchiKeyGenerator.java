@@ -0,0 +1,356 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.nio.charset.Charset;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Pure Java implementation of InChIKey generation, giving identical results to the InChI library's GetINCHIKeyFromINCHI,
+ * but without requiring the native library to be loaded.
+ * <br>
+ * The methods that write the InChIKey to a caller-supplied buffer do not allocate; instead each instance holds its own working buffers,
+ * hence instances are NOT thread-safe.
+ * <pre>
+ * InchiKeyGenerator keyGenerator = new InchiKeyGenerator();
+ * char[] key = new char[InchiKeyGenerator.INCHIKEY_LENGTH];
+ * for (String inchi : inchis) {
+ *   if (keyGenerator.generate(inchi, key, 0) == InchiKeyStatus.OK) {
+ *     ...
+ *   }
+ * }
+ * </pre>
+ */
+public final class InchiKeyGenerator {
+
+  /** Length of an InChIKey e.g. VNWKTOKETHGBQD-UHFFFAOYSA-N */
+  public static final int INCHIKEY_LENGTH = 27;
+
+  private static final String INCHI_PREFIX = "InChI=";
+  private static final int INCHI_PREFIX_LENGTH = INCHI_PREFIX.length();
+  private static final int MAX_PROTONATION_FLAG_OFFSET = 12;
+  private static final int MIN_UNREPEATED_MINOR_LENGTH = 255;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final MessageDigest sha256;
+  private final byte[] majorDigest = new byte[32];
+  private final byte[] minorDigest = new byte[32];
+  private final char[] key = new char[INCHIKEY_LENGTH];
+  /** The InChI as ASCII */
+  private byte[] buffer = new byte[256];
+
+  public InchiKeyGenerator() {
+    try {
+      sha256 = MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+  }
+
+  /**
+   * Generates the InChIKey of the given InChI, equivalent to {@link JnaInchi#inchiToInchiKey(String)}
+   * @param inchi
+   * @return
+   */
+  public InchiKeyOutput generate(String inchi) {
+    InchiKeyStatus status = computeKey(inchi);
+    if (status != InchiKeyStatus.OK) {
+      return new InchiKeyOutput("", status, "", "");
+    }
+    return new InchiKeyOutput(new String(key), status, getMajorHashExtension(), getMinorHashExtension());
+  }
+
+  /**
+   * Writes the InChIKey of the given InChI to dest, starting at offset.
+   * If the returned status is not {@link InchiKeyStatus#OK}, dest is not modified
+   * @param inchi
+   * @param dest must have space for {@value #INCHIKEY_LENGTH} characters after offset
+   * @param offset
+   * @return
+   */
+  public InchiKeyStatus generate(CharSequence inchi, char[] dest, int offset) {
+    checkDestination(dest.length, offset);
+    InchiKeyStatus status = computeKey(inchi);
+    if (status == InchiKeyStatus.OK) {
+      System.arraycopy(key, 0, dest, offset, INCHIKEY_LENGTH);
+    }
+    return status;
+  }
+
+  /**
+   * Writes the InChIKey of the given InChI to dest as ASCII, starting at offset.
+   * If the returned status is not {@link InchiKeyStatus#OK}, dest is not modified
+   * @param inchi
+   * @param dest must have space for {@value #INCHIKEY_LENGTH} bytes after offset
+   * @param offset
+   * @return
+   */
+  public InchiKeyStatus generate(CharSequence inchi, byte[] dest, int offset) {
+    checkDestination(dest.length, offset);
+    InchiKeyStatus status = computeKey(inchi);
+    if (status == InchiKeyStatus.OK) {
+      for (int i = 0; i < INCHIKEY_LENGTH; i++) {
+        dest[offset + i] = (byte) key[i];
+      }
+    }
+    return status;
+  }
+
+  private static void checkDestination(int length, int offset) {
+    if (offset < 0 || offset > length - INCHIKEY_LENGTH) {
+      throw new IndexOutOfBoundsException("No space for an InChIKey at offset " + offset + " of a buffer of length " + length);
+    }
+  }
+
+  private InchiKeyStatus computeKey(CharSequence inchi) {
+    if (inchi == null) {
+      return InchiKeyStatus.EMPTY_INPUT;
+    }
+    int len = toCString(inchi);
+    byte[] str = buffer;
+    if (len < INCHI_PREFIX_LENGTH + 3) {
+      return InchiKeyStatus.INVALID_INCHI_PREFIX;
+    }
+    for (int i = 0; i < INCHI_PREFIX_LENGTH; i++) {
+      if (str[i] != INCHI_PREFIX.charAt(i)) {
+        return InchiKeyStatus.INVALID_INCHI_PREFIX;
+      }
+    }
+    if (str[INCHI_PREFIX_LENGTH] != '1') {
+      return InchiKeyStatus.INVALID_INCHI_PREFIX;
+    }
+    int slash1 = INCHI_PREFIX_LENGTH + 1;
+    boolean standard = false;
+    char flag = 'N';
+    byte flagChar = str[slash1];
+    if (flagChar == 'S' || flagChar == 'B') {
+      //Standard or beta InChI
+      standard = flagChar == 'S';
+      flag = (char) flagChar;
+      slash1++;
+    }
+    if (str[slash1] != '/') {
+      return InchiKeyStatus.INVALID_INCHI_PREFIX;
+    }
+    byte firstLayerChar = slash1 + 1 < len ? str[slash1 + 1] : 0;
+    if (!isAlphanumeric(firstLayerChar) && firstLayerChar != '/' && firstLayerChar != '?') {
+      return InchiKeyStatus.INVALID_INCHI;
+    }
+
+    //As with the InChI library, the InChI ends at the first character that cannot be part of an InChI
+    int inchiLen = 0;
+    while (inchiLen < len && isInchiCharacter(str[inchiLen])) {
+      inchiLen++;
+    }
+
+    //Find the end of the main layer, and the protonation layer if present
+    int protonationStart = 0;
+    int j;
+    for (j = slash1 + 1; j < inchiLen - 1; j++) {
+      if (str[j] == '/') {
+        byte layer = str[j + 1];
+        if (layer == 'c' || layer == 'h' || layer == 'q') {
+          continue;
+        }
+        if (layer == 'p') {
+          protonationStart = j;
+          continue;
+        }
+        if (standard && (layer == 'f' || layer == 'r')) {
+          //Fixed-H and reconnected layers are never present in standard InChI
+          return InchiKeyStatus.INVALID_STD_INCHI;
+        }
+        break;
+      }
+    }
+    //j is the start of the remaining layers, or inchiLen if there are none
+    if (j + 1 == inchiLen) {
+      j = inchiLen;
+    }
+    int majorEnd = protonationStart != 0 ? protonationStart : j;
+
+    char protonationFlag = 'N';
+    if (protonationStart != 0) {
+      //The InChI library considers the protonation layer to be empty if it is immediately followed by another layer
+      if (j != inchiLen && j - protonationStart <= 2) {
+        return InchiKeyStatus.INVALID_INCHI;
+      }
+      //Truncated to an int, as in the InChI library
+      int protons = (int) parseLong(str, protonationStart + 2, j);
+      if (protons == 0) {
+        //The InChI library reports an unparseable protonation layer using this status
+        return InchiKeyStatus.INVALID_STD_INCHI;
+      }
+      if (protons > MAX_PROTONATION_FLAG_OFFSET || protons < -MAX_PROTONATION_FLAG_OFFSET) {
+        protonationFlag = 'A';
+      }
+      else {
+        protonationFlag = (char) ('N' + protons);
+      }
+    }
+
+    try {
+      sha256.update(str, slash1 + 1, majorEnd - slash1 - 1);
+      sha256.digest(majorDigest, 0, majorDigest.length);
+      int minorLen = inchiLen - j;
+      sha256.update(str, j, minorLen);
+      if (minorLen > 0 && minorLen < MIN_UNREPEATED_MINOR_LENGTH) {
+        //As with the InChI library, short remaining layers are hashed twice
+        sha256.update(str, j, minorLen);
+      }
+      sha256.digest(minorDigest, 0, minorDigest.length);
+    }
+    catch (DigestException e) {
+      throw new IllegalStateException(e);
+    }
+
+    InchiKeyHashEncoder.encodeHashBlock(majorDigest, key, 0);
+    key[14] = '-';
+    byte[] a = minorDigest;
+    InchiKeyHashEncoder.encodeTriplet((a[0] & 0xff) | (a[1] & 0x3f) << 8, key, 15);
+    InchiKeyHashEncoder.encodeTriplet((a[1] & 0xc0) >> 6 | (a[2] & 0xff) << 2 | (a[3] & 0x0f) << 10, key, 18);
+    InchiKeyHashEncoder.encodeDublet((a[3] & 0xf0) >> 4 | (a[4] & 0x1f) << 4, key, 21);
+    key[23] = flag;
+    //InChI version 1
+    key[24] = 'A';
+    key[25] = '-';
+    key[26] = protonationFlag;
+    return InchiKeyStatus.OK;
+  }
+
+  /**
+   * The bits of the first block's SHA-256 hash that are not encoded in the InChIKey, in hexadecimal
+   * @return
+   */
+  private String getMajorHashExtension() {
+    return toHex(majorDigest, 8, 0xfe);
+  }
+
+  /**
+   * The bits of the second block's SHA-256 hash that are not encoded in the InChIKey, in hexadecimal
+   * @return
+   */
+  private String getMinorHashExtension() {
+    return toHex(minorDigest, 4, 0xe0);
+  }
+
+  private static String toHex(byte[] digest, int start, int firstByteMask) {
+    char[] hex = new char[(digest.length - start) * 2];
+    int c = 0;
+    for (int i = start; i < digest.length; i++) {
+      int b = digest[i] & (i == start ? firstByteMask : 0xff);
+      hex[c++] = HEX[b >> 4];
+      hex[c++] = HEX[b & 0xf];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * Writes the InChI to the buffer as the bytes of the C string that the InChI library would receive,
+   * i.e. encoded as JNA encodes strings, and ending at the first null character
+   * @return the length in bytes
+   */
+  private int toCString(CharSequence str) {
+    int strLen = str.length();
+    if (buffer.length < strLen) {
+      buffer = new byte[Math.max(strLen, buffer.length * 2)];
+    }
+    byte[] buf = buffer;
+    for (int i = 0; i < strLen; i++) {
+      char ch = str.charAt(i);
+      if (ch == 0) {
+        return i;
+      }
+      if (ch >= 0x80) {
+        //Never the case for a valid InChI
+        return toCStringNonAscii(str);
+      }
+      buf[i] = (byte) ch;
+    }
+    return strLen;
+  }
+
+  private int toCStringNonAscii(CharSequence str) {
+    String encoding = System.getProperty("jna.encoding");
+    Charset charset = encoding != null && Charset.isSupported(encoding) ? Charset.forName(encoding) : Charset.defaultCharset();
+    byte[] bytes = str.toString().getBytes(charset);
+    if (buffer.length < bytes.length) {
+      buffer = new byte[bytes.length];
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == 0) {
+        return i;
+      }
+      buffer[i] = bytes[i];
+    }
+    return bytes.length;
+  }
+
+  /**
+   * Parses a number in the same way as C's strtol, saturating on overflow
+   */
+  private static long parseLong(byte[] str, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (str[i] == '+' || str[i] == '-')) {
+      negative = str[i] == '-';
+      i++;
+    }
+    long value = 0;
+    for (; i < end && str[i] >= '0' && str[i] <= '9'; i++) {
+      int digit = str[i] - '0';
+      if (value > (Long.MAX_VALUE - digit) / 10) {
+        return negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  private static boolean isAlphanumeric(byte ch) {
+    return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9');
+  }
+
+  private static boolean isInchiCharacter(byte ch) {
+    //Bytes of non-ASCII characters are also accepted by the InChI library
+    if (ch < 0 || isAlphanumeric(ch)) {
+      return true;
+    }
+    switch (ch) {
+    case '(':
+    case ')':
+    case '*':
+    case '+':
+    case ',':
+    case '-':
+    case '.':
+    case '/':
+    case ';':
+    case '=':
+    case '?':
+    case '@':
+      return true;
+    default:
+      return false;
+    }
+  }
+
+}
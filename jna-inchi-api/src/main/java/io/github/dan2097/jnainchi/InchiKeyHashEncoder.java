@@ -0,0 +1,106 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * The base-26 encoding of SHA-256 hashes used by the InChI library for InChIKeys, and by the RInChI library for RInChIKeys.
+ * <br>
+ * 14 bits are encoded as a letter triplet and 9 bits as a letter pair. The triplets starting with E, and TAA to TTV, are not used
+ * (hence the keys do not contain "E" and avoid some common words).
+ */
+public final class InchiKeyHashEncoder {
+
+  /** Number of letters encoding the first 65 bits of a hash, as in the first block of an InChIKey */
+  public static final int HASH_BLOCK_LENGTH = 14;
+
+  /** 14-bit values to letter triplets. All triplets in order, except those starting with E, and TAA to TTV, as used by the InChI library */
+  private static final char[] TRIPLETS = new char[(1 << 14) * 3];
+  /** 9-bit values to letter pairs */
+  private static final char[] DUBLETS = new char[(1 << 9) * 2];
+
+  static {
+    int i = 0;
+    for (char c1 = 'A'; c1 <= 'Z'; c1++) {
+      if (c1 == 'E') {
+        continue;
+      }
+      for (char c2 = 'A'; c2 <= 'Z'; c2++) {
+        for (char c3 = 'A'; c3 <= 'Z'; c3++) {
+          if (c1 == 'T' && (c2 < 'T' || (c2 == 'T' && c3 <= 'V'))) {
+            continue;
+          }
+          TRIPLETS[i++] = c1;
+          TRIPLETS[i++] = c2;
+          TRIPLETS[i++] = c3;
+        }
+      }
+    }
+    i = 0;
+    for (char c1 = 'A'; i < DUBLETS.length; c1++) {
+      for (char c2 = 'A'; c2 <= 'Z' && i < DUBLETS.length; c2++) {
+        DUBLETS[i++] = c1;
+        DUBLETS[i++] = c2;
+      }
+    }
+  }
+
+  private InchiKeyHashEncoder() {
+  }
+
+  /**
+   * Writes the {@link #HASH_BLOCK_LENGTH} letters encoding the first 65 bits of the hash:
+   * four triplets from the first 56 bits, then a pair from the next 9 bits
+   * @param digest SHA-256 hash, at least 9 bytes
+   * @param dest
+   * @param offset
+   */
+  public static void encodeHashBlock(byte[] digest, char[] dest, int offset) {
+    byte[] a = digest;
+    encodeTriplet((a[0] & 0xff) | (a[1] & 0x3f) << 8, dest, offset);
+    encodeTriplet((a[1] & 0xc0) >> 6 | (a[2] & 0xff) << 2 | (a[3] & 0x0f) << 10, dest, offset + 3);
+    encodeTriplet((a[3] & 0xf0) >> 4 | (a[4] & 0xff) << 4 | (a[5] & 0x03) << 12, dest, offset + 6);
+    encodeTriplet((a[5] & 0xfc) >> 2 | (a[6] & 0xff) << 6, dest, offset + 9);
+    encodeDublet((a[7] & 0xff) | (a[8] & 0x01) << 8, dest, offset + 12);
+  }
+
+  /**
+   * Writes the three letters encoding a 14-bit value
+   * @param value 0 to 16383
+   * @param dest
+   * @param offset
+   */
+  public static void encodeTriplet(int value, char[] dest, int offset) {
+    int idx = value * 3;
+    dest[offset] = TRIPLETS[idx];
+    dest[offset + 1] = TRIPLETS[idx + 1];
+    dest[offset + 2] = TRIPLETS[idx + 2];
+  }
+
+  /**
+   * Writes the two letters encoding a 9-bit value
+   * @param value 0 to 511
+   * @param dest
+   * @param offset
+   */
+  public static void encodeDublet(int value, char[] dest, int offset) {
+    int idx = value * 2;
+    dest[offset] = DUBLETS[idx];
+    dest[offset + 1] = DUBLETS[idx + 1];
+  }
+
+}
@@ -0,0 +1,375 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable sorted array of packed InChIKeys (16 bytes per key), supporting binary search and range queries over the connectivity block,
+ * e.g. to group the tautomers, stereoisomers and isotopologues of a molecular skeleton.
+ * <pre>
+ * InchiKeySortedIndex.InchiKeySortedIndexBuilder builder = new InchiKeySortedIndex.InchiKeySortedIndexBuilder();
+ * for (String inchiKey : inchiKeys) {
+ *   builder.add(inchiKey);
+ * }
+ * InchiKeySortedIndex index = builder.build().distinct();
+ * List&lt;InchiKey&gt; variants = index.withConnectivity("VNWKTOKETHGBQD");
+ * </pre>
+ */
+public final class InchiKeySortedIndex {
+
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private final long[] highs;
+  private final long[] lows;
+  private final int size;
+
+  private InchiKeySortedIndex(long[] highs, long[] lows, int size) {
+    this.highs = highs;
+    this.lows = lows;
+    this.size = size;
+  }
+
+  public static class InchiKeySortedIndexBuilder {
+
+    private long[] highs = new long[16];
+    private long[] lows = new long[16];
+    private int size = 0;
+
+    public InchiKeySortedIndexBuilder add(InchiKey inchiKey) {
+      return add(inchiKey.getMostSignificantBits(), inchiKey.getLeastSignificantBits());
+    }
+
+    /**
+     * Adds an InChIKey string, without creating an {@link InchiKey}
+     * @param inchiKey
+     * @return
+     * @throws IllegalArgumentException if the InChIKey is not valid
+     */
+    public InchiKeySortedIndexBuilder add(CharSequence inchiKey) {
+      InchiKey.checkInchiKey(inchiKey);
+      return add(InchiKey.encodeHigh(inchiKey), InchiKey.encodeLow(inchiKey));
+    }
+
+    public InchiKeySortedIndexBuilder addAll(Collection<InchiKey> inchiKeys) {
+      for (InchiKey inchiKey : inchiKeys) {
+        add(inchiKey);
+      }
+      return this;
+    }
+
+    private InchiKeySortedIndexBuilder add(long high, long low) {
+      if (size == highs.length) {
+        int capacity = size + (size >> 1);
+        if (capacity < 0) {
+          throw new IllegalStateException("Too many InChIKeys for an index");
+        }
+        highs = Arrays.copyOf(highs, capacity);
+        lows = Arrays.copyOf(lows, capacity);
+      }
+      highs[size] = high;
+      lows[size] = low;
+      size++;
+      return this;
+    }
+
+    /**
+     * Sorts the InChIKeys that have been added. Duplicates are retained; use {@link InchiKeySortedIndex#distinct()} to remove them.
+     * The builder should not be used after this method is called
+     * @return
+     */
+    public InchiKeySortedIndex build() {
+      long[] sortedHighs = size == highs.length ? highs : Arrays.copyOf(highs, size);
+      long[] sortedLows = size == lows.length ? lows : Arrays.copyOf(lows, size);
+      highs = null;
+      lows = null;
+      sort(sortedHighs, sortedLows, 0, size);
+      return new InchiKeySortedIndex(sortedHighs, sortedLows, size);
+    }
+  }
+
+  public static InchiKeySortedIndex of(Collection<InchiKey> inchiKeys) {
+    return new InchiKeySortedIndexBuilder().addAll(inchiKeys).build();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public InchiKey get(int index) {
+    checkIndex(index);
+    return new InchiKey(highs[index], lows[index]);
+  }
+
+  /**
+   * {@link InchiKey#getMostSignificantBits()} of the InChIKey at the given index, without creating an {@link InchiKey}
+   * @param index
+   * @return
+   */
+  public long getMostSignificantBits(int index) {
+    checkIndex(index);
+    return highs[index];
+  }
+
+  /**
+   * {@link InchiKey#getLeastSignificantBits()} of the InChIKey at the given index, without creating an {@link InchiKey}
+   * @param index
+   * @return
+   */
+  public long getLeastSignificantBits(int index) {
+    checkIndex(index);
+    return lows[index];
+  }
+
+  /**
+   * Index of the first occurrence of the given InChIKey, or (-(insertion point) - 1) if it is not present, as with {@link Arrays#binarySearch(long[], long)}
+   * @param inchiKey
+   * @return
+   */
+  public int indexOf(InchiKey inchiKey) {
+    long high = inchiKey.getMostSignificantBits();
+    long low = inchiKey.getLeastSignificantBits();
+    int index = lowerBound(high, low);
+    if (index < size && highs[index] == high && lows[index] == low) {
+      return index;
+    }
+    return -index - 1;
+  }
+
+  public boolean contains(InchiKey inchiKey) {
+    return indexOf(inchiKey) >= 0;
+  }
+
+  /**
+   * Index of the first InChIKey whose connectivity block is not less than the given 14 letter connectivity block
+   * @param connectivityBlock
+   * @return
+   */
+  public int connectivityLowerBound(CharSequence connectivityBlock) {
+    InchiKey.checkConnectivityBlock(connectivityBlock);
+    return lowerBound(InchiKey.encodeHigh(connectivityBlock), InchiKey.encodeConnectivityLetter(connectivityBlock) << InchiKey.CONNECTIVITY_SHIFT);
+  }
+
+  /**
+   * Index after the last InChIKey whose connectivity block is not greater than the given 14 letter connectivity block
+   * @param connectivityBlock
+   * @return
+   */
+  public int connectivityUpperBound(CharSequence connectivityBlock) {
+    InchiKey.checkConnectivityBlock(connectivityBlock);
+    return lowerBound(InchiKey.encodeHigh(connectivityBlock), (InchiKey.encodeConnectivityLetter(connectivityBlock) + 1) << InchiKey.CONNECTIVITY_SHIFT);
+  }
+
+  /**
+   * The InChIKeys with the given 14 letter connectivity block, in sorted order
+   * @param connectivityBlock
+   * @return
+   */
+  public List<InchiKey> withConnectivity(CharSequence connectivityBlock) {
+    return subList(connectivityLowerBound(connectivityBlock), connectivityUpperBound(connectivityBlock));
+  }
+
+  /**
+   * The InChIKeys with the same connectivity block as the given InChIKey (including the InChIKey itself, if present), in sorted order
+   * @param inchiKey
+   * @return
+   */
+  public List<InchiKey> withSameConnectivity(InchiKey inchiKey) {
+    long high = inchiKey.getMostSignificantBits();
+    long connectivityLetter = inchiKey.getLeastSignificantBits() >>> InchiKey.CONNECTIVITY_SHIFT;
+    int from = lowerBound(high, connectivityLetter << InchiKey.CONNECTIVITY_SHIFT);
+    int to = lowerBound(high, (connectivityLetter + 1) << InchiKey.CONNECTIVITY_SHIFT);
+    return subList(from, to);
+  }
+
+  /**
+   * The InChIKeys whose connectivity blocks are between the given connectivity blocks (inclusive), in sorted order
+   * @param fromConnectivityBlock
+   * @param toConnectivityBlock
+   * @return
+   */
+  public List<InchiKey> connectivityRange(CharSequence fromConnectivityBlock, CharSequence toConnectivityBlock) {
+    int from = connectivityLowerBound(fromConnectivityBlock);
+    int to = connectivityUpperBound(toConnectivityBlock);
+    return subList(from, Math.max(from, to));
+  }
+
+  /**
+   * Number of distinct connectivity blocks in the index
+   * @return
+   */
+  public int countConnectivityBlocks() {
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (i == 0 || highs[i] != highs[i - 1] || (lows[i] >>> InchiKey.CONNECTIVITY_SHIFT) != (lows[i - 1] >>> InchiKey.CONNECTIVITY_SHIFT)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns an index with duplicate InChIKeys removed (or this index if there were no duplicates)
+   * @return
+   */
+  public InchiKeySortedIndex distinct() {
+    int distinct = 0;
+    for (int i = 0; i < size; i++) {
+      if (i == 0 || highs[i] != highs[i - 1] || lows[i] != lows[i - 1]) {
+        distinct++;
+      }
+    }
+    if (distinct == size) {
+      return this;
+    }
+    long[] distinctHighs = new long[distinct];
+    long[] distinctLows = new long[distinct];
+    int j = 0;
+    for (int i = 0; i < size; i++) {
+      if (i == 0 || highs[i] != highs[i - 1] || lows[i] != lows[i - 1]) {
+        distinctHighs[j] = highs[i];
+        distinctLows[j] = lows[i];
+        j++;
+      }
+    }
+    return new InchiKeySortedIndex(distinctHighs, distinctLows, distinct);
+  }
+
+  /**
+   * Unmodifiable view of the InChIKeys in sorted order. InchiKey objects are created as they are accessed
+   * @return
+   */
+  public List<InchiKey> asList() {
+    return subList(0, size);
+  }
+
+  private List<InchiKey> subList(final int from, final int to) {
+    return new AbstractList<InchiKey>() {
+
+      @Override
+      public InchiKey get(int index) {
+        if (index < 0 || index >= to - from) {
+          throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+        }
+        return new InchiKey(highs[from + index], lows[from + index]);
+      }
+
+      @Override
+      public int size() {
+        return to - from;
+      }
+    };
+  }
+
+  /**
+   * First index whose InChIKey is greater than or equal to the given packed InChIKey
+   */
+  private int lowerBound(long high, long low) {
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (InchiKey.compare(highs[mid], lows[mid], high, low) < 0) {
+        lo = mid + 1;
+      }
+      else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  /**
+   * Sorts the parallel arrays from (inclusive) to (exclusive) using a three-way quicksort, as InChIKey lists often contain many duplicates
+   */
+  private static void sort(long[] highs, long[] lows, int from, int to) {
+    while (to - from > INSERTION_SORT_THRESHOLD) {
+      int pivot = medianOfThree(highs, lows, from, (from + to) >>> 1, to - 1);
+      long pivotHigh = highs[pivot];
+      long pivotLow = lows[pivot];
+      //[from, lt) less than pivot, [lt, i) equal, (gt, to) greater
+      int lt = from;
+      int i = from;
+      int gt = to - 1;
+      while (i <= gt) {
+        int cmp = InchiKey.compare(highs[i], lows[i], pivotHigh, pivotLow);
+        if (cmp < 0) {
+          swap(highs, lows, lt++, i++);
+        }
+        else if (cmp > 0) {
+          swap(highs, lows, i, gt--);
+        }
+        else {
+          i++;
+        }
+      }
+      //Recurse into the smaller partition to bound the stack depth
+      if (lt - from < to - gt - 1) {
+        sort(highs, lows, from, lt);
+        from = gt + 1;
+      }
+      else {
+        sort(highs, lows, gt + 1, to);
+        to = lt;
+      }
+    }
+    for (int i = from + 1; i < to; i++) {
+      long high = highs[i];
+      long low = lows[i];
+      int j = i - 1;
+      while (j >= from && InchiKey.compare(highs[j], lows[j], high, low) > 0) {
+        highs[j + 1] = highs[j];
+        lows[j + 1] = lows[j];
+        j--;
+      }
+      highs[j + 1] = high;
+      lows[j + 1] = low;
+    }
+  }
+
+  private static int medianOfThree(long[] highs, long[] lows, int a, int b, int c) {
+    if (InchiKey.compare(highs[a], lows[a], highs[b], lows[b]) < 0) {
+      if (InchiKey.compare(highs[b], lows[b], highs[c], lows[c]) < 0) {
+        return b;
+      }
+      return InchiKey.compare(highs[a], lows[a], highs[c], lows[c]) < 0 ? c : a;
+    }
+    if (InchiKey.compare(highs[a], lows[a], highs[c], lows[c]) < 0) {
+      return a;
+    }
+    return InchiKey.compare(highs[b], lows[b], highs[c], lows[c]) < 0 ? c : b;
+  }
+
+  private static void swap(long[] highs, long[] lows, int i, int j) {
+    long high = highs[i];
+    highs[i] = highs[j];
+    highs[j] = high;
+    long low = lows[i];
+    lows[i] = lows[j];
+    lows[j] = low;
+  }
+}
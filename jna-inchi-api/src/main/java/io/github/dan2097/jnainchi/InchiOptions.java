@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 public class InchiOptions {
   
@@ -31,16 +32,22 @@ public class InchiOptions {
 
   private final List<InchiFlag> flags;
   private final long timeoutMilliSecs;
+  private final InchiApi api;
+  private final Set<InchiOutputPart> outputParts;
 
   private InchiOptions(InchiOptionsBuilder builder) {
     this.flags = Collections.unmodifiableList(new ArrayList<InchiFlag>(builder.flags));
     this.timeoutMilliSecs = builder.timeoutMilliSecs;
+    this.api = builder.api;
+    this.outputParts = Collections.unmodifiableSet(EnumSet.copyOf(builder.outputParts));
   }
 
   public static class InchiOptionsBuilder {
 
     private final EnumSet<InchiFlag> flags = EnumSet.noneOf(InchiFlag.class);
     private long timeoutMilliSecs = 0;
+    private InchiApi api = InchiApi.IXA;
+    private EnumSet<InchiOutputPart> outputParts = EnumSet.allOf(InchiOutputPart.class);
 
     public InchiOptionsBuilder withFlag(InchiFlag... flags) {
       for (InchiFlag flag : flags) {
@@ -75,6 +82,35 @@ public class InchiOptions {
       return this;
     }
 
+    /**
+     * The InChI library API used to generate InChI from an InchiInput. The output is the same for either API,
+     * hence {@link InchiFlag#ChiralFlagON}, which the IXA API ignores, cannot be used with {@link InchiApi#CLASSIC}
+     * @param api
+     * @return
+     */
+    public InchiOptionsBuilder withApi(InchiApi api) {
+      if (api == null) {
+        throw new IllegalArgumentException("api must not be null");
+      }
+      this.api = api;
+      return this;
+    }
+
+    /**
+     * The parts of the {@link InchiOutput} to retrieve from the InChI library, by default all parts are retrieved.
+     * Parts that are not requested are null in the output. The status of the output is always available
+     * @param outputParts
+     * @return
+     */
+    public InchiOptionsBuilder withOutputParts(InchiOutputPart... outputParts) {
+      EnumSet<InchiOutputPart> parts = EnumSet.noneOf(InchiOutputPart.class);
+      for (InchiOutputPart part : outputParts) {
+        parts.add(part);
+      }
+      this.outputParts = parts;
+      return this;
+    }
+
     public InchiOptions build() {
       int stereoOptionFlags = 0;
       int chiralFlagFlags = 0;
@@ -101,6 +137,9 @@ public class InchiOptions {
       if (chiralFlagFlags > 1) {
         throw new IllegalArgumentException("Ambiguous flags: ChiralFlagOFF and ChiralFlagON are mutually exclusive");
       }
+      if (api == InchiApi.CLASSIC && flags.contains(InchiFlag.ChiralFlagON)) {
+        throw new IllegalArgumentException("ChiralFlagON is not supported with InchiApi.CLASSIC, as the IXA API currently ignores it");
+      }
       return new InchiOptions(this);
     }
   }
@@ -117,6 +156,14 @@ public class InchiOptions {
     return timeoutMilliSecs;
   }
 
+  public InchiApi getApi() {
+    return api;
+  }
+
+  public Set<InchiOutputPart> getOutputParts() {
+    return outputParts;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -124,20 +171,40 @@ public class InchiOptions {
       if (inchiFlag == InchiFlag.SAbs) {
         continue;
       }
-      if (sb.length() > 0) {
-        sb.append(' ');
-      }
-      sb.append(IS_WINDOWS ? "/" : "-");
-      sb.append(inchiFlag.toString());
+      appendOption(sb, inchiFlag.toString());
     }
     if (timeoutMilliSecs != 0) {
-      if (sb.length() > 0) {
-        sb.append(' ');
+      appendOption(sb, "WM" + timeoutMilliSecs);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Options for the classic API that give the same output as these options give with the IXA API.
+   * The IXA API (as used by {@link JnaInchi#toInchi(InchiInput, InchiOptions)}) currently always behaves as though the chiral flag is off,
+   * hence {@link InchiOptionsBuilder#build()} rejects ChiralFlagON with the classic API. SAbs is the default so is not passed
+   * @return
+   */
+  String toIxaEquivalentString() {
+    StringBuilder sb = new StringBuilder();
+    for (InchiFlag inchiFlag : flags) {
+      if (inchiFlag == InchiFlag.SAbs || inchiFlag == InchiFlag.ChiralFlagOFF) {
+        continue;
       }
-      sb.append(IS_WINDOWS ? "/" : "-");
-      sb.append("WM");
-      sb.append(String.valueOf(timeoutMilliSecs));
+      appendOption(sb, inchiFlag.toString());
+    }
+    appendOption(sb, InchiFlag.ChiralFlagOFF.toString());
+    if (timeoutMilliSecs != 0) {
+      appendOption(sb, "WM" + timeoutMilliSecs);
     }
     return sb.toString();
   }
+
+  private static void appendOption(StringBuilder sb, String option) {
+    if (sb.length() > 0) {
+      sb.append(' ');
+    }
+    sb.append(IS_WINDOWS ? "/" : "-");
+    sb.append(option);
+  }
 }
@@ -21,7 +21,9 @@ public class InchiOutput {
   
   private final String inchi;
   private final String auxInfo;
-  private final String message;
+  private String message;
+  /** Joined to form the message when it is first requested */
+  private final String[] messages;
   private final String log;
   private final InchiStatus status;
 
@@ -29,6 +31,15 @@ public class InchiOutput {
     this.inchi = inchi;
     this.auxInfo = auxInfo;
     this.message = message;
+    this.messages = null;
+    this.log = log;
+    this.status = status;
+  }
+
+  InchiOutput(String inchi, String auxInfo, String[] messages, String log, InchiStatus status) {
+    this.inchi = inchi;
+    this.auxInfo = auxInfo;
+    this.messages = messages;
     this.log = log;
     this.status = status;
   }
@@ -42,6 +53,11 @@ public class InchiOutput {
   }
 
   public String getMessage() {
+    String message = this.message;
+    if (message == null && messages != null) {
+      message = messages.length == 0 ? "" : String.join("; ", messages);
+      this.message = message;
+    }
     return message;
   }
 
@@ -19,11 +19,23 @@ package io.github.dan2097.jnainchi;
 
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.sun.jna.Memory;
 import com.sun.jna.NativeLong;
 import com.sun.jna.Platform;
 
@@ -38,13 +50,13 @@ import io.github.dan2097.jnainchi.inchi.IxaFunctions;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_ATOMID;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_BONDID;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIKEYBUILDER_HANDLE;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_MOL_HANDLE;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STATUS_HANDLE;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STEREOID;
 import io.github.dan2097.jnainchi.inchi.tagINCHIStereo0D;
 import io.github.dan2097.jnainchi.inchi.tagINCHI_Input;
 import io.github.dan2097.jnainchi.inchi.tagINCHI_InputINCHI;
-import io.github.dan2097.jnainchi.inchi.tagINCHI_Output;
 import io.github.dan2097.jnainchi.inchi.tagINCHI_OutputStruct;
 import io.github.dan2097.jnainchi.inchi.tagInchiAtom;
 import io.github.dan2097.jnainchi.inchi.tagInchiInpData;
@@ -57,6 +69,14 @@ public class JnaInchi {
   private static final int ISOTOPIC_SHIFT_RANGE_MAX = InchiLibrary.ISOTOPIC_SHIFT_FLAG + InchiLibrary.ISOTOPIC_SHIFT_MAX;
   private static final Map<String, Integer> inchiBaseAtomicMasses = new HashMap<>();
   
+  /** System property that when set to true enables {@link #setHandlePooling(boolean)} */
+  public static final String HANDLE_POOLING_PROPERTY = "jnainchi.handlePooling";
+  /** System property for the idle timeout, in milliseconds, of pooled native handles */
+  public static final String HANDLE_POOLING_IDLE_TIMEOUT_PROPERTY = "jnainchi.handlePooling.idleTimeout";
+  private static final long DEFAULT_HANDLE_POOLING_IDLE_TIMEOUT = 60000;
+  private static volatile InchiGeneratorPool generatorPool;
+  private static final ThreadLocal<InchiKeyGenerator> inchiKeyGenerator = ThreadLocal.withInitial(InchiKeyGenerator::new);
+  
   static {
     Throwable t = null;
     String p = null;
@@ -191,6 +211,39 @@ public class JnaInchi {
     inchiBaseAtomicMasses.put("Lv", 293);
     inchiBaseAtomicMasses.put("Ts", 297);
     inchiBaseAtomicMasses.put("Og", 294);
+    
+    if (Boolean.getBoolean(HANDLE_POOLING_PROPERTY)) {
+      setHandlePooling(true, Long.getLong(HANDLE_POOLING_IDLE_TIMEOUT_PROPERTY, DEFAULT_HANDLE_POOLING_IDLE_TIMEOUT));
+    }
+  }
+  
+  /**
+   * When enabled, {@link #toInchi(InchiInput, InchiOptions)} and {@link #inchiToInchi(String, InchiOptions)}
+   * reuse per-thread native InChI handles (see {@link InchiGenerator}) rather than creating them for every call.
+   * Handles are released when their thread terminates or has not used them for 60 seconds.
+   * <br>
+   * This may also be enabled by setting the system property {@value #HANDLE_POOLING_PROPERTY} to true
+   * @param enabled
+   */
+  public static void setHandlePooling(boolean enabled) {
+    setHandlePooling(enabled, DEFAULT_HANDLE_POOLING_IDLE_TIMEOUT);
+  }
+  
+  /**
+   * As {@link #setHandlePooling(boolean)}, with the time after which unused handles are released
+   * @param enabled
+   * @param idleTimeoutMilliSecs
+   */
+  public static synchronized void setHandlePooling(boolean enabled, long idleTimeoutMilliSecs) {
+    InchiGeneratorPool previousPool = generatorPool;
+    generatorPool = enabled ? new InchiGeneratorPool(idleTimeoutMilliSecs) : null;
+    if (previousPool != null) {
+      previousPool.shutdown();
+    }
+  }
+  
+  public static boolean isHandlePooling() {
+    return generatorPool != null;
   }
     
   public static InchiOutput toInchi(InchiInput inchiInput) {
@@ -199,24 +252,21 @@ public class JnaInchi {
   
   public static InchiOutput toInchi(InchiInput inchiInput, InchiOptions options) {
     checkLibrary();
-    List<InchiAtom> atoms = inchiInput.getAtoms();
-    int atomCount = atoms.size();
-    if (atomCount > Short.MAX_VALUE) {
-      throw new IllegalStateException("InChI is limited to 32767 atoms, input contained " + atomCount + " atoms");
+    InchiGeneratorPool pool = generatorPool;
+    if (pool != null) {
+      return pool.toInchi(inchiInput, options);
     }
-    List<InchiBond> bonds = inchiInput.getBonds();
-    List<InchiStereo> stereos = inchiInput.getStereos();
-    if (stereos.size() > Short.MAX_VALUE) {
-      throw new IllegalStateException("Too many stereochemistry elements in input");
+    checkInputSize(inchiInput);
+    if (options.getApi() == InchiApi.CLASSIC) {
+      InchiOutput output = new ClassicInchiMarshaller().toInchi(inchiInput, options);
+      if (output != null) {
+        return output;
+      }
     }
-
     IXA_STATUS_HANDLE logger = IxaFunctions.IXA_STATUS_Create();
     IXA_MOL_HANDLE nativeMol = IxaFunctions.IXA_MOL_Create(logger);
-    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, atomCount, bonds.size(), stereos.size());
     try {
-      Map<InchiAtom, IXA_ATOMID> atomToNativeAtom = addAtoms(nativeMol, logger, atoms);
-      addBonds(nativeMol, logger, bonds, atomToNativeAtom);
-      addStereos(nativeMol, logger, stereos, atomToNativeAtom);
+      populateMolecule(logger, nativeMol, inchiInput);
       return buildInchi(logger, nativeMol, options);
     }
     finally {
@@ -225,292 +275,691 @@ public class JnaInchi {
     }
   }
 
-  private static Map<InchiAtom, IXA_ATOMID> addAtoms(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, List<InchiAtom> atoms) {
-    Map<InchiAtom, IXA_ATOMID> atomToNativeAtom = new HashMap<>();
-    for (InchiAtom atom : atoms) {
-      //For performance only call IxaFunctions when values differ from the defaults
-      IXA_ATOMID nativeAtom = IxaFunctions.IXA_MOL_CreateAtom(logger, mol);
-      atomToNativeAtom.put(atom, nativeAtom);
-      
-      if (atom.getX() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomX(logger, mol, nativeAtom, atom.getX());
-      }
-      if (atom.getY() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomY(logger, mol, nativeAtom, atom.getY());
+  public static InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput) {
+    return toInchiWithKey(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * As {@link #toInchi(InchiInput, InchiOptions)}, but additionally generates the InChIKey using the same native session,
+   * rather than requiring a separate call to {@link #inchiToInchiKey(String)}
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public static InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput, InchiOptions options) {
+    checkLibrary();
+    InchiGeneratorPool pool = generatorPool;
+    if (pool != null) {
+      return pool.toInchiWithKey(inchiInput, options);
+    }
+    checkInputSize(inchiInput);
+    if (options.getApi() == InchiApi.CLASSIC) {
+      InchiWithKeyOutput output = new ClassicInchiMarshaller().toInchiWithKey(inchiInput, options);
+      if (output != null) {
+        return output;
       }
-      if (atom.getZ() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomZ(logger, mol, nativeAtom, atom.getZ());
+    }
+    IXA_STATUS_HANDLE logger = IxaFunctions.IXA_STATUS_Create();
+    IXA_MOL_HANDLE nativeMol = IxaFunctions.IXA_MOL_Create(logger);
+    IXA_INCHIBUILDER_HANDLE builder = IxaFunctions.IXA_INCHIBUILDER_Create(logger);
+    IXA_INCHIKEYBUILDER_HANDLE keyBuilder = IxaFunctions.IXA_INCHIKEYBUILDER_Create(logger);
+    try {
+      populateMolecule(logger, nativeMol, inchiInput);
+      IxaFunctions.IXA_INCHIBUILDER_SetMolecule(logger, builder, nativeMol);
+      applyMolOptions(logger, nativeMol, options);
+      applyBuilderOptions(logger, builder, options);
+      InchiOutput output = getOutput(logger, builder, options);
+      return new InchiWithKeyOutput(output, getInchiKey(logger, builder, keyBuilder, output));
+    }
+    finally {
+      IxaFunctions.IXA_INCHIKEYBUILDER_Destroy(logger, keyBuilder);
+      IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder);
+      IxaFunctions.IXA_MOL_Destroy(logger, nativeMol);
+      IxaFunctions.IXA_STATUS_Destroy(logger);
+    }
+  }
+
+  public static InchiOutput toInchi(CompactInchiInput inchiInput) {
+    return toInchi(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * Equivalent to {@link #toInchi(InchiInput, InchiOptions)}, but avoids the per-atom objects of {@link InchiInput}
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public static InchiOutput toInchi(CompactInchiInput inchiInput, InchiOptions options) {
+    checkLibrary();
+    InchiGeneratorPool pool = generatorPool;
+    if (pool != null) {
+      return pool.toInchi(inchiInput, options);
+    }
+    checkInputSize(inchiInput);
+    if (options.getApi() == InchiApi.CLASSIC) {
+      InchiOutput output = new ClassicInchiMarshaller().toInchi(inchiInput, options);
+      if (output != null) {
+        return output;
       }
-      String elName = atom.getElName();
-      if (!elName.equals("C")) {
-        if (elName.length() > 5) {
-          throw new IllegalArgumentException("Element name was too long: " + elName);
+    }
+    IXA_STATUS_HANDLE logger = IxaFunctions.IXA_STATUS_Create();
+    IXA_MOL_HANDLE nativeMol = IxaFunctions.IXA_MOL_Create(logger);
+    try {
+      populateMolecule(logger, nativeMol, inchiInput);
+      return buildInchi(logger, nativeMol, options);
+    }
+    finally {
+      IxaFunctions.IXA_MOL_Destroy(logger, nativeMol);
+      IxaFunctions.IXA_STATUS_Destroy(logger);
+    }
+  }
+
+  /**
+   * Converts a batch of inputs to InChI using the given number of threads, each of which reuses its own native InChI handles.
+   * The outputs are returned in the same order as the inputs. An input that cannot be converted gives an output with
+   * {@link InchiStatus#ERROR}, and does not prevent conversion of the rest of the batch.
+   * @param inchiInputs
+   * @param options
+   * @param parallelism number of threads to use
+   * @return
+   */
+  public static InchiBatchOutput toInchiBatch(List<InchiInput> inchiInputs, InchiOptions options, int parallelism) {
+    checkLibrary();
+    checkParallelism(parallelism);
+    int taskCount = Math.max(Math.min(parallelism, inchiInputs.size()), 1);
+    if (taskCount == 1) {
+      return runInchiBatch(inchiInputs, options, 1, null);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(taskCount, r -> {
+      Thread t = new Thread(r, "jnainchi-batch");
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      return runInchiBatch(inchiInputs, options, taskCount, executor);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * As {@link #toInchiBatch(List, InchiOptions, int)}, but the conversion is run as <code>parallelism</code> tasks of the given
+   * executor rather than on new threads, so that callers converting many small batches can reuse their threads.
+   * The tasks share the inputs between them, so the batch completes even if the executor has fewer threads than tasks.
+   * The calling thread waits for the tasks to complete.
+   * @param inchiInputs
+   * @param options
+   * @param parallelism number of tasks to submit to the executor
+   * @param executor
+   * @return
+   */
+  public static InchiBatchOutput toInchiBatch(List<InchiInput> inchiInputs, InchiOptions options, int parallelism, Executor executor) {
+    checkLibrary();
+    checkParallelism(parallelism);
+    if (executor == null) {
+      throw new IllegalArgumentException("executor must not be null");
+    }
+    return runInchiBatch(inchiInputs, options, Math.max(Math.min(parallelism, inchiInputs.size()), 1), executor);
+  }
+
+  /**
+   * @param executor runs the tasks, or null to convert the inputs in the calling thread
+   */
+  private static InchiBatchOutput runInchiBatch(List<InchiInput> inchiInputs, InchiOptions options, int taskCount, Executor executor) {
+    InchiOutput[] outputs = new InchiOutput[inchiInputs.size()];
+    AtomicInteger nextIndex = new AtomicInteger();
+    long start = System.nanoTime();
+    long[] slowest;
+    if (executor == null) {
+      slowest = toInchiBatchWorker(inchiInputs, options, outputs, nextIndex);
+    }
+    else {
+      slowest = new long[] {-1, 0};
+      try {
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+          futures.add(CompletableFuture.supplyAsync(() -> toInchiBatchWorker(inchiInputs, options, outputs, nextIndex), executor));
+        }
+        for (Future<long[]> future : futures) {
+          long[] workerSlowest = future.get();
+          if (workerSlowest[0] >= 0 && workerSlowest[1] >= slowest[1]) {
+            slowest = workerSlowest;
+          }
         }
-        IxaFunctions.IXA_MOL_SetAtomElement(logger, mol, nativeAtom, elName);
-      }
-      if (atom.getIsotopicMass() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomMass(logger, mol, nativeAtom, atom.getIsotopicMass());
-      }
-      if (atom.getCharge() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomCharge(logger, mol, nativeAtom, atom.getCharge());
-      }
-      if (atom.getRadical() != InchiRadical.NONE) {
-        IxaFunctions.IXA_MOL_SetAtomRadical(logger, mol, nativeAtom, atom.getRadical().getCode());
       }
-      if (atom.getImplicitHydrogen() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 0, atom.getImplicitHydrogen());
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted whilst waiting for InChI batch to complete", e);
       }
-      if (atom.getImplicitProtium() != 0) {
-         IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 1, atom.getImplicitProtium());
+      catch (ExecutionException e) {
+        throw new RuntimeException("InChI batch failed", e.getCause());
       }
-      if (atom.getImplicitDeuterium() != 0) {
-         IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 2, atom.getImplicitDeuterium());
+    }
+    long elapsed = System.nanoTime() - start;
+    return new InchiBatchOutput(Collections.unmodifiableList(Arrays.asList(outputs)), elapsed, (int) slowest[0], slowest[1]);
+  }
+
+  private static void checkParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism should be at least 1: " + parallelism);
+    }
+  }
+
+  /**
+   * Converts inputs, claimed using nextIndex, until none remain
+   * @return the index of the slowest input processed by this worker and its processing time in nanoseconds
+   */
+  private static long[] toInchiBatchWorker(List<InchiInput> inchiInputs, InchiOptions options, InchiOutput[] outputs, AtomicInteger nextIndex) {
+    long[] slowest = new long[] {-1, 0};
+    try (InchiGenerator generator = new InchiGenerator()) {
+      int i;
+      while ((i = nextIndex.getAndIncrement()) < outputs.length) {
+        long start = System.nanoTime();
+        InchiOutput output;
+        try {
+          output = generator.toInchi(inchiInputs.get(i), options);
+        }
+        catch (RuntimeException e) {
+          output = new InchiOutput(null, null, e.getMessage(), null, InchiStatus.ERROR);
+        }
+        outputs[i] = output;
+        long time = System.nanoTime() - start;
+        if (slowest[0] < 0 || time > slowest[1]) {
+          slowest[0] = i;
+          slowest[1] = time;
+        }
       }
-      if (atom.getImplicitTritium() != 0) {
-          IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 3, atom.getImplicitTritium());
+    }
+    return slowest;
+  }
+
+  static void checkInputSize(InchiInput inchiInput) {
+    checkInputSize(inchiInput.getAtoms().size(), inchiInput.getStereos().size());
+  }
+
+  static void checkInputSize(CompactInchiInput inchiInput) {
+    checkInputSize(inchiInput.getAtomCount(), inchiInput.getStereoCount());
+  }
+
+  private static void checkInputSize(int atomCount, int stereoCount) {
+    if (atomCount > Short.MAX_VALUE) {
+      throw new IllegalStateException("InChI is limited to 32767 atoms, input contained " + atomCount + " atoms");
+    }
+    if (stereoCount > Short.MAX_VALUE) {
+      throw new IllegalStateException("Too many stereochemistry elements in input");
+    }
+  }
+
+  /**
+   * Adds the atoms, bonds and stereochemistry of the given input to an empty native molecule
+   * @param logger
+   * @param nativeMol
+   * @param inchiInput
+   */
+  static void populateMolecule(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol, InchiInput inchiInput) {
+    List<InchiAtom> atoms = inchiInput.getAtoms();
+    List<InchiBond> bonds = inchiInput.getBonds();
+    List<InchiStereo> stereos = inchiInput.getStereos();
+    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, atoms.size(), bonds.size(), stereos.size());
+    IXA_ATOMID[] nativeAtoms = addAtoms(nativeMol, logger, atoms);
+    addBonds(nativeMol, logger, inchiInput, bonds, nativeAtoms);
+    addStereos(nativeMol, logger, inchiInput, stereos, nativeAtoms);
+  }
+
+  /**
+   * Adds the atoms, bonds and stereochemistry of the given input to an empty native molecule
+   * @param logger
+   * @param nativeMol
+   * @param inchiInput
+   */
+  static void populateMolecule(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol, CompactInchiInput inchiInput) {
+    int atomCount = inchiInput.getAtomCount();
+    int bondCount = inchiInput.getBondCount();
+    int stereoCount = inchiInput.getStereoCount();
+    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, atomCount, bondCount, stereoCount);
+    IXA_ATOMID[] nativeAtoms = new IXA_ATOMID[atomCount];
+    for (int i = 0; i < atomCount; i++) {
+      IXA_ATOMID nativeAtom = IxaFunctions.IXA_MOL_CreateAtom(logger, nativeMol);
+      nativeAtoms[i] = nativeAtom;
+      setAtomProperties(nativeMol, logger, nativeAtom, inchiInput.getElName(i), inchiInput.getX(i), inchiInput.getY(i), inchiInput.getZ(i),
+          inchiInput.getIsotopicMass(i), inchiInput.getCharge(i), inchiInput.getRadical(i), inchiInput.getImplicitHydrogen(i),
+          inchiInput.getImplicitProtium(i), inchiInput.getImplicitDeuterium(i), inchiInput.getImplicitTritium(i));
+    }
+    for (int i = 0; i < bondCount; i++) {
+      IXA_ATOMID nativeAtom1 = nativeAtoms[inchiInput.getBondStart(i)];
+      IXA_ATOMID nativeAtom2 = nativeAtoms[inchiInput.getBondEnd(i)];
+      addBond(nativeMol, logger, nativeAtom1, nativeAtom2, inchiInput.getBondType(i), inchiInput.getBondStereo(i));
+    }
+    for (int i = 0; i < stereoCount; i++) {
+      int centralAtom = inchiInput.getStereoCentralAtom(i);
+      addStereo(nativeMol, logger, inchiInput.getStereoType(i), centralAtom >= 0 ? nativeAtoms[centralAtom] : null,
+          getStereoVertex(nativeAtoms, inchiInput.getStereoAtom(i, 0)), getStereoVertex(nativeAtoms, inchiInput.getStereoAtom(i, 1)),
+          getStereoVertex(nativeAtoms, inchiInput.getStereoAtom(i, 2)), getStereoVertex(nativeAtoms, inchiInput.getStereoAtom(i, 3)),
+          inchiInput.getStereoParity(i));
+    }
+  }
+
+  /**
+   * Creates the native atoms
+   * @return the native atoms, in the same order as the input atoms
+   */
+  private static IXA_ATOMID[] addAtoms(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, List<InchiAtom> atoms) {
+    IXA_ATOMID[] nativeAtoms = new IXA_ATOMID[atoms.size()];
+    for (int i = 0; i < nativeAtoms.length; i++) {
+      InchiAtom atom = atoms.get(i);
+      IXA_ATOMID nativeAtom = IxaFunctions.IXA_MOL_CreateAtom(logger, mol);
+      nativeAtoms[i] = nativeAtom;
+      setAtomProperties(mol, logger, nativeAtom, atom.getElName(), atom.getX(), atom.getY(), atom.getZ(),
+          atom.getIsotopicMass(), atom.getCharge(), atom.getRadical(), atom.getImplicitHydrogen(),
+          atom.getImplicitProtium(), atom.getImplicitDeuterium(), atom.getImplicitTritium());
+    }
+    return nativeAtoms;
+  }
+
+  private static void setAtomProperties(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, IXA_ATOMID nativeAtom, String elName,
+      double x, double y, double z, int isotopicMass, int charge, InchiRadical radical,
+      int implicitHydrogen, int implicitProtium, int implicitDeuterium, int implicitTritium) {
+    //For performance only call IxaFunctions when values differ from the defaults
+    if (x != 0) {
+      IxaFunctions.IXA_MOL_SetAtomX(logger, mol, nativeAtom, x);
+    }
+    if (y != 0) {
+      IxaFunctions.IXA_MOL_SetAtomY(logger, mol, nativeAtom, y);
+    }
+    if (z != 0) {
+      IxaFunctions.IXA_MOL_SetAtomZ(logger, mol, nativeAtom, z);
+    }
+    if (!elName.equals("C")) {
+      if (elName.length() > 5) {
+        throw new IllegalArgumentException("Element name was too long: " + elName);
       }
+      IxaFunctions.IXA_MOL_SetAtomElement(logger, mol, nativeAtom, elName);
+    }
+    if (isotopicMass != 0) {
+      IxaFunctions.IXA_MOL_SetAtomMass(logger, mol, nativeAtom, isotopicMass);
+    }
+    if (charge != 0) {
+      IxaFunctions.IXA_MOL_SetAtomCharge(logger, mol, nativeAtom, charge);
+    }
+    if (radical != InchiRadical.NONE) {
+      IxaFunctions.IXA_MOL_SetAtomRadical(logger, mol, nativeAtom, radical.getCode());
+    }
+    if (implicitHydrogen != 0) {
+      IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 0, implicitHydrogen);
+    }
+    if (implicitProtium != 0) {
+      IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 1, implicitProtium);
+    }
+    if (implicitDeuterium != 0) {
+      IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 2, implicitDeuterium);
+    }
+    if (implicitTritium != 0) {
+      IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 3, implicitTritium);
     }
-    return atomToNativeAtom;
   }
   
-  private static void addBonds(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, List<InchiBond> bonds, Map<InchiAtom, IXA_ATOMID> atomToNativeAtom) {
+  private static void addBonds(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, InchiInput inchiInput, List<InchiBond> bonds, IXA_ATOMID[] nativeAtoms) {
     for (InchiBond bond : bonds) {
-      IXA_ATOMID nativeAtom1 = atomToNativeAtom.get(bond.getStart());
-      IXA_ATOMID nativeAtom2 = atomToNativeAtom.get(bond.getEnd());
+      IXA_ATOMID nativeAtom1 = getNativeAtom(inchiInput, nativeAtoms, bond.getStart());
+      IXA_ATOMID nativeAtom2 = getNativeAtom(inchiInput, nativeAtoms, bond.getEnd());
       if (nativeAtom1 == null || nativeAtom2 == null) {
         throw new IllegalStateException("Bond referenced an atom that was not part of the InchiInput");
       }
-      IXA_BONDID nativeBond = IxaFunctions.IXA_MOL_CreateBond(logger, mol, nativeAtom1, nativeAtom2);
-      InchiBondType bondType = bond.getType();
-      if (bondType != InchiBondType.SINGLE) {
-        IxaFunctions.IXA_MOL_SetBondType(logger, mol, nativeBond, bondType.getCode());
-      }
-      switch (bond.getStereo()) {
-      case DOUBLE_EITHER:
-        //Default is to perceive configuration from 2D coordinates
-        IxaFunctions.IXA_MOL_SetDblBondConfig(logger, mol, nativeBond, IXA_DBLBOND_CONFIG.IXA_DBLBOND_CONFIG_EITHER);
-        break;
-      case SINGLE_1DOWN:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_DOWN);
-        break;
-      case SINGLE_1EITHER:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_EITHER);
-        break;
-      case SINGLE_1UP:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_UP);
-        break;
-      case SINGLE_2DOWN:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_DOWN);
-        break;
-      case SINGLE_2EITHER:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_EITHER);
-        break;
-      case SINGLE_2UP:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_UP);
-        break;
-      case NONE:
-        break;
-      }  
+      addBond(mol, logger, nativeAtom1, nativeAtom2, bond.getType(), bond.getStereo());
     }
   }
-  private static void addStereos(IXA_MOL_HANDLE nativeMol, IXA_STATUS_HANDLE logger, List<InchiStereo> stereos, Map<InchiAtom, IXA_ATOMID> atomToNativeAtom) {
+
+  private static void addBond(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, IXA_ATOMID nativeAtom1, IXA_ATOMID nativeAtom2, InchiBondType bondType, InchiBondStereo bondStereo) {
+    IXA_BONDID nativeBond = IxaFunctions.IXA_MOL_CreateBond(logger, mol, nativeAtom1, nativeAtom2);
+    if (bondType != InchiBondType.SINGLE) {
+      IxaFunctions.IXA_MOL_SetBondType(logger, mol, nativeBond, bondType.getCode());
+    }
+    switch (bondStereo) {
+    case DOUBLE_EITHER:
+      //Default is to perceive configuration from 2D coordinates
+      IxaFunctions.IXA_MOL_SetDblBondConfig(logger, mol, nativeBond, IXA_DBLBOND_CONFIG.IXA_DBLBOND_CONFIG_EITHER);
+      break;
+    case SINGLE_1DOWN:
+      IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_DOWN);
+      break;
+    case SINGLE_1EITHER:
+      IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_EITHER);
+      break;
+    case SINGLE_1UP:
+      IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_UP);
+      break;
+    case SINGLE_2DOWN:
+      IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_DOWN);
+      break;
+    case SINGLE_2EITHER:
+      IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_EITHER);
+      break;
+    case SINGLE_2UP:
+      IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_UP);
+      break;
+    case NONE:
+      break;
+    }
+  }
+
+  private static void addStereos(IXA_MOL_HANDLE nativeMol, IXA_STATUS_HANDLE logger, InchiInput inchiInput, List<InchiStereo> stereos, IXA_ATOMID[] nativeAtoms) {
     for (InchiStereo stereo : stereos) {
       InchiStereoType type = stereo.getType();
       if (type == InchiStereoType.None) {
         continue;
       }
       InchiAtom[] atomsInCenter = stereo.getAtoms();      
-      IXA_ATOMID vertex1 = getStereoVertex(atomToNativeAtom, atomsInCenter[0]);
-      IXA_ATOMID vertex2 = getStereoVertex(atomToNativeAtom, atomsInCenter[1]);
-      IXA_ATOMID vertex3 = getStereoVertex(atomToNativeAtom, atomsInCenter[2]);
-      IXA_ATOMID vertex4 = getStereoVertex(atomToNativeAtom, atomsInCenter[3]);
-     
-      IXA_STEREOID center;
-      switch (type) {
-      case Tetrahedral:
-      {
-        IXA_ATOMID centralAtom = atomToNativeAtom.get(stereo.getCentralAtom());
-        if (centralAtom == null) {
-          throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
-        }
-        center = IxaFunctions.IXA_MOL_CreateStereoTetrahedron(logger, nativeMol, centralAtom, vertex1, vertex2, vertex3, vertex4);
-        break;
-      }
-      case Allene:
-      {
-        IXA_ATOMID centralAtom = atomToNativeAtom.get(stereo.getCentralAtom());
-        if (centralAtom == null) {
-          throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
-        }
-        center = IxaFunctions.IXA_MOL_CreateStereoAntiRectangle(logger, nativeMol, centralAtom, vertex1, vertex2, vertex3, vertex4);
-        break;
+      IXA_ATOMID vertex1 = getStereoVertex(inchiInput, nativeAtoms, atomsInCenter[0]);
+      IXA_ATOMID vertex2 = getStereoVertex(inchiInput, nativeAtoms, atomsInCenter[1]);
+      IXA_ATOMID vertex3 = getStereoVertex(inchiInput, nativeAtoms, atomsInCenter[2]);
+      IXA_ATOMID vertex4 = getStereoVertex(inchiInput, nativeAtoms, atomsInCenter[3]);
+      IXA_ATOMID centralAtom = getNativeAtom(inchiInput, nativeAtoms, stereo.getCentralAtom());
+      addStereo(nativeMol, logger, type, centralAtom, vertex1, vertex2, vertex3, vertex4, stereo.getParity());
+    }
+  }
+
+  private static void addStereo(IXA_MOL_HANDLE nativeMol, IXA_STATUS_HANDLE logger, InchiStereoType type, IXA_ATOMID centralAtom,
+      IXA_ATOMID vertex1, IXA_ATOMID vertex2, IXA_ATOMID vertex3, IXA_ATOMID vertex4, InchiStereoParity parity) {
+    IXA_STEREOID center;
+    switch (type) {
+    case None:
+      return;
+    case Tetrahedral:
+      if (centralAtom == null) {
+        throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
       }
-      case DoubleBond:
-      {
-        IXA_BONDID centralBond = IxaFunctions.IXA_MOL_GetCommonBond(logger, nativeMol, vertex2, vertex3);
-        if (centralBond == null) {
-          throw new IllegalStateException("Could not find olefin/cumulene central bond");
-        }
-        //We intentionally pass dummy values for vertex2/vertex3, as the IXA API doesn't actually need these as long as vertex1 and vertex4 aren't implicit hydrogen
-        center = IxaFunctions.IXA_MOL_CreateStereoRectangle(logger, nativeMol, centralBond, vertex1, IxaFunctions.IXA_ATOMID_IMPLICIT_H, IxaFunctions.IXA_ATOMID_IMPLICIT_H, vertex4);
-        break;
+      center = IxaFunctions.IXA_MOL_CreateStereoTetrahedron(logger, nativeMol, centralAtom, vertex1, vertex2, vertex3, vertex4);
+      break;
+    case Allene:
+      if (centralAtom == null) {
+        throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
       }
-      default:
-        throw new IllegalStateException("Unexpected InChI stereo type:" + type);
+      center = IxaFunctions.IXA_MOL_CreateStereoAntiRectangle(logger, nativeMol, centralAtom, vertex1, vertex2, vertex3, vertex4);
+      break;
+    case DoubleBond:
+    {
+      IXA_BONDID centralBond = IxaFunctions.IXA_MOL_GetCommonBond(logger, nativeMol, vertex2, vertex3);
+      if (centralBond == null) {
+        throw new IllegalStateException("Could not find olefin/cumulene central bond");
       }
-      byte parity = stereo.getParity().getCode();
-      IxaFunctions.IXA_MOL_SetStereoParity(logger, nativeMol, center, parity);
+      //We intentionally pass dummy values for vertex2/vertex3, as the IXA API doesn't actually need these as long as vertex1 and vertex4 aren't implicit hydrogen
+      center = IxaFunctions.IXA_MOL_CreateStereoRectangle(logger, nativeMol, centralBond, vertex1, IxaFunctions.IXA_ATOMID_IMPLICIT_H, IxaFunctions.IXA_ATOMID_IMPLICIT_H, vertex4);
+      break;
     }
+    default:
+      throw new IllegalStateException("Unexpected InChI stereo type:" + type);
+    }
+    IxaFunctions.IXA_MOL_SetStereoParity(logger, nativeMol, center, parity.getCode());
   }
 
-  private static IXA_ATOMID getStereoVertex(Map<InchiAtom, IXA_ATOMID> atomToNativeAtom, InchiAtom inchiAtom) {
+  private static IXA_ATOMID getNativeAtom(InchiInput inchiInput, IXA_ATOMID[] nativeAtoms, InchiAtom inchiAtom) {
+    int idx = inchiInput.getAtomIndex(inchiAtom);
+    return idx >= 0 ? nativeAtoms[idx] : null;
+  }
+
+  private static IXA_ATOMID getStereoVertex(InchiInput inchiInput, IXA_ATOMID[] nativeAtoms, InchiAtom inchiAtom) {
     if (InchiStereo.STEREO_IMPLICIT_H == inchiAtom) {
       return IxaFunctions.IXA_ATOMID_IMPLICIT_H;
     }
-    IXA_ATOMID vertex = atomToNativeAtom.get(inchiAtom);
+    IXA_ATOMID vertex = getNativeAtom(inchiInput, nativeAtoms, inchiAtom);
     if (vertex == null) {
       throw new IllegalStateException("Stereo configuration referenced an atom that does not exist");
     }
     return vertex;
   }
 
+  private static IXA_ATOMID getStereoVertex(IXA_ATOMID[] nativeAtoms, int atomIdx) {
+    return atomIdx == CompactInchiInput.IMPLICIT_H ? IxaFunctions.IXA_ATOMID_IMPLICIT_H : nativeAtoms[atomIdx];
+  }
+
   private static InchiOutput buildInchi(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol, InchiOptions options) {
     IXA_INCHIBUILDER_HANDLE builder = IxaFunctions.IXA_INCHIBUILDER_Create(logger);
     try {
       IxaFunctions.IXA_INCHIBUILDER_SetMolecule(logger, builder, nativeMol);
-      
-      long timeoutMilliSecs = options.getTimeoutMilliSeconds();
-      if (timeoutMilliSecs != 0) {
-        IxaFunctions.IXA_INCHIBUILDER_SetOption_Timeout_MilliSeconds(logger, builder, timeoutMilliSecs);
-      }
-      for (InchiFlag flag : options.getFlags()) {
-        switch (flag) {
-        case AuxNone:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_AuxNone, true);
-          break;
-        case ChiralFlagOFF:
-          IxaFunctions.IXA_MOL_SetChiral(logger, nativeMol, false);
-          break;
-        case ChiralFlagON:
-          IxaFunctions.IXA_MOL_SetChiral(logger, nativeMol, true);
-          break;
-        case DoNotAddH:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_DoNotAddH, true);
-          break;
-        case FixedH:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_FixedH, true);
-          break;
-        case KET:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_KET, true);
-          break;
-        case LargeMolecules:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_LargeMolecules, true);
-          break;
-        case NEWPSOFF:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NewPsOff, true);
-          break;
-        case OneFiveT:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_15T, true);
-          break;
-        case RecMet:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_RecMet, true);
-          break;
-        case SLUUD:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SLUUD, true);
-          break;
-        case SNon:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SNon);
-          break;
-        case SRac:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SRac);
-          break;
-        case SRel:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SRel);
-          break;
-        case SUCF:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SUCF);
-          break;
-        case SAbs:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SAbs);
-          break;
-        case SUU:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SUU, true);
-          break;
-        case SaveOpt:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SaveOpt, true);
-          break;
-        case WarnOnEmptyStructure:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_WarnOnEmptyStructure, true);
-          break;
-        case NoWarnings:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoWarnings, true);
-          break;
-        case LooseTSACheck:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_LooseTSACheck, true);
-          break;
-        case Polymers:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_Polymers, true);
-          break;
-        case Polymers105:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_Polymers105, true);
-          break;
-        case FoldCRU:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_FoldCRU, true);
-          break;
-        case NoFrameShift:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoFrameShift, true);
-          break;
-        case NoEdits:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoEdits, true);
-          break;
-        case NPZz:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NPZZ, true);
-          break;
-        case SAtZz:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SATZZ, true);
-          break;
-        case OutErrInChI:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_OutErrInChI, true);
-          break;
-        default:
-          throw new IllegalStateException("Unexpected InChI option flag: " + flag);
-        }
+      applyMolOptions(logger, nativeMol, options);
+      applyBuilderOptions(logger, builder, options);
+      return getOutput(logger, builder, options);
+    }
+    finally {
+      IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder); 
+    }
+  }
+
+  /**
+   * Applies the options that are stored on the molecule rather than the builder i.e. the chiral flag
+   * @param logger
+   * @param nativeMol
+   * @param options
+   */
+  static void applyMolOptions(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol, InchiOptions options) {
+    for (InchiFlag flag : options.getFlags()) {
+      if (flag == InchiFlag.ChiralFlagOFF) {
+        IxaFunctions.IXA_MOL_SetChiral(logger, nativeMol, false);
+      }
+      else if (flag == InchiFlag.ChiralFlagON) {
+        IxaFunctions.IXA_MOL_SetChiral(logger, nativeMol, true);
       }
+    }
+  }
 
-      String inchi = IxaFunctions.IXA_INCHIBUILDER_GetInChI(logger, builder);
-      String auxInfo = IxaFunctions.IXA_INCHIBUILDER_GetAuxInfo(logger, builder);
-      String log = IxaFunctions.IXA_INCHIBUILDER_GetLog(logger, builder);
-      
-      InchiStatus status = InchiStatus.SUCCESS;
-      if (IxaFunctions.IXA_STATUS_HasError(logger)) {
-        status = InchiStatus.ERROR;
+  static void applyBuilderOptions(IXA_STATUS_HANDLE logger, IXA_INCHIBUILDER_HANDLE builder, InchiOptions options) {
+    long timeoutMilliSecs = options.getTimeoutMilliSeconds();
+    if (timeoutMilliSecs != 0) {
+      IxaFunctions.IXA_INCHIBUILDER_SetOption_Timeout_MilliSeconds(logger, builder, timeoutMilliSecs);
+    }
+    for (InchiFlag flag : options.getFlags()) {
+      int stereoOption = getIxaStereoOption(flag);
+      if (stereoOption >= 0) {
+        IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, stereoOption);
+        continue;
       }
-      else if (IxaFunctions.IXA_STATUS_HasWarning(logger)) {
-        status = InchiStatus.WARNING;
+      int option = getIxaOption(flag);
+      if (option >= 0) {
+        IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, option, true);
       }
-      
-      StringBuilder sb = new StringBuilder();
-      int messageCount = IxaFunctions.IXA_STATUS_GetCount(logger);
-      for (int i = 0; i < messageCount; i++) {
-        if (i > 0) {
-          sb.append("; ");
-        }
-        sb.append(IxaFunctions.IXA_STATUS_GetMessage(logger, i));
+    }
+  }
+
+  /**
+   * Reverts the builder options set by {@link #applyBuilderOptions(IXA_STATUS_HANDLE, IXA_INCHIBUILDER_HANDLE, InchiOptions)}
+   * to their defaults, so that the builder can be reused with different options
+   * @param logger
+   * @param builder
+   * @param options the options that were previously applied
+   */
+  static void resetBuilderOptions(IXA_STATUS_HANDLE logger, IXA_INCHIBUILDER_HANDLE builder, InchiOptions options) {
+    if (options.getTimeoutMilliSeconds() != 0) {
+      IxaFunctions.IXA_INCHIBUILDER_SetOption_Timeout_MilliSeconds(logger, builder, 0);
+    }
+    for (InchiFlag flag : options.getFlags()) {
+      if (getIxaStereoOption(flag) >= 0) {
+        IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SAbs);
+        continue;
+      }
+      int option = getIxaOption(flag);
+      if (option >= 0) {
+        IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, option, false);
       }
-      return new InchiOutput(inchi, auxInfo, sb.toString(), log, status);
     }
-    finally {
-      IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder); 
+  }
+
+  private static int getIxaStereoOption(InchiFlag flag) {
+    switch (flag) {
+    case SNon:
+      return IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SNon;
+    case SRac:
+      return IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SRac;
+    case SRel:
+      return IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SRel;
+    case SUCF:
+      return IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SUCF;
+    case SAbs:
+      return IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SAbs;
+    default:
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the IXA builder option corresponding to the given flag, or -1 for flags that
+   * are not boolean builder options (stereo options and the chiral flag)
+   * @param flag
+   * @return
+   */
+  private static int getIxaOption(InchiFlag flag) {
+    switch (flag) {
+    case AuxNone:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_AuxNone;
+    case DoNotAddH:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_DoNotAddH;
+    case FixedH:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_FixedH;
+    case KET:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_KET;
+    case LargeMolecules:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_LargeMolecules;
+    case NEWPSOFF:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NewPsOff;
+    case OneFiveT:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_15T;
+    case RecMet:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_RecMet;
+    case SLUUD:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SLUUD;
+    case SUU:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SUU;
+    case SaveOpt:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SaveOpt;
+    case WarnOnEmptyStructure:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_WarnOnEmptyStructure;
+    case NoWarnings:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoWarnings;
+    case LooseTSACheck:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_LooseTSACheck;
+    case Polymers:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_Polymers;
+    case Polymers105:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_Polymers105;
+    case FoldCRU:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_FoldCRU;
+    case NoFrameShift:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoFrameShift;
+    case NoEdits:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoEdits;
+    case NPZz:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NPZZ;
+    case SAtZz:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SATZZ;
+    case OutErrInChI:
+      return IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_OutErrInChI;
+    case ChiralFlagOFF:
+    case ChiralFlagON:
+    case SNon:
+    case SRac:
+    case SRel:
+    case SUCF:
+    case SAbs:
+      return -1;
+    default:
+      throw new IllegalStateException("Unexpected InChI option flag: " + flag);
     }
   }
 
+  static InchiOutput getOutput(IXA_STATUS_HANDLE logger, IXA_INCHIBUILDER_HANDLE builder, InchiOptions options) {
+    Set<InchiOutputPart> outputParts = options.getOutputParts();
+    //The InChI is generated by whichever output is retrieved first
+    boolean generated = false;
+    String inchi = null;
+    if (outputParts.contains(InchiOutputPart.INCHI)) {
+      inchi = IxaFunctions.IXA_INCHIBUILDER_GetInChI(logger, builder);
+      generated = true;
+    }
+    String auxInfo = null;
+    if (outputParts.contains(InchiOutputPart.AUXINFO)) {
+      auxInfo = IxaFunctions.IXA_INCHIBUILDER_GetAuxInfo(logger, builder);
+      generated = true;
+    }
+    String log = null;
+    if (outputParts.contains(InchiOutputPart.LOG)) {
+      log = IxaFunctions.IXA_INCHIBUILDER_GetLog(logger, builder);
+      generated = true;
+    }
+    if (!generated) {
+      //Still need to generate the InChI to determine the status
+      IxaFunctions.IXA_INCHIBUILDER_GetInChI(logger, builder);
+    }
+    
+    InchiStatus status = InchiStatus.SUCCESS;
+    if (IxaFunctions.IXA_STATUS_HasError(logger)) {
+      status = InchiStatus.ERROR;
+    }
+    else if (IxaFunctions.IXA_STATUS_HasWarning(logger)) {
+      status = InchiStatus.WARNING;
+    }
+    
+    String[] messages = null;
+    if (outputParts.contains(InchiOutputPart.MESSAGES)) {
+      //Messages are only joined if requested from the output
+      messages = new String[IxaFunctions.IXA_STATUS_GetCount(logger)];
+      for (int i = 0; i < messages.length; i++) {
+        messages[i] = IxaFunctions.IXA_STATUS_GetMessage(logger, i);
+      }
+    }
+    return new InchiOutput(inchi, auxInfo, messages, log, status);
+  }
+
+  /**
+   * Generates the InChIKey of the InChI held by the builder, whose output has already been retrieved
+   * @param logger
+   * @param builder
+   * @param keyBuilder
+   * @param output
+   * @return
+   */
+  static InchiKeyOutput getInchiKey(IXA_STATUS_HANDLE logger, IXA_INCHIBUILDER_HANDLE builder, IXA_INCHIKEYBUILDER_HANDLE keyBuilder, InchiOutput output) {
+    String inchi = output.getInchi();
+    if (inchi == null) {
+      //The InChI was not requested as part of the output, or could not be generated
+      inchi = IxaFunctions.IXA_INCHIBUILDER_GetInChI(logger, builder);
+    }
+    if (inchi == null || inchi.isEmpty()) {
+      return inchiToInchiKey(inchi);
+    }
+    IxaFunctions.IXA_INCHIKEYBUILDER_SetInChI(logger, keyBuilder, inchi);
+    String inchiKey = IxaFunctions.IXA_INCHIKEYBUILDER_GetInChIKey(logger, keyBuilder);
+    if (inchiKey == null) {
+      //IXA does not report why an InChIKey could not be generated, so use the classic API to determine the status
+      return inchiToInchiKey(inchi);
+    }
+    return new InchiKeyOutput(inchiKey, InchiKeyStatus.OK, null, null);
+  }
+
   public static InchiOutput molToInchi(String molText) {
     return molToInchi(molText, InchiOptions.DEFAULT_OPTIONS);
   }
   
   public static InchiOutput molToInchi(String molText, InchiOptions options) {
+    return molToInchi(molText, options, false).getInchiOutput();
+  }
+
+  public static InchiWithKeyOutput molToInchiWithKey(String molText) {
+    return molToInchiWithKey(molText, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * As {@link #molToInchi(String, InchiOptions)}, but additionally generates the InChIKey, directly from the InChI in native memory
+   * @param molText
+   * @param options
+   * @return
+   */
+  public static InchiWithKeyOutput molToInchiWithKey(String molText, InchiOptions options) {
+    return molToInchi(molText, options, true);
+  }
+
+  private static InchiWithKeyOutput molToInchi(String molText, InchiOptions options, boolean withKey) {
     checkLibrary();
-    tagINCHI_Output nativeOutput = new tagINCHI_Output();
+    Memory nativeOutput = ClassicInchiMarshaller.allocateOutput();
     try {
       int ret = InchiLibrary.MakeINCHIFromMolfileText(molText, options.toString(), nativeOutput);
       InchiStatus status;
@@ -532,7 +981,9 @@ public class JnaInchi {
         break;
       }
       // The way nativeOutput.szLog is truncated can be a bit odd, but this seems pseudo-intentional, see copy_corrected_log_tail in inchi_dll.c 
-      return new InchiOutput(nativeOutput.szInChI, nativeOutput.szAuxInfo, nativeOutput.szMessage, nativeOutput.szLog, status);
+      InchiOutput output = ClassicInchiMarshaller.readOutput(nativeOutput, status, options.getOutputParts());
+      InchiKeyOutput inchiKey = withKey ? ClassicInchiMarshaller.getInchiKey(nativeOutput, new Memory(ClassicInchiMarshaller.INCHIKEY_BUFFER_SIZE)) : null;
+      return new InchiWithKeyOutput(output, inchiKey);
     }
     finally {
       InchiLibrary.FreeINCHI(nativeOutput);
@@ -550,6 +1001,10 @@ public class JnaInchi {
    */
   public static InchiOutput inchiToInchi(String inchi, InchiOptions options) {
     checkLibrary();
+    InchiGeneratorPool pool = generatorPool;
+    if (pool != null) {
+      return pool.inchiToInchi(inchi, options);
+    }
     IXA_STATUS_HANDLE logger = IxaFunctions.IXA_STATUS_Create();
     IXA_MOL_HANDLE nativeMol = IxaFunctions.IXA_MOL_Create(logger);
     try {
@@ -562,7 +1017,22 @@ public class JnaInchi {
     }
   }
 
+  /**
+   * Generates the InChIKey of an InChI.
+   * This uses a Java implementation of the InChIKey algorithm, {@link InchiKeyGenerator}, hence does not require the native InChI library
+   * @param inchi
+   * @return
+   */
   public static InchiKeyOutput inchiToInchiKey(String inchi) {
+    return inchiKeyGenerator.get().generate(inchi);
+  }
+
+  /**
+   * Generates the InChIKey of an InChI using the native InChI library
+   * @param inchi
+   * @return
+   */
+  static InchiKeyOutput inchiToInchiKeyNative(String inchi) {
     checkLibrary();
     byte[] inchiKeyBytes = new byte[28];
     byte[] szXtra1Bytes = new byte[65];
@@ -763,7 +1233,7 @@ public class JnaInchi {
     }
   }
 
-  private static InchiStatus getInchiStatus(int ret) {
+  static InchiStatus getInchiStatus(int ret) {
     switch (ret) {
     case tagRetValGetINCHI.inchi_Ret_OKAY:/* Success; no errors or warnings*/
       return InchiStatus.SUCCESS;
@@ -823,7 +1293,7 @@ public class JnaInchi {
     }
   }
 
-  private static void checkLibrary() {
+  static void checkLibrary() {
     if (libraryLoadingError != null) {
       throw new RuntimeException("Error loading InChI native code. Please check that the binaries for your platform (" + platform + ") have been included on the classpath.", libraryLoadingError);
     }
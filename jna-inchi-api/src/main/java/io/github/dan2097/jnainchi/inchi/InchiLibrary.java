@@ -236,6 +236,11 @@ public class InchiLibrary implements Library {
    * @return
    */
   public static native int GetINCHI(tagINCHI_Input inp, tagINCHI_Output out);
+  /**
+   * As {@link #GetINCHI(tagINCHI_Input, tagINCHI_Output)}, but with the inchi_Input, and the arrays it points to, already written to native memory.
+   * The inchi_Output is not read automatically, so only the required strings need be read
+   */
+  public static native int GetINCHI(Pointer inp, Pointer out);
   /**
    * Original signature : <code>int GetStdINCHI(inchi_Input*, inchi_Output*)</code><br>
    * @param inp
@@ -261,6 +266,10 @@ public class InchiLibrary implements Library {
    * @param out
    */
   public static native void FreeINCHI(tagINCHI_Output out);
+  /**
+   * As {@link #FreeINCHI(tagINCHI_Output)}, for an inchi_Output in native memory
+   */
+  public static native void FreeINCHI(Pointer out);
   /**
    * Original signature : <code>void FreeStdINCHI(inchi_Output*)</code><br>
    * @param out
@@ -431,6 +440,10 @@ public class InchiLibrary implements Library {
    * @return
    */
   public static native int GetINCHIKeyFromINCHI(String szINCHISource, int xtra1, int xtra2, byte[] szINCHIKey, byte[] szXtra1, byte[] szXtra2);
+  /**
+   * As {@link #GetINCHIKeyFromINCHI(String, int, int, byte[], byte[], byte[])}, but with the InChI, and the buffers for the results, in native memory
+   */
+  public static native int GetINCHIKeyFromINCHI(Pointer szINCHISource, int xtra1, int xtra2, Pointer szINCHIKey, Pointer szXtra1, Pointer szXtra2);
   /**
    * ^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^<br>
    * GetStdINCHIKeyFromStdINCHI<br>
@@ -594,6 +607,10 @@ public class InchiLibrary implements Library {
    * @return
    */
   public static native int MakeINCHIFromMolfileText(String moltext, String options, tagINCHI_Output result);
+  /**
+   * As {@link #MakeINCHIFromMolfileText(String, String, tagINCHI_Output)}, for an inchi_Output in native memory
+   */
+  public static native int MakeINCHIFromMolfileText(String moltext, String options, Pointer result);
   
   /** enum values */
   public static interface IXA_STATUS {
@@ -0,0 +1,167 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ClassicApiTest {
+
+  private static final List<String> INCHIS = Arrays.asList(
+      "InChI=1S/C6H12O6/c7-1-2-3(8)4(9)5(10)6(11)12-2/h2-11H,1H2/t2-,3-,4+,5-,6?/m1/s1",
+      "InChI=1S/C2H6O/c1-2-3/h3H,2H2,1H3/i1D,2+1",
+      "InChI=1S/CH3/h1H3",
+      "InChI=1S/CH3.Na/h1H3;/q-1;+1",
+      "InChI=1S/C4H8/c1-3-4-2/h3-4H,1-2H3/b4-3+",
+      "InChI=1S/C10H16N5O13P3/c11-8-5-9(13-2-12-8)15(3-14-5)10-7(17)6(16)4(26-10)1-25-30(21,22)28-31(23,24)27-29(18,19)20/h2-4,6-7,10,16-17H,1H2,(H,21,22)(H,23,24)(H2,11,12,13)(H2,18,19,20)/t4-,6-,7-,10-/m1/s1");
+
+  private static final List<InchiOptions> OPTIONS = new ArrayList<>();
+  static {
+    for (InchiOptions options : InchiGeneratorTest.OPTIONS) {
+      //Not supported with the classic API, see testChiralFlagOnIsRejected
+      if (!options.getFlags().contains(InchiFlag.ChiralFlagON)) {
+        OPTIONS.add(options);
+      }
+    }
+    OPTIONS.add(new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.OutErrInChI, InchiFlag.NEWPSOFF).build());
+    OPTIONS.add(new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.DoNotAddH, InchiFlag.SLUUD, InchiFlag.SUU, InchiFlag.LargeMolecules).build());
+    OPTIONS.add(new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SRel, InchiFlag.ChiralFlagOFF).withTimeout(10).build());
+  }
+
+  private static InchiOptions withClassicApi(InchiOptions options) {
+    InchiOptions.InchiOptionsBuilder builder = new InchiOptions.InchiOptionsBuilder()
+        .withTimeoutMilliSeconds(options.getTimeoutMilliSeconds())
+        .withApi(InchiApi.CLASSIC);
+    for (InchiFlag flag : options.getFlags()) {
+      builder.withFlag(flag);
+    }
+    return builder.build();
+  }
+
+  private static List<InchiInput> getInputs() {
+    List<InchiInput> inputs = InchiGeneratorTest.getInputs();
+    for (String inchi : INCHIS) {
+      inputs.add(JnaInchi.getInchiInputFromInchi(inchi).getInchiInput());
+    }
+
+    //Wedge bonds in both directions
+    InchiInput wedges = new InchiInput();
+    InchiAtom c = new InchiAtom("C", 0, 0, 0);
+    InchiAtom br = new InchiAtom("Br", 1, 0, 0);
+    InchiAtom cl = new InchiAtom("Cl", -0.5, 0.866, 0);
+    InchiAtom f = new InchiAtom("F", -0.5, -0.866, 0);
+    c.setImplicitHydrogen(1);
+    wedges.addAtom(c);
+    wedges.addAtom(br);
+    wedges.addAtom(cl);
+    wedges.addAtom(f);
+    wedges.addBond(new InchiBond(c, br, InchiBondType.SINGLE, InchiBondStereo.SINGLE_1UP));
+    wedges.addBond(new InchiBond(cl, c, InchiBondType.SINGLE, InchiBondStereo.SINGLE_2DOWN));
+    wedges.addBond(new InchiBond(c, f, InchiBondType.SINGLE));
+    inputs.add(wedges);
+    return inputs;
+  }
+
+  /**
+   * Inputs that are delegated to IXA
+   */
+  private static List<InchiInput> getUnsupportedInputs() {
+    List<InchiInput> inputs = new ArrayList<>();
+    //Allene with implicit hydrogen vertexes
+    InchiInput allene = new InchiInput();
+    InchiAtom a1 = new InchiAtom("C");
+    InchiAtom a2 = new InchiAtom("C");
+    InchiAtom a3 = new InchiAtom("C");
+    InchiAtom cl1 = new InchiAtom("Cl");
+    InchiAtom cl2 = new InchiAtom("Cl");
+    a1.setImplicitHydrogen(1);
+    a3.setImplicitHydrogen(1);
+    allene.addAtom(a1);
+    allene.addAtom(a2);
+    allene.addAtom(a3);
+    allene.addAtom(cl1);
+    allene.addAtom(cl2);
+    allene.addBond(new InchiBond(a1, a2, InchiBondType.DOUBLE));
+    allene.addBond(new InchiBond(a2, a3, InchiBondType.DOUBLE));
+    allene.addBond(new InchiBond(cl1, a1, InchiBondType.SINGLE));
+    allene.addBond(new InchiBond(a3, cl2, InchiBondType.SINGLE));
+    allene.addStereo(InchiStereo.createAllenalStereo(a2, cl1, InchiStereo.STEREO_IMPLICIT_H, cl2, InchiStereo.STEREO_IMPLICIT_H, InchiStereoParity.EVEN));
+    inputs.add(allene);
+    InchiInput allene2 = new InchiInput();
+    for (InchiAtom a : allene.getAtoms()) {
+      allene2.addAtom(a);
+    }
+    for (InchiBond b : allene.getBonds()) {
+      allene2.addBond(b);
+    }
+    allene2.addStereo(InchiStereo.createAllenalStereo(a2, InchiStereo.STEREO_IMPLICIT_H, cl1, cl2, InchiStereo.STEREO_IMPLICIT_H, InchiStereoParity.ODD));
+    inputs.add(allene2);
+
+    //Atom with more than 20 bonds
+    InchiInput manyBonds = new InchiInput();
+    InchiAtom centre = new InchiAtom("C");
+    manyBonds.addAtom(centre);
+    for (int i = 0; i < 22; i++) {
+      InchiAtom chlorine = new InchiAtom("Cl");
+      manyBonds.addAtom(chlorine);
+      manyBonds.addBond(new InchiBond(centre, chlorine, InchiBondType.SINGLE));
+    }
+    inputs.add(manyBonds);
+    return inputs;
+  }
+
+  @Test
+  public void testClassicApiMatchesIxa() {
+    List<InchiInput> inputs = getInputs();
+    ClassicInchiMarshaller marshaller = new ClassicInchiMarshaller();
+    for (InchiInput input : inputs) {
+      assertNotNull(marshaller.toInchi(input, withClassicApi(InchiOptions.DEFAULT_OPTIONS)));
+    }
+    for (InchiInput input : getUnsupportedInputs()) {
+      assertNull(marshaller.toInchi(input, withClassicApi(InchiOptions.DEFAULT_OPTIONS)));
+    }
+    inputs.addAll(getUnsupportedInputs());
+    try (InchiGenerator generator = new InchiGenerator()) {
+      for (InchiInput input : inputs) {
+        for (InchiOptions options : OPTIONS) {
+          InchiOutput expected = JnaInchi.toInchi(input, options);
+          InchiOptions classicOptions = withClassicApi(options);
+          InchiGeneratorTest.assertSameOutput(expected, JnaInchi.toInchi(input, classicOptions));
+          InchiGeneratorTest.assertSameOutput(expected, generator.toInchi(input, classicOptions));
+          InchiGeneratorTest.assertSameOutput(expected, JnaInchi.toInchi(CompactInchiInput.fromInchiInput(input), classicOptions));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testChiralFlagOnIsRejected() {
+    //The IXA API ignores the chiral flag, so the classic API could not give the same output
+    InchiOptions.InchiOptionsBuilder builder = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.ChiralFlagON).withApi(InchiApi.CLASSIC);
+    assertThrows(IllegalArgumentException.class, builder::build);
+    new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.ChiralFlagON).build();
+  }
+
+}
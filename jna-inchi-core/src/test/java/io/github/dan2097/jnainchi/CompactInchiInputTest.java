@@ -0,0 +1,80 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class CompactInchiInputTest {
+
+  @Test
+  public void testOutputMatchesInchiInput() {
+    for (InchiInput input : InchiGeneratorTest.getInputs()) {
+      CompactInchiInput compact = CompactInchiInput.fromInchiInput(input);
+      for (InchiOptions options : InchiGeneratorTest.OPTIONS) {
+        InchiGeneratorTest.assertSameOutput(JnaInchi.toInchi(input, options), JnaInchi.toInchi(compact, options));
+      }
+      try (InchiGenerator generator = new InchiGenerator()) {
+        InchiGeneratorTest.assertSameOutput(JnaInchi.toInchi(input), generator.toInchi(compact));
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() {
+    List<InchiInput> inputs = InchiGeneratorTest.getInputs();
+    for (InchiInput input : inputs) {
+      CompactInchiInput compact = CompactInchiInput.fromInchiInput(input);
+      InchiInput roundTripped = compact.toInchiInput();
+      assertEquals(input.getAtoms().size(), roundTripped.getAtoms().size());
+      assertEquals(input.getBonds().size(), roundTripped.getBonds().size());
+      assertEquals(input.getStereos().size(), roundTripped.getStereos().size());
+      InchiGeneratorTest.assertSameOutput(JnaInchi.toInchi(input), JnaInchi.toInchi(roundTripped));
+    }
+  }
+
+  @Test
+  public void testConstruction() {
+    CompactInchiInput compact = new CompactInchiInput();
+    //Exceed the initial capacity
+    for (int i = 0; i < 20; i++) {
+      int atom = compact.addAtom("C");
+      compact.setImplicitHydrogen(atom, i == 0 || i == 19 ? 3 : 2);
+      if (i > 0) {
+        compact.addBond(i - 1, i, InchiBondType.SINGLE);
+      }
+    }
+    int cl = compact.addAtom("Cl");
+    compact.setCharge(cl, -1);
+    compact.setImplicitHydrogen(cl, 0);
+    assertEquals("Cl", compact.getElName(cl));
+    assertEquals(-1, compact.getCharge(cl));
+    assertEquals(21, compact.getAtomCount());
+    assertEquals(19, compact.getBondCount());
+    assertEquals("InChI=1S/C20H42.ClH/c1-3-5-7-9-11-13-15-17-19-20-18-16-14-12-10-8-6-4-2;/h3-20H2,1-2H3;1H/p-1", JnaInchi.toInchi(compact).getInchi());
+
+    assertThrows(IllegalArgumentException.class, () -> compact.addAtom("Xx"));
+    assertThrows(IllegalArgumentException.class, () -> compact.addBond(0, 21, InchiBondType.SINGLE));
+    assertThrows(IllegalArgumentException.class, () -> compact.addTetrahedralStereo(1, 0, 2, CompactInchiInput.IMPLICIT_H, 30, InchiStereoParity.EVEN));
+  }
+
+}
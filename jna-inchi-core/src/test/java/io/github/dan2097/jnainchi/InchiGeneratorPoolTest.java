@@ -0,0 +1,116 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiGeneratorPoolTest {
+
+  @Test
+  public void testStaticApiWithHandlePooling() {
+    List<InchiInput> inputs = InchiGeneratorTest.getInputs();
+    List<InchiOutput> expected = new ArrayList<>();
+    for (InchiInput input : inputs) {
+      expected.add(JnaInchi.toInchi(input));
+    }
+    InchiOutput expectedFromInchi = JnaInchi.inchiToInchi(InchiGeneratorTest.INCHIS.get(0), InchiOptions.DEFAULT_OPTIONS);
+
+    JnaInchi.setHandlePooling(true);
+    try {
+      assertTrue(JnaInchi.isHandlePooling());
+      for (int i = 0; i < inputs.size(); i++) {
+        InchiGeneratorTest.assertSameOutput(expected.get(i), JnaInchi.toInchi(inputs.get(i)));
+      }
+      InchiGeneratorTest.assertSameOutput(expectedFromInchi, JnaInchi.inchiToInchi(InchiGeneratorTest.INCHIS.get(0), InchiOptions.DEFAULT_OPTIONS));
+    }
+    finally {
+      JnaInchi.setHandlePooling(false);
+    }
+    assertFalse(JnaInchi.isHandlePooling());
+  }
+
+  @Test
+  public void testGeneratorsOfTerminatedThreadsAreReleased() throws InterruptedException {
+    InchiGeneratorPool pool = new InchiGeneratorPool(60000);
+    try {
+      List<InchiInput> inputs = InchiGeneratorTest.getInputs();
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        Thread t = new Thread(() -> {
+          try {
+            for (int j = 0; j < 10; j++) {
+              for (InchiInput input : inputs) {
+                InchiGeneratorTest.assertSameOutput(JnaInchi.toInchi(input), pool.toInchi(input, InchiOptions.DEFAULT_OPTIONS));
+              }
+            }
+          }
+          catch (Throwable e) {
+            failure.set(e);
+          }
+        });
+        threads.add(t);
+        t.start();
+      }
+      for (Thread t : threads) {
+        t.join();
+      }
+      if (failure.get() != null) {
+        throw new AssertionError(failure.get());
+      }
+      assertEquals(4, pool.size());
+      pool.releaseUnusedGenerators();
+      assertEquals(0, pool.size());
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testIdleGeneratorsAreReleased() throws InterruptedException {
+    InchiGeneratorPool pool = new InchiGeneratorPool(100);
+    try {
+      InchiInput input = InchiGeneratorTest.getInputs().get(0);
+      InchiOutput expected = JnaInchi.toInchi(input);
+      InchiGeneratorTest.assertSameOutput(expected, pool.toInchi(input, InchiOptions.DEFAULT_OPTIONS));
+      //Released by the pool's background thread, which runs every 100 ms; allow plenty of time on a loaded machine
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (pool.size() != 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(0, pool.size());
+      //A new generator is created on demand
+      InchiGeneratorTest.assertSameOutput(expected, pool.toInchi(input, InchiOptions.DEFAULT_OPTIONS));
+    }
+    finally {
+      pool.shutdown();
+    }
+    assertEquals(0, pool.size());
+  }
+
+}
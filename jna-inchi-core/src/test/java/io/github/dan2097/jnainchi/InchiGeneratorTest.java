@@ -0,0 +1,126 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiGeneratorTest {
+
+  /** The InChIs used in {@link JnaInchiTest} */
+  static final List<String> INCHIS = Arrays.asList(
+      "InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-",
+      "InChI=1S/CHBrFI/c2-1(3)4/h1H/t1-/m0/s1",
+      "InChI=1S/C7H5N3O6/c1-4-6(9(13)14)2-5(8(11)12)3-7(4)10(15)16/h2-3H,1H3",
+      "InChI=1S/C2H3BrClI/c1-2(3,4)5/h1H3/t2-/m0/s1",
+      "InChI=1S/CH4/h1H4/i1+2TD2",
+      "InChI=1S/Tc/i1-2");
+
+  static final List<InchiOptions> OPTIONS = Arrays.asList(
+      InchiOptions.DEFAULT_OPTIONS,
+      new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SNon).build(),
+      new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.FixedH, InchiFlag.RecMet, InchiFlag.AuxNone).build(),
+      new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SRel, InchiFlag.ChiralFlagON).withTimeout(10).build(),
+      new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SUCF, InchiFlag.ChiralFlagOFF).build());
+
+  /**
+   * @return The molecules used in {@link JnaInchiTest}
+   */
+  static List<InchiInput> getInputs() {
+    List<InchiInput> inputs = new ArrayList<>();
+    InchiInput input = new InchiInput();
+    InchiAtom a1 = new InchiAtom("C");
+    a1.setImplicitHydrogen(3);
+    InchiAtom a2 = new InchiAtom("C");
+    a2.setImplicitHydrogen(1);
+    InchiAtom a3 = new InchiAtom("C");
+    a3.setImplicitHydrogen(1);
+    InchiAtom a4 = new InchiAtom("Br");
+    input.addAtom(a1);
+    input.addAtom(a2);
+    input.addAtom(a3);
+    input.addAtom(a4);
+    input.addBond(new InchiBond(a1, a2, InchiBondType.SINGLE));
+    input.addBond(new InchiBond(a2, a3, InchiBondType.DOUBLE));
+    input.addBond(new InchiBond(a3, a4, InchiBondType.SINGLE));
+    input.addStereo(InchiStereo.createDoubleBondStereo(a1, a2, a3, a4, InchiStereoParity.ODD));
+    inputs.add(input);
+
+    for (String inchi : INCHIS) {
+      inputs.add(JnaInchi.getInchiInputFromInchi(inchi).getInchiInput());
+    }
+    String auxInfo = "AuxInfo=1/0/N:3,2,5,1,4/it:im/rA:5ClC.oCIBr/rB:p1;s2;s2;N2;/rC:0,-1.54,0;;0,1.54,0;1.54,0,0;-1.54,0,0;";
+    inputs.add(JnaInchi.getInchiInputFromAuxInfo(auxInfo, false, false).getInchiInput());
+    //Empty input gives an error
+    inputs.add(new InchiInput());
+    return inputs;
+  }
+
+  static void assertSameOutput(InchiOutput expected, InchiOutput actual) {
+    assertEquals(expected.getStatus(), actual.getStatus());
+    assertEquals(expected.getInchi(), actual.getInchi());
+    assertEquals(expected.getAuxInfo(), actual.getAuxInfo());
+    assertEquals(expected.getMessage(), actual.getMessage());
+    assertEquals(expected.getLog(), actual.getLog());
+  }
+
+  @Test
+  public void testToInchiMatchesStaticApi() {
+    List<InchiInput> inputs = getInputs();
+    try (InchiGenerator generator = new InchiGenerator()) {
+      //Options are varied between molecules to check that they don't leak into subsequent molecules
+      for (InchiOptions options : OPTIONS) {
+        for (InchiInput input : inputs) {
+          assertSameOutput(JnaInchi.toInchi(input, options), generator.toInchi(input, options));
+        }
+      }
+      for (InchiInput input : inputs) {
+        for (InchiOptions options : OPTIONS) {
+          assertSameOutput(JnaInchi.toInchi(input, options), generator.toInchi(input, options));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testInchiToInchiMatchesStaticApi() {
+    try (InchiGenerator generator = new InchiGenerator()) {
+      for (String inchi : INCHIS) {
+        for (InchiOptions options : OPTIONS) {
+          assertSameOutput(JnaInchi.inchiToInchi(inchi, options), generator.inchiToInchi(inchi, options));
+        }
+      }
+      assertSameOutput(JnaInchi.inchiToInchi("InChI=1S/invalid", InchiOptions.DEFAULT_OPTIONS), generator.inchiToInchi("InChI=1S/invalid", InchiOptions.DEFAULT_OPTIONS));
+    }
+  }
+
+  @Test
+  public void testClosedGenerator() {
+    InchiGenerator generator = new InchiGenerator();
+    generator.close();
+    generator.close();
+    assertThrows(IllegalStateException.class, () -> generator.toInchi(new InchiInput()));
+  }
+
+}
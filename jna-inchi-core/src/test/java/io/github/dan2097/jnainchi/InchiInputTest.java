@@ -0,0 +1,49 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiInputTest {
+
+  @Test
+  public void testAtomIndex() {
+    InchiInput input = new InchiInput();
+    InchiAtom notInInput = new InchiAtom("C");
+    assertEquals(-1, input.getAtomIndex(notInInput));
+    for (int i = 0; i < 100; i++) {
+      input.addAtom(new InchiAtom("C"));
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, input.getAtomIndex(input.getAtom(i)));
+    }
+    assertEquals(-1, input.getAtomIndex(notInInput));
+    assertEquals(-1, input.getAtomIndex(null));
+
+    //Adding an atom after a lookup
+    input.addAtom(notInInput);
+    assertEquals(100, input.getAtomIndex(notInInput));
+
+    //Equivalent to List.indexOf when an atom is added twice
+    input.addAtom(input.getAtom(5));
+    assertEquals(5, input.getAtomIndex(input.getAtom(101)));
+  }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiKeyGeneratorTest {
+
+  private static final String[] ELEMENTS = {"C", "C", "C", "C", "N", "O", "S", "P", "Cl", "Br"};
+
+  private static final List<InchiOptions> OPTIONS = Arrays.asList(
+      InchiOptions.DEFAULT_OPTIONS,
+      new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.FixedH, InchiFlag.RecMet).build(),
+      new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SUU, InchiFlag.SLUUD).build());
+
+  /** Inserted into InChIs to produce invalid and unusual InChIs */
+  private static final String[] FRAGMENTS = {"/p+1", "/p-2", "/p+13", "/p-12", "/p", "/pX", "/p+99999999999999999999", "/p+4294967295",
+      "/p0", "/q+1", "/c1-2", "/h1H", "/b2-1+", "/t1-/m0/s1", "/i1+1", "/f/h", "/r", "/", " ", "\n", "\0", "!", "_", "S", "B", "1", "p", "f", "?",
+      "InChI=1S/", "/t1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20,21,22,23,24,25,26,27,28,29,30,31,32,33,34,35,36,37,38,39,40,41,42,43,44,45,46,47,48,49,50,51,52,53,54,55,56,57,58,59,60,61,62,63,64,65,66,67,68,69,70,71,72,73,74,75,76,77,78,79,80,81,82,83,84,85"};
+
+  private static void assertSameAsNative(InchiKeyGenerator generator, String inchi) {
+    InchiKeyOutput expected = JnaInchi.inchiToInchiKeyNative(inchi);
+    InchiKeyOutput actual = generator.generate(inchi);
+    String msg = "InChIKey differs for: " + inchi;
+    assertEquals(expected.getStatus(), actual.getStatus(), msg);
+    assertEquals(expected.getInchiKey(), actual.getInchiKey(), msg);
+    assertEquals(expected.getBlock1HashExtension(), actual.getBlock1HashExtension(), msg);
+    assertEquals(expected.getBlock2HashExtension(), actual.getBlock2HashExtension(), msg);
+  }
+
+  private static InchiInput randomMolecule(Random random) {
+    InchiInput input = new InchiInput();
+    int atomCount = 1 + random.nextInt(25);
+    List<InchiAtom> atoms = new ArrayList<>();
+    for (int i = 0; i < atomCount; i++) {
+      InchiAtom atom = new InchiAtom(ELEMENTS[random.nextInt(ELEMENTS.length)]);
+      if (random.nextInt(20) == 0) {
+        atom.setCharge(random.nextBoolean() ? 1 : -1);
+      }
+      if (random.nextInt(30) == 0) {
+        atom.setIsotopicMass(13);
+      }
+      input.addAtom(atom);
+      if (i > 0) {
+        InchiBondType type = random.nextInt(5) == 0 ? InchiBondType.DOUBLE : InchiBondType.SINGLE;
+        input.addBond(new InchiBond(atoms.get(random.nextInt(i)), atom, type));
+      }
+      atoms.add(atom);
+    }
+    return input;
+  }
+
+  @Test
+  public void testKnownKeys() {
+    InchiKeyGenerator generator = new InchiKeyGenerator();
+    assertEquals("VNWKTOKETHGBQD-UHFFFAOYSA-N", generator.generate("InChI=1S/CH4/h1H4").getInchiKey());
+    assertEquals("QGZKDVFQNNGYKY-UHFFFAOYSA-O", generator.generate("InChI=1S/H3N/h1H3/p+1").getInchiKey());
+    assertEquals("VNWKTOKETHGBQD-UHFFFAOYNA-N", generator.generate("InChI=1/CH4/h1H4").getInchiKey());
+    assertEquals(InchiKeyStatus.EMPTY_INPUT, generator.generate(null).getStatus());
+    assertEquals(InchiKeyStatus.INVALID_INCHI_PREFIX, generator.generate("InChI=2S/CH4/h1H4").getStatus());
+    assertEquals(InchiKeyStatus.INVALID_STD_INCHI, generator.generate("InChI=1S/CH4/h1H4/f/h").getStatus());
+  }
+
+  @Test
+  public void testBuffers() {
+    InchiKeyGenerator generator = new InchiKeyGenerator();
+    String inchi = "InChI=1S/C4H8/c1-3-4-2/h3-4H,1-2H3/b4-3+";
+    String key = "IAQRGUVFOMOMEM-ONEGZZNKSA-N";
+    char[] chars = new char[30];
+    assertEquals(InchiKeyStatus.OK, generator.generate(inchi, chars, 3));
+    assertEquals(key, new String(chars, 3, InchiKeyGenerator.INCHIKEY_LENGTH));
+    byte[] bytes = new byte[InchiKeyGenerator.INCHIKEY_LENGTH];
+    assertEquals(InchiKeyStatus.OK, generator.generate(new StringBuilder(inchi), bytes, 0));
+    assertArrayEquals(key.getBytes(StandardCharsets.US_ASCII), bytes);
+
+    //Buffers are untouched on failure
+    assertEquals(InchiKeyStatus.INVALID_INCHI_PREFIX, generator.generate("InChI=", bytes, 0));
+    assertArrayEquals(key.getBytes(StandardCharsets.US_ASCII), bytes);
+    assertThrows(IndexOutOfBoundsException.class, () -> generator.generate(inchi, chars, 4));
+  }
+
+  @Test
+  public void testMatchesNativeForGeneratedInchis() {
+    InchiKeyGenerator generator = new InchiKeyGenerator();
+    Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      InchiInput input = randomMolecule(random);
+      for (InchiOptions options : OPTIONS) {
+        String inchi = JnaInchi.toInchi(input, options).getInchi();
+        assertSameAsNative(generator, inchi);
+      }
+    }
+  }
+
+  @Test
+  public void testMatchesNativeForMalformedInchis() {
+    InchiKeyGenerator generator = new InchiKeyGenerator();
+    Random random = new Random(42);
+    List<String> inchis = new ArrayList<>(InchiGeneratorTest.INCHIS);
+    inchis.addAll(Arrays.asList("InChI=1/CH4/h1H4", "InChI=1B/CH4/h1H4", "InChI=1S/H3N/h1H3/p+1", "InChI=1/C2H4O2/c1-2(3)4/h1H3,(H,3,4)/f/h3H", ""));
+    for (int i = 0; i < 20000; i++) {
+      StringBuilder sb = new StringBuilder(inchis.get(random.nextInt(inchis.size())));
+      int mutations = random.nextInt(4);
+      for (int j = 0; j < mutations; j++) {
+        int pos = random.nextInt(sb.length() + 1);
+        int mutation = random.nextInt(3);
+        if (mutation == 0 && pos < sb.length()) {
+          sb.deleteCharAt(pos);
+        }
+        else if (mutation == 1 && pos < sb.length()) {
+          sb.setLength(pos);
+        }
+        else {
+          sb.insert(pos, FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+      }
+      assertSameAsNative(generator, sb.toString());
+    }
+  }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiKeyTest {
+
+  private static String randomInchiKey(Random random, String connectivityBlock) {
+    StringBuilder sb = new StringBuilder(connectivityBlock);
+    sb.append('-');
+    for (int i = 0; i < 8; i++) {
+      sb.append((char) ('A' + random.nextInt(26)));
+    }
+    sb.append(random.nextBoolean() ? 'S' : 'N');
+    sb.append('A');
+    sb.append('-');
+    sb.append((char) ('A' + random.nextInt(26)));
+    return sb.toString();
+  }
+
+  private static String randomConnectivityBlock(Random random) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 14; i++) {
+      //Bias towards the extremes of the alphabet to exercise the packing limits
+      int r = random.nextInt(30);
+      sb.append(r < 2 ? 'A' : r < 4 ? 'Z' : (char) ('A' + random.nextInt(26)));
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testRoundTrip() {
+    InchiKey key = InchiKey.from(JnaInchi.inchiToInchiKey("InChI=1S/CH4/h1H4"));
+    assertEquals("VNWKTOKETHGBQD-UHFFFAOYSA-N", key.toString());
+    assertEquals("VNWKTOKETHGBQD", key.getConnectivityBlock());
+    assertTrue(key.isStandard());
+    assertEquals(key, new InchiKey(key.getMostSignificantBits(), key.getLeastSignificantBits()));
+    assertFalse(InchiKey.parse("VNWKTOKETHGBQD-UHFFFAOYNA-N").isStandard());
+    for (String s : new String[] {"AAAAAAAAAAAAAA-AAAAAAAAAA-A", "ZZZZZZZZZZZZZZ-ZZZZZZZZZZ-Z"}) {
+      assertEquals(s, InchiKey.parse(s).toString());
+    }
+
+    assertThrows(IllegalArgumentException.class, () -> InchiKey.from(JnaInchi.inchiToInchiKey("foo")));
+    assertThrows(IllegalArgumentException.class, () -> InchiKey.parse("VNWKTOKETHGBQD-UHFFFAOYSA"));
+    assertThrows(IllegalArgumentException.class, () -> InchiKey.parse("VNWKTOKETHGBQD-UHFFFAOYSA-n"));
+    assertThrows(IllegalArgumentException.class, () -> InchiKey.parse("VNWKTOKETHGBQDXUHFFFAOYSA-N"));
+    assertThrows(IllegalArgumentException.class, () -> new InchiKey(-1, 0));
+  }
+
+  @Test
+  public void testOrderingMatchesStrings() {
+    Random random = new Random(42);
+    List<String> strings = new ArrayList<>();
+    List<String> blocks = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      blocks.add(randomConnectivityBlock(random));
+    }
+    for (int i = 0; i < 2000; i++) {
+      strings.add(randomInchiKey(random, blocks.get(random.nextInt(blocks.size()))));
+    }
+    for (int i = 0; i < 1000; i++) {
+      String s1 = strings.get(random.nextInt(strings.size()));
+      String s2 = strings.get(random.nextInt(strings.size()));
+      InchiKey k1 = InchiKey.parse(s1);
+      InchiKey k2 = InchiKey.parse(s2);
+      assertEquals(s1, k1.toString());
+      assertEquals(Integer.signum(s1.compareTo(s2)), Integer.signum(k1.compareTo(k2)));
+      assertEquals(Integer.signum(s1.substring(0, 14).compareTo(s2.substring(0, 14))), Integer.signum(k1.compareConnectivity(k2)));
+      assertEquals(s1.substring(0, 14).equals(s2.substring(0, 14)), k1.hasSameConnectivity(k2));
+      assertEquals(s1.equals(s2), k1.equals(k2));
+    }
+  }
+
+  @Test
+  public void testSortedIndex() {
+    Random random = new Random(7);
+    List<String> blocks = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      blocks.add(randomConnectivityBlock(random));
+    }
+    List<String> strings = new ArrayList<>();
+    InchiKeySortedIndex.InchiKeySortedIndexBuilder builder = new InchiKeySortedIndex.InchiKeySortedIndexBuilder();
+    for (int i = 0; i < 5000; i++) {
+      String s = randomInchiKey(random, blocks.get(random.nextInt(blocks.size())));
+      strings.add(s);
+      builder.add(s);
+      if (random.nextInt(4) == 0) {
+        //duplicate
+        strings.add(s);
+        builder.add(InchiKey.parse(s));
+      }
+    }
+    InchiKeySortedIndex index = builder.build();
+    Collections.sort(strings);
+    assertEquals(strings.size(), index.size());
+    for (int i = 0; i < strings.size(); i++) {
+      assertEquals(strings.get(i), index.get(i).toString());
+    }
+
+    TreeSet<String> distinctStrings = new TreeSet<>(strings);
+    InchiKeySortedIndex distinct = index.distinct();
+    assertEquals(distinctStrings.size(), distinct.size());
+    assertEquals(new ArrayList<>(distinctStrings), toStrings(distinct.asList()));
+    assertEquals(new TreeSet<>(blocks).size(), index.countConnectivityBlocks());
+
+    for (String s : strings) {
+      int idx = index.indexOf(InchiKey.parse(s));
+      assertEquals(strings.indexOf(s), idx);
+    }
+    InchiKey absent = InchiKey.parse("AAAAAAAAAAAAAA-AAAAAAAAAA-A");
+    assertFalse(index.contains(absent));
+    assertEquals(-1, index.indexOf(absent));
+
+    for (String block : blocks) {
+      List<String> expected = new ArrayList<>();
+      for (String s : distinctStrings) {
+        if (s.startsWith(block)) {
+          expected.add(s);
+        }
+      }
+      assertEquals(expected, toStrings(distinct.withConnectivity(block)));
+      assertEquals(expected, toStrings(distinct.withSameConnectivity(InchiKey.parse(block + "-AAAAAAAAAA-A"))));
+    }
+
+    String from = blocks.get(0).compareTo(blocks.get(1)) < 0 ? blocks.get(0) : blocks.get(1);
+    String to = blocks.get(0).compareTo(blocks.get(1)) < 0 ? blocks.get(1) : blocks.get(0);
+    List<String> expected = new ArrayList<>();
+    for (String s : strings) {
+      String block = s.substring(0, 14);
+      if (block.compareTo(from) >= 0 && block.compareTo(to) <= 0) {
+        expected.add(s);
+      }
+    }
+    assertEquals(expected, toStrings(index.connectivityRange(from, to)));
+    assertTrue(index.connectivityRange(to, from).isEmpty() || from.equals(to));
+    assertThrows(IllegalArgumentException.class, () -> index.withConnectivity("VNWKTOKETHGBQ"));
+  }
+
+  private static List<String> toStrings(List<InchiKey> keys) {
+    List<String> strings = new ArrayList<>();
+    for (InchiKey key : keys) {
+      strings.add(key.toString());
+    }
+    return strings;
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiWithKeyTest {
+
+  private static final String MOL = "\n  Test\n\n  2  1  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n    1.0000    0.0000    0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n  1  2  1  0  0  0  0\nM  END\n";
+
+  private static void assertSameOutput(InchiOutput expected, InchiWithKeyOutput actual) {
+    InchiGeneratorTest.assertSameOutput(expected, actual.getInchiOutput());
+    InchiKeyOutput expectedKey = JnaInchi.inchiToInchiKey(expected.getInchi());
+    assertEquals(expectedKey.getInchiKey(), actual.getInchiKey());
+    assertEquals(expectedKey.getStatus(), actual.getInchiKeyOutput().getStatus());
+  }
+
+  @Test
+  public void testToInchiWithKey() {
+    try (InchiGenerator generator = new InchiGenerator()) {
+      for (InchiApi api : InchiApi.values()) {
+        for (InchiOptions baseOptions : InchiGeneratorTest.OPTIONS) {
+          if (api == InchiApi.CLASSIC && baseOptions.getFlags().contains(InchiFlag.ChiralFlagON)) {
+            continue;
+          }
+          InchiOptions.InchiOptionsBuilder builder = new InchiOptions.InchiOptionsBuilder().withApi(api)
+              .withTimeoutMilliSeconds(baseOptions.getTimeoutMilliSeconds());
+          for (InchiFlag flag : baseOptions.getFlags()) {
+            builder.withFlag(flag);
+          }
+          InchiOptions options = builder.build();
+          for (InchiInput input : InchiGeneratorTest.getInputs()) {
+            InchiOutput expected = JnaInchi.toInchi(input, options);
+            assertSameOutput(expected, JnaInchi.toInchiWithKey(input, options));
+            assertSameOutput(expected, generator.toInchiWithKey(input, options));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testKeyWithoutInchiOutput() {
+    InchiOptions options = new InchiOptions.InchiOptionsBuilder().withOutputParts(InchiOutputPart.AUXINFO).build();
+    for (InchiInput input : InchiGeneratorTest.getInputs()) {
+      String expectedKey = JnaInchi.inchiToInchiKey(JnaInchi.toInchi(input).getInchi()).getInchiKey();
+      InchiWithKeyOutput output = JnaInchi.toInchiWithKey(input, options);
+      assertEquals(null, output.getInchi());
+      assertEquals(expectedKey, output.getInchiKey());
+    }
+  }
+
+  @Test
+  public void testMolToInchiWithKey() {
+    InchiWithKeyOutput output = JnaInchi.molToInchiWithKey(MOL);
+    assertEquals(InchiStatus.SUCCESS, output.getStatus());
+    assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", output.getInchi());
+    assertEquals("OKKJLVBELUTLKV-UHFFFAOYSA-N", output.getInchiKey());
+    assertEquals(InchiKeyStatus.OK, output.getInchiKeyOutput().getStatus());
+
+    assertSameOutput(JnaInchi.molToInchi("Not a molfile"), JnaInchi.molToInchiWithKey("Not a molfile"));
+  }
+
+}
@@ -21,6 +21,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Test;
 
@@ -187,4 +193,66 @@ public class JnaInchiTest {
     assertEquals("InChI=1S/C2H3BrClI/c1-2(3,4)5/h1H3/t2-/m0/s1", JnaInchi.toInchi(inchiInput).getInchi());
   }
 
+  @Test
+  public void testToInchiBatch() {
+    List<InchiInput> inputs = getBatchInputs();
+    for (int parallelism : new int[] {1, 4}) {
+      assertBatchOutput(inputs, JnaInchi.toInchiBatch(inputs, InchiOptions.DEFAULT_OPTIONS, parallelism));
+    }
+  }
+
+  @Test
+  public void testToInchiBatchWithExecutor() {
+    List<InchiInput> inputs = getBatchInputs();
+    //fewer threads than tasks, reused across batches
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (int i = 0; i < 3; i++) {
+        assertBatchOutput(inputs, JnaInchi.toInchiBatch(inputs, InchiOptions.DEFAULT_OPTIONS, 4, executor));
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<InchiInput> getBatchInputs() {
+    List<InchiInput> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.addAll(InchiGeneratorTest.getInputs());
+    }
+    //Bond to an atom that is not part of the input
+    InchiInput invalidInput = new InchiInput();
+    InchiAtom a1 = new InchiAtom("C");
+    invalidInput.addAtom(a1);
+    invalidInput.addBond(new InchiBond(a1, new InchiAtom("O"), InchiBondType.SINGLE));
+    inputs.add(5, invalidInput);
+    return inputs;
+  }
+
+  private static void assertBatchOutput(List<InchiInput> inputs, InchiBatchOutput batchOutput) {
+    List<InchiOutput> outputs = batchOutput.getOutputs();
+    assertEquals(inputs.size(), outputs.size());
+    for (int i = 0; i < inputs.size(); i++) {
+      if (i == 5) {
+        assertEquals(InchiStatus.ERROR, outputs.get(i).getStatus());
+        assertNull(outputs.get(i).getInchi());
+        assertEquals("Bond referenced an atom that was not part of the InchiInput", outputs.get(i).getMessage());
+      }
+      else {
+        InchiGeneratorTest.assertSameOutput(JnaInchi.toInchi(inputs.get(i)), outputs.get(i));
+      }
+    }
+    assertTrue(batchOutput.getSlowestIndex() >= 0);
+    assertTrue(batchOutput.getSlowestNanoSeconds() > 0);
+    assertTrue(batchOutput.getMoleculesPerSecond() > 0);
+  }
+
+  @Test
+  public void testToInchiEmptyBatch() {
+    InchiBatchOutput batchOutput = JnaInchi.toInchiBatch(new ArrayList<>(), InchiOptions.DEFAULT_OPTIONS, 4);
+    assertEquals(0, batchOutput.getOutputs().size());
+    assertEquals(-1, batchOutput.getSlowestIndex());
+  }
+
 }
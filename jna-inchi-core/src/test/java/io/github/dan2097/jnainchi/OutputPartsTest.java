@@ -0,0 +1,92 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class OutputPartsTest {
+
+  private static final String MOL = "\n  Test\n\n  2  1  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n    1.0000    0.0000    0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n  1  2  1  0  0  0  0\nM  END\n";
+
+  private static final List<InchiOutputPart[]> MASKS = Arrays.asList(
+      new InchiOutputPart[0],
+      new InchiOutputPart[] {InchiOutputPart.INCHI},
+      new InchiOutputPart[] {InchiOutputPart.AUXINFO},
+      new InchiOutputPart[] {InchiOutputPart.INCHI, InchiOutputPart.MESSAGES},
+      new InchiOutputPart[] {InchiOutputPart.LOG, InchiOutputPart.MESSAGES});
+
+  private static InchiOptions withParts(InchiApi api, InchiOutputPart... parts) {
+    return new InchiOptions.InchiOptionsBuilder().withApi(api).withOutputParts(parts).build();
+  }
+
+  private static void assertSelectedOutput(InchiOutput full, InchiOutput actual, Set<InchiOutputPart> parts) {
+    assertEquals(full.getStatus(), actual.getStatus());
+    assertEquals(parts.contains(InchiOutputPart.INCHI) ? full.getInchi() : null, actual.getInchi());
+    assertEquals(parts.contains(InchiOutputPart.AUXINFO) ? full.getAuxInfo() : null, actual.getAuxInfo());
+    assertEquals(parts.contains(InchiOutputPart.MESSAGES) ? full.getMessage() : null, actual.getMessage());
+    assertEquals(parts.contains(InchiOutputPart.LOG) ? full.getLog() : null, actual.getLog());
+  }
+
+  @Test
+  public void testDefaultIsAllParts() {
+    assertEquals(InchiOutputPart.values().length, InchiOptions.DEFAULT_OPTIONS.getOutputParts().size());
+  }
+
+  @Test
+  public void testToInchi() {
+    for (InchiApi api : InchiApi.values()) {
+      InchiOptions fullOptions = withParts(api, InchiOutputPart.values());
+      try (InchiGenerator generator = new InchiGenerator()) {
+        for (InchiInput input : InchiGeneratorTest.getInputs()) {
+          InchiOutput full = JnaInchi.toInchi(input, fullOptions);
+          for (InchiOutputPart[] mask : MASKS) {
+            InchiOptions options = withParts(api, mask);
+            assertSelectedOutput(full, JnaInchi.toInchi(input, options), options.getOutputParts());
+            assertSelectedOutput(full, generator.toInchi(input, options), options.getOutputParts());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMolToInchi() {
+    InchiOutput full = JnaInchi.molToInchi(MOL);
+    assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", full.getInchi());
+    for (InchiOutputPart[] mask : MASKS) {
+      InchiOptions options = withParts(InchiApi.IXA, mask);
+      assertSelectedOutput(full, JnaInchi.molToInchi(MOL, options), options.getOutputParts());
+    }
+  }
+
+  @Test
+  public void testMessagesAreJoined() {
+    InchiOutput output = new InchiOutput("InChI=1S/CH4/h1H4", null, new String[] {"a", "b"}, null, InchiStatus.WARNING);
+    assertEquals("a; b", output.getMessage());
+    assertEquals("", new InchiOutput(null, null, new String[0], null, InchiStatus.SUCCESS).getMessage());
+    assertNull(new InchiOutput(null, null, (String[]) null, null, InchiStatus.SUCCESS).getMessage());
+  }
+
+}
@@ -7,6 +7,10 @@ package io.github.dan2097.jnarinchi;
  * of <b>RXN and RDFile V2000</b>. Consequently, this Java wrapper also only supports
  * conversion from and to RXN and RDFile V2000.
  * </p>
+ * <p>
+ * The molecules within these files may however be V2000 or V3000 CTABs. The V3000 CTAB has no limit of 999
+ * atoms and bonds, so {@link io.github.dan2097.jnarinchi.cheminfo.MdlReactionWriter} writes larger molecules as V3000 CTABs.
+ * </p>
  */
 public enum CtabVersion {
     /**
@@ -16,7 +20,7 @@ public enum CtabVersion {
     /**
      * Constant representing the CTAB V3000 format and its version string.
      * <br>
-     * <b>Note:</b> RXN and RDFile V3000 are currently <b>not</b> supported.
+     * <b>Note:</b> RXN and RDFile V3000 are currently <b>not</b> supported, V3000 CTABs within RXN and RDFile V2000 are.
      */
     V3000("V3000");
 
@@ -18,7 +18,13 @@
 package io.github.dan2097.jnarinchi;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import com.sun.jna.Platform;
 import com.sun.jna.Pointer;
@@ -35,21 +41,30 @@ import io.github.dan2097.jnarinchi.cheminfo.MdlReactionWriter;
  * <p>
  *     As the native RInChI library is not thread-safe this wrapper class
  *     makes sure that there is only ever one call placed to the native
- *     RInChI library at a time.
+ *     RInChI library at a time. For multi-threaded use several copies of the
+ *     native library can be loaded, see {@link #setLibraryInstances(int)}.
  * </p>
  * @author Nikolay Kochev
  * @author Uli Fechner
  * @see RinchiLibrary
  */
 public class JnaRinchi {
-    // used as a lock object to synchronize on
-    private static final Object lock = new Object();
+    /** System property for the number of native library copies, see {@link #setLibraryInstances(int)} */
+    public static final String LIBRARY_INSTANCES_PROPERTY = "jnarinchi.libraryInstances";
     private static final String PROPERTY_KEY_RINCHI_VERSION = "rinchi_version";
     private static final String PROPERTY_KEY_JNARINCHI_VERSION = "jnarinchi_version";
     private static final String PROPERTY_FILE_NAME = "jnarinchi_build.props";
 
     private static final String platform;
     private static final Throwable libraryLoadingError;
+    /** Number of items that the batch methods process per acquisition of the native library lock, unless otherwise specified */
+    public static final int DEFAULT_BATCH_CHUNK_SIZE = 64;
+
+    private static volatile RinchiLibraryDispatcher dispatcher;
+    /** Why the library copies requested by {@value #LIBRARY_INSTANCES_PROPERTY} could not be loaded */
+    private static final Throwable libraryInstancesError;
+    private static volatile RinchiWorkerPool workerPool;
+    private static final ThreadLocal<RinchiKeyGenerator> rinchiKeyGenerator = ThreadLocal.withInitial(RinchiKeyGenerator::new);
 
     static {
         Throwable t = null;
@@ -62,12 +77,85 @@ public class JnaRinchi {
         }
         platform = p;
         libraryLoadingError = t;
+        dispatcher = RinchiLibraryDispatcher.create(1);
+        int instances = Integer.getInteger(LIBRARY_INSTANCES_PROPERTY, 1);
+        t = null;
+        if (instances > 1 && libraryLoadingError == null) {
+            try {
+                setLibraryInstances(instances);
+            } catch (RuntimeException e) {
+                //A single copy of the library is still usable
+                t = e;
+            }
+        }
+        libraryInstancesError = t;
     }
 
     /** The RInChI C++ library does not consider platform-dependent line endings, but only uses '\n'. */
     private static final String RINCHI_DECOMPOSE_LINE_SEPARATOR = "\n";
     private static final String RINCHI_DECOMPOSE_DIRECTION_SHORT_DESIGNATION = "D";
     private static final int ERROR_CODE_DECOMPOSE_FROM_LINES = -1;
+    /** Error code of a batch output for an input whose conversion threw an exception */
+    static final int ERROR_CODE_BATCH_EXCEPTION = -4;
+
+    /**
+     * Sets the number of copies of the native RInChI library that calls are dispatched across.
+     * Each copy is extracted to its own file so that it has its own native state and lock, allowing that many
+     * calls to run concurrently. The default is 1, i.e. one call at a time.
+     * <br>
+     * This may also be set with the system property {@value #LIBRARY_INSTANCES_PROPERTY}; if the copies cannot be loaded
+     * a single copy is used, see {@link #getLibraryInstancesError()}.
+     *
+     * @param instances number of library copies, at least 1
+     * @throws IllegalArgumentException if <code>instances</code> is less than 1
+     * @throws IllegalStateException if the native library could not be copied
+     */
+    public static synchronized void setLibraryInstances(int instances) {
+        if (instances > 1) {
+            checkLibrary();
+        }
+        dispatcher = RinchiLibraryDispatcher.create(instances);
+    }
+
+    /**
+     * Returns the number of copies of the native RInChI library that calls are dispatched across.
+     * @return number of library copies
+     * @see #setLibraryInstances(int)
+     */
+    public static int getLibraryInstances() {
+        return dispatcher.size();
+    }
+
+    /**
+     * Returns the error that prevented the number of copies of the native RInChI library given by the system property
+     * {@value #LIBRARY_INSTANCES_PROPERTY} from being loaded, in which case a single copy is used.
+     * @return error or <code>null</code> if the property was applied, or not set
+     * @see #setLibraryInstances(int)
+     */
+    public static Throwable getLibraryInstancesError() {
+        return libraryInstancesError;
+    }
+
+    /**
+     * Sets a pool of worker JVMs that executes the RInChI calls of this class, isolating the calling JVM from
+     * native crashes and calls that do not return. <code>null</code> restores in-process execution.
+     * <br>
+     * The pool is not closed by this class.
+     *
+     * @param pool worker pool or <code>null</code>
+     */
+    public static void setWorkerPool(RinchiWorkerPool pool) {
+        workerPool = pool;
+    }
+
+    /**
+     * Returns the pool of worker JVMs that executes the RInChI calls of this class.
+     * @return worker pool or <code>null</code> if calls are executed in-process
+     * @see #setWorkerPool(RinchiWorkerPool)
+     */
+    public static RinchiWorkerPool getWorkerPool() {
+        return workerPool;
+    }
 
     /**
      * Converts a reaction represented as a RinchiInput object into RInChI and RAuxInfo.
@@ -103,6 +191,64 @@ public class JnaRinchi {
         return fileTextToRinchi(fileText, options);
     }
 
+    /**
+     * Converts a reaction represented as a RinchiInput object into RInChI and RAuxInfo without calling the native
+     * RInChI library. The InChIs of the reaction components are generated in the calling thread with JNA-InChI and the
+     * RInChI layers are assembled in Java. The result is the same as that of {@link #toRinchi(RinchiInput)}.
+     * <br>
+     * Default RInChI generation options are applied.
+     *
+     * @param rinchiInput input reaction as RinchiInput object
+     * @return result RinchiOutput object
+     * @see #toRinchiDirect(RinchiInput, RinchiOptions)
+     */
+    public static RinchiOutput toRinchiDirect(RinchiInput rinchiInput) {
+        return toRinchiDirect(rinchiInput, RinchiOptions.DEFAULT_OPTIONS);
+    }
+
+    /**
+     * Converts a reaction represented as a RinchiInput object into RInChI and RAuxInfo without calling the native
+     * RInChI library. The InChIs of the reaction components are generated in the calling thread with JNA-InChI and the
+     * RInChI layers are assembled in Java. The result is the same as that of {@link #toRinchi(RinchiInput, RinchiOptions)}.
+     * <p>
+     * This requires the native InChI library for the platform (e.g. jna-inchi-core, which is an optional dependency)
+     * on the classpath, but not the native RInChI library; if it cannot be loaded a RuntimeException is thrown.
+     * As with {@link #toRinchi(RinchiInput, RinchiOptions)}, the direction of
+     * the RinchiInput is not used: the direction is derived from the order of the reactants and products.
+     * </p>
+     *
+     * @param rinchiInput input reaction as RinchiInput object
+     * @param options RInChI generation options
+     * @return result RinchiOutput object
+     * @see #toRinchiDirect(RinchiInput)
+     * @see #toRinchiDirect(RinchiInput, RinchiOptions, Executor)
+     */
+    public static RinchiOutput toRinchiDirect(RinchiInput rinchiInput, RinchiOptions options) {
+        requireNonNull(rinchiInput, "rinchiInput");
+        requireNonNull(options, "options");
+        return RinchiAssembler.toRinchi(rinchiInput, options, null);
+    }
+
+    /**
+     * As {@link #toRinchiDirect(RinchiInput, RinchiOptions)}, but the InChIs of the reaction components are generated
+     * by tasks submitted to the given executor, one per component, so that the components of a large reaction can be
+     * processed in parallel with a parallelism chosen by the caller. The calling thread waits for the tasks to complete.
+     * <br>
+     * To process many reactions in parallel, it is generally more efficient to call {@link #toRinchiDirect(RinchiInput, RinchiOptions)}
+     * for different reactions on different threads.
+     *
+     * @param rinchiInput input reaction as RinchiInput object
+     * @param options RInChI generation options
+     * @param executor executes the InChI generation of the components
+     * @return result RinchiOutput object
+     */
+    public static RinchiOutput toRinchiDirect(RinchiInput rinchiInput, RinchiOptions options, Executor executor) {
+        requireNonNull(rinchiInput, "rinchiInput");
+        requireNonNull(options, "options");
+        requireNonNull(executor, "executor");
+        return RinchiAssembler.toRinchi(rinchiInput, options, executor);
+    }
+
     /**
      * Converts a reaction represented by RInChI and RAuxInfo into a {@link RinchiInputFromRinchiOutput} object.
      * The output is an object of type RinchiInputFromRinchiOutput and
@@ -217,31 +363,76 @@ public class JnaRinchi {
      * @see #fileTextToRinchi(String, RinchiOptions)
      */
     public static RinchiOutput fileTextToRinchi(String reactionFileText, RinchiOptions options, ReactionFileFormat fileFormat) {
-        synchronized (lock) {
-            checkLibrary();
-            requireNonNull(reactionFileText, "reactionFileText");
-            requireNonNull(options, "options");
-            requireNonNull(fileFormat, "fileFormat");
-
-            PointerByReference out_rinchi_string_p = new PointerByReference();
-            PointerByReference out_rinchi_auxinfo_p = new PointerByReference();
+        requireNonNull(reactionFileText, "reactionFileText");
+        requireNonNull(options, "options");
+        requireNonNull(fileFormat, "fileFormat");
 
-            boolean forceEq = options.getFlags().contains(RinchiFlag.ForceEquilibrium);
-            int errCode = RinchiLibrary.rinchilib_rinchi_from_file_text(fileFormat.toString(), reactionFileText,
-                    forceEq, out_rinchi_string_p, out_rinchi_auxinfo_p);
+        RinchiWorkerPool pool = workerPool;
+        if (pool != null) {
+            return pool.fileTextToRinchi(reactionFileText, options, fileFormat);
+        }
+        checkLibrary();
+        RinchiLibraryDispatcher.NativeInstance instance = dispatcher.acquire();
+        try {
+            return fileTextToRinchi(instance.api, reactionFileText, options, fileFormat);
+        } finally {
+            instance.release();
+        }
+    }
 
-            if (errCode != 0) {
-                String errMsg = RinchiLibrary.rinchilib_latest_err_msg();
-                return new RinchiOutput("", "", Status.ERROR, errCode, errMsg);
-            }
+    private static RinchiOutput fileTextToRinchi(RinchiNativeApi api, String reactionFileText, RinchiOptions options, ReactionFileFormat fileFormat) {
+        PointerByReference out_rinchi_string_p = new PointerByReference();
+        PointerByReference out_rinchi_auxinfo_p = new PointerByReference();
 
-            Pointer p = out_rinchi_string_p.getValue();
-            String rinchi = p.getString(0);
-            p = out_rinchi_auxinfo_p.getValue();
-            String auxInfo = p.getString(0);
+        boolean forceEq = options.getFlags().contains(RinchiFlag.ForceEquilibrium);
+        int errCode = api.rinchilib_rinchi_from_file_text(fileFormat.toString(), reactionFileText,
+                forceEq, out_rinchi_string_p, out_rinchi_auxinfo_p);
 
-            return new RinchiOutput(rinchi, auxInfo, Status.SUCCESS, 0, "");
+        if (errCode != 0) {
+            String errMsg = api.rinchilib_latest_err_msg();
+            return new RinchiOutput("", "", Status.ERROR, errCode, errMsg);
         }
+
+        Pointer p = out_rinchi_string_p.getValue();
+        String rinchi = p.getString(0);
+        p = out_rinchi_auxinfo_p.getValue();
+        String auxInfo = p.getString(0);
+
+        return new RinchiOutput(rinchi, auxInfo, Status.SUCCESS, 0, "");
+    }
+
+    /**
+     * Converts a batch of reactions represented in MDL RXN or RDFile format into RInChI and RAuxInfo, see {@link #fileTextToRinchi(String, RinchiOptions)}.
+     * The batch is processed in chunks of {@value #DEFAULT_BATCH_CHUNK_SIZE} reactions.
+     *
+     * @param reactionFileTexts reactions represented in RXN or RDFile format
+     * @param options RInChI generation options
+     * @return the RinchiOutput of each reaction, in the same order as the reactions, with timings of the batch
+     * @see #fileTextToRinchiBatch(List, RinchiOptions, int)
+     */
+    public static RinchiBatchOutput<RinchiOutput> fileTextToRinchiBatch(List<String> reactionFileTexts, RinchiOptions options) {
+        return fileTextToRinchiBatch(reactionFileTexts, options, DEFAULT_BATCH_CHUNK_SIZE);
+    }
+
+    /**
+     * Converts a batch of reactions represented in MDL RXN or RDFile format into RInChI and RAuxInfo, see {@link #fileTextToRinchi(String, RinchiOptions)}.
+     * <br>
+     * Each chunk of <code>chunkSize</code> reactions is converted under a single acquisition of the native library lock.
+     * The lock is released between chunks, so that other threads calling this class are not held up for the whole batch.
+     * A reaction that cannot be converted gives an output with {@link Status#ERROR}, and does not prevent conversion of the rest of the batch.
+     *
+     * @param reactionFileTexts reactions represented in RXN or RDFile format
+     * @param options RInChI generation options
+     * @param chunkSize number of reactions converted per acquisition of the lock, at least 1
+     * @return the RinchiOutput of each reaction, in the same order as the reactions, with timings of the batch
+     * @see #fileTextToRinchiBatch(List, RinchiOptions)
+     */
+    public static RinchiBatchOutput<RinchiOutput> fileTextToRinchiBatch(List<String> reactionFileTexts, RinchiOptions options, int chunkSize) {
+        requireNonNull(options, "options");
+        return runBatch(reactionFileTexts, "reactionFileTexts", chunkSize,
+                (api, reactionFileText) -> fileTextToRinchi(api, reactionFileText, options, ReactionFileFormat.AUTO),
+                (pool, reactionFileText) -> pool.fileTextToRinchi(reactionFileText, options, ReactionFileFormat.AUTO),
+                errorMessage -> new RinchiOutput("", "", Status.ERROR, ERROR_CODE_BATCH_EXCEPTION, errorMessage));
     }
 
     /**
@@ -301,20 +492,25 @@ public class JnaRinchi {
      * @see #fileTextToRinchiKey(String, RinchiKeyType, RinchiOptions)
      */
     public static RinchiKeyOutput fileTextToRinchiKey(String reactionFileText, RinchiKeyType keyType, RinchiOptions options, ReactionFileFormat fileFormat) {
-        synchronized (lock) {
-            checkLibrary();
-            requireNonNull(reactionFileText, "reactionFileText");
-            requireNonNull(keyType, "keyType");
-            requireNonNull(options, "options");
-            requireNonNull(fileFormat, "fileFormat");
-
+        requireNonNull(reactionFileText, "reactionFileText");
+        requireNonNull(keyType, "keyType");
+        requireNonNull(options, "options");
+        requireNonNull(fileFormat, "fileFormat");
+
+        RinchiWorkerPool pool = workerPool;
+        if (pool != null) {
+            return pool.fileTextToRinchiKey(reactionFileText, keyType, options, fileFormat);
+        }
+        checkLibrary();
+        RinchiLibraryDispatcher.NativeInstance instance = dispatcher.acquire();
+        try {
             PointerByReference out_rinchi_key = new PointerByReference();
             boolean forceEq = options.getFlags().contains(RinchiFlag.ForceEquilibrium);
-            int errCode = RinchiLibrary.rinchilib_rinchikey_from_file_text(fileFormat.toString(), reactionFileText,
+            int errCode = instance.api.rinchilib_rinchikey_from_file_text(fileFormat.toString(), reactionFileText,
                     keyType.getShortDesignation(), forceEq, out_rinchi_key);
 
             if (errCode != 0) {
-                String err = RinchiLibrary.rinchilib_latest_err_msg();
+                String err = instance.api.rinchilib_latest_err_msg();
                 return new RinchiKeyOutput("", keyType, Status.ERROR, errCode, err);
             }
 
@@ -322,6 +518,8 @@ public class JnaRinchi {
             String rinchi_key = p.getString(0);
 
             return new RinchiKeyOutput(rinchi_key, keyType, Status.SUCCESS, 0, "");
+        } finally {
+            instance.release();
         }
     }
 
@@ -339,17 +537,22 @@ public class JnaRinchi {
      * @return resultant FileTextOutput object
      */
     public static FileTextOutput rinchiToFileText(String rinchi, String auxInfo, ReactionFileFormat fileFormat) {
-        synchronized (lock) {
-            checkLibrary();
-            requireNonNull(rinchi, "rinchi");
-            requireNonNull(auxInfo, "auxInfo");
-            requireNonNull(fileFormat, "fileFormat");
+        requireNonNull(rinchi, "rinchi");
+        requireNonNull(auxInfo, "auxInfo");
+        requireNonNull(fileFormat, "fileFormat");
 
+        RinchiWorkerPool pool = workerPool;
+        if (pool != null) {
+            return pool.rinchiToFileText(rinchi, auxInfo, fileFormat);
+        }
+        checkLibrary();
+        RinchiLibraryDispatcher.NativeInstance instance = dispatcher.acquire();
+        try {
             PointerByReference out_file_text_p = new PointerByReference();
-            int errCode = RinchiLibrary.rinchilib_file_text_from_rinchi(rinchi, auxInfo, fileFormat.toString(), out_file_text_p);
+            int errCode = instance.api.rinchilib_file_text_from_rinchi(rinchi, auxInfo, fileFormat.toString(), out_file_text_p);
 
             if (errCode != 0) {
-                String err = RinchiLibrary.rinchilib_latest_err_msg();
+                String err = instance.api.rinchilib_latest_err_msg();
                 return new FileTextOutput("", fileFormat, Status.ERROR, errCode, err);
             }
 
@@ -357,6 +560,8 @@ public class JnaRinchi {
             String reactFileText = p.getString(0);
 
             return new FileTextOutput(reactFileText, fileFormat, Status.SUCCESS, 0, "");
+        } finally {
+            instance.release();
         }
     }
 
@@ -372,24 +577,85 @@ public class JnaRinchi {
      * @return result RinchiKeyOutput object
      */
     public static RinchiKeyOutput rinchiToRinchiKey(RinchiKeyType keyType, String rinchi) {
-        synchronized (lock) {
-            checkLibrary();
-            requireNonNull(keyType, "keyType");
-            requireNonNull(rinchi, "rinchi");
+        requireNonNull(keyType, "keyType");
+        requireNonNull(rinchi, "rinchi");
 
-            PointerByReference out_rinchi_key = new PointerByReference();
-            int errCode = RinchiLibrary.rinchilib_rinchikey_from_rinchi(rinchi, keyType.getShortDesignation(), out_rinchi_key);
-
-            if (errCode != 0) {
-                String err = RinchiLibrary.rinchilib_latest_err_msg();
-                return new RinchiKeyOutput("", keyType, Status.ERROR, errCode, err);
-            }
+        RinchiWorkerPool pool = workerPool;
+        if (pool != null) {
+            return pool.rinchiToRinchiKey(keyType, rinchi);
+        }
+        checkLibrary();
+        RinchiLibraryDispatcher.NativeInstance instance = dispatcher.acquire();
+        try {
+            return rinchiToRinchiKey(instance.api, keyType, rinchi);
+        } finally {
+            instance.release();
+        }
+    }
 
-            Pointer p = out_rinchi_key.getValue();
-            String rinchi_key = p.getString(0);
+    private static RinchiKeyOutput rinchiToRinchiKey(RinchiNativeApi api, RinchiKeyType keyType, String rinchi) {
+        PointerByReference out_rinchi_key = new PointerByReference();
+        int errCode = api.rinchilib_rinchikey_from_rinchi(rinchi, keyType.getShortDesignation(), out_rinchi_key);
 
-            return new RinchiKeyOutput(rinchi_key, keyType, Status.SUCCESS, 0, "");
+        if (errCode != 0) {
+            String err = api.rinchilib_latest_err_msg();
+            return new RinchiKeyOutput("", keyType, Status.ERROR, errCode, err);
         }
+
+        Pointer p = out_rinchi_key.getValue();
+        String rinchi_key = p.getString(0);
+
+        return new RinchiKeyOutput(rinchi_key, keyType, Status.SUCCESS, 0, "");
+    }
+
+    /**
+     * Generates the RInChIKeys of a batch of RInChI strings, see {@link #rinchiToRinchiKey(RinchiKeyType, String)}.
+     * The batch is processed in chunks of {@value #DEFAULT_BATCH_CHUNK_SIZE} RInChIs.
+     *
+     * @param keyType RInChI-Key type
+     * @param rinchis input RInChI strings
+     * @return the RinchiKeyOutput of each RInChI, in the same order as the RInChIs, with timings of the batch
+     * @see #rinchiToRinchiKeyBatch(RinchiKeyType, List, int)
+     */
+    public static RinchiBatchOutput<RinchiKeyOutput> rinchiToRinchiKeyBatch(RinchiKeyType keyType, List<String> rinchis) {
+        return rinchiToRinchiKeyBatch(keyType, rinchis, DEFAULT_BATCH_CHUNK_SIZE);
+    }
+
+    /**
+     * Generates the RInChIKeys of a batch of RInChI strings, see {@link #rinchiToRinchiKey(RinchiKeyType, String)}.
+     * <br>
+     * Each chunk of <code>chunkSize</code> RInChIs is processed under a single acquisition of the native library lock.
+     * The lock is released between chunks, so that other threads calling this class are not held up for the whole batch.
+     * A RInChI that cannot be processed gives an output with {@link Status#ERROR}, and does not prevent processing of the rest of the batch.
+     *
+     * @param keyType RInChI-Key type
+     * @param rinchis input RInChI strings
+     * @param chunkSize number of RInChIs processed per acquisition of the lock, at least 1
+     * @return the RinchiKeyOutput of each RInChI, in the same order as the RInChIs, with timings of the batch
+     * @see #rinchiToRinchiKeyBatch(RinchiKeyType, List)
+     */
+    public static RinchiBatchOutput<RinchiKeyOutput> rinchiToRinchiKeyBatch(RinchiKeyType keyType, List<String> rinchis, int chunkSize) {
+        requireNonNull(keyType, "keyType");
+        return runBatch(rinchis, "rinchis", chunkSize,
+                (api, rinchi) -> rinchiToRinchiKey(api, keyType, rinchi),
+                (pool, rinchi) -> pool.rinchiToRinchiKey(keyType, rinchi),
+                errorMessage -> new RinchiKeyOutput("", keyType, Status.ERROR, ERROR_CODE_BATCH_EXCEPTION, errorMessage));
+    }
+
+    /**
+     * Generates a RInChIKey from a RInChI string in Java, without calling the native RInChI library.
+     * The result is the same as that of {@link #rinchiToRinchiKey(RinchiKeyType, String)}, but calls from different
+     * threads run concurrently. For bulk use, a {@link RinchiKeyGenerator} per thread may be used directly.
+     *
+     * @param keyType RInChI-Key type
+     * @param rinchi input RInChi string
+     * @return result RinchiKeyOutput object
+     * @see RinchiKeyGenerator
+     */
+    public static RinchiKeyOutput rinchiToRinchiKeyDirect(RinchiKeyType keyType, String rinchi) {
+        requireNonNull(keyType, "keyType");
+        requireNonNull(rinchi, "rinchi");
+        return rinchiKeyGenerator.get().generate(keyType, rinchi);
     }
 
     /**
@@ -417,16 +683,21 @@ public class JnaRinchi {
      * @see #decomposeRinchi(String)
      */
     public static RinchiDecompositionOutput decomposeRinchi(String rinchi, String auxInfo) {
-        synchronized (lock) {
-            checkLibrary();
-            requireNonNull(rinchi, "rinchi");
-            requireNonNull(auxInfo, "auxInfo");
+        requireNonNull(rinchi, "rinchi");
+        requireNonNull(auxInfo, "auxInfo");
 
+        RinchiWorkerPool pool = workerPool;
+        if (pool != null) {
+            return pool.decomposeRinchi(rinchi, auxInfo);
+        }
+        checkLibrary();
+        RinchiLibraryDispatcher.NativeInstance instance = dispatcher.acquire();
+        try {
             PointerByReference out_inchis_text_p = new PointerByReference();
-            int errCode = RinchiLibrary.rinchilib_inchis_from_rinchi(rinchi, auxInfo, out_inchis_text_p);
+            int errCode = instance.api.rinchilib_inchis_from_rinchi(rinchi, auxInfo, out_inchis_text_p);
 
             if (errCode != 0) {
-                String err = RinchiLibrary.rinchilib_latest_err_msg();
+                String err = instance.api.rinchilib_latest_err_msg();
                 return new RinchiDecompositionOutput(ReactionDirection.FORWARD, null, null, null,
                         Status.ERROR, errCode, err);
             }
@@ -435,9 +706,38 @@ public class JnaRinchi {
             String s = p.getString(0);
 
             return parseNativeOutInchisText(s);
+        } finally {
+            instance.release();
         }
     }
 
+    /**
+     * As {@link #decomposeRinchi(String)}, but splits the RInChI in Java, without calling the native RInChI library.
+     *
+     * @param rinchi input RInChi string
+     * @return result RinchiDecompositionOutput object
+     * @see #decomposeRinchiDirect(String, String)
+     */
+    public static RinchiDecompositionOutput decomposeRinchiDirect(String rinchi) {
+        return decomposeRinchiDirect(rinchi, "");
+    }
+
+    /**
+     * As {@link #decomposeRinchi(String, String)}, but splits the RInChI and RAuxInfo in Java, without calling the native RInChI library.
+     * Hence it can be called concurrently from any number of threads.
+     * Only the layout of the input is checked: unlike the native library, the component InChIs and AuxInfos are not validated.
+     *
+     * @param rinchi input RInChi string
+     * @param auxInfo input RAuxInfo string
+     * @return result RinchiDecompositionOutput object
+     * @see #decomposeRinchiDirect(String)
+     */
+    public static RinchiDecompositionOutput decomposeRinchiDirect(String rinchi, String auxInfo) {
+        requireNonNull(rinchi, "rinchi");
+        requireNonNull(auxInfo, "auxInfo");
+        return RinchiDecomposer.decompose(rinchi, auxInfo);
+    }
+
     /**
      * Returns the version of the wrapped RInChI C library.
      * @return version number string or <code>null</code> if there is an error when retrieving the version number
@@ -563,6 +863,67 @@ public class JnaRinchi {
         }
     }
 
+    /**
+     * @param errorOutput creates the output of an input whose conversion threw an exception, from the exception's description
+     */
+    static <T extends Output> RinchiBatchOutput<T> runBatch(List<String> inputs, String argumentName, int chunkSize,
+                                                            BiFunction<RinchiNativeApi, String, T> nativeCall,
+                                                            BiFunction<RinchiWorkerPool, String, T> workerCall,
+                                                            Function<String, T> errorOutput) {
+        requireNonNull(inputs, argumentName);
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be at least 1: " + chunkSize);
+        }
+        for (String input : inputs) {
+            requireNonNull(input, argumentName + " element");
+        }
+        RinchiWorkerPool pool = workerPool;
+        if (pool == null) {
+            checkLibrary();
+        }
+        int inputCount = inputs.size();
+        List<T> outputs = new ArrayList<>(inputCount);
+        int chunks = 0;
+        long lockWait = 0;
+        int slowestIndex = -1;
+        long slowest = 0;
+        long start = System.nanoTime();
+        for (int chunkStart = 0; chunkStart < inputCount; chunkStart += chunkSize) {
+            int chunkEnd = Math.min(chunkStart + chunkSize, inputCount);
+            RinchiLibraryDispatcher.NativeInstance instance = null;
+            if (pool == null) {
+                long waitStart = System.nanoTime();
+                instance = dispatcher.acquire();
+                lockWait += System.nanoTime() - waitStart;
+                chunks++;
+            }
+            try {
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    long itemStart = System.nanoTime();
+                    T output;
+                    try {
+                        output = instance != null ? nativeCall.apply(instance.api, inputs.get(i)) : workerCall.apply(pool, inputs.get(i));
+                    } catch (RuntimeException exception) {
+                        //An input that cannot be converted does not prevent conversion of the rest of the batch
+                        output = errorOutput.apply(exception.toString());
+                    }
+                    outputs.add(output);
+                    long itemTime = System.nanoTime() - itemStart;
+                    if (itemTime >= slowest) {
+                        slowest = itemTime;
+                        slowestIndex = i;
+                    }
+                }
+            } finally {
+                if (instance != null) {
+                    instance.release();
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return new RinchiBatchOutput<>(Collections.unmodifiableList(outputs), elapsed, chunks, lockWait, slowestIndex, slowest);
+    }
+
     private static void requireNonNull(Object object, String argumentName) {
         if (object == null) {
             throw new IllegalArgumentException("The argument '" + argumentName + "' must not be null.");
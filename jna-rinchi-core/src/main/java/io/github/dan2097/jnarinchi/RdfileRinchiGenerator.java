@@ -0,0 +1,165 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import io.github.dan2097.jnarinchi.cheminfo.MdlReactionReader;
+import io.github.dan2097.jnarinchi.cheminfo.MdlReactionReaderException;
+import io.github.dan2097.jnarinchi.cheminfo.RdfileReader;
+import io.github.dan2097.jnarinchi.cheminfo.RdfileSlice;
+import io.github.dan2097.jnarinchi.cheminfo.RdfileSplitter;
+
+/**
+ * Generates the RInChI of every record of an RDFile using several threads.
+ * <p>
+ * The records are located by an {@link RdfileSplitter}. Each worker thread reads a record with {@link MdlReactionReader}
+ * and generates its RInChI with {@link JnaRinchi#toRinchi(RinchiInput, RinchiOptions)}; hence to run the native calls
+ * concurrently, {@link JnaRinchi#setLibraryInstances(int)} should be set to the number of threads; with a single
+ * library instance the reading of records is parallel but the native calls are made one at a time.
+ * </p>
+ * <p>
+ * At most a fixed number of records per thread are in flight, so that the memory used does not depend on the size of the file.
+ * The outputs are passed to the consumer on the calling thread, either in the order of the records in the file,
+ * or in the order in which they complete. A record that cannot be read gives an output with {@link Status#ERROR},
+ * as does a molecule ($MFMT) record.
+ * </p>
+ */
+public final class RdfileRinchiGenerator {
+    /** Error code of an output for a record that could not be read, as for {@link JnaRinchi#getRinchiInputFromRinchi(String, String)} */
+    static final int ERROR_CODE_READER = -1;
+    /** As for {@link RdfileReader} */
+    private static final String MOLECULE_RECORD_ERROR = "Record is a molecule ($MFMT) rather than a reaction ($RFMT)";
+    private static final int RECORDS_IN_FLIGHT_PER_THREAD = 4;
+
+    private final int threads;
+    private final boolean keepOrder;
+    private final RinchiOptions options;
+    private final int windowSize;
+
+    /**
+     * @param threads number of worker threads
+     * @param keepOrder whether outputs are passed to the consumer in the order of the records in the file
+     */
+    public RdfileRinchiGenerator(int threads, boolean keepOrder) {
+        this(threads, keepOrder, RinchiOptions.DEFAULT_OPTIONS, RdfileSplitter.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param threads number of worker threads
+     * @param keepOrder whether outputs are passed to the consumer in the order of the records in the file
+     * @param options RInChI generation options
+     * @param windowSize size in bytes of the memory-mapped windows of the file
+     */
+    public RdfileRinchiGenerator(int threads, boolean keepOrder, RinchiOptions options, int windowSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1: " + threads);
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("The argument 'options' must not be null.");
+        }
+        this.threads = threads;
+        this.keepOrder = keepOrder;
+        this.options = options;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Generates the RInChI of every record of the given RDFile, passing each output to the consumer on the calling thread.
+     *
+     * @param rdfile path of the RDFile
+     * @param consumer receives the output of each record
+     * @return number of records
+     * @throws IOException if the file cannot be read
+     */
+    public int generate(Path rdfile, Consumer<RdfileRinchiOutput> consumer) throws IOException {
+        int maxInFlight = threads * RECORDS_IN_FLIGHT_PER_THREAD;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "jnarinchi-rdfile");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<RdfileRinchiOutput> completionService = new ExecutorCompletionService<>(executor);
+        ArrayDeque<Future<RdfileRinchiOutput>> inFlight = new ArrayDeque<>();
+        int records = 0;
+        try (RdfileSplitter splitter = new RdfileSplitter(rdfile, windowSize)) {
+            MdlReactionReader mdlReader = new MdlReactionReader();
+            while (splitter.hasNext()) {
+                RdfileSlice slice = splitter.next();
+                Callable<RdfileRinchiOutput> task = () -> toRinchi(mdlReader, slice);
+                //In order, the futures are taken from inFlight, so the completion queue is not used
+                inFlight.add(keepOrder ? executor.submit(task) : completionService.submit(task));
+                records++;
+                if (inFlight.size() >= maxInFlight) {
+                    consumer.accept(takeNext(completionService, inFlight));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                consumer.accept(takeNext(completionService, inFlight));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return records;
+    }
+
+    private RdfileRinchiOutput takeNext(CompletionService<RdfileRinchiOutput> completionService,
+                                        ArrayDeque<Future<RdfileRinchiOutput>> inFlight) {
+        try {
+            Future<RdfileRinchiOutput> future;
+            if (keepOrder) {
+                future = inFlight.poll();
+            } else {
+                future = completionService.take();
+                inFlight.remove(future);
+            }
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted whilst waiting for RDFile records", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("RDFile record conversion failed", e.getCause());
+        }
+    }
+
+    private RdfileRinchiOutput toRinchi(MdlReactionReader mdlReader, RdfileSlice slice) {
+        if (slice.isMoleculeRecord()) {
+            return new RdfileRinchiOutput(slice.getIndex(), slice.getOffset(), "", "", Status.ERROR, ERROR_CODE_READER,
+                    MOLECULE_RECORD_ERROR);
+        }
+        RinchiInput rinchiInput;
+        try {
+            rinchiInput = mdlReader.fileTextToRinchiInput(slice.getText());
+        } catch (MdlReactionReaderException exception) {
+            return new RdfileRinchiOutput(slice.getIndex(), slice.getOffset(), "", "", Status.ERROR, ERROR_CODE_READER, exception.getAllErrors());
+        }
+        RinchiOutput output = JnaRinchi.toRinchi(rinchiInput, options);
+        return new RdfileRinchiOutput(slice.getIndex(), slice.getOffset(), output.getRinchi(), output.getAuxInfo(),
+                output.getStatus(), output.getErrorCode(), output.getErrorMessage());
+    }
+}
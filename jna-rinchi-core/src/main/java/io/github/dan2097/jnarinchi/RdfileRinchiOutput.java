@@ -0,0 +1,49 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+/**
+ * Immutable data class for the RInChI and RAuxInfo of one record of an RDFile, see {@link RdfileRinchiGenerator}.
+ */
+public class RdfileRinchiOutput extends RinchiOutput {
+
+    private final int index;
+    private final long offset;
+
+    RdfileRinchiOutput(int index, long offset, String rinchi, String auxInfo, Status status, int errorCode, String errorMessage) {
+        super(rinchi, auxInfo, status, errorCode, errorMessage);
+        this.index = index;
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the zero-based index of the record within the RDFile.
+     * @return record index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the byte offset of the record within the RDFile.
+     * @return byte offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
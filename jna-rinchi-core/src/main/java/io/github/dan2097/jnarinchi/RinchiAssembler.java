@@ -0,0 +1,245 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.sun.jna.Platform;
+
+import io.github.dan2097.jnainchi.InchiAtom;
+import io.github.dan2097.jnainchi.InchiOutput;
+import io.github.dan2097.jnainchi.InchiStatus;
+import io.github.dan2097.jnainchi.JnaInchi;
+import io.github.dan2097.jnainchi.inchi.InchiLibrary;
+import io.github.dan2097.jnarinchi.cheminfo.MdlReactionWriter;
+
+/**
+ * Generates RInChI and RAuxInfo in Java from the InChIs of the reaction components, without calling the native RInChI library.
+ * <p>
+ *     Each component is written as a molfile, as it would be written within the reaction file passed to the native library,
+ *     and its InChI is generated by {@link JnaInchi#molToInchi(String)}. The InChIs of the components are generated in the calling thread,
+ *     or as tasks of an executor given by the caller.
+ *     The layers are then assembled following the rules of the native RInChI library:
+ *     the components of each group are sorted by InChI, the group of reactants and the group of products are swapped
+ *     if the products sort first, and components without a structure (no atoms, or a single "*", "A", "R", "R#" or "X" atom) are counted in the "/u" layer.
+ * </p>
+ */
+final class RinchiAssembler {
+
+    private static final String RINCHI_PREFIX = "RInChI=1.00.1S/";
+    private static final String RAUXINFO_PREFIX = "RAuxInfo=1.00.1/";
+    private static final String LAYER_SEPARATOR = "<>";
+    private static final String COMPONENT_SEPARATOR = "!";
+    private static final String DIRECTION_LAYER = "/d";
+    private static final String NO_STRUCTURE_LAYER = "/u";
+    /** Error code of the native RInChI library when the InChI of a component could not be generated */
+    static final int ERROR_CODE_COMPONENT_INCHI = 1;
+    /** Symbols of the single atom of a component that the native RInChI library treats as "no-structure" */
+    private static final Set<String> NO_STRUCTURE_SYMBOLS = new HashSet<>(Arrays.asList("*", "A", "R", "R#", "X"));
+    /** The native InChI library is provided by jna-inchi-core, which is an optional dependency */
+    private static final Throwable inchiLibraryLoadingError = loadInchiLibrary();
+
+    private RinchiAssembler() {
+    }
+
+    private static Throwable loadInchiLibrary() {
+        try {
+            InchiLibrary.JNA_NATIVE_LIB.getName();
+            return null;
+        } catch (Throwable e) {
+            return e;
+        }
+    }
+
+    private static void checkInchiLibrary() {
+        if (inchiLibraryLoadingError != null) {
+            throw new RuntimeException("Error loading InChI native code, which is needed to generate RInChI without the native RInChI library. "
+                    + "Please check that jna-inchi-core, or the JNA-InChI binaries for your platform (" + Platform.RESOURCE_PREFIX
+                    + "), have been included on the classpath.", inchiLibraryLoadingError);
+        }
+    }
+
+    /**
+     * @param executor executes the InChI generation of each component, or null to generate them in the calling thread
+     */
+    static RinchiOutput toRinchi(RinchiInput rinchiInput, RinchiOptions options, Executor executor) {
+        checkInchiLibrary();
+        List<RinchiInputComponent> components = rinchiInput.getComponents();
+        MdlReactionWriter mdlWriter = new MdlReactionWriter();
+        InchiOutput[] inchiOutputs = new InchiOutput[components.size()];
+        if (executor == null) {
+            for (int i = 0; i < components.size(); i++) {
+                inchiOutputs[i] = toInchi(components.get(i), mdlWriter);
+            }
+        } else {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < components.size(); i++) {
+                int index = i;
+                futures.add(CompletableFuture.runAsync(() -> inchiOutputs[index] = toInchi(components.get(index), mdlWriter), executor));
+            }
+            try {
+                //also makes the outputs written by the tasks visible to this thread
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        Group reactants = new Group();
+        Group products = new Group();
+        Group agents = new Group();
+        for (int i = 0; i < components.size(); i++) {
+            RinchiInputComponent component = components.get(i);
+            Group group;
+            if (component.getRole() == ReactionComponentRole.PRODUCT) {
+                group = products;
+            } else if (component.getRole() == ReactionComponentRole.AGENT) {
+                group = agents;
+            } else {
+                group = reactants;
+            }
+            InchiOutput inchiOutput = inchiOutputs[i];
+            if (inchiOutput == null) {
+                group.noStructureCount++;
+                continue;
+            }
+            if (inchiOutput.getStatus() == InchiStatus.ERROR) {
+                return new RinchiOutput("", "", Status.ERROR, ERROR_CODE_COMPONENT_INCHI,
+                        "InChI generation failed for component " + (i + 1) + ": " + inchiOutput.getLog());
+            }
+            group.components.add(new ComponentInchi(inchiOutput));
+        }
+        reactants.sort();
+        products.sort();
+        agents.sort();
+
+        ReactionDirection direction = ReactionDirection.FORWARD;
+        if (reactants.compareTo(products) > 0) {
+            Group swap = reactants;
+            reactants = products;
+            products = swap;
+            direction = ReactionDirection.BACKWARD;
+        }
+        if (options.getFlags().contains(RinchiFlag.ForceEquilibrium)) {
+            direction = ReactionDirection.EQUILIBRIUM;
+        }
+
+        StringBuilder rinchi = new StringBuilder(RINCHI_PREFIX);
+        StringBuilder auxInfo = new StringBuilder(RAUXINFO_PREFIX);
+        appendLayers(rinchi, auxInfo, reactants, products, agents);
+        rinchi.append(DIRECTION_LAYER).append(direction.getShortRinchiDesignation());
+        if (reactants.noStructureCount > 0 || products.noStructureCount > 0 || agents.noStructureCount > 0) {
+            rinchi.append(NO_STRUCTURE_LAYER).append(reactants.noStructureCount)
+                    .append('-').append(products.noStructureCount)
+                    .append('-').append(agents.noStructureCount);
+        }
+        return new RinchiOutput(rinchi.toString(), auxInfo.toString(), Status.SUCCESS, 0, "");
+    }
+
+    /**
+     * @return the InChI output, or null if the component has no structure
+     */
+    private static InchiOutput toInchi(RinchiInputComponent component, MdlReactionWriter mdlWriter) {
+        if (isNoStructure(component)) {
+            return null;
+        }
+        return JnaInchi.molToInchi(mdlWriter.rinchiInputComponentToMolfileText(component));
+    }
+
+    private static void appendLayers(StringBuilder rinchi, StringBuilder auxInfo, Group... groups) {
+        //Trailing empty groups are omitted
+        int lastGroup = groups.length - 1;
+        while (lastGroup > 0 && groups[lastGroup].components.isEmpty()) {
+            lastGroup--;
+        }
+        for (int g = 0; g <= lastGroup; g++) {
+            if (g > 0) {
+                rinchi.append(LAYER_SEPARATOR);
+                auxInfo.append(LAYER_SEPARATOR);
+            }
+            List<ComponentInchi> components = groups[g].components;
+            for (int i = 0; i < components.size(); i++) {
+                if (i > 0) {
+                    rinchi.append(COMPONENT_SEPARATOR);
+                    auxInfo.append(COMPONENT_SEPARATOR);
+                }
+                rinchi.append(components.get(i).inchi);
+                auxInfo.append(components.get(i).auxInfo);
+            }
+        }
+    }
+
+    private static boolean isNoStructure(RinchiInputComponent component) {
+        List<InchiAtom> atoms = component.getAtoms();
+        return atoms.isEmpty() || (atoms.size() == 1 && NO_STRUCTURE_SYMBOLS.contains(atoms.get(0).getElName()));
+    }
+
+    /**
+     * Removes the identifier and version, e.g. "InChI=1S/", from an InChI or AuxInfo
+     */
+    private static String stripPrefix(String identifier) {
+        return identifier.substring(identifier.indexOf('/') + 1);
+    }
+
+    private static class ComponentInchi implements Comparable<ComponentInchi> {
+        private final String inchi;
+        private final String auxInfo;
+
+        private ComponentInchi(InchiOutput inchiOutput) {
+            this.inchi = stripPrefix(inchiOutput.getInchi());
+            this.auxInfo = stripPrefix(inchiOutput.getAuxInfo());
+        }
+
+        @Override
+        public int compareTo(ComponentInchi o) {
+            return inchi.compareTo(o.inchi);
+        }
+    }
+
+    private static class Group implements Comparable<Group> {
+        private final List<ComponentInchi> components = new ArrayList<>();
+        private int noStructureCount = 0;
+
+        private void sort() {
+            Collections.sort(components);
+        }
+
+        @Override
+        public int compareTo(Group o) {
+            int n = Math.min(components.size(), o.components.size());
+            for (int i = 0; i < n; i++) {
+                int cmp = components.get(i).compareTo(o.components.get(i));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(components.size(), o.components.size());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import java.util.List;
+
+/**
+ * Immutable data class for the outputs of a batch of RInChI library operations, with timings of the batch.
+ *
+ * @param <T> type of the output of each operation
+ */
+public class RinchiBatchOutput<T extends Output> {
+    private final List<T> outputs;
+    private final long elapsedNanoSecs;
+    private final int chunkCount;
+    private final long lockWaitNanoSecs;
+    private final int slowestIndex;
+    private final long slowestNanoSecs;
+
+    RinchiBatchOutput(List<T> outputs, long elapsedNanoSecs, int chunkCount, long lockWaitNanoSecs, int slowestIndex, long slowestNanoSecs) {
+        this.outputs = outputs;
+        this.elapsedNanoSecs = elapsedNanoSecs;
+        this.chunkCount = chunkCount;
+        this.lockWaitNanoSecs = lockWaitNanoSecs;
+        this.slowestIndex = slowestIndex;
+        this.slowestNanoSecs = slowestNanoSecs;
+    }
+
+    /**
+     * The output for each input, in the same order as the inputs.
+     * Inputs that could not be processed have an output with {@link Status#ERROR}
+     * @return list of outputs
+     */
+    public List<T> getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * Wall-clock time taken to process the batch
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanoSeconds() {
+        return elapsedNanoSecs;
+    }
+
+    public double getItemsPerSecond() {
+        if (elapsedNanoSecs == 0) {
+            return 0;
+        }
+        return outputs.size() / (elapsedNanoSecs / 1e9);
+    }
+
+    /**
+     * Number of times the native library lock was acquired, i.e. the number of chunks.
+     * This is 0 if the batch was executed by a {@link RinchiWorkerPool}
+     * @return number of chunks
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Total time spent waiting to acquire the native library lock
+     * @return wait time in nanoseconds
+     */
+    public long getLockWaitNanoSeconds() {
+        return lockWaitNanoSecs;
+    }
+
+    /**
+     * Index of the input that took longest to process, or -1 if the batch was empty
+     * @return index of the slowest input
+     */
+    public int getSlowestIndex() {
+        return slowestIndex;
+    }
+
+    /**
+     * Time taken to process the input at {@link #getSlowestIndex()}
+     * @return time in nanoseconds
+     */
+    public long getSlowestNanoSeconds() {
+        return slowestNanoSecs;
+    }
+}
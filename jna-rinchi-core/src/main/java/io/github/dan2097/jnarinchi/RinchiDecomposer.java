@@ -0,0 +1,272 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+/**
+ * Splits a RInChI (and optionally its RAuxInfo) into the InChIs (and AuxInfos) of the reaction components in Java,
+ * giving the same {@link RinchiDecompositionOutput} as {@link JnaRinchi#decomposeRinchi(String, String)}, but without
+ * calling the native RInChI library.
+ * <p>
+ *     The groups ("&lt;&gt;" separated) and components ("!" separated) are located by index, and only the returned
+ *     InChIs and AuxInfos are allocated. The components are returned in the order reactants, products, agents;
+ *     for a backward reaction ("/d-") the first group of the RInChI holds the products. Each group is followed by its
+ *     no-structures from the "/u" layer, which are returned as "InChI=1S//".
+ * </p>
+ * <p>
+ *     Only the layout of the RInChI and RAuxInfo is checked. Unlike the native library, the component InChIs and AuxInfos
+ *     are not themselves validated, hence some malformed input that the native library rejects is still decomposed.
+ * </p>
+ * This class holds no state and may be used from any number of threads.
+ */
+final class RinchiDecomposer {
+    /** Error code of the native RInChI library */
+    static final int ERROR_CODE = 1;
+
+    private static final String RINCHI_PREFIX = "RInChI=1.00.1S/";
+    private static final String RAUXINFO_PREFIX = "RAuxInfo=1.00.1/";
+    private static final String INCHI_PREFIX = "InChI=1S/";
+    private static final String AUXINFO_PREFIX = "AuxInfo=1/";
+    private static final String NO_STRUCTURE_INCHI = "InChI=1S//";
+    private static final String NO_STRUCTURE_AUXINFO = "AuxInfo=1//";
+    private static final String GROUP_SEPARATOR = "<>";
+    private static final char COMPONENT_SEPARATOR = '!';
+    private static final String DIRECTION_LAYER = "/d";
+    private static final String NO_STRUCTURE_LAYER = "/u";
+    private static final int GROUP_COUNT = 3;
+
+    private RinchiDecomposer() {
+    }
+
+    static RinchiDecompositionOutput decompose(String rinchi, String auxInfo) {
+        try {
+            return parse(rinchi, auxInfo);
+        } catch (IllegalArgumentException e) {
+            return new RinchiDecompositionOutput(ReactionDirection.FORWARD, null, null, null,
+                    Status.ERROR, ERROR_CODE, e.getMessage());
+        }
+    }
+
+    private static RinchiDecompositionOutput parse(String rinchi, String auxInfo) {
+        if (!rinchi.startsWith(RINCHI_PREFIX)) {
+            throw new IllegalArgumentException("Invalid or incompatible RInChI header.");
+        }
+        //The reaction layers (direction and no-structures) follow the component layers
+        int reactionLayersStart = rinchi.length();
+        int directionStart = rinchi.indexOf(DIRECTION_LAYER, RINCHI_PREFIX.length());
+        if (directionStart >= 0) {
+            reactionLayersStart = directionStart;
+        }
+        int noStructureStart = rinchi.indexOf(NO_STRUCTURE_LAYER, RINCHI_PREFIX.length());
+        if (noStructureStart >= 0) {
+            reactionLayersStart = Math.min(reactionLayersStart, noStructureStart);
+        }
+
+        ReactionDirection direction = null;
+        int[] noStructureCounts = null;
+        int layerStart = reactionLayersStart;
+        while (layerStart < rinchi.length()) {
+            int layerEnd = rinchi.indexOf('/', layerStart + 1);
+            if (layerEnd < 0) {
+                layerEnd = rinchi.length();
+            }
+            char tag = layerStart + 1 < layerEnd ? rinchi.charAt(layerStart + 1) : '/';
+            if (tag == 'd' && direction == null) {
+                direction = layerEnd == layerStart + 3 ? directionFromChar(rinchi.charAt(layerStart + 2)) : null;
+                if (direction == null) {
+                    throw new IllegalArgumentException("Invalid reaction direction in RInChI input string.");
+                }
+            } else if (tag == 'u' && noStructureCounts == null) {
+                noStructureCounts = parseNoStructureCounts(rinchi, layerStart + 2, layerEnd);
+            } else {
+                throw new IllegalArgumentException("Unexpected or duplicate reaction layer in RInChI input string: "
+                        + rinchi.substring(layerStart, layerEnd));
+            }
+            layerStart = layerEnd;
+        }
+        if (direction == null) {
+            direction = ReactionDirection.FORWARD;
+        }
+        if (noStructureCounts == null) {
+            noStructureCounts = new int[GROUP_COUNT];
+        }
+
+        //Start and end of each group, both in the RInChI and the RAuxInfo
+        int[] groupBounds = new int[GROUP_COUNT * 2];
+        int groups = findGroups(rinchi, RINCHI_PREFIX.length(), reactionLayersStart, groupBounds);
+        if (groups > GROUP_COUNT) {
+            throw new IllegalArgumentException("Too many component groups in RInChI input string.");
+        }
+        int[] componentCounts = new int[GROUP_COUNT];
+        for (int g = 0; g < groups; g++) {
+            componentCounts[g] = countComponents(rinchi, groupBounds[2 * g], groupBounds[2 * g + 1], "RInChI");
+        }
+
+        boolean hasAuxInfo = !auxInfo.isEmpty();
+        int[] auxInfoGroupBounds = new int[GROUP_COUNT * 2];
+        if (hasAuxInfo) {
+            if (!auxInfo.startsWith(RAUXINFO_PREFIX)) {
+                throw new IllegalArgumentException("Invalid or incompatible RAuxInfo header.");
+            }
+            int auxInfoGroups = findGroups(auxInfo, RAUXINFO_PREFIX.length(), auxInfo.length(), auxInfoGroupBounds);
+            if (auxInfoGroups > GROUP_COUNT) {
+                throw new IllegalArgumentException("Too many component groups in RAuxInfo input string.");
+            }
+            for (int g = 0; g < auxInfoGroups; g++) {
+                if (countComponents(auxInfo, auxInfoGroupBounds[2 * g], auxInfoGroupBounds[2 * g + 1], "RAuxInfo") > componentCounts[g]) {
+                    throw new IllegalArgumentException("RAuxInfo contains more elements in group " + (g + 1) + " than the RInChI.");
+                }
+            }
+        }
+
+        int total = 0;
+        for (int g = 0; g < GROUP_COUNT; g++) {
+            total += componentCounts[g] + noStructureCounts[g];
+        }
+        String[] inchis = new String[total];
+        String[] auxInfos = new String[total];
+        ReactionComponentRole[] roles = new ReactionComponentRole[total];
+
+        int reactantGroup = direction == ReactionDirection.BACKWARD ? 1 : 0;
+        int[] groupOrder = {reactantGroup, 1 - reactantGroup, 2};
+        ReactionComponentRole[] groupRoles = {ReactionComponentRole.REAGENT, ReactionComponentRole.PRODUCT, ReactionComponentRole.AGENT};
+        int i = 0;
+        for (int o = 0; o < GROUP_COUNT; o++) {
+            int g = groupOrder[o];
+            int start = groupBounds[2 * g];
+            int auxInfoStart = auxInfoGroupBounds[2 * g];
+            int auxInfoEnd = auxInfoGroupBounds[2 * g + 1];
+            for (int c = 0; c < componentCounts[g]; c++) {
+                int end = componentEnd(rinchi, start, groupBounds[2 * g + 1]);
+                inchis[i] = prefixed(INCHI_PREFIX, rinchi, start, end);
+                if (auxInfoStart < auxInfoEnd) {
+                    int end2 = componentEnd(auxInfo, auxInfoStart, auxInfoEnd);
+                    auxInfos[i] = prefixed(AUXINFO_PREFIX, auxInfo, auxInfoStart, end2);
+                    auxInfoStart = end2 + 1;
+                } else {
+                    auxInfos[i] = "";
+                }
+                roles[i++] = groupRoles[o];
+                start = end + 1;
+            }
+            for (int c = 0; c < noStructureCounts[g]; c++) {
+                inchis[i] = NO_STRUCTURE_INCHI;
+                auxInfos[i] = hasAuxInfo ? NO_STRUCTURE_AUXINFO : "";
+                roles[i++] = groupRoles[o];
+            }
+        }
+        return new RinchiDecompositionOutput(direction, inchis, auxInfos, roles, Status.SUCCESS, 0, "");
+    }
+
+    private static ReactionDirection directionFromChar(char ch) {
+        switch (ch) {
+        case '+':
+            return ReactionDirection.FORWARD;
+        case '-':
+            return ReactionDirection.BACKWARD;
+        case '=':
+            return ReactionDirection.EQUILIBRIUM;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Parses the three "-" separated no-structure counts between start and end
+     */
+    private static int[] parseNoStructureCounts(String rinchi, int start, int end) {
+        int[] counts = new int[GROUP_COUNT];
+        int g = 0;
+        int digits = 0;
+        for (int i = start; i <= end; i++) {
+            char ch = i < end ? rinchi.charAt(i) : '-';
+            if (ch >= '0' && ch <= '9' && digits < 9) {
+                counts[g] = counts[g] * 10 + (ch - '0');
+                digits++;
+            } else if (ch == '-' && digits > 0 && g < GROUP_COUNT) {
+                g++;
+                digits = 0;
+            } else {
+                g = -1;
+                break;
+            }
+        }
+        if (g != GROUP_COUNT) {
+            throw new IllegalArgumentException("Invalid No-Structure count format in '" + rinchi.substring(start, end) + "'.");
+        }
+        return counts;
+    }
+
+    /**
+     * Stores the start and end of each "&lt;&gt;" separated group between start and end in bounds.
+     * An empty string has no groups.
+     * @return the number of groups, which may be more than the capacity of bounds
+     */
+    private static int findGroups(String text, int start, int end, int[] bounds) {
+        if (start == end) {
+            return 0;
+        }
+        int groups = 0;
+        while (true) {
+            int separator = text.indexOf(GROUP_SEPARATOR, start);
+            if (separator < 0 || separator >= end) {
+                separator = end;
+            }
+            if (groups < GROUP_COUNT) {
+                bounds[2 * groups] = start;
+                bounds[2 * groups + 1] = separator;
+            }
+            groups++;
+            if (separator == end) {
+                return groups;
+            }
+            start = separator + GROUP_SEPARATOR.length();
+        }
+    }
+
+    /**
+     * Counts the "!" separated components of the group between start and end; an empty group has no components
+     */
+    private static int countComponents(String text, int start, int end, String inputName) {
+        if (start == end) {
+            return 0;
+        }
+        int count = 1;
+        int componentStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || text.charAt(i) == COMPONENT_SEPARATOR) {
+                if (i == componentStart) {
+                    throw new IllegalArgumentException("Empty reaction component in " + inputName + " input string.");
+                }
+                if (i < end) {
+                    count++;
+                }
+                componentStart = i + 1;
+            }
+        }
+        return count;
+    }
+
+    private static int componentEnd(String text, int start, int groupEnd) {
+        int end = text.indexOf(COMPONENT_SEPARATOR, start);
+        return end < 0 || end > groupEnd ? groupEnd : end;
+    }
+
+    private static String prefixed(String prefix, String text, int start, int end) {
+        return new StringBuilder(prefix.length() + end - start).append(prefix).append(text, start, end).toString();
+    }
+}
@@ -19,9 +19,6 @@ package io.github.dan2097.jnarinchi;
 
 import io.github.dan2097.jnainchi.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * This class models a particular component of a reaction.
  * <p>
@@ -46,47 +43,6 @@ public class RinchiInputComponent extends InchiInput {
         this.role = role;
     }
 
-    /**
-     * Returns a list of atoms that are connected to <code>atom</code>.
-     *
-     * @param atom adjacent atoms to this atom are returned in a list
-     * @return list of atoms connected to <code>atom</code> or null if <code>atom</code> equals <code>null</code>
-     */
-    public List<InchiAtom> getConnectedAtomList(InchiAtom atom) {
-        if (atom == null) {
-            return null;
-        }
-        List<InchiAtom> list = new ArrayList<>();
-
-        for (int i = 0; i < getBonds().size(); i++) {
-            InchiBond bond = getBond(i);
-            if (bond.getStart() == atom)
-                list.add(bond.getEnd());
-            else if (bond.getEnd() == atom)
-                list.add(bond.getStart());
-        }
-
-        return list;
-    }
-
-    /**
-     * Returns the bond that connects <code>atom1</code> and <code>atom2</code>.
-     *
-     * @param atom1 the first atom participating in the bond to be returned
-     * @param atom2 the second atom participating in the bond to be returned
-     * @return the bond that connects <code>atom1</code> and <code>atom2</code> or <code>null</code> if no such bond exists
-     */
-    public InchiBond getBond(InchiAtom atom1, InchiAtom atom2) {
-        for (int i = 0; i < getBonds().size(); i++) {
-            InchiBond bond = getBond(i);
-            if ((bond.getStart() == atom1 && bond.getEnd() == atom2) || (bond.getStart() == atom2 && bond.getEnd() == atom1)) {
-                return bond;
-            }
-        }
-
-        return null;
-    }
-
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -130,8 +86,8 @@ public class RinchiInputComponent extends InchiInput {
 
     private String bondToString(int i) {
         InchiBond bond = getBond(i);
-        int atomIndex1 = getAtoms().indexOf(bond.getStart()) + 1;
-        int atomIndex2 = getAtoms().indexOf(bond.getEnd()) + 1;
+        int atomIndex1 = getAtomIndex(bond.getStart()) + 1;
+        int atomIndex2 = getAtomIndex(bond.getEnd()) + 1;
 
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append(atomIndex1).append(" ").append(atomIndex2).append(" ").append(bond.getType());
@@ -149,25 +105,25 @@ public class RinchiInputComponent extends InchiInput {
 
         switch (stereo.getType()) {
             case Tetrahedral:
-                stringBuilder.append("center ").append(getAtoms().indexOf(stereo.getCentralAtom()) + 1);
+                stringBuilder.append("center ").append(getAtomIndex(stereo.getCentralAtom()) + 1);
                 stringBuilder.append(" ligands");
                 for (int i = 0; i < 4; i++)
-                    stringBuilder.append(" ").append(getAtoms().indexOf(stereo.getAtoms()[i]) + 1);
+                    stringBuilder.append(" ").append(getAtomIndex(stereo.getAtoms()[i]) + 1);
                 break;
             case DoubleBond:
                 stringBuilder.append(" ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getAtoms()[0]) + 1).append(" - ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getAtoms()[1]) + 1).append(" = ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getAtoms()[2]) + 1).append(" - ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getAtoms()[3]) + 1);
+                stringBuilder.append(getAtomIndex(stereo.getAtoms()[0]) + 1).append(" - ");
+                stringBuilder.append(getAtomIndex(stereo.getAtoms()[1]) + 1).append(" = ");
+                stringBuilder.append(getAtomIndex(stereo.getAtoms()[2]) + 1).append(" - ");
+                stringBuilder.append(getAtomIndex(stereo.getAtoms()[3]) + 1);
                 break;
             case Allene:
                 stringBuilder.append(" ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getAtoms()[0]) + 1).append(" - ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getAtoms()[1]) + 1).append(" = ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getCentralAtom()) + 1).append(" = ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getAtoms()[2]) + 1).append(" - ");
-                stringBuilder.append(getAtoms().indexOf(stereo.getAtoms()[3]) + 1);
+                stringBuilder.append(getAtomIndex(stereo.getAtoms()[0]) + 1).append(" - ");
+                stringBuilder.append(getAtomIndex(stereo.getAtoms()[1]) + 1).append(" = ");
+                stringBuilder.append(getAtomIndex(stereo.getCentralAtom()) + 1).append(" = ");
+                stringBuilder.append(getAtomIndex(stereo.getAtoms()[2]) + 1).append(" - ");
+                stringBuilder.append(getAtomIndex(stereo.getAtoms()[3]) + 1);
                 break;
             case None:
                 break;
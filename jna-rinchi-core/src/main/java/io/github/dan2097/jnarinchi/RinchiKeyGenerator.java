@@ -0,0 +1,413 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import io.github.dan2097.jnainchi.InchiKeyGenerator;
+import io.github.dan2097.jnainchi.InchiKeyHashEncoder;
+import io.github.dan2097.jnainchi.InchiKeyOutput;
+import io.github.dan2097.jnainchi.InchiKeyStatus;
+
+/**
+ * Pure Java implementation of RInChIKey generation, giving the same Long-, Short- and Web-RInChIKeys as
+ * {@link JnaRinchi#rinchiToRinchiKey(RinchiKeyType, String)}, but without calling the native RInChI library.
+ * <p>
+ *     As with the native library, the reaction is normalized before the key is generated: the components of each
+ *     group are sorted, and the group of reactants and the group of products are swapped if the products sort first.
+ *     Hashes are the SHA-256 based base-26 encoding used for InChIKeys.
+ * </p>
+ * <p>
+ *     The component InChIs are only checked to the extent needed to generate their InChIKeys, hence some
+ *     malformed RInChIs that the native library rejects may still give a key.
+ * </p>
+ * Each instance holds its own working state, hence instances are NOT thread-safe.
+ * <pre>
+ * RinchiKeyGenerator keyGenerator = new RinchiKeyGenerator();
+ * for (String rinchi : rinchis) {
+ *     RinchiKeyOutput output = keyGenerator.generate(RinchiKeyType.SHORT, rinchi);
+ *     ...
+ * }
+ * </pre>
+ */
+public final class RinchiKeyGenerator {
+    /** Error code of the native RInChI library */
+    static final int ERROR_CODE = 1;
+
+    private static final String RINCHI_PREFIX = "RInChI=1.00.1S/";
+    private static final String INCHI_PREFIX = "InChI=1S/";
+    private static final String LONG_KEY_PREFIX = "Long-RInChIKey=";
+    private static final String SHORT_KEY_PREFIX = "Short-RInChIKey=";
+    private static final String WEB_KEY_PREFIX = "Web-RInChIKey=";
+    /** Standard, RInChI version 1.00 */
+    private static final String KEY_VERSION = "SA";
+    private static final String GROUP_SEPARATOR = "<>";
+    private static final char COMPONENT_SEPARATOR = '!';
+    private static final String DIRECTION_LAYER = "/d";
+    private static final String NO_STRUCTURE_LAYER = "/u";
+    private static final int GROUP_COUNT = 3;
+    private static final int MAX_PROTONATION_FLAG_OFFSET = 12;
+    private static final int MAX_NO_STRUCTURE_FLAG_COUNT = 25;
+    /** The InChI used for a no-structure is "InChI=1S//" */
+    private static final Component NO_STRUCTURE = new Component("/", "/", "", 0, "MOSFIJXAXDLOML-UHFFFAOYSA-N");
+
+    private final MessageDigest sha256;
+    private final InchiKeyGenerator inchiKeyGenerator = new InchiKeyGenerator();
+    private final StringBuilder hashInput = new StringBuilder();
+    private final char[] hash = new char[17];
+
+    public RinchiKeyGenerator() {
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Generates a RInChIKey from a RInChI string, equivalent to {@link JnaRinchi#rinchiToRinchiKey(RinchiKeyType, String)}.
+     *
+     * @param keyType RInChI-Key type
+     * @param rinchi input RInChI string
+     * @return result RinchiKeyOutput object
+     */
+    public RinchiKeyOutput generate(RinchiKeyType keyType, String rinchi) {
+        if (keyType == null) {
+            throw new IllegalArgumentException("The argument 'keyType' must not be null.");
+        }
+        if (rinchi == null) {
+            throw new IllegalArgumentException("The argument 'rinchi' must not be null.");
+        }
+        Reaction reaction;
+        try {
+            reaction = parse(rinchi);
+        } catch (IllegalArgumentException e) {
+            return new RinchiKeyOutput("", keyType, Status.ERROR, ERROR_CODE, e.getMessage());
+        }
+        reaction.normalize();
+        String key;
+        switch (keyType) {
+            case LONG:
+                key = longKey(reaction);
+                break;
+            case SHORT:
+                key = shortKey(reaction);
+                break;
+            case WEB:
+                key = webKey(reaction);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported RInChIKey type: " + keyType);
+        }
+        return new RinchiKeyOutput(key, keyType, Status.SUCCESS, 0, "");
+    }
+
+    private String longKey(Reaction reaction) {
+        StringBuilder sb = new StringBuilder(LONG_KEY_PREFIX);
+        appendHeader(sb, reaction);
+        int lastGroup = GROUP_COUNT - 1;
+        while (lastGroup >= 0 && reaction.groups[lastGroup].isEmpty()) {
+            lastGroup--;
+        }
+        for (int g = 0; g <= lastGroup; g++) {
+            sb.append(g == 0 ? "-" : "--");
+            Group group = reaction.groups[g];
+            boolean first = true;
+            for (Component component : group.components) {
+                if (!first) {
+                    sb.append('-');
+                }
+                sb.append(component.inchiKey);
+                first = false;
+            }
+            for (int i = 0; i < group.noStructureCount; i++) {
+                if (!first) {
+                    sb.append('-');
+                }
+                sb.append(NO_STRUCTURE.inchiKey);
+                first = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private String shortKey(Reaction reaction) {
+        StringBuilder sb = new StringBuilder(SHORT_KEY_PREFIX);
+        appendHeader(sb, reaction);
+        for (Group group : reaction.groups) {
+            sb.append('-');
+            appendHash(sb, majorLayers(group.components), 10);
+        }
+        for (Group group : reaction.groups) {
+            sb.append('-');
+            sb.append(protonationFlag(group.components));
+            appendHash(sb, minorLayers(group.components), 4);
+        }
+        sb.append('-');
+        for (Group group : reaction.groups) {
+            int count = group.noStructureCount;
+            sb.append(count == 0 ? 'Z' : (char) ('A' + Math.min(count, MAX_NO_STRUCTURE_FLAG_COUNT) - 1));
+        }
+        return sb.toString();
+    }
+
+    private String webKey(Reaction reaction) {
+        //Unique components, regardless of their role
+        TreeSet<Component> unique = new TreeSet<>();
+        for (Group group : reaction.groups) {
+            unique.addAll(group.components);
+            if (group.noStructureCount > 0) {
+                unique.add(NO_STRUCTURE);
+            }
+        }
+        List<Component> components = new ArrayList<>(unique);
+        StringBuilder sb = new StringBuilder(WEB_KEY_PREFIX);
+        appendHash(sb, majorLayers(components), 17);
+        sb.append('-');
+        sb.append(protonationFlag(components));
+        appendHash(sb, minorLayers(components), 12);
+        sb.append(KEY_VERSION);
+        return sb.toString();
+    }
+
+    private static void appendHeader(StringBuilder sb, Reaction reaction) {
+        sb.append(KEY_VERSION).append('-').append(reaction.directionFlag);
+        //Hash of the (empty) reaction level layers
+        sb.append("UHFF");
+    }
+
+    private CharSequence majorLayers(List<Component> components) {
+        hashInput.setLength(0);
+        for (int i = 0; i < components.size(); i++) {
+            if (i > 0) {
+                hashInput.append(COMPONENT_SEPARATOR);
+            }
+            hashInput.append(components.get(i).majorLayers);
+        }
+        return hashInput;
+    }
+
+    private CharSequence minorLayers(List<Component> components) {
+        hashInput.setLength(0);
+        for (int i = 0; i < components.size(); i++) {
+            //Separators are omitted until the first component with minor layers
+            if (hashInput.length() > 0) {
+                hashInput.append(COMPONENT_SEPARATOR);
+            }
+            hashInput.append(components.get(i).minorLayers);
+        }
+        return hashInput;
+    }
+
+    private static char protonationFlag(List<Component> components) {
+        long protons = 0;
+        for (Component component : components) {
+            protons += component.protons;
+        }
+        if (protons > MAX_PROTONATION_FLAG_OFFSET || protons < -MAX_PROTONATION_FLAG_OFFSET) {
+            return 'A';
+        }
+        return (char) ('N' + protons);
+    }
+
+    /**
+     * Appends the first <code>length</code> (at most 17) letters of the base-26 encoding of the SHA-256 hash of the given string
+     */
+    private void appendHash(StringBuilder sb, CharSequence str, int length) {
+        byte[] a = sha256.digest(str.toString().getBytes(StandardCharsets.UTF_8));
+        InchiKeyHashEncoder.encodeHashBlock(a, hash, 0);
+        //The RInChI library reuses the last bit of the first block for the next triplet
+        InchiKeyHashEncoder.encodeTriplet((a[8] & 0xff) | (a[9] & 0x3f) << 8, hash, InchiKeyHashEncoder.HASH_BLOCK_LENGTH);
+        sb.append(hash, 0, length);
+    }
+
+    private Reaction parse(String rinchi) {
+        if (!rinchi.startsWith(RINCHI_PREFIX)) {
+            throw new IllegalArgumentException("Invalid or incompatible RInChI header.");
+        }
+        Reaction reaction = new Reaction();
+        String layers = rinchi.substring(RINCHI_PREFIX.length());
+
+        //The reaction layers (direction and no-structures) follow the component layers
+        int reactionLayersStart = layers.length();
+        int directionStart = layers.indexOf(DIRECTION_LAYER);
+        if (directionStart >= 0) {
+            reactionLayersStart = directionStart;
+        }
+        int noStructureStart = layers.indexOf(NO_STRUCTURE_LAYER);
+        if (noStructureStart >= 0) {
+            reactionLayersStart = Math.min(reactionLayersStart, noStructureStart);
+            if (layers.indexOf(NO_STRUCTURE_LAYER, noStructureStart + 1) >= 0) {
+                throw new IllegalArgumentException("Duplicate No-Structure tag in RInChI input string.");
+            }
+        }
+        char direction = '+';
+        if (directionStart >= 0) {
+            int end = directionStart + DIRECTION_LAYER.length();
+            if (end >= layers.length() || "+-=".indexOf(layers.charAt(end)) < 0
+                    || (end + 1 < layers.length() && layers.charAt(end + 1) != '/')) {
+                throw new IllegalArgumentException("Invalid reaction direction in RInChI input string.");
+            }
+            direction = layers.charAt(end);
+        }
+        if (noStructureStart >= 0) {
+            int end = layers.indexOf('/', noStructureStart + 1);
+            parseNoStructures(reaction, layers.substring(noStructureStart + NO_STRUCTURE_LAYER.length(), end < 0 ? layers.length() : end));
+        }
+
+        String componentLayers = layers.substring(0, reactionLayersStart);
+        String[] groups = componentLayers.split(GROUP_SEPARATOR, -1);
+        if (groups.length > GROUP_COUNT) {
+            throw new IllegalArgumentException("Too many component groups in RInChI input string.");
+        }
+        for (int g = 0; g < groups.length; g++) {
+            if (groups[g].isEmpty()) {
+                continue;
+            }
+            for (String inchi : groups[g].split(String.valueOf(COMPONENT_SEPARATOR), -1)) {
+                reaction.groups[g].components.add(parseComponent(inchi));
+            }
+        }
+        if (direction == '-') {
+            reaction.swapReactantsAndProducts();
+        }
+        reaction.equilibrium = direction == '=';
+        return reaction;
+    }
+
+    private static void parseNoStructures(Reaction reaction, String counts) {
+        String[] parts = counts.split("-", -1);
+        if (parts.length != GROUP_COUNT) {
+            throw new IllegalArgumentException("Invalid No-Structure count format in '" + counts + "'.");
+        }
+        for (int g = 0; g < GROUP_COUNT; g++) {
+            try {
+                reaction.groups[g].noStructureCount = Integer.parseInt(parts[g]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid No-Structure count format in '" + counts + "'.");
+            }
+            if (reaction.groups[g].noStructureCount < 0) {
+                throw new IllegalArgumentException("Invalid No-Structure count format in '" + counts + "'.");
+            }
+        }
+    }
+
+    private Component parseComponent(String inchi) {
+        InchiKeyOutput keyOutput = inchiKeyGenerator.generate(INCHI_PREFIX + inchi);
+        if (inchi.isEmpty() || keyOutput.getStatus() != InchiKeyStatus.OK) {
+            throw new IllegalArgumentException("Invalid InChI in RInChI input string: '" + inchi + "'.");
+        }
+        //As for InChIKeys, the major layers are the formula, connections, hydrogens and charge; protonation is counted separately
+        int protonationStart = -1;
+        int minorStart = inchi.length();
+        for (int i = 1; i < inchi.length() - 1; i++) {
+            if (inchi.charAt(i) == '/') {
+                char layer = inchi.charAt(i + 1);
+                if (layer == 'p') {
+                    protonationStart = i;
+                } else if (layer != 'c' && layer != 'h' && layer != 'q') {
+                    minorStart = i;
+                    break;
+                }
+            }
+        }
+        int protons = 0;
+        if (protonationStart >= 0) {
+            protons = Integer.parseInt(inchi.substring(protonationStart + 2, minorStart));
+        }
+        String majorLayers = inchi.substring(0, protonationStart >= 0 ? protonationStart : minorStart);
+        String minorLayers = minorStart < inchi.length() ? inchi.substring(minorStart + 1) : "";
+        return new Component(inchi, majorLayers, minorLayers, protons, keyOutput.getInchiKey());
+    }
+
+    private static class Component implements Comparable<Component> {
+        private final String inchi;
+        private final String majorLayers;
+        private final String minorLayers;
+        private final int protons;
+        private final String inchiKey;
+
+        private Component(String inchi, String majorLayers, String minorLayers, int protons, String inchiKey) {
+            this.inchi = inchi;
+            this.majorLayers = majorLayers;
+            this.minorLayers = minorLayers;
+            this.protons = protons;
+            this.inchiKey = inchiKey;
+        }
+
+        @Override
+        public int compareTo(Component o) {
+            return inchi.compareTo(o.inchi);
+        }
+    }
+
+    private static class Group {
+        private final List<Component> components = new ArrayList<>();
+        private int noStructureCount = 0;
+
+        private boolean isEmpty() {
+            return components.isEmpty() && noStructureCount == 0;
+        }
+
+        private int compareTo(Group o) {
+            int n = Math.min(components.size(), o.components.size());
+            for (int i = 0; i < n; i++) {
+                int cmp = components.get(i).compareTo(o.components.get(i));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(components.size(), o.components.size());
+        }
+    }
+
+    private static class Reaction {
+        private final Group[] groups = {new Group(), new Group(), new Group()};
+        private boolean equilibrium = false;
+        private char directionFlag = 'F';
+
+        private void swapReactantsAndProducts() {
+            Group swap = groups[0];
+            groups[0] = groups[1];
+            groups[1] = swap;
+        }
+
+        /**
+         * Sorts the components of each group, and orders the reactants and products such that the group that sorts first
+         * is the reactants
+         */
+        private void normalize() {
+            for (Group group : groups) {
+                Collections.sort(group.components);
+            }
+            if (groups[0].compareTo(groups[1]) > 0) {
+                swapReactantsAndProducts();
+                directionFlag = 'B';
+            }
+            if (equilibrium) {
+                directionFlag = 'E';
+            }
+        }
+    }
+}
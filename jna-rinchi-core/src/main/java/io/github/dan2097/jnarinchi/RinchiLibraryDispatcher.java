@@ -0,0 +1,189 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Platform;
+
+/**
+ * Dispatches calls across one or more independently loaded copies of the native RInChI library.
+ * <p>
+ *     The native library keeps its state in globals, so it is not thread-safe. Each copy of the library is extracted to its
+ *     own file, so that the operating system loads it with its own globals, and has its own lock.
+ *     A call is placed on an idle copy, starting from a round-robin position, or if all copies are busy on the copy
+ *     with the fewest waiting callers.
+ * </p>
+ */
+final class RinchiLibraryDispatcher {
+
+    private static final int RTLD_LAZY = 0x00001;
+    private static final int RTLD_LOCAL = 0;
+    /** glibc extension: the copy resolves symbols against itself before any previously loaded copy */
+    private static final int RTLD_DEEPBIND = 0x00008;
+
+    /** Copies loaded so far, the statically registered {@link RinchiLibrary} is always the first */
+    private static final List<RinchiNativeApi> loadedCopies = new ArrayList<>(Collections.singletonList(RinchiNativeApi.DEFAULT));
+
+    private final NativeInstance[] instances;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private RinchiLibraryDispatcher(List<RinchiNativeApi> apis) {
+        instances = new NativeInstance[apis.size()];
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new NativeInstance(apis.get(i));
+        }
+    }
+
+    /**
+     * Creates a dispatcher over the given number of copies of the native library, loading additional copies if required.
+     * @param count number of library copies
+     * @return dispatcher
+     */
+    static RinchiLibraryDispatcher create(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of RInChI library instances must be at least 1: " + count);
+        }
+        synchronized (loadedCopies) {
+            while (loadedCopies.size() < count) {
+                loadedCopies.add(loadCopy(loadedCopies.size()));
+            }
+            return new RinchiLibraryDispatcher(new ArrayList<>(loadedCopies.subList(0, count)));
+        }
+    }
+
+    private static RinchiNativeApi loadCopy(int index) {
+        String resourceName = libraryResourceName();
+        int extensionStart = resourceName.lastIndexOf('.');
+        String suffix = extensionStart > resourceName.lastIndexOf('/') ? resourceName.substring(extensionStart) : null;
+        try (InputStream is = openLibrary(resourceName)) {
+            File copy = File.createTempFile("jnarinchi" + index + "-", suffix);
+            copy.deleteOnExit();
+            Files.copy(is, copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Map<String, Object> options = Platform.isLinux() ?
+                    Collections.singletonMap(Library.OPTION_OPEN_FLAGS, RTLD_LAZY | RTLD_LOCAL | RTLD_DEEPBIND) :
+                    Collections.emptyMap();
+            return Native.load(copy.getAbsolutePath(), RinchiNativeApi.class, options);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to copy the RInChI native library: " + resourceName, e);
+        }
+    }
+
+    /**
+     * The classpath resource that JNA loads the native library from e.g. linux-x86-64/librinchi.so
+     */
+    static String libraryResourceName() {
+        return Platform.RESOURCE_PREFIX + "/" + System.mapLibraryName(RinchiLibrary.JNA_LIBRARY_NAME);
+    }
+
+    /**
+     * Opens the native library for copying. When JNA loads the library from a jar, the file it extracts the library to is
+     * deleted once loaded, so the library is read from the classpath rather than from {@link NativeLibrary#getFile()},
+     * which is only used for a library that JNA found elsewhere e.g. on <code>jna.library.path</code>.
+     */
+    private static InputStream openLibrary(String resourceName) throws IOException {
+        InputStream is = RinchiLibrary.class.getClassLoader().getResourceAsStream(resourceName);
+        if (is != null) {
+            return is;
+        }
+        File file = RinchiLibrary.JNA_NATIVE_LIB.getFile();
+        if (file == null || !file.isFile()) {
+            throw new IllegalStateException("The RInChI native library (" + resourceName + ") is not on the classpath, so it cannot be copied");
+        }
+        return new FileInputStream(file);
+    }
+
+    int size() {
+        return instances.length;
+    }
+
+    /**
+     * Returns a library copy that is locked for use by the current thread. The caller must call {@link NativeInstance#release()}
+     * @return locked library copy
+     */
+    NativeInstance acquire() {
+        int count = instances.length;
+        if (count == 1) {
+            NativeInstance instance = instances[0];
+            instance.lock();
+            return instance;
+        }
+        int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % count;
+        for (int i = 0; i < count; i++) {
+            NativeInstance instance = instances[(start + i) % count];
+            if (instance.tryLock()) {
+                return instance;
+            }
+        }
+        NativeInstance leastBusy = instances[start];
+        for (int i = 1; i < count; i++) {
+            NativeInstance instance = instances[(start + i) % count];
+            if (instance.pending.get() < leastBusy.pending.get()) {
+                leastBusy = instance;
+            }
+        }
+        leastBusy.lock();
+        return leastBusy;
+    }
+
+    static final class NativeInstance {
+
+        final RinchiNativeApi api;
+        /** Fair, so that a batch that releases the lock between chunks hands it to the callers that are waiting */
+        private final ReentrantLock lock = new ReentrantLock(true);
+        /** Callers holding or waiting for the lock */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private NativeInstance(RinchiNativeApi api) {
+            this.api = api;
+        }
+
+        private void lock() {
+            pending.incrementAndGet();
+            lock.lock();
+        }
+
+        private boolean tryLock() {
+            pending.incrementAndGet();
+            if (lock.tryLock()) {
+                return true;
+            }
+            pending.decrementAndGet();
+            return false;
+        }
+
+        void release() {
+            lock.unlock();
+            pending.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import com.sun.jna.Library;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * The functions of {@link RinchiLibrary} as instance methods, so that several copies of the native library
+ * can be bound at once. See {@link RinchiLibrary} for the documentation of each function.
+ */
+interface RinchiNativeApi extends Library {
+
+    String rinchilib_latest_err_msg();
+
+    int rinchilib_rinchi_from_file_text(String input_format, String in_file_text, boolean in_force_equilibrium,
+                                        PointerByReference out_rinchi_string_p, PointerByReference out_rinchi_auxinfo_p);
+
+    int rinchilib_rinchikey_from_file_text(String input_format, String in_file_text, String key_type,
+                                           boolean in_force_equilibrium, PointerByReference out_rinchi_key_p);
+
+    int rinchilib_file_text_from_rinchi(String rinchi_string, String rinchi_auxinfo, String output_format,
+                                        PointerByReference out_file_text_p);
+
+    int rinchilib_inchis_from_rinchi(String rinchi_string, String rinchi_auxinfo, PointerByReference out_inchis_text_p);
+
+    int rinchilib_rinchikey_from_rinchi(String rinchi_string, String key_type, PointerByReference out_rinchi_key_p);
+
+    /**
+     * The statically registered {@link RinchiLibrary}
+     */
+    RinchiNativeApi DEFAULT = new RinchiNativeApi() {
+
+        @Override
+        public String rinchilib_latest_err_msg() {
+            return RinchiLibrary.rinchilib_latest_err_msg();
+        }
+
+        @Override
+        public int rinchilib_rinchi_from_file_text(String input_format, String in_file_text, boolean in_force_equilibrium,
+                                                   PointerByReference out_rinchi_string_p, PointerByReference out_rinchi_auxinfo_p) {
+            return RinchiLibrary.rinchilib_rinchi_from_file_text(input_format, in_file_text, in_force_equilibrium,
+                    out_rinchi_string_p, out_rinchi_auxinfo_p);
+        }
+
+        @Override
+        public int rinchilib_rinchikey_from_file_text(String input_format, String in_file_text, String key_type,
+                                                      boolean in_force_equilibrium, PointerByReference out_rinchi_key_p) {
+            return RinchiLibrary.rinchilib_rinchikey_from_file_text(input_format, in_file_text, key_type,
+                    in_force_equilibrium, out_rinchi_key_p);
+        }
+
+        @Override
+        public int rinchilib_file_text_from_rinchi(String rinchi_string, String rinchi_auxinfo, String output_format,
+                                                   PointerByReference out_file_text_p) {
+            return RinchiLibrary.rinchilib_file_text_from_rinchi(rinchi_string, rinchi_auxinfo, output_format, out_file_text_p);
+        }
+
+        @Override
+        public int rinchilib_inchis_from_rinchi(String rinchi_string, String rinchi_auxinfo, PointerByReference out_inchis_text_p) {
+            return RinchiLibrary.rinchilib_inchis_from_rinchi(rinchi_string, rinchi_auxinfo, out_inchis_text_p);
+        }
+
+        @Override
+        public int rinchilib_rinchikey_from_rinchi(String rinchi_string, String key_type, PointerByReference out_rinchi_key_p) {
+            return RinchiLibrary.rinchilib_rinchikey_from_rinchi(rinchi_string, key_type, out_rinchi_key_p);
+        }
+    };
+}
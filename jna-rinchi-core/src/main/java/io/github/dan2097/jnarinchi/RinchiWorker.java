@@ -0,0 +1,171 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiFunction;
+
+import static io.github.dan2097.jnarinchi.RinchiWorkerProtocol.*;
+
+/**
+ * Entry point of the child JVMs started by {@link RinchiWorkerPool}.
+ * <p>
+ *     The port of the pool's loopback socket is given as the only argument, and an authentication token on standard input.
+ *     The worker connects, sends the token, then executes requests with {@link JnaRinchi} until the connection is closed.
+ * </p>
+ */
+class RinchiWorker {
+
+    final DataInputStream in;
+    final DataOutputStream out;
+
+    RinchiWorker(DataInputStream in, DataOutputStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        run(args, RinchiWorker::new);
+    }
+
+    /**
+     * Connects to the pool and executes its requests with a worker created by the given factory
+     */
+    static void run(String[] args, BiFunction<DataInputStream, DataOutputStream, RinchiWorker> factory) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        String token = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII)).readLine();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeString(out, token);
+            out.flush();
+            factory.apply(in, out).run();
+        }
+        //Don't wait for any non-daemon threads started by libraries
+        System.exit(0);
+    }
+
+    private void run() throws IOException {
+        while (true) {
+            int operation;
+            try {
+                operation = in.readInt();
+            } catch (EOFException e) {
+                //pool has closed the connection
+                return;
+            }
+            execute(operation);
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads the arguments of the given operation, executes it and writes the response
+     */
+    void execute(int operation) throws IOException {
+        switch (operation) {
+        case FILE_TEXT_TO_RINCHI: {
+            String fileText = readString(in);
+            RinchiOptions options = readOptions(in);
+            ReactionFileFormat format = readEnum(in, ReactionFileFormat.class);
+            try {
+                RinchiOutput output = JnaRinchi.fileTextToRinchi(fileText, options, format);
+                writeOutput(out, output);
+                writeString(out, output.getRinchi());
+                writeString(out, output.getAuxInfo());
+            } catch (RuntimeException e) {
+                writeException(out, e);
+            }
+            break;
+        }
+        case FILE_TEXT_TO_RINCHI_KEY: {
+            String fileText = readString(in);
+            RinchiKeyType keyType = readEnum(in, RinchiKeyType.class);
+            RinchiOptions options = readOptions(in);
+            ReactionFileFormat format = readEnum(in, ReactionFileFormat.class);
+            try {
+                RinchiKeyOutput output = JnaRinchi.fileTextToRinchiKey(fileText, keyType, options, format);
+                writeOutput(out, output);
+                writeString(out, output.getRinchiKey());
+            } catch (RuntimeException e) {
+                writeException(out, e);
+            }
+            break;
+        }
+        case RINCHI_TO_FILE_TEXT: {
+            String rinchi = readString(in);
+            String auxInfo = readString(in);
+            ReactionFileFormat format = readEnum(in, ReactionFileFormat.class);
+            try {
+                FileTextOutput output = JnaRinchi.rinchiToFileText(rinchi, auxInfo, format);
+                writeOutput(out, output);
+                writeString(out, output.getReactionFileText());
+            } catch (RuntimeException e) {
+                writeException(out, e);
+            }
+            break;
+        }
+        case RINCHI_TO_RINCHI_KEY: {
+            RinchiKeyType keyType = readEnum(in, RinchiKeyType.class);
+            String rinchi = readString(in);
+            try {
+                RinchiKeyOutput output = JnaRinchi.rinchiToRinchiKey(keyType, rinchi);
+                writeOutput(out, output);
+                writeString(out, output.getRinchiKey());
+            } catch (RuntimeException e) {
+                writeException(out, e);
+            }
+            break;
+        }
+        case DECOMPOSE_RINCHI: {
+            String rinchi = readString(in);
+            String auxInfo = readString(in);
+            try {
+                RinchiDecompositionOutput output = JnaRinchi.decomposeRinchi(rinchi, auxInfo);
+                writeOutput(out, output);
+                writeEnum(out, output.getDirection());
+                writeStrings(out, output.getInchis());
+                writeStrings(out, output.getAuxInfos());
+                ReactionComponentRole[] roles = output.getRoles();
+                out.writeInt(roles != null ? roles.length : -1);
+                if (roles != null) {
+                    for (ReactionComponentRole role : roles) {
+                        writeEnum(out, role);
+                    }
+                }
+            } catch (RuntimeException e) {
+                writeException(out, e);
+            }
+            break;
+        }
+        default:
+            throw new IOException("Unknown RInChI worker operation: " + operation);
+        }
+    }
+}
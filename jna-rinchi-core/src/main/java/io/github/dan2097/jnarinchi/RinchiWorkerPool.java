@@ -0,0 +1,727 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dan2097.jnarinchi.RinchiWorkerProtocol.*;
+
+/**
+ * Runs {@link JnaRinchi} calls in a pool of child JVMs, so that a native crash or a call that never returns cannot affect the
+ * calling JVM, and so that as many calls as there are workers can run in parallel.
+ * <p>
+ *     Workers communicate with the pool over a loopback socket. A call that exceeds its deadline, or whose worker dies,
+ *     returns an output with {@link Status#ERROR} and {@link #ERROR_CODE_TIMEOUT} or {@link #ERROR_CODE_WORKER_FAILURE};
+ *     the worker is killed and restarted when it is next needed.
+ *     The deadline applies to the execution of the call by a worker, from sending the request to receiving the last byte
+ *     of the response; the time spent waiting for a worker to become free, or to start, is not included.
+ * </p>
+ * <p>
+ *     The pool may be used directly, or installed with {@link JnaRinchi#setWorkerPool(RinchiWorkerPool)} so that
+ *     the static methods of {@link JnaRinchi} are executed by the pool:
+ * </p>
+ * <pre>
+ * RinchiWorkerPool pool = RinchiWorkerPool.builder().withWorkers(4).withTimeoutMilliSeconds(10000).build();
+ * JnaRinchi.setWorkerPool(pool);
+ * </pre>
+ */
+public class RinchiWorkerPool implements AutoCloseable {
+
+    /** Error code of outputs for calls that did not complete before their deadline */
+    public static final int ERROR_CODE_TIMEOUT = -2;
+    /** Error code of outputs for calls whose worker could not be started, terminated or failed unexpectedly */
+    public static final int ERROR_CODE_WORKER_FAILURE = -3;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final BlockingQueue<Worker> idleWorkers;
+    private final long timeoutMilliSecs;
+    private final long startupTimeoutMilliSecs;
+    private final List<String> command;
+    private volatile boolean closed = false;
+
+    private RinchiWorkerPool(RinchiWorkerPoolBuilder builder) {
+        this.timeoutMilliSecs = builder.timeoutMilliSecs;
+        this.startupTimeoutMilliSecs = builder.startupTimeoutMilliSecs;
+        List<String> command = new ArrayList<>();
+        command.add(builder.javaExecutable);
+        command.addAll(builder.jvmArguments);
+        //JNA settings e.g. jna.library.path are needed to find the same native library
+        for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            String key = property.getKey().toString();
+            if (key.startsWith("jna.")) {
+                command.add("-D" + key + "=" + property.getValue());
+            }
+        }
+        command.add("-cp");
+        command.add(builder.classpath);
+        command.add(builder.workerMainClass);
+        this.command = Collections.unmodifiableList(command);
+        this.idleWorkers = new ArrayBlockingQueue<>(builder.workers);
+        for (int i = 0; i < builder.workers; i++) {
+            Worker worker = new Worker();
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+    }
+
+    /**
+     * Returns a builder for a worker pool.
+     * @return builder to configure and instantiate a RinchiWorkerPool
+     */
+    public static RinchiWorkerPoolBuilder builder() {
+        return new RinchiWorkerPoolBuilder();
+    }
+
+    /**
+     * Builder for RinchiWorkerPool.
+     */
+    public static class RinchiWorkerPoolBuilder {
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private long timeoutMilliSecs = 60000;
+        private long startupTimeoutMilliSecs = 60000;
+        private boolean startWorkers = true;
+        private String javaExecutable = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        private String classpath = System.getProperty("java.class.path");
+        private final List<String> jvmArguments = new ArrayList<>();
+        private String workerMainClass = RinchiWorker.class.getName();
+
+        private RinchiWorkerPoolBuilder() {
+
+        }
+
+        /**
+         * Number of worker JVMs, and hence of calls that may run in parallel. Defaults to the number of processors.
+         * @param workers number of workers
+         * @return returns itself to allow for chaining method calls
+         */
+        public RinchiWorkerPoolBuilder withWorkers(int workers) {
+            if (workers < 1) {
+                throw new IllegalArgumentException("The number of workers must be at least 1: " + workers);
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Default deadline for calls that do not specify one. Defaults to 60 seconds.
+         * @param timeoutMilliSecs timeout in milliseconds
+         * @return returns itself to allow for chaining method calls
+         */
+        public RinchiWorkerPoolBuilder withTimeoutMilliSeconds(long timeoutMilliSecs) {
+            this.timeoutMilliSecs = checkTimeout(timeoutMilliSecs);
+            return this;
+        }
+
+        /**
+         * Time allowed for a worker JVM to start and connect to the pool. Defaults to 60 seconds.
+         * @param startupTimeoutMilliSecs timeout in milliseconds
+         * @return returns itself to allow for chaining method calls
+         */
+        public RinchiWorkerPoolBuilder withStartupTimeoutMilliSeconds(long startupTimeoutMilliSecs) {
+            this.startupTimeoutMilliSecs = checkTimeout(startupTimeoutMilliSecs);
+            return this;
+        }
+
+        /**
+         * Whether workers are started by {@link #build()}, rather than when they are first used. Defaults to true.
+         * @param startWorkers whether to start workers eagerly
+         * @return returns itself to allow for chaining method calls
+         */
+        public RinchiWorkerPoolBuilder withStartWorkers(boolean startWorkers) {
+            this.startWorkers = startWorkers;
+            return this;
+        }
+
+        /**
+         * The java executable used to start workers. Defaults to that of the current JVM.
+         * @param javaExecutable path to java
+         * @return returns itself to allow for chaining method calls
+         */
+        public RinchiWorkerPoolBuilder withJavaExecutable(String javaExecutable) {
+            this.javaExecutable = javaExecutable;
+            return this;
+        }
+
+        /**
+         * The classpath of the workers, which must include JNA-RInChI and the native RInChI library.
+         * Defaults to the classpath of the current JVM.
+         * @param classpath classpath
+         * @return returns itself to allow for chaining method calls
+         */
+        public RinchiWorkerPoolBuilder withClasspath(String classpath) {
+            this.classpath = classpath;
+            return this;
+        }
+
+        /**
+         * Additional arguments for the worker JVMs e.g. -Xmx256m
+         * @param jvmArguments JVM arguments
+         * @return returns itself to allow for chaining method calls
+         */
+        public RinchiWorkerPoolBuilder withJvmArgument(String... jvmArguments) {
+            Collections.addAll(this.jvmArguments, jvmArguments);
+            return this;
+        }
+
+        /**
+         * The main class of the workers, used for testing with a worker that supports additional operations
+         * @param workerMainClass subclass of RinchiWorker with a main method that calls <code>RinchiWorker.run</code>
+         * @return returns itself to allow for chaining method calls
+         */
+        RinchiWorkerPoolBuilder withWorkerMainClass(Class<? extends RinchiWorker> workerMainClass) {
+            this.workerMainClass = workerMainClass.getName();
+            return this;
+        }
+
+        /**
+         * Returns a worker pool as configured by this builder.
+         * @return worker pool
+         * @throws IllegalStateException if the workers were to be started and a worker failed to start
+         */
+        public RinchiWorkerPool build() {
+            RinchiWorkerPool pool = new RinchiWorkerPool(this);
+            if (startWorkers) {
+                try {
+                    pool.startWorkers();
+                } catch (IOException e) {
+                    pool.close();
+                    throw new IllegalStateException("Unable to start RInChI worker", e);
+                }
+            }
+            return pool;
+        }
+
+        private static long checkTimeout(long timeoutMilliSecs) {
+            if (timeoutMilliSecs <= 0) {
+                throw new IllegalArgumentException("Timeout should be a positive time in milliseconds: " + timeoutMilliSecs);
+            }
+            return timeoutMilliSecs;
+        }
+    }
+
+    private void startWorkers() throws IOException {
+        //Start the processes together so that the JVMs initialise in parallel
+        List<PendingWorker> pending = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                pending.add(launch());
+            }
+            for (int i = 0; i < workers.size(); i++) {
+                workers.get(i).connect(pending.get(i));
+            }
+        } finally {
+            for (PendingWorker p : pending) {
+                p.server.close();
+            }
+        }
+    }
+
+    public int getWorkers() {
+        return workers.size();
+    }
+
+    public long getTimeoutMilliSeconds() {
+        return timeoutMilliSecs;
+    }
+
+    /**
+     * As {@link JnaRinchi#fileTextToRinchi(String, RinchiOptions, ReactionFileFormat)}, executed by a worker
+     * with the pool's default deadline.
+     *
+     * @param reactionFileText reaction represented in RXN or RDFile format
+     * @param options RInChI generation options
+     * @param fileFormat the MDL file format for reaction representation
+     * @return result RinchiOutput object
+     */
+    public RinchiOutput fileTextToRinchi(String reactionFileText, RinchiOptions options, ReactionFileFormat fileFormat) {
+        return fileTextToRinchi(reactionFileText, options, fileFormat, timeoutMilliSecs);
+    }
+
+    /**
+     * As {@link JnaRinchi#fileTextToRinchi(String, RinchiOptions, ReactionFileFormat)}, executed by a worker.
+     *
+     * @param reactionFileText reaction represented in RXN or RDFile format
+     * @param options RInChI generation options
+     * @param fileFormat the MDL file format for reaction representation
+     * @param timeoutMilliSecs deadline for the call in milliseconds
+     * @return result RinchiOutput object
+     */
+    public RinchiOutput fileTextToRinchi(String reactionFileText, RinchiOptions options, ReactionFileFormat fileFormat, long timeoutMilliSecs) {
+        requireNonNull(reactionFileText, "reactionFileText");
+        requireNonNull(options, "options");
+        requireNonNull(fileFormat, "fileFormat");
+        return call(timeoutMilliSecs, out -> {
+            out.writeInt(FILE_TEXT_TO_RINCHI);
+            writeString(out, reactionFileText);
+            writeOptions(out, options);
+            writeEnum(out, fileFormat);
+        }, (in, status, errorCode, errorMessage) -> {
+            String rinchi = readString(in);
+            String auxInfo = readString(in);
+            return new RinchiOutput(rinchi, auxInfo, status, errorCode, errorMessage);
+        }, (errorCode, errorMessage) -> new RinchiOutput("", "", Status.ERROR, errorCode, errorMessage));
+    }
+
+    /**
+     * As {@link JnaRinchi#fileTextToRinchiKey(String, RinchiKeyType, RinchiOptions, ReactionFileFormat)}, executed by a worker
+     * with the pool's default deadline.
+     *
+     * @param reactionFileText reaction represented in RXN or RDFile format
+     * @param keyType RInChI-Key type
+     * @param options RInChI/RInChIKey generation options
+     * @param fileFormat the MDL file format for reaction representation
+     * @return result RinchiKeyOutput object
+     */
+    public RinchiKeyOutput fileTextToRinchiKey(String reactionFileText, RinchiKeyType keyType, RinchiOptions options, ReactionFileFormat fileFormat) {
+        return fileTextToRinchiKey(reactionFileText, keyType, options, fileFormat, timeoutMilliSecs);
+    }
+
+    /**
+     * As {@link JnaRinchi#fileTextToRinchiKey(String, RinchiKeyType, RinchiOptions, ReactionFileFormat)}, executed by a worker.
+     *
+     * @param reactionFileText reaction represented in RXN or RDFile format
+     * @param keyType RInChI-Key type
+     * @param options RInChI/RInChIKey generation options
+     * @param fileFormat the MDL file format for reaction representation
+     * @param timeoutMilliSecs deadline for the call in milliseconds
+     * @return result RinchiKeyOutput object
+     */
+    public RinchiKeyOutput fileTextToRinchiKey(String reactionFileText, RinchiKeyType keyType, RinchiOptions options, ReactionFileFormat fileFormat,
+                                               long timeoutMilliSecs) {
+        requireNonNull(reactionFileText, "reactionFileText");
+        requireNonNull(keyType, "keyType");
+        requireNonNull(options, "options");
+        requireNonNull(fileFormat, "fileFormat");
+        return call(timeoutMilliSecs, out -> {
+            out.writeInt(FILE_TEXT_TO_RINCHI_KEY);
+            writeString(out, reactionFileText);
+            writeEnum(out, keyType);
+            writeOptions(out, options);
+            writeEnum(out, fileFormat);
+        }, (in, status, errorCode, errorMessage) -> new RinchiKeyOutput(readString(in), keyType, status, errorCode, errorMessage),
+                (errorCode, errorMessage) -> new RinchiKeyOutput("", keyType, Status.ERROR, errorCode, errorMessage));
+    }
+
+    /**
+     * As {@link JnaRinchi#rinchiToFileText(String, String, ReactionFileFormat)}, executed by a worker
+     * with the pool's default deadline.
+     *
+     * @param rinchi input RInChi string
+     * @param auxInfo input RAuxInfo string
+     * @param fileFormat the MDL file format for reaction representation
+     * @return resultant FileTextOutput object
+     */
+    public FileTextOutput rinchiToFileText(String rinchi, String auxInfo, ReactionFileFormat fileFormat) {
+        return rinchiToFileText(rinchi, auxInfo, fileFormat, timeoutMilliSecs);
+    }
+
+    /**
+     * As {@link JnaRinchi#rinchiToFileText(String, String, ReactionFileFormat)}, executed by a worker.
+     *
+     * @param rinchi input RInChi string
+     * @param auxInfo input RAuxInfo string
+     * @param fileFormat the MDL file format for reaction representation
+     * @param timeoutMilliSecs deadline for the call in milliseconds
+     * @return resultant FileTextOutput object
+     */
+    public FileTextOutput rinchiToFileText(String rinchi, String auxInfo, ReactionFileFormat fileFormat, long timeoutMilliSecs) {
+        requireNonNull(rinchi, "rinchi");
+        requireNonNull(auxInfo, "auxInfo");
+        requireNonNull(fileFormat, "fileFormat");
+        return call(timeoutMilliSecs, out -> {
+            out.writeInt(RINCHI_TO_FILE_TEXT);
+            writeString(out, rinchi);
+            writeString(out, auxInfo);
+            writeEnum(out, fileFormat);
+        }, (in, status, errorCode, errorMessage) -> new FileTextOutput(readString(in), fileFormat, status, errorCode, errorMessage),
+                (errorCode, errorMessage) -> new FileTextOutput("", fileFormat, Status.ERROR, errorCode, errorMessage));
+    }
+
+    /**
+     * As {@link JnaRinchi#rinchiToRinchiKey(RinchiKeyType, String)}, executed by a worker with the pool's default deadline.
+     *
+     * @param keyType RInChI-Key type
+     * @param rinchi input RInChi string
+     * @return result RinchiKeyOutput object
+     */
+    public RinchiKeyOutput rinchiToRinchiKey(RinchiKeyType keyType, String rinchi) {
+        return rinchiToRinchiKey(keyType, rinchi, timeoutMilliSecs);
+    }
+
+    /**
+     * As {@link JnaRinchi#rinchiToRinchiKey(RinchiKeyType, String)}, executed by a worker.
+     *
+     * @param keyType RInChI-Key type
+     * @param rinchi input RInChi string
+     * @param timeoutMilliSecs deadline for the call in milliseconds
+     * @return result RinchiKeyOutput object
+     */
+    public RinchiKeyOutput rinchiToRinchiKey(RinchiKeyType keyType, String rinchi, long timeoutMilliSecs) {
+        requireNonNull(keyType, "keyType");
+        requireNonNull(rinchi, "rinchi");
+        return call(timeoutMilliSecs, out -> {
+            out.writeInt(RINCHI_TO_RINCHI_KEY);
+            writeEnum(out, keyType);
+            writeString(out, rinchi);
+        }, (in, status, errorCode, errorMessage) -> new RinchiKeyOutput(readString(in), keyType, status, errorCode, errorMessage),
+                (errorCode, errorMessage) -> new RinchiKeyOutput("", keyType, Status.ERROR, errorCode, errorMessage));
+    }
+
+    /**
+     * As {@link JnaRinchi#decomposeRinchi(String, String)}, executed by a worker with the pool's default deadline.
+     *
+     * @param rinchi input RInChi string
+     * @param auxInfo input RAuxInfo string
+     * @return result RinchiDecompositionOutput object
+     */
+    public RinchiDecompositionOutput decomposeRinchi(String rinchi, String auxInfo) {
+        return decomposeRinchi(rinchi, auxInfo, timeoutMilliSecs);
+    }
+
+    /**
+     * As {@link JnaRinchi#decomposeRinchi(String, String)}, executed by a worker.
+     *
+     * @param rinchi input RInChi string
+     * @param auxInfo input RAuxInfo string
+     * @param timeoutMilliSecs deadline for the call in milliseconds
+     * @return result RinchiDecompositionOutput object
+     */
+    public RinchiDecompositionOutput decomposeRinchi(String rinchi, String auxInfo, long timeoutMilliSecs) {
+        requireNonNull(rinchi, "rinchi");
+        requireNonNull(auxInfo, "auxInfo");
+        return call(timeoutMilliSecs, out -> {
+            out.writeInt(DECOMPOSE_RINCHI);
+            writeString(out, rinchi);
+            writeString(out, auxInfo);
+        }, (in, status, errorCode, errorMessage) -> {
+            ReactionDirection direction = readEnum(in, ReactionDirection.class);
+            String[] inchis = readStrings(in);
+            String[] auxInfos = readStrings(in);
+            int roleCount = in.readInt();
+            ReactionComponentRole[] roles = null;
+            if (roleCount >= 0) {
+                roles = new ReactionComponentRole[roleCount];
+                for (int i = 0; i < roleCount; i++) {
+                    roles[i] = readEnum(in, ReactionComponentRole.class);
+                }
+            }
+            return new RinchiDecompositionOutput(direction, inchis, auxInfos, roles, status, errorCode, errorMessage);
+        }, (errorCode, errorMessage) -> new RinchiDecompositionOutput(ReactionDirection.FORWARD, null, null, null,
+                Status.ERROR, errorCode, errorMessage));
+    }
+
+    /**
+     * Kills all worker processes, as if they had crashed. Used for testing
+     */
+    void killWorkerProcesses() throws InterruptedException {
+        for (Worker worker : workers) {
+            Process process = worker.process;
+            if (process != null) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    <T> T call(long timeoutMilliSecs, RequestWriter request, ResponseReader<T> response, FailureOutput<T> failure) {
+        if (timeoutMilliSecs <= 0) {
+            throw new IllegalArgumentException("Timeout should be a positive time in milliseconds: " + timeoutMilliSecs);
+        }
+        if (closed) {
+            throw new IllegalStateException("RInChI worker pool has been closed");
+        }
+        Worker worker;
+        try {
+            worker = idleWorkers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failure.create(ERROR_CODE_WORKER_FAILURE, "Interrupted whilst waiting for a RInChI worker");
+        }
+        try {
+            Process process = worker.process;
+            if (process != null && !process.isAlive()) {
+                //died whilst idle
+                worker.kill();
+            }
+            if (worker.socket == null) {
+                try {
+                    PendingWorker pending = launch();
+                    try {
+                        worker.connect(pending);
+                    } finally {
+                        pending.server.close();
+                    }
+                } catch (IOException e) {
+                    worker.kill();
+                    return failure.create(ERROR_CODE_WORKER_FAILURE, "Unable to start RInChI worker: " + e.getMessage());
+                }
+            }
+            try {
+                //An absolute deadline, so that a worker that sends its response slowly cannot exceed it
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMilliSecs);
+                worker.deadlineIn.setDeadline(deadline);
+                request.write(worker.out);
+                worker.out.flush();
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new SocketTimeoutException("Deadline passed whilst sending the request");
+                }
+                int responseType = worker.in.readByte();
+                if (responseType == RESPONSE_EXCEPTION) {
+                    return failure.create(ERROR_CODE_WORKER_FAILURE, "RInChI worker threw " + readString(worker.in));
+                }
+                if (responseType != RESPONSE_OUTPUT) {
+                    throw new IOException("Unexpected response type: " + responseType);
+                }
+                Status status = readEnum(worker.in, Status.class);
+                int errorCode = worker.in.readInt();
+                String errorMessage = readString(worker.in);
+                return response.read(worker.in, status, errorCode, errorMessage);
+            } catch (RuntimeException e) {
+                //the connection may be part way through a message
+                worker.kill();
+                throw e;
+            } catch (SocketTimeoutException e) {
+                worker.kill();
+                return failure.create(ERROR_CODE_TIMEOUT, "RInChI worker did not complete the call within " + timeoutMilliSecs + " ms");
+            } catch (IOException e) {
+                worker.kill();
+                return failure.create(ERROR_CODE_WORKER_FAILURE, "RInChI worker terminated unexpectedly: " + e);
+            }
+        } finally {
+            if (closed) {
+                worker.kill();
+            }
+            idleWorkers.add(worker);
+        }
+    }
+
+    /**
+     * Stops all workers. Workers that are executing a call are stopped when the call completes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.kill();
+        }
+    }
+
+    private static void requireNonNull(Object object, String argumentName) {
+        if (object == null) {
+            throw new IllegalArgumentException("The argument '" + argumentName + "' must not be null.");
+        }
+    }
+
+    private PendingWorker launch() throws IOException {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        try {
+            byte[] tokenBytes = new byte[16];
+            RANDOM.nextBytes(tokenBytes);
+            StringBuilder token = new StringBuilder();
+            for (byte b : tokenBytes) {
+                token.append(String.format("%02x", b & 0xff));
+            }
+            List<String> workerCommand = new ArrayList<>(command);
+            workerCommand.add(Integer.toString(server.getLocalPort()));
+            ProcessBuilder processBuilder = new ProcessBuilder(workerCommand);
+            processBuilder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+            processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process process = processBuilder.start();
+            //The token is passed on standard input, rather than as an argument, so that other processes can't see it
+            try (OutputStream processInput = process.getOutputStream()) {
+                processInput.write((token + "\n").getBytes(StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            return new PendingWorker(server, process, token.toString());
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    private static class PendingWorker {
+        private final ServerSocket server;
+        private final Process process;
+        private final String token;
+
+        private PendingWorker(ServerSocket server, Process process, String token) {
+            this.server = server;
+            this.process = process;
+            this.token = token;
+        }
+    }
+
+    private class Worker {
+        private volatile Process process;
+        private Socket socket;
+        private DeadlineInputStream deadlineIn;
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        private void connect(PendingWorker pending) throws IOException {
+            process = pending.process;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupTimeoutMilliSecs);
+            try {
+                while (true) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0 || !pending.process.isAlive()) {
+                        throw new IOException("RInChI worker did not connect");
+                    }
+                    //poll, so that a worker that exits on startup is noticed
+                    pending.server.setSoTimeout((int) Math.min(remaining, 100));
+                    Socket candidate;
+                    try {
+                        candidate = pending.server.accept();
+                    } catch (SocketTimeoutException e) {
+                        continue;
+                    }
+                    DeadlineInputStream candidateDeadlineIn = new DeadlineInputStream(candidate, deadline);
+                    DataInputStream candidateIn = new DataInputStream(new BufferedInputStream(candidateDeadlineIn));
+                    String token;
+                    try {
+                        token = readString(candidateIn);
+                    } catch (IOException e) {
+                        token = null;
+                    }
+                    if (!pending.token.equals(token)) {
+                        candidate.close();
+                        continue;
+                    }
+                    candidate.setTcpNoDelay(true);
+                    socket = candidate;
+                    deadlineIn = candidateDeadlineIn;
+                    in = candidateIn;
+                    out = new DataOutputStream(new BufferedOutputStream(candidate.getOutputStream()));
+                    return;
+                }
+            } catch (IOException e) {
+                kill();
+                throw e;
+            }
+        }
+
+        private void kill() {
+            Socket s = socket;
+            socket = null;
+            deadlineIn = null;
+            in = null;
+            out = null;
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    //ignore
+                }
+            }
+            Process p = process;
+            process = null;
+            if (p != null) {
+                p.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Sets the socket timeout before each read to the time remaining until the deadline, so that the deadline limits the
+     * total time spent reading rather than the time spent waiting for each read
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+        private final Socket socket;
+        private long deadline;
+
+        private DeadlineInputStream(Socket socket, long deadline) throws IOException {
+            super(socket.getInputStream());
+            this.socket = socket;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @param deadline as given by {@link System#nanoTime()}
+         */
+        private void setDeadline(long deadline) {
+            this.deadline = deadline;
+        }
+
+        private void setTimeoutToDeadline() throws IOException {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Deadline passed");
+            }
+            //a timeout of 0 would be infinite, so round up
+            long remainingMilliSecs = Math.max(TimeUnit.NANOSECONDS.toMillis(remaining), 1);
+            socket.setSoTimeout((int) Math.min(remainingMilliSecs, Integer.MAX_VALUE));
+        }
+
+        @Override
+        public int read() throws IOException {
+            setTimeoutToDeadline();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            setTimeoutToDeadline();
+            return super.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            setTimeoutToDeadline();
+            return super.skip(n);
+        }
+    }
+
+    @FunctionalInterface
+    interface RequestWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface ResponseReader<T> {
+        T read(DataInputStream in, Status status, int errorCode, String errorMessage) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface FailureOutput<T> {
+        T create(int errorCode, String errorMessage);
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Message encoding shared by {@link RinchiWorkerPool} and {@link RinchiWorker}.
+ * <p>
+ *     A request is an operation code followed by its arguments. A response is either {@link #RESPONSE_OUTPUT} followed by the
+ *     status, error code and error message of the output then its operation specific fields, or {@link #RESPONSE_EXCEPTION}
+ *     followed by the message of an exception thrown in the worker.
+ *     Strings are written as their UTF-8 length (-1 for null) followed by their UTF-8 bytes, enums by name.
+ * </p>
+ */
+final class RinchiWorkerProtocol {
+
+    static final int FILE_TEXT_TO_RINCHI = 1;
+    static final int FILE_TEXT_TO_RINCHI_KEY = 2;
+    static final int RINCHI_TO_FILE_TEXT = 3;
+    static final int RINCHI_TO_RINCHI_KEY = 4;
+    static final int DECOMPOSE_RINCHI = 5;
+
+    static final int RESPONSE_OUTPUT = 0;
+    static final int RESPONSE_EXCEPTION = 1;
+
+    private RinchiWorkerProtocol() {
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        if (strings == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(strings.length);
+        for (String s : strings) {
+            writeString(out, s);
+        }
+    }
+
+    static String[] readStrings(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        String[] strings = new String[length];
+        for (int i = 0; i < length; i++) {
+            strings[i] = readString(in);
+        }
+        return strings;
+    }
+
+    static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+        writeString(out, value != null ? value.name() : null);
+    }
+
+    static <E extends Enum<E>> E readEnum(DataInputStream in, Class<E> enumClass) throws IOException {
+        String name = readString(in);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(enumClass, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unexpected " + enumClass.getSimpleName() + ": " + name);
+        }
+    }
+
+    static void writeOptions(DataOutputStream out, RinchiOptions options) throws IOException {
+        out.writeInt(options.getFlags().size());
+        for (RinchiFlag flag : options.getFlags()) {
+            writeEnum(out, flag);
+        }
+    }
+
+    static RinchiOptions readOptions(DataInputStream in) throws IOException {
+        int flagCount = in.readInt();
+        RinchiFlag[] flags = new RinchiFlag[flagCount];
+        for (int i = 0; i < flagCount; i++) {
+            flags[i] = readEnum(in, RinchiFlag.class);
+        }
+        return RinchiOptions.builder().withFlag(flags).build();
+    }
+
+    /**
+     * Writes the fields common to all outputs
+     */
+    static void writeOutput(DataOutputStream out, Output output) throws IOException {
+        out.writeByte(RESPONSE_OUTPUT);
+        writeEnum(out, output.getStatus());
+        out.writeInt(output.getErrorCode());
+        writeString(out, output.getErrorMessage());
+    }
+
+    static void writeException(DataOutputStream out, Throwable t) throws IOException {
+        out.writeByte(RESPONSE_EXCEPTION);
+        writeString(out, t.toString());
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Appends MDL numbers, right-aligned in fixed-width V2000 fields or unpadded for V3000, directly to a StringBuilder,
+ * without intermediate Strings.
+ * The methods are stateless, so unlike {@link MdlReactionUtils#MDL_NUMBER_FORMAT} they may be used concurrently.
+ * <br>
+ * Coordinates are written exactly as that NumberFormat writes them: rounded half-even to 4 decimal places,
+ * with at most 4 integer digits (higher digits are dropped) and a minus sign for negative values,
+ * including those that round to zero.
+ */
+final class MdlNumberFormatter {
+
+    private static final int FRACTION_DIGITS = 4;
+    private static final int MAX_INTEGER_DIGITS = 4;
+    private static final long SCALE = 10000;
+    /** Above this the scaled value no longer has a fractional part that can be rounded reliably */
+    private static final double MAX_FAST_VALUE = 1e11;
+    /**
+     * NumberFormat rounds ties based on the shortest decimal representation of the double, not its exact binary value,
+     * so the rare values that are this many ulps or fewer from a tie are formatted by a NumberFormat
+     */
+    private static final int TIE_TOLERANCE_ULPS = 4;
+
+    private static final ThreadLocal<NumberFormat> FALLBACK_FORMAT = ThreadLocal.withInitial(() -> {
+        NumberFormat numberFormat = NumberFormat.getNumberInstance(Locale.ENGLISH);
+        numberFormat.setMinimumIntegerDigits(1);
+        numberFormat.setMaximumIntegerDigits(MAX_INTEGER_DIGITS);
+        numberFormat.setMinimumFractionDigits(FRACTION_DIGITS);
+        numberFormat.setMaximumFractionDigits(FRACTION_DIGITS);
+        numberFormat.setGroupingUsed(false);
+        return numberFormat;
+    });
+
+    private MdlNumberFormatter() {
+    }
+
+    /**
+     * Appends the integer right-aligned in the given number of columns. Integers that do not fit are written as 0.
+     *
+     * @param sb buffer to append to
+     * @param value integer to append
+     * @param width number of columns
+     */
+    static void appendInteger(StringBuilder sb, int value, int width) {
+        int length = stringSize(value);
+        if (length > width) {
+            value = 0;
+            length = 1;
+        }
+        appendSpaces(sb, width - length);
+        sb.append(value);
+    }
+
+    /**
+     * Appends the coordinate in the 10 column MDL layout (xxxxx.xxxx). NaN and infinite values are written as 0.0000.
+     *
+     * @param sb buffer to append to
+     * @param value coordinate to append
+     */
+    static void appendCoordinate(StringBuilder sb, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            value = 0.0;
+        //Sign bit, so that -0.0 is also written with a minus sign
+        boolean negative = Double.doubleToRawLongBits(value) < 0;
+        double abs = Math.abs(value);
+
+        long units = abs < MAX_FAST_VALUE ? roundToUnits(abs) : -1;
+        if (units < 0) {
+            String formatted = FALLBACK_FORMAT.get().format(value);
+            appendSpaces(sb, MdlReactionUtils.MDL_FLOAT_SPACES - formatted.length());
+            sb.append(formatted);
+            return;
+        }
+        long integerPart = units / SCALE;
+        int fraction = (int) (units % SCALE);
+        boolean truncated = integerPart >= SCALE;
+        integerPart %= SCALE;
+
+        int integerDigits = truncated ? MAX_INTEGER_DIGITS : stringSize((int) integerPart);
+        int length = (negative ? 1 : 0) + integerDigits + 1 + FRACTION_DIGITS;
+        appendSpaces(sb, MdlReactionUtils.MDL_FLOAT_SPACES - length);
+        if (negative)
+            sb.append('-');
+        if (truncated)
+            appendZeroPadded(sb, (int) integerPart, MAX_INTEGER_DIGITS);
+        else
+            sb.append((int) integerPart);
+        sb.append('.');
+        appendZeroPadded(sb, fraction, FRACTION_DIGITS);
+    }
+
+    /**
+     * Appends the number with 4 decimal places and without padding, as used in V3000 CTABs.
+     * Unlike {@link #appendCoordinate(StringBuilder, double)} all integer digits are kept, and values that round to zero are
+     * written without a sign. NaN and infinite values are written as 0.0000.
+     *
+     * @param sb buffer to append to
+     * @param value number to append
+     */
+    static void appendDecimal(StringBuilder sb, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            value = 0.0;
+        double abs = Math.abs(value);
+        long units = abs < MAX_FAST_VALUE ? roundToUnits(abs) : -1;
+        if (units < 0) {
+            //There is no NumberFormat output to match, so the exact binary value is rounded
+            BigDecimal rounded = new BigDecimal(value).setScale(FRACTION_DIGITS, RoundingMode.HALF_EVEN);
+            sb.append(rounded.toPlainString());
+            return;
+        }
+        if (units != 0 && value < 0)
+            sb.append('-');
+        sb.append(units / SCALE);
+        sb.append('.');
+        appendZeroPadded(sb, (int) (units % SCALE), FRACTION_DIGITS);
+    }
+
+    /**
+     * Rounds abs * 10^4 to the nearest whole number of units
+     *
+     * @return the rounded number of units, or -1 if the value is too close to a tie to be rounded here
+     */
+    private static long roundToUnits(double abs) {
+        double scaled = abs * SCALE;
+        double floor = Math.floor(scaled);
+        double diff = scaled - floor;
+        if (Math.abs(diff - 0.5) <= TIE_TOLERANCE_ULPS * Math.ulp(scaled))
+            return -1;
+        return (long) floor + (diff > 0.5 ? 1 : 0);
+    }
+
+    private static void appendZeroPadded(StringBuilder sb, int value, int width) {
+        for (int divisor = pow10(width - 1); divisor > 0; divisor /= 10)
+            sb.append((char) ('0' + (value / divisor) % 10));
+    }
+
+    private static int pow10(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++)
+            result *= 10;
+        return result;
+    }
+
+    private static void appendSpaces(StringBuilder sb, int count) {
+        for (int i = 0; i < count; i++)
+            sb.append(' ');
+    }
+
+    /**
+     * Number of characters of the decimal representation of the value, including any minus sign
+     */
+    private static int stringSize(int value) {
+        long v = value;
+        int size = 1;
+        if (v < 0) {
+            size++;
+            v = -v;
+        }
+        while (v >= 10) {
+            v /= 10;
+            size++;
+        }
+        return size;
+    }
+}
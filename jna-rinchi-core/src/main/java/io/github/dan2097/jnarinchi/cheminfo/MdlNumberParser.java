@@ -0,0 +1,125 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+/**
+ * Parses the numbers of fixed-width MDL fields in place, without creating a String per field.
+ * Only plain ASCII numbers are handled, anything else is reported as not parsed so that the caller
+ * can fall back to {@link Integer#parseInt(String)} or {@link Double#parseDouble(String)}.
+ */
+final class MdlNumberParser {
+
+    /** Returned by {@link #parseInteger(CharSequence, int, int)} when the field is not a plain integer */
+    static final long NOT_PARSED = Long.MIN_VALUE;
+
+    /** Decimal digits that always fit exactly in the mantissa of a double */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private MdlNumberParser() {
+    }
+
+    /**
+     * Parses the integer in the given range of characters, ignoring leading and trailing whitespace.
+     *
+     * @param s characters to parse
+     * @param start index of the first character of the field
+     * @param end index after the last character of the field
+     * @return the value, or {@link #NOT_PARSED} if the field is not an optionally signed integer of ASCII digits within int range
+     */
+    static long parseInteger(CharSequence s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ')
+            start++;
+        while (end > start && s.charAt(end - 1) <= ' ')
+            end--;
+        boolean negative = false;
+        if (start < end) {
+            char c = s.charAt(start);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                start++;
+            }
+        }
+        if (start == end)
+            return NOT_PARSED;
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9)
+                return NOT_PARSED;
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1)
+                return NOT_PARSED;
+        }
+        if (negative)
+            return -value;
+        return value > Integer.MAX_VALUE ? NOT_PARSED : value;
+    }
+
+    /**
+     * Parses the fixed-point decimal, e.g. -1.2345, in the given range of characters, ignoring leading and trailing whitespace.
+     * The result is identical to {@link Double#parseDouble(String)}, as the digits and the power of ten are
+     * both exact doubles and so the single division is correctly rounded.
+     *
+     * @param s characters to parse
+     * @param start index of the first character of the field
+     * @param end index after the last character of the field
+     * @return the value, or NaN if the field is not an optionally signed decimal of at most 15 ASCII digits
+     */
+    static double parseFixedPoint(CharSequence s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ')
+            start++;
+        while (end > start && s.charAt(end - 1) <= ' ')
+            end--;
+        boolean negative = false;
+        if (start < end) {
+            char c = s.charAt(start);
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                start++;
+            }
+        }
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '.' && !point) {
+                point = true;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || ++digitCount > MAX_EXACT_DIGITS)
+                return Double.NaN;
+            digits = digits * 10 + digit;
+            if (point)
+                fractionDigits++;
+        }
+        if (digitCount == 0)
+            return Double.NaN;
+
+        double value = digits / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+}
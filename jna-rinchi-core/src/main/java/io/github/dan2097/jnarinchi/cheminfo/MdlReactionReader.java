@@ -18,7 +18,14 @@
 package io.github.dan2097.jnarinchi.cheminfo;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +38,7 @@ import io.github.dan2097.jnainchi.InchiBondType;
 import io.github.dan2097.jnainchi.InchiRadical;
 import io.github.dan2097.jnainchi.InchiStereo;
 import io.github.dan2097.jnainchi.InchiStereoParity;
+import io.github.dan2097.jnarinchi.CtabVersion;
 import io.github.dan2097.jnarinchi.ReactionComponentRole;
 import io.github.dan2097.jnarinchi.ReactionFileFormat;
 import io.github.dan2097.jnarinchi.RinchiInput;
@@ -59,10 +67,16 @@ import io.github.dan2097.jnarinchi.RinchiInputComponent;
  * should be done by using the 2D or 3D coordinates.
  * The default setting of the flag {@link #guessTetrahedralChiralityFromBondsInfo} is <code>false</code>.
  * </p>
+ * <p>
+ * The molecules may be V2000 or V3000 CTABs, as declared by their counts lines, within V2000 RXN and RDFile sections.
+ * </p>
  * @author nick
  */
 public class MdlReactionReader {
   
+    private static final String V3000_LINE_PREFIX = "M  V30 ";
+    private static final String V3000_CONTINUATION = "-";
+
     private final boolean guessTetrahedralChiralityFromBondsInfo;
     private final ReactionFileFormat expectedFormat;
 
@@ -130,6 +144,43 @@ public class MdlReactionReader {
     public RinchiInput fileTextToRinchiInput(BufferedReader inputReader) throws MdlReactionReaderException {
         return new MdlReactionReaderInstance(inputReader).toRinchiInput();
     }
+
+    /**
+     * Reads the reaction records of a multi-record RDFile one at a time, holding only the current record in memory.
+     * The expected format of this reader is not used, but its setting of guessTetrahedralChiralityFromBondsInfo is.
+     *
+     * @param reader reader of the RDFile text, closed when the returned RdfileReader is closed
+     * @return iterator over the records of the RDFile
+     * @see #readRdfile(InputStream)
+     * @see #readRdfile(Path)
+     */
+    public RdfileReader readRdfile(Reader reader) {
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        return new RdfileReader(bufferedReader, guessTetrahedralChiralityFromBondsInfo);
+    }
+
+    /**
+     * Reads the reaction records of a multi-record RDFile, encoded as UTF-8, one at a time.
+     *
+     * @param inputStream input stream of the RDFile, closed when the returned RdfileReader is closed
+     * @return iterator over the records of the RDFile
+     * @see #readRdfile(Reader)
+     */
+    public RdfileReader readRdfile(InputStream inputStream) {
+        return readRdfile(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the reaction records of a multi-record RDFile, encoded as UTF-8, one at a time.
+     *
+     * @param path path of the RDFile
+     * @return iterator over the records of the RDFile, which must be closed
+     * @throws IOException if the file cannot be opened
+     * @see #readRdfile(Reader)
+     */
+    public RdfileReader readRdfile(Path path) throws IOException {
+        return readRdfile(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+    }
     
     private class MdlReactionReaderInstance {
     
@@ -144,6 +195,11 @@ public class MdlReactionReader {
         private int numOfAtomsToRead = 0;
         private int numOfBondsToRead = 0;
         private String errorComponentContext = "";
+        /** Whether the counts line of the current molecule declares a V3000 CTAB */
+        private boolean v3000Ctab = false;
+        /** Bounds of the current token of a V3000 line, see {@link #nextV3000Token(String)} */
+        private int tokenStart;
+        private int tokenEnd;
     
         MdlReactionReaderInstance(BufferedReader inputReader) {
             this.inputReader = inputReader;
@@ -373,6 +429,10 @@ public class MdlReactionReader {
                 errors.add("MOL counts Line " + curLineNum + " is missing !");
                 return;
             }
+            //The atom and bond counts of a V3000 CTAB are given in its COUNTS line
+            v3000Ctab = line.contains(CtabVersion.V3000.getVersionString());
+            if (v3000Ctab)
+                return;
             Integer aaa = readInteger(line, 0, 3);
             if (aaa == null || aaa < 0) {
                 errors.add("MOL counts (aaabbblll...) Line  " + curLineNum
@@ -403,6 +463,10 @@ public class MdlReactionReader {
                     return;
             }
     
+            addAtomParityStereos(ric, parities);
+        }
+    
+        private void addAtomParityStereos(RinchiInputComponent ric, Map<InchiAtom, InchiStereoParity> parities) {
             if (!parities.isEmpty())
                 for (Map.Entry<InchiAtom, InchiStereoParity> e : parities.entrySet()) {
                     InchiStereo stereo = StereoUtils.createTetrahedralStereo(ric, e.getKey(), e.getValue());
@@ -423,20 +487,20 @@ public class MdlReactionReader {
                         + " in Line " + curLineNum + " is missing !");
                 return;
             }
-            Double coordX = readMdlCoordinate(line, 0);
-            if (coordX == null) {
+            double coordX = readMdlCoordinate(line, 0);
+            if (Double.isNaN(coordX)) {
                 errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
                         + " in Line " + curLineNum + " coordinate x error --> " + line);
                 return;
             }
-            Double coordY = readMdlCoordinate(line, 10);
-            if (coordY == null) {
+            double coordY = readMdlCoordinate(line, 10);
+            if (Double.isNaN(coordY)) {
                 errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
                         + " in Line " + curLineNum + " coordinate y error --> " + line);
                 return;
             }
-            Double coordZ = readMdlCoordinate(line, 20);
-            if (coordZ == null) {
+            double coordZ = readMdlCoordinate(line, 20);
+            if (Double.isNaN(coordZ)) {
                 errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
                         + " in Line " + curLineNum + " coordinate z error --> " + line);
                 return;
@@ -544,6 +608,348 @@ public class MdlReactionReader {
             ric.addBond(bond);
         }
     
+        private void readMolCtabBlockV3000(RinchiInputComponent ric) {
+            String line = readV3000Line();
+            if (line == null)
+                return;
+            if (!isV3000Keyword(line, "BEGIN CTAB")) {
+                errors.add(errorComponentContext + "V3000 CTAB Line " + curLineNum + " : BEGIN CTAB is expected --> " + line);
+                return;
+            }
+    
+            //COUNTS na nb nsg n3d chiral
+            line = readV3000Line();
+            if (line == null)
+                return;
+            tokenEnd = V3000_LINE_PREFIX.length();
+            if (!nextV3000Token(line) || !line.regionMatches(tokenStart, "COUNTS", 0, tokenEnd - tokenStart)) {
+                errors.add(errorComponentContext + "V3000 CTAB Line " + curLineNum + " : COUNTS is expected --> " + line);
+                return;
+            }
+            long na = nextV3000Token(line) ? MdlNumberParser.parseInteger(line, tokenStart, tokenEnd) : MdlNumberParser.NOT_PARSED;
+            if (na == MdlNumberParser.NOT_PARSED || na < 0) {
+                errors.add("MOL V3000 COUNTS Line " + curLineNum + " : incorrect number of atoms: " + line);
+                return;
+            }
+            long nb = nextV3000Token(line) ? MdlNumberParser.parseInteger(line, tokenStart, tokenEnd) : MdlNumberParser.NOT_PARSED;
+            if (nb == MdlNumberParser.NOT_PARSED || nb < 0) {
+                errors.add("MOL V3000 COUNTS Line " + curLineNum + " : incorrect number of bonds: " + line);
+                return;
+            }
+            numOfAtomsToRead = (int) na;
+            numOfBondsToRead = (int) nb;
+    
+            Map<InchiAtom, InchiStereoParity> parities = new HashMap<>();
+            V3000AtomIds atomIds = new V3000AtomIds(numOfAtomsToRead);
+            while (true) {
+                line = readV3000Line();
+                if (line == null)
+                    return;
+                if (isV3000Keyword(line, "END CTAB"))
+                    break;
+                if (isV3000Keyword(line, "BEGIN ATOM")) {
+                    for (int i = 0; i < numOfAtomsToRead; i++) {
+                        readMolAtomLineV3000(i, ric, parities, atomIds);
+                        if (!errors.isEmpty())
+                            return;
+                    }
+                    if (!readV3000BlockEnd("END ATOM"))
+                        return;
+                } else if (isV3000Keyword(line, "BEGIN BOND")) {
+                    for (int i = 0; i < numOfBondsToRead; i++) {
+                        readMolBondLineV3000(i, ric, atomIds);
+                        if (!errors.isEmpty())
+                            return;
+                    }
+                    if (!readV3000BlockEnd("END BOND"))
+                        return;
+                } else if (line.startsWith("BEGIN ", V3000_LINE_PREFIX.length())) {
+                    //Blocks that are not used, e.g. SGROUP and COLLECTION
+                    String blockEnd = "END " + line.substring(V3000_LINE_PREFIX.length() + 6).trim();
+                    do {
+                        line = readV3000Line();
+                        if (line == null)
+                            return;
+                    } while (!isV3000Keyword(line, blockEnd));
+                }
+            }
+    
+            if (ric.getAtoms().size() != numOfAtomsToRead || ric.getBonds().size() != numOfBondsToRead) {
+                errors.add(errorComponentContext + "V3000 CTAB ending in Line " + curLineNum + " : expected " + numOfAtomsToRead + " atoms and "
+                        + numOfBondsToRead + " bonds, but found " + ric.getAtoms().size() + " atoms and " + ric.getBonds().size() + " bonds");
+                return;
+            }
+            addAtomParityStereos(ric, parities);
+        }
+    
+        private void readMolAtomLineV3000(int atomIndex, RinchiInputComponent ric, Map<InchiAtom, InchiStereoParity> parities,
+                                          V3000AtomIds atomIds) {
+            //Read MDL V3000 atom line
+            //M  V30 index type x y z aamap [CHG=val] [RAD=val] [MASS=val] [CFG=val] ...
+            String line = readV3000Line();
+            if (line == null)
+                return;
+            tokenEnd = V3000_LINE_PREFIX.length();
+            long id = nextV3000Token(line) ? MdlNumberParser.parseInteger(line, tokenStart, tokenEnd) : MdlNumberParser.NOT_PARSED;
+            if (id == MdlNumberParser.NOT_PARSED || id < 1 || atomIds.get((int) id) != null) {
+                errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                        + " in Line " + curLineNum + " atom index error --> " + line);
+                return;
+            }
+            String atSymbol = nextV3000Token(line) ? line.substring(tokenStart, tokenEnd) : null;
+            if (atSymbol == null || PeriodicTable.getAtomicNumberFromElementSymbol(atSymbol) == -1) {
+                errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                        + " in Line " + curLineNum + " atom symbol error --> " + line);
+                return;
+            }
+            double coordX = readV3000Coordinate(line);
+            if (Double.isNaN(coordX)) {
+                errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                        + " in Line " + curLineNum + " coordinate x error --> " + line);
+                return;
+            }
+            double coordY = readV3000Coordinate(line);
+            if (Double.isNaN(coordY)) {
+                errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                        + " in Line " + curLineNum + " coordinate y error --> " + line);
+                return;
+            }
+            double coordZ = readV3000Coordinate(line);
+            if (Double.isNaN(coordZ)) {
+                errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                        + " in Line " + curLineNum + " coordinate z error --> " + line);
+                return;
+            }
+            //aamap is not used
+            if (!nextV3000Token(line)) {
+                errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                        + " in Line " + curLineNum + " atom mapping error --> " + line);
+                return;
+            }
+    
+            InchiAtom atom = new InchiAtom(atSymbol, coordX, coordY, coordZ);
+            while (nextV3000Token(line)) {
+                if (isV3000Property(line, "CHG")) {
+                    long charge = readV3000PropertyValue(line, "CHG");
+                    if (charge == MdlNumberParser.NOT_PARSED || charge < -15 || charge > 15) {
+                        errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                                + " in Line " + curLineNum + " atom charge error --> " + line);
+                        return;
+                    }
+                    atom.setCharge((int) charge);
+                } else if (isV3000Property(line, "RAD")) {
+                    long radCode = readV3000PropertyValue(line, "RAD");
+                    if (radCode == MdlNumberParser.NOT_PARSED || radCode < 0 || radCode > 3) {
+                        errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                                + " in Line " + curLineNum + " atom radical error --> " + line);
+                        return;
+                    }
+                    atom.setRadical(getInchiRadical((int) radCode));
+                } else if (isV3000Property(line, "MASS")) {
+                    long mass = readV3000PropertyValue(line, "MASS");
+                    if (mass == MdlNumberParser.NOT_PARSED || mass < 1) {
+                        errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                                + " in Line " + curLineNum + " atom mass error --> " + line);
+                        return;
+                    }
+                    atom.setIsotopicMass((int) mass);
+                } else if (isV3000Property(line, "CFG")) {
+                    long parityCode = readV3000PropertyValue(line, "CFG");
+                    if (parityCode == MdlNumberParser.NOT_PARSED || parityCode < 0 || parityCode > 3) {
+                        errors.add(errorComponentContext + "MOL atom # " + (atomIndex + 1)
+                                + " in Line " + curLineNum + " atom parity coding error --> " + line);
+                        return;
+                    }
+                    InchiStereoParity parity = getParity((int) parityCode);
+                    if (parity != null)
+                        parities.put(atom, parity);
+                }
+                //Other properties, e.g. VAL and HCOUNT, are not used
+            }
+            ric.addAtom(atom);
+            atomIds.put((int) id, atom);
+        }
+    
+        private void readMolBondLineV3000(int bondIndex, RinchiInputComponent ric, V3000AtomIds atomIds) {
+            //Read MDL V3000 bond line
+            //M  V30 index type atom1 atom2 [CFG=val] ...
+            String line = readV3000Line();
+            if (line == null)
+                return;
+            tokenEnd = V3000_LINE_PREFIX.length();
+            //The bond index is not used
+            if (!nextV3000Token(line)) {
+                errors.add(errorComponentContext + "MOL bond # " + (bondIndex + 1)
+                        + " in Line " + curLineNum + " is missing !");
+                return;
+            }
+            long type = nextV3000Token(line) ? MdlNumberParser.parseInteger(line, tokenStart, tokenEnd) : MdlNumberParser.NOT_PARSED;
+            if (type == MdlNumberParser.NOT_PARSED || type < 0 || type > 3) {
+                errors.add("MOL V3000 bond Line " + curLineNum + " : incorrect bond type: " + line);
+                return;
+            }
+            InchiAtom a1 = nextV3000Token(line) ? atomIds.get(MdlNumberParser.parseInteger(line, tokenStart, tokenEnd)) : null;
+            if (a1 == null) {
+                errors.add("MOL V3000 bond Line " + curLineNum + " : incorrect atom number (atom1 part): " + line);
+                return;
+            }
+            InchiAtom a2 = nextV3000Token(line) ? atomIds.get(MdlNumberParser.parseInteger(line, tokenStart, tokenEnd)) : null;
+            if (a2 == null) {
+                errors.add("MOL V3000 bond Line " + curLineNum + " : incorrect atom number (atom2 part): " + line);
+                return;
+            }
+            int stereoCode = 0;
+            while (nextV3000Token(line)) {
+                if (isV3000Property(line, "CFG")) {
+                    long cfg = readV3000PropertyValue(line, "CFG");
+                    stereoCode = getMdlStereoCodeFromV3000Configuration(cfg, type);
+                    if (stereoCode < 0) {
+                        errors.add("MOL V3000 bond Line " + curLineNum + " : incorrect bond stereo (CFG): " + line);
+                        return;
+                    }
+                }
+            }
+            InchiBond bond = new InchiBond(a1, a2, InchiBondType.of((byte) type), getBondStereoFromMdlCode(stereoCode));
+            ric.addBond(bond);
+        }
+    
+        /**
+         * Converts a V3000 bond CFG value into the V2000 bond stereo code
+         * @return the stereo code, or -1 if the CFG value is incorrect
+         */
+        private int getMdlStereoCodeFromV3000Configuration(long cfg, long bondType) {
+            if (cfg == 0)
+                return 0;
+            if (cfg == 1)
+                return 1; //up
+            if (cfg == 2)
+                return bondType == 2 ? 3 : 4; //either, for a double bond cis or trans
+            if (cfg == 3)
+                return 6; //down
+            return -1;
+        }
+    
+        /**
+         * Reads the next V3000 line, joining any continuation lines
+         * @return the line, or null if it is missing or is not a V3000 line
+         */
+        private String readV3000Line() {
+            String line = readLine();
+            if (!checkV3000Line(line))
+                return null;
+            if (!line.endsWith(V3000_CONTINUATION))
+                return line;
+    
+            StringBuilder sb = new StringBuilder();
+            sb.append(line, 0, line.length() - V3000_CONTINUATION.length());
+            do {
+                line = readLine();
+                if (!checkV3000Line(line))
+                    return null;
+                sb.append(line, V3000_LINE_PREFIX.length(), line.length());
+                if (line.endsWith(V3000_CONTINUATION))
+                    sb.setLength(sb.length() - V3000_CONTINUATION.length());
+            } while (line.endsWith(V3000_CONTINUATION));
+            return sb.toString();
+        }
+    
+        private boolean checkV3000Line(String line) {
+            if (line == null) {
+                errors.add(errorComponentContext + "V3000 CTAB Line " + curLineNum + " is missing !");
+                return false;
+            }
+            if (!line.startsWith(V3000_LINE_PREFIX)) {
+                errors.add(errorComponentContext + "V3000 CTAB Line " + curLineNum + " does not start with 'M  V30' --> " + line);
+                return false;
+            }
+            return true;
+        }
+    
+        private boolean readV3000BlockEnd(String keyword) {
+            String line = readV3000Line();
+            if (line == null)
+                return false;
+            if (!isV3000Keyword(line, keyword)) {
+                errors.add(errorComponentContext + "V3000 CTAB Line " + curLineNum + " : " + keyword + " is expected --> " + line);
+                return false;
+            }
+            return true;
+        }
+    
+        /**
+         * Whether the content of the V3000 line, ignoring trailing whitespace, is the given keyword
+         */
+        private boolean isV3000Keyword(String line, String keyword) {
+            int start = V3000_LINE_PREFIX.length();
+            if (!line.startsWith(keyword, start))
+                return false;
+            for (int i = start + keyword.length(); i < line.length(); i++)
+                if (line.charAt(i) > ' ')
+                    return false;
+            return true;
+        }
+    
+        /**
+         * Moves to the next token of the V3000 line after the current token.
+         * A parenthesised list, e.g. (3 1 2 3), or a quoted string is a single token.
+         * @return false if there are no more tokens
+         */
+        private boolean nextV3000Token(String line) {
+            int pos = tokenEnd;
+            int length = line.length();
+            while (pos < length && line.charAt(pos) <= ' ')
+                pos++;
+            tokenStart = pos;
+            if (pos == length) {
+                tokenEnd = pos;
+                return false;
+            }
+            int depth = 0;
+            boolean quoted = false;
+            for (; pos < length; pos++) {
+                char c = line.charAt(pos);
+                if (c == '"')
+                    quoted = !quoted;
+                else if (quoted)
+                    continue;
+                else if (c == '(')
+                    depth++;
+                else if (c == ')')
+                    depth--;
+                else if (c <= ' ' && depth <= 0)
+                    break;
+            }
+            tokenEnd = pos;
+            return true;
+        }
+    
+        private boolean isV3000Property(String line, String key) {
+            return tokenEnd - tokenStart > key.length() && line.startsWith(key, tokenStart)
+                    && line.charAt(tokenStart + key.length()) == '=';
+        }
+    
+        private long readV3000PropertyValue(String line, String key) {
+            return MdlNumberParser.parseInteger(line, tokenStart + key.length() + 1, tokenEnd);
+        }
+    
+        /**
+         * Reads the next token of the V3000 line as a coordinate
+         * @return the coordinate, or NaN if it is missing or cannot be parsed
+         */
+        private double readV3000Coordinate(String line) {
+            if (!nextV3000Token(line))
+                return Double.NaN;
+            double value = MdlNumberParser.parseFixedPoint(line, tokenStart, tokenEnd);
+            if (!Double.isNaN(value))
+                return value;
+            //Not a plain decimal, e.g. in exponent notation
+            try {
+                return Double.parseDouble(line.substring(tokenStart, tokenEnd));
+            } catch (NumberFormatException x) {
+                return Double.NaN;
+            }
+        }
+    
         private void readMolPropertiesBlock(RinchiInputComponent ric) {
             String line = readLine();
             while (processPropertyLine(line, ric) == 0)
@@ -679,7 +1085,10 @@ public class MdlReactionReader {
             if (!errors.isEmpty())
                 return null;
     
-            readMolCtabBlock(ric);
+            if (v3000Ctab)
+                readMolCtabBlockV3000(ric);
+            else
+                readMolCtabBlock(ric);
             if (!errors.isEmpty())
                 return null;
     
@@ -694,6 +1103,11 @@ public class MdlReactionReader {
             int endPos = startPos + length;
             if (startPos > line.length() || endPos > line.length())
                 return null;
+            long value = MdlNumberParser.parseInteger(line, startPos, endPos);
+            if (value != MdlNumberParser.NOT_PARSED)
+                return (int) value;
+    
+            //Not a plain integer, Integer.parseInt decides whether it is valid
             String s = line.substring(startPos, endPos).trim();
             try {
                 return Integer.parseInt(s);
@@ -703,22 +1117,31 @@ public class MdlReactionReader {
             }
         }
     
-        private Double readMdlCoordinate(String line, int startPos) {
+        /**
+         * Reads the MDL coordinate (xxxxx.xxxx) starting at the given position
+         * @return the coordinate, or NaN if it is missing or cannot be parsed
+         */
+        private double readMdlCoordinate(String line, int startPos) {
             int endPos = startPos + MdlReactionUtils.MDL_FLOAT_SPACES;
             if (startPos > line.length() || endPos > line.length())
-                return null;
+                return Double.NaN;
     
-            String s = line.substring(startPos, endPos).trim();
             if (line.charAt(startPos + 5) != '.') {
-                errors.add(errorPrefix() + "Incorrect coordinate format: " + s);
-                return null;
+                errors.add(errorPrefix() + "Incorrect coordinate format: " + line.substring(startPos, endPos).trim());
+                return Double.NaN;
             }
+            //A coordinate with the decimal point in place can never parse to NaN
+            double value = MdlNumberParser.parseFixedPoint(line, startPos, endPos);
+            if (!Double.isNaN(value))
+                return value;
     
+            //Not a plain decimal, Double.parseDouble decides whether it is valid
+            String s = line.substring(startPos, endPos).trim();
             try {
                 return Double.parseDouble(s);
             } catch (Exception x) {
                 errors.add(errorPrefix() + "Error on parsing float: " + s);
-                return null;
+                return Double.NaN;
             }
         }
     
@@ -779,5 +1202,34 @@ public class MdlReactionReader {
         }
     
     }
+    
+    /**
+     * Atoms of a V3000 CTAB by their index. The indices are usually 1 to the number of atoms,
+     * which are looked up in an array, but any positive indices are allowed.
+     */
+    private static class V3000AtomIds {
+        private final InchiAtom[] atoms;
+        private Map<Integer, InchiAtom> otherIds;
+    
+        V3000AtomIds(int atomCount) {
+            atoms = new InchiAtom[atomCount + 1];
+        }
+    
+        InchiAtom get(long id) {
+            if (id > 0 && id < atoms.length)
+                return atoms[(int) id];
+            return otherIds == null ? null : otherIds.get((int) id);
+        }
+    
+        void put(int id, InchiAtom atom) {
+            if (id < atoms.length) {
+                atoms[id] = atom;
+            } else {
+                if (otherIds == null)
+                    otherIds = new HashMap<>();
+                otherIds.put(id, atom);
+            }
+        }
+    }
 
 }
@@ -13,6 +13,13 @@ import io.github.dan2097.jnainchi.InchiAtom;
 public class MdlReactionUtils {
     public static final int MDL_FLOAT_SPACES = 10;
     public static final String CTAB_LINE_COUNT = "999";
+    /**
+     * Formats numbers with 4 decimal places, as in MDL atom coordinates.
+     * NumberFormat is not thread-safe, so this shared instance must not be used concurrently.
+     *
+     * @deprecated no longer used by {@link MdlReactionWriter}, which formats coordinates without a NumberFormat
+     */
+    @Deprecated
     public static final NumberFormat MDL_NUMBER_FORMAT = NumberFormat.getNumberInstance(Locale.ENGLISH);
 
     static {
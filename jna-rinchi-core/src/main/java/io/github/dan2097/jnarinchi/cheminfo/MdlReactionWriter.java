@@ -17,6 +17,14 @@
  */
 package io.github.dan2097.jnarinchi.cheminfo;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -69,10 +77,17 @@ public class MdlReactionWriter {
     private static final DateTimeFormatter DATE_TIME_FORMATTER_RDFILE = DateTimeFormatter.ofPattern("MM/dd/yy HH:mm");
     private static final DateTimeFormatter DATE_TIME_FORMATTER_RXN = DateTimeFormatter.ofPattern("MMddyyyyHHmm");
     private static final DateTimeFormatter DATE_TIME_FORMATTER_MOLFILE = DateTimeFormatter.ofPattern("MMddyyHHmm");
+    private static final int FLUSH_BUFFER_SIZE = 8192;
+    /** Largest number of atoms or bonds that fits in the 3 digit fields of a V2000 counts line */
+    private static final int V2000_MAX_COUNT = 999;
+    private static final String V3000_COUNTS_LINE = "  0  0  0     0  0            999 V3000";
+    private static final String V3000_LINE_PREFIX = "M  V30 ";
+    private static final String V3000_CONTINUATION = "-";
+    private static final int V3000_MAX_LINE_LENGTH = 80;
     
     private final ReactionFileFormat format;
-    // currently, only RXN and RDFile V2000 is supported
-    private final CtabVersion ctabVersion = CtabVersion.V2000;
+    //The RXN and RDFile containers are always V2000, this is the version of the molecule CTABs
+    private final CtabVersion ctabVersion;
     //This flag is not made visible as it is preferred always true
     //in order to follow the correct atom ordering for MDL format
     private final boolean checkParityAccordingAtomNumbering = true;
@@ -83,6 +98,7 @@ public class MdlReactionWriter {
      * Default settings are
      * <ul>
      *     <li>reaction file format {@link ReactionFileFormat#RD}</li>
+     *     <li>CTAB version {@link CtabVersion#V2000}</li>
      * </ul>
      * @see #MdlReactionWriter(ReactionFileFormat)
      */
@@ -96,7 +112,26 @@ public class MdlReactionWriter {
      * @see #MdlReactionWriter()
      */
     public MdlReactionWriter(ReactionFileFormat format) {
+        this(format, CtabVersion.V2000);
+    }
+
+    /**
+     * Instantiates a new MDLReactionWriter with the specified {@link ReactionFileFormat reaction file format}
+     * and {@link CtabVersion CTAB version} for the molecules.
+     * <br>
+     * With {@link CtabVersion#V2000} molecules with more than 999 atoms or bonds, which do not fit in a V2000 CTAB,
+     * are written as V3000 CTABs. With {@link CtabVersion#V3000} all molecules are written as V3000 CTABs.
+     * In both cases the RXN and RDFile sections around the molecules are V2000.
+     * @param format the reaction file format to write
+     * @param ctabVersion the CTAB version of the molecules
+     * @see #MdlReactionWriter(ReactionFileFormat)
+     */
+    public MdlReactionWriter(ReactionFileFormat format, CtabVersion ctabVersion) {
+        if (ctabVersion == null) {
+            throw new IllegalArgumentException("CtabVersion is null!");
+        }
         this.format = format;
+        this.ctabVersion = ctabVersion;
     }
     
     /**
@@ -109,6 +144,114 @@ public class MdlReactionWriter {
     public String rinchiInputToFileText(RinchiInput rInp) {
       return new MdlReactionWriterInstance(rInp).write();
     }
+
+    /**
+     * Writes a reaction represented as RinchiInput object as MDL RXN/RDFile format text to the given destination,
+     * e.g. a {@link Writer} or a {@link StringBuilder}. The text is identical to {@link #rinchiInputToFileText(RinchiInput)}.
+     * It is passed on one molecule at a time, so the text of the whole reaction is never held in memory.
+     *
+     * @param rInp input RinchiInput object
+     * @param destination destination of the text, which is neither flushed nor closed
+     * @throws IOException if the destination throws an IOException
+     * @see #writeRinchiInput(RinchiInput, OutputStream)
+     */
+    public void writeRinchiInput(RinchiInput rInp, Appendable destination) throws IOException {
+        if (destination == null) {
+            throw new IllegalArgumentException("Destination is null!");
+        }
+        new MdlReactionWriterInstance(rInp, destination).write();
+    }
+
+    /**
+     * Writes a reaction represented as RinchiInput object as MDL RXN/RDFile format text, encoded as UTF-8, to the given output stream.
+     *
+     * @param rInp input RinchiInput object
+     * @param outputStream output stream, which is flushed but not closed
+     * @throws IOException if the output stream throws an IOException
+     * @see #writeRinchiInput(RinchiInput, Appendable)
+     */
+    public void writeRinchiInput(RinchiInput rInp, OutputStream outputStream) throws IOException {
+        if (outputStream == null) {
+            throw new IllegalArgumentException("OutputStream is null!");
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writeRinchiInput(rInp, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes reactions as the records of a multi-record RDFile, one reaction at a time, irrespective of the format of this writer.
+     * The $RDFILE and $DATM header lines are written once, followed by a $RFMT record for each reaction
+     * that is identical to the reaction as written by {@link #rinchiInputToFileText(RinchiInput)} in RD format.
+     *
+     * @param writer destination of the RDFile text, closed when the returned RdfileWriter is closed
+     * @return writer of the RDFile records
+     * @see #writeRdfile(OutputStream)
+     * @see #writeRdfile(Path)
+     */
+    public RdfileWriter writeRdfile(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer is null!");
+        }
+        return new RdfileWriter(this, writer);
+    }
+
+    /**
+     * Writes reactions as the records of a multi-record RDFile, encoded as UTF-8.
+     *
+     * @param outputStream output stream of the RDFile, closed when the returned RdfileWriter is closed
+     * @return writer of the RDFile records
+     * @see #writeRdfile(Writer)
+     */
+    public RdfileWriter writeRdfile(OutputStream outputStream) {
+        if (outputStream == null) {
+            throw new IllegalArgumentException("OutputStream is null!");
+        }
+        return writeRdfile(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes reactions as the records of a multi-record RDFile, encoded as UTF-8.
+     * An existing file is overwritten.
+     *
+     * @param path path of the RDFile
+     * @return writer of the RDFile records, which must be closed
+     * @throws IOException if the file cannot be opened
+     * @see #writeRdfile(Writer)
+     */
+    public RdfileWriter writeRdfile(Path path) throws IOException {
+        return writeRdfile(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the $RDFILE and $DATM lines that start an RDFile
+     */
+    void writeRdfileHeader(Appendable destination) throws IOException {
+        MdlReactionWriterInstance instance = new MdlReactionWriterInstance(new RinchiInput(), destination);
+        instance.addRdFileHeader(false);
+        instance.flush();
+    }
+
+    /**
+     * Writes the reaction as a $RFMT record of an RDFile
+     */
+    void writeRdfileRecord(RinchiInput rInp, Appendable destination) throws IOException {
+        new MdlReactionWriterInstance(rInp, destination).writeReaction(true, false);
+    }
+
+    /**
+     * Converts a single reaction component into MDL molfile (V2000) text,
+     * in the same way as the component is written within a reaction file.
+     *
+     * @param ric input RinchiInputComponent object
+     * @return molfile text
+     */
+    public String rinchiInputComponentToMolfileText(RinchiInputComponent ric) {
+        if (ric == null) {
+            throw new IllegalArgumentException("RinchiInputComponent is null!");
+        }
+        return new MdlReactionWriterInstance(new RinchiInput()).writeMolfile(ric);
+    }
     
     /**
      * Gets the reaction file format: RXN or RDFile (also AUTO can be used).
@@ -120,7 +263,8 @@ public class MdlReactionWriter {
     }
 
     /**
-     * Gets the CTAB Version.
+     * Gets the CTAB Version of the molecules. Molecules that are too large for {@link CtabVersion#V2000}
+     * are written as {@link CtabVersion#V3000} irrespective of this setting.
      *
      * @return the CTAB version
      */
@@ -131,23 +275,47 @@ public class MdlReactionWriter {
     private class MdlReactionWriterInstance {
 
         private final RinchiInput rInput;
+        /** Receives the text after each molecule, or null if the text is returned as a String */
+        private final Appendable destination;
         private final StringBuilder stringBuilder = new StringBuilder();
         private final List<RinchiInputComponent> reagents = new ArrayList<>();
         private final List<RinchiInputComponent> products = new ArrayList<>();
         private final List<RinchiInputComponent> agents = new ArrayList<>();
         
         MdlReactionWriterInstance(RinchiInput rInput) {
+            this(rInput, null);
+        }
+
+        MdlReactionWriterInstance(RinchiInput rInput, Appendable destination) {
             if (rInput == null) {
                 throw new IllegalArgumentException("RinchiInput is null!");
             }
             this.rInput = rInput;
+            this.destination = destination;
         }
 
         String write() {
+            boolean rdfile = format == ReactionFileFormat.RD || format == ReactionFileFormat.AUTO;
+            try {
+                writeReaction(rdfile, rdfile);
+            } catch (IOException e) {
+                //Not possible without a destination
+                throw new IllegalStateException(e);
+            }
+            return destination == null ? stringBuilder.toString() : null;
+        }
+
+        /**
+         * @param rdfile whether the reaction is written as an RDFile record, including its agents
+         * @param rdfileHeader whether the $RDFILE and $DATM lines are written ahead of the record
+         */
+        void writeReaction(boolean rdfile, boolean rdfileHeader) throws IOException {
             analyzeComponents();
 
-            if (format == ReactionFileFormat.RD || format == ReactionFileFormat.AUTO)
-                addRdFileHeader();
+            if (rdfileHeader)
+                addRdFileHeader(true);
+            else if (rdfile)
+                addRecordStart();
 
             addRxnHeader();
 
@@ -164,28 +332,57 @@ public class MdlReactionWriter {
                 addRinchiInputComponent(products.get(i), "Product " + (i + 1));
 
             //Add agents for RDFile
-            if (format == ReactionFileFormat.RD || format == ReactionFileFormat.AUTO) {
+            if (rdfile) {
                 for (int i = 0; i < agents.size(); i++)
                     addRinchiInputComponentAsAgent(agents.get(i), i, "Agent " + (i + 1));
             }
+            flush();
+        }
 
+        String writeMolfile(RinchiInputComponent ric) {
+            addMolfile(ric, "");
             return stringBuilder.toString();
         }
 
-        private void addRinchiInputComponent(RinchiInputComponent ric, String moleculeName) {
+        /**
+         * Passes the text written so far to the destination, if there is one
+         */
+        void flush() throws IOException {
+            if (destination == null || stringBuilder.length() == 0)
+                return;
+            if (destination instanceof Writer) {
+                //Avoids Writer.append(CharSequence) copying the text into a String
+                Writer writer = (Writer) destination;
+                char[] buffer = new char[Math.min(stringBuilder.length(), FLUSH_BUFFER_SIZE)];
+                for (int start = 0; start < stringBuilder.length(); start += buffer.length) {
+                    int end = Math.min(start + buffer.length, stringBuilder.length());
+                    stringBuilder.getChars(start, end, buffer, 0);
+                    writer.write(buffer, 0, end - start);
+                }
+            } else {
+                destination.append(stringBuilder);
+            }
+            stringBuilder.setLength(0);
+        }
+
+        private void addRinchiInputComponent(RinchiInputComponent ric, String moleculeName) throws IOException {
             addMolHeader(moleculeName);
-            addCtabBlockV2000(ric);
-            addPropertyBlock(ric);
+            addCtab(ric);
             stringBuilder.append(MOLFILE_M_END);
             stringBuilder.append(LINE_SEPARATOR);
+            flush();
         }
 
-        private void addRinchiInputComponentAsAgent(RinchiInputComponent ric, int agentIndex, String moleculeName) {
+        private void addRinchiInputComponentAsAgent(RinchiInputComponent ric, int agentIndex, String moleculeName) throws IOException {
             stringBuilder.append("$DTYPE RXN:VARIATION(1):AGENT(").append(agentIndex + 1).append("):MOL(1):MOLSTRUCTURE");
             stringBuilder.append(LINE_SEPARATOR);
             stringBuilder.append("$DATUM $MFMT");
             stringBuilder.append(LINE_SEPARATOR);
+            addMolfile(ric, moleculeName);
+            flush();
+        }
 
+        private void addMolfile(RinchiInputComponent ric, String moleculeName) {
             //Molecule header
             stringBuilder.append(moleculeName);
             stringBuilder.append(LINE_SEPARATOR);
@@ -195,8 +392,7 @@ public class MdlReactionWriter {
             stringBuilder.append(MOLFILE_HEADER_LINE_3_COMMENT);
             stringBuilder.append(LINE_SEPARATOR);
 
-            addCtabBlockV2000(ric);
-            addPropertyBlock(ric);
+            addCtab(ric);
             stringBuilder.append(MOLFILE_M_END);
             stringBuilder.append(LINE_SEPARATOR);
         }
@@ -213,13 +409,21 @@ public class MdlReactionWriter {
             stringBuilder.append(LINE_SEPARATOR);
         }
 
-        private void addRdFileHeader() {
+        /**
+         * @param recordStart whether the $RFMT line of the first record follows the header
+         */
+        void addRdFileHeader(boolean recordStart) {
             stringBuilder.append(RDFILE_LINE_1_RDFILE);
             stringBuilder.append(LINE_SEPARATOR);
             stringBuilder.append(RDFILE_LINE_2_DATM);
             stringBuilder.append("    ");
             stringBuilder.append(LocalDateTime.now().format(DATE_TIME_FORMATTER_RDFILE));
             stringBuilder.append(LINE_SEPARATOR);
+            if (recordStart)
+                addRecordStart();
+        }
+
+        private void addRecordStart() {
             stringBuilder.append(RDFILE_LINE_3_RFMT);
             stringBuilder.append(LINE_SEPARATOR);
         }
@@ -236,6 +440,136 @@ public class MdlReactionWriter {
             stringBuilder.append(LINE_SEPARATOR);
         }
 
+        private void addCtab(RinchiInputComponent ric) {
+            if (ctabVersion == CtabVersion.V3000
+                    || ric.getAtoms().size() > V2000_MAX_COUNT || ric.getBonds().size() > V2000_MAX_COUNT) {
+                addCtabBlockV3000(ric);
+            } else {
+                addCtabBlockV2000(ric);
+                addPropertyBlock(ric);
+            }
+        }
+
+        private void addCtabBlockV3000(RinchiInputComponent ric) {
+            stringBuilder.append(V3000_COUNTS_LINE);
+            stringBuilder.append(LINE_SEPARATOR);
+            addV3000Line("BEGIN CTAB");
+            int lineStart = startV3000Line();
+            stringBuilder.append("COUNTS ").append(ric.getAtoms().size()).append(' ').append(ric.getBonds().size()).append(" 0 0 0");
+            endV3000Line(lineStart);
+
+            Map<InchiAtom, InchiStereoParity> parities = StereoUtils.getAtomParities(ric, checkParityAccordingAtomNumbering);
+            addV3000Line("BEGIN ATOM");
+            for (int i = 0; i < ric.getAtoms().size(); i++)
+                addAtomLineV3000(i, ric.getAtom(i), parities.get(ric.getAtom(i)));
+            addV3000Line("END ATOM");
+
+            if (!ric.getBonds().isEmpty()) {
+                addV3000Line("BEGIN BOND");
+                for (int i = 0; i < ric.getBonds().size(); i++)
+                    addBondLineV3000(i, ric.getBond(i), ric);
+                addV3000Line("END BOND");
+            }
+            addV3000Line("END CTAB");
+        }
+
+        private void addAtomLineV3000(int atomIndex, InchiAtom atom, InchiStereoParity parity) {
+            //M  V30 index type x y z aamap [CHG=val] [RAD=val] [MASS=val] [CFG=val]
+            int lineStart = startV3000Line();
+            stringBuilder.append(atomIndex + 1).append(' ').append(atom.getElName()).append(' ');
+            MdlNumberFormatter.appendDecimal(stringBuilder, atom.getX());
+            stringBuilder.append(' ');
+            MdlNumberFormatter.appendDecimal(stringBuilder, atom.getY());
+            stringBuilder.append(' ');
+            MdlNumberFormatter.appendDecimal(stringBuilder, atom.getZ());
+            stringBuilder.append(" 0");
+            if (atom.getCharge() != 0)
+                stringBuilder.append(" CHG=").append(atom.getCharge());
+            if (atom.getRadical() != InchiRadical.NONE)
+                stringBuilder.append(" RAD=").append(getRadicalMdlCode(atom.getRadical()));
+            if (atom.getIsotopicMass() != 0)
+                stringBuilder.append(" MASS=").append(atom.getIsotopicMass());
+            if (parity != null) {
+                switch (parity) {
+                    case ODD:
+                        stringBuilder.append(" CFG=1");
+                        break;
+                    case EVEN:
+                        stringBuilder.append(" CFG=2");
+                        break;
+                    case UNKNOWN:
+                        stringBuilder.append(" CFG=3");
+                        break;
+                    default:
+                        break;
+                }
+            }
+            endV3000Line(lineStart);
+        }
+
+        private void addBondLineV3000(int bondIndex, InchiBond bond, RinchiInputComponent ric) {
+            //M  V30 index type atom1 atom2 [CFG=val]
+            int firstAt = ric.getAtomIndex(bond.getStart()) + 1; //1-based atom numbering
+            int secondAt = ric.getAtomIndex(bond.getEnd()) + 1; //1-based atom numbering
+            if (isWedgeEndAtSecondAtom(bond.getStereo())) {
+                //The places of atoms are swapped to match wedge direction
+                int swap = firstAt;
+                firstAt = secondAt;
+                secondAt = swap;
+            }
+            int lineStart = startV3000Line();
+            stringBuilder.append(bondIndex + 1).append(' ').append(getBondMdlBondCode(bond))
+                    .append(' ').append(firstAt).append(' ').append(secondAt);
+            int cfg = getV3000BondConfiguration(getBondMdlStereoCode(bond));
+            if (cfg != 0)
+                stringBuilder.append(" CFG=").append(cfg);
+            endV3000Line(lineStart);
+        }
+
+        /**
+         * Converts a V2000 bond stereo code into the V3000 CFG value
+         */
+        private int getV3000BondConfiguration(int mdlStereoCode) {
+            switch (mdlStereoCode) {
+                case 1:
+                    return 1; //up
+                case 3:
+                case 4:
+                    return 2; //either
+                case 6:
+                    return 3; //down
+                default:
+                    return 0;
+            }
+        }
+
+        private void addV3000Line(String content) {
+            stringBuilder.append(V3000_LINE_PREFIX).append(content).append(LINE_SEPARATOR);
+        }
+
+        /**
+         * @return the position of the start of the line, to be passed to {@link #endV3000Line(int)}
+         */
+        private int startV3000Line() {
+            int lineStart = stringBuilder.length();
+            stringBuilder.append(V3000_LINE_PREFIX);
+            return lineStart;
+        }
+
+        /**
+         * Ends the V3000 line, splitting it with continuation lines if it is longer than 80 characters
+         */
+        private void endV3000Line(int lineStart) {
+            int maxContent = V3000_MAX_LINE_LENGTH - V3000_CONTINUATION.length();
+            while (stringBuilder.length() - lineStart > V3000_MAX_LINE_LENGTH) {
+                int split = lineStart + maxContent;
+                String continuation = V3000_CONTINUATION + LINE_SEPARATOR + V3000_LINE_PREFIX;
+                stringBuilder.insert(split, continuation);
+                lineStart = split + V3000_CONTINUATION.length() + LINE_SEPARATOR.length();
+            }
+            stringBuilder.append(LINE_SEPARATOR);
+        }
+
         private void addCtabBlockV2000(RinchiInputComponent ric) {
             //Counts line: aaabbblllfffcccsssxxxrrrpppiiimmmvvvvvv
             addInteger(ric.getAtoms().size(), 3); //aaa
@@ -324,8 +658,8 @@ public class MdlReactionWriter {
             //MDL bond line specification
             //111222tttsssxxxrrrccc
 
-            int firstAt = ric.getAtoms().indexOf(bond.getStart()) + 1; //1-based atom numbering
-            int secondAt = ric.getAtoms().indexOf(bond.getEnd()) + 1; //1-based atom numbering
+            int firstAt = ric.getAtomIndex(bond.getStart()) + 1; //1-based atom numbering
+            int secondAt = ric.getAtomIndex(bond.getEnd()) + 1; //1-based atom numbering
 
             //Writing 111222 portion
             if (isWedgeEndAtSecondAtom(bond.getStereo())) {
@@ -550,28 +884,11 @@ public class MdlReactionWriter {
         }
 
         private void addInteger(int value, int fixedSpace) {
-            addNumber(Integer.toString(value), fixedSpace);
-        }
-
-        private void addDouble(Double value) {
-            if (Double.isNaN(value) || Double.isInfinite(value)) {
-                addNumber(MdlReactionUtils.MDL_NUMBER_FORMAT.format(0.0), MdlReactionUtils.MDL_FLOAT_SPACES);
-            } else {
-                addNumber(MdlReactionUtils.MDL_NUMBER_FORMAT.format(value), MdlReactionUtils.MDL_FLOAT_SPACES);
-            }
+            MdlNumberFormatter.appendInteger(stringBuilder, value, fixedSpace);
         }
 
-        private void addNumber(String numberAsString, int fixedSpace) {
-            if (numberAsString.length() > fixedSpace) {
-                numberAsString = "0";
-            }
-
-            //Adding empty spaces and value
-            int nEmptySpaces = fixedSpace - numberAsString.length();
-            for (int i = 0; i < nEmptySpaces; i++) {
-                stringBuilder.append(" ");
-            }
-            stringBuilder.append(numberAsString);
+        private void addDouble(double value) {
+            MdlNumberFormatter.appendCoordinate(stringBuilder, value);
         }
 
         private int getOldCtabChargeCoding(int charge) {
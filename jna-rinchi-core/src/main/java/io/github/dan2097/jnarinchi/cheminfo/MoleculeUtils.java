@@ -22,6 +22,7 @@ import io.github.dan2097.jnainchi.InchiBond;
 import io.github.dan2097.jnainchi.InchiBondType;
 import io.github.dan2097.jnainchi.InchiInput;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,73 @@ import java.util.Map;
  * Various utilities that operate on the molecular representation of molecules as used by jna-inchi.
  */
 public class MoleculeUtils {
+    private static final int MIN_MDL_VALENCE_CHARGE = -4;
+    private static final int MAX_MDL_VALENCE_CHARGE = 6;
+    /**
+     * Allowed valences of the MDL valence model, in increasing order, indexed by atomic number and then by charge - MIN_MDL_VALENCE_CHARGE.
+     * Elements and charges without valences are null
+     */
+    private static final int[][][] MDL_VALENCES = new int[PeriodicTable.getNumberOfElements()][][];
+
+    // each row is a charge followed by the valences allowed with that charge
+    static {
+        setMdlValences(new String[]{"H", "Li", "Na", "K", "Rb", "Cs", "Fr"},
+                new int[][]{{0, 1}});
+        setMdlValences(new String[]{"Be", "Mg", "Ca", "Sr", "Ba", "Ra"},
+                new int[][]{{0, 2}, {1, 1}});
+        setMdlValences(new String[]{"B"},
+                new int[][]{{-4, 1}, {-3, 2}, {-2, 3, 5}, {-1, 4}, {0, 3}, {1, 2}, {2, 1}});
+        setMdlValences(new String[]{"C"},
+                new int[][]{{-3, 1}, {-2, 2}, {-1, 3, 5}, {0, 4}, {1, 3}, {2, 2}, {3, 1}});
+        setMdlValences(new String[]{"N"},
+                new int[][]{{-2, 1}, {-1, 2}, {0, 3, 5}, {1, 4}, {2, 3}, {3, 2}, {4, 1}});
+        setMdlValences(new String[]{"O"},
+                new int[][]{{-1, 1}, {0, 2}, {1, 3, 5}, {2, 4}, {3, 3}, {4, 2}, {5, 1}});
+        setMdlValences(new String[]{"F"},
+                new int[][]{{0, 1}, {1, 2}, {2, 3, 5}, {3, 4}, {4, 3}, {5, 2}, {6, 1}});
+        setMdlValences(new String[]{"Al"},
+                new int[][]{{-4, 1, 3, 5, 7}, {-3, 2, 4, 6}, {-2, 3, 5}, {-1, 4}, {0, 3}, {1, 2}, {2, 1}});
+        setMdlValences(new String[]{"Si"},
+                new int[][]{{-3, 1, 3, 5, 7}, {-2, 2, 4, 6}, {-1, 3, 5}, {0, 4}, {1, 3}, {2, 2}, {3, 1}});
+        setMdlValences(new String[]{"P"},
+                new int[][]{{-2, 1, 3, 5, 7}, {-1, 2, 4, 6}, {0, 3, 5}, {1, 4}, {2, 3}, {3, 2}, {4, 1}});
+        setMdlValences(new String[]{"S"},
+                new int[][]{{-1, 1, 3, 5, 7}, {0, 2, 4, 6}, {1, 3, 5}, {2, 4}, {3, 3}, {4, 2}, {5, 1}});
+        setMdlValences(new String[]{"Cl"},
+                new int[][]{{0, 1, 3, 5, 7}, {1, 2, 4, 6}, {2, 3, 5}, {3, 4}, {4, 3}, {5, 2}, {6, 1}});
+        setMdlValences(new String[]{"Ga"},
+                new int[][]{{-4, 1, 3, 5, 7}, {-3, 2, 4, 6}, {-2, 3, 5}, {-1, 4}, {0, 3}, {2, 1}});
+        setMdlValences(new String[]{"Ge"},
+                new int[][]{{-3, 1, 3, 5, 7}, {-2, 2, 4, 6}, {-1, 3, 5}, {0, 4}, {1, 3}, {3, 1}});
+        setMdlValences(new String[]{"As"},
+                new int[][]{{-2, 1, 3, 5, 7}, {-1, 2, 4, 6}, {0, 3, 5}, {1, 4}, {2, 3}, {4, 1}});
+        setMdlValences(new String[]{"Se"},
+                new int[][]{{-1, 1, 3, 5, 7}, {0, 2, 4, 6}, {1, 3, 5}, {2, 4}, {3, 3}, {5, 1}});
+        setMdlValences(new String[]{"Br"},
+                new int[][]{{0, 1, 3, 5, 7}, {1, 2, 4, 6}, {2, 3, 5}, {3, 4}, {4, 3}, {6, 1}});
+        setMdlValences(new String[]{"In"},
+                new int[][]{{-4, 1, 3, 5, 7}, {-3, 2, 4, 6}, {-2, 3, 5}, {-1, 2, 4}, {0, 3}, {2, 1}});
+        setMdlValences(new String[]{"Sn", "Pb"},
+                new int[][]{{-3, 1, 3, 5, 7}, {-2, 2, 4, 6}, {-1, 3, 5}, {0, 2, 4}, {1, 3}, {3, 1}});
+        setMdlValences(new String[]{"Sb", "Bi"},
+                new int[][]{{-2, 1, 3, 5, 7}, {-1, 2, 4, 6}, {0, 3, 5}, {1, 2, 4}, {2, 3}, {4, 1}});
+        setMdlValences(new String[]{"Te", "Po"},
+                new int[][]{{-1, 1, 3, 5, 7}, {0, 2, 4, 6}, {1, 3, 5}, {2, 2, 4}, {3, 3}, {5, 1}});
+        setMdlValences(new String[]{"I", "At"},
+                new int[][]{{0, 1, 3, 5, 7}, {1, 2, 4, 6}, {2, 3, 5}, {3, 2, 4}, {4, 3}, {6, 1}});
+        setMdlValences(new String[]{"Tl"},
+                new int[][]{{-4, 1, 3, 5, 7}, {-3, 2, 4, 6}, {-2, 3, 5}, {-1, 2, 4}, {0, 1, 3}});
+    }
+
+    private static void setMdlValences(String[] elementSymbols, int[][] chargeValences) {
+        for (String elementSymbol : elementSymbols) {
+            int[][] valences = new int[MAX_MDL_VALENCE_CHARGE - MIN_MDL_VALENCE_CHARGE + 1][];
+            for (int[] row : chargeValences)
+                valences[row[0] - MIN_MDL_VALENCE_CHARGE] = Arrays.copyOfRange(row, 1, row.length);
+            MDL_VALENCES[PeriodicTable.getAtomicNumberFromElementSymbol(elementSymbol)] = valences;
+        }
+    }
+
     /**
      * Determines whether at least one hydrogen is present within the atom list.
      *
@@ -47,18 +115,18 @@ public class MoleculeUtils {
     /**
      * Function sets the implicit hydrogens for all atoms of a structure represented as {@link InchiInput}.
      * The function uses {@link #getImplicitHAtomsCount(String, int, int)} to define the maximum possible number of
-     * valences to be filled with H atoms. The result of {@link #getExplicitAtomValencies(InchiInput)}
+     * valences to be filled with H atoms. The result of {@link #getExplicitAtomValenciesByIndex(InchiInput)}
      * is subtracted from this maximum possible number of valences.
      *
      * @param inchiInput molecule structure represented as {@link InchiInput}
      */
     public static void setImplicitHydrogenAtoms(InchiInput inchiInput) {
-        Map<InchiAtom, Integer> atomExplVal = getExplicitAtomValencies(inchiInput);
+        int[] atomExplVal = getExplicitAtomValenciesByIndex(inchiInput);
+        List<InchiAtom> atoms = inchiInput.getAtoms();
 
-        for (InchiAtom at : inchiInput.getAtoms()) {
-            Integer explVal = atomExplVal.get(at);
-            if (explVal == null)
-                explVal = 0;
+        for (int i = 0; i < atoms.size(); i++) {
+            InchiAtom at = atoms.get(i);
+            int explVal = atomExplVal[i];
             int maxImplHydrogen = getImplicitHAtomsCount(at.getElName(), at.getCharge(), explVal);
 
             if (maxImplHydrogen >= explVal)
@@ -72,26 +140,36 @@ public class MoleculeUtils {
      *
      * @param inchiInput molecule structure represented as {@link InchiInput}
      * @return a map with inferred explicit atom valencies
+     * @see #getExplicitAtomValenciesByIndex(InchiInput)
      */
     public static Map<InchiAtom, Integer> getExplicitAtomValencies(InchiInput inchiInput) {
         Map<InchiAtom, Integer> atomVal = new HashMap<>();
         for (InchiBond bo : inchiInput.getBonds()) {
+            int order = getOrder(bo.getType());
+            atomVal.merge(bo.getStart(), order, Integer::sum);
+            atomVal.merge(bo.getEnd(), order, Integer::sum);
+        }
+        return atomVal;
+    }
 
-            //start atom
-            Integer val = atomVal.get(bo.getStart());
-            if (val == null)
-                val = getOrder(bo.getType());
-            else
-                val = val + getOrder(bo.getType());
-            atomVal.put(bo.getStart(), val);
-
-            // end atom
-            val = atomVal.get(bo.getEnd());
-            if (val == null)
-                val = getOrder(bo.getType());
-            else
-                val = val + getOrder(bo.getType());
-            atomVal.put(bo.getEnd(), val);
+    /**
+     * Determines the explicit valency for each atom of a molecule, in the order of {@link InchiInput#getAtoms()}.
+     * Explicit atom valencies are inferred from the bonds and their orders connected to an atom.
+     * Bonds to atoms that are not part of the molecule are only counted for their other atom.
+     *
+     * @param inchiInput molecule structure represented as {@link InchiInput}
+     * @return an array with the inferred explicit valency of each atom
+     */
+    public static int[] getExplicitAtomValenciesByIndex(InchiInput inchiInput) {
+        int[] atomVal = new int[inchiInput.getAtoms().size()];
+        for (InchiBond bo : inchiInput.getBonds()) {
+            int order = getOrder(bo.getType());
+            int start = inchiInput.getAtomIndex(bo.getStart());
+            if (start >= 0)
+                atomVal[start] += order;
+            int end = inchiInput.getAtomIndex(bo.getEnd());
+            if (end >= 0)
+                atomVal[end] += order;
         }
         return atomVal;
     }
@@ -134,655 +212,17 @@ public class MoleculeUtils {
      * license.txt, found at the root of the RDKit source tree. </blockquote>
      */
     public static int getImplicitHAtomsCount(String elName, int charge, int val) {
-        switch (elName) {
-            case "H":  //1
-            case "Li": //3
-            case "Na": //11
-            case "K":  //19
-            case "Rb": //37
-            case "Cs": //55
-            case "Fr": //87
-                if (charge == 0 && val <= 1) return 1;
-                break;
-
-            case "Be": //4
-            case "Mg": //12
-            case "Ca": //20
-            case "Sr": //38
-            case "Ba": //56
-            case "Ra": //88
-                switch (charge) {
-                    case 0:
-                        if (val <= 2) return 2;
-                        break;
-                    case 1:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "B": //5
-                switch (charge) {
-                    case -4:
-                        if (val <= 1) return 1;
-                        break;
-                    case -3:
-                        if (val <= 2) return 2;
-                        break;
-                    case -2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case -1:
-                        if (val <= 4) return 4;
-                        break;
-                    case 0:
-                        if (val <= 3) return 3;
-                        break;
-                    case 1:
-                        if (val <= 2) return 2;
-                        break;
-                    case 2:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "C": //6
-                switch (charge) {
-                    case -3:
-                        if (val <= 1) return 1;
-                        break;
-                    case -2:
-                        if (val <= 2) return 2;
-                        break;
-                    case -1:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 0:
-                        if (val <= 4) return 4;
-                        break;
-                    case 1:
-                        if (val <= 3) return 3;
-                        break;
-                    case 2:
-                        if (val <= 2) return 2;
-                        break;
-                    case 3:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "N": //7
-                switch (charge) {
-                    case -2:
-                        if (val <= 1) return 1;
-                        break;
-                    case -1:
-                        if (val <= 2) return 2;
-                        break;
-                    case 0:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 1:
-                        if (val <= 4) return 4;
-                        break;
-                    case 2:
-                        if (val <= 3) return 3;
-                        break;
-                    case 3:
-                        if (val <= 2) return 2;
-                        break;
-                    case 4:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "O": //8
-                switch (charge) {
-                    case -1:
-                        if (val <= 1) return 1;
-                        break;
-                    case 0:
-                        if (val <= 2) return 2;
-                        break;
-                    case 1:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 2:
-                        if (val <= 4) return 4;
-                        break;
-                    case 3:
-                        if (val <= 3) return 3;
-                        break;
-                    case 4:
-                        if (val <= 2) return 2;
-                        break;
-                    case 5:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "F": //9
-                switch (charge) {
-                    case 0:
-                        if (val <= 1) return 1;
-                        break;
-                    case 1:
-                        if (val <= 2) return 2;
-                        break;
-                    case 2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 3:
-                        if (val <= 4) return 4;
-                        break;
-                    case 4:
-                        if (val <= 3) return 3;
-                        break;
-                    case 5:
-                        if (val <= 2) return 2;
-                        break;
-                    case 6:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Al": //13
-                switch (charge) {
-                    case -4:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -3:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case -2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case -1:
-                        if (val <= 4) return 4;
-                        break;
-                    case 0:
-                        if (val <= 3) return 3;
-                        break;
-                    case 1:
-                        if (val <= 2) return 2;
-                        break;
-                    case 2:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Si": //41
-                switch (charge) {
-                    case -3:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -2:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case -1:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 0:
-                        if (val <= 4) return 4;
-                        break;
-                    case 1:
-                        if (val <= 3) return 3;
-                        break;
-                    case 2:
-                        if (val <= 2) return 2;
-                        break;
-                    case 3:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "P": //15
-                switch (charge) {
-                    case -2:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 0:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 1:
-                        if (val <= 4) return 4;
-                        break;
-                    case 2:
-                        if (val <= 3) return 3;
-                        break;
-                    case 3:
-                        if (val <= 2) return 2;
-                        break;
-                    case 4:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "S": //16
-                switch (charge) {
-                    case -1:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case 0:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 1:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 2:
-                        if (val <= 4) return 4;
-                        break;
-                    case 3:
-                        if (val <= 3) return 3;
-                        break;
-                    case 4:
-                        if (val <= 2) return 2;
-                        break;
-                    case 5:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Cl": //17
-                switch (charge) {
-                    case 0:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case 1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 3:
-                        if (val <= 4) return 4;
-                        break;
-                    case 4:
-                        if (val <= 3) return 3;
-                        break;
-                    case 5:
-                        if (val <= 2) return 2;
-                        break;
-                    case 6:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Ga": //31
-                switch (charge) {
-                    case -4:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -3:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case -2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case -1:
-                        if (val <= 4) return 4;
-                        break;
-                    case 0:
-                        if (val <= 3) return 3;
-                        break;
-                    case 2:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Ge": //32
-                switch (charge) {
-                    case -3:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -2:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case -1:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 0:
-                        if (val <= 4) return 4;
-                        break;
-                    case 1:
-                        if (val <= 3) return 3;
-                        break;
-                    case 3:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "As": //33
-                switch (charge) {
-                    case -2:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 0:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 1:
-                        if (val <= 4) return 4;
-                        break;
-                    case 2:
-                        if (val <= 3) return 3;
-                        break;
-                    case 4:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Se": //34
-                switch (charge) {
-                    case -1:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case 0:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 1:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 2:
-                        if (val <= 4) return 4;
-                        break;
-                    case 3:
-                        if (val <= 3) return 3;
-                        break;
-                    case 5:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Br": //35
-                switch (charge) {
-                    case 0:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case 1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 3:
-                        if (val <= 4) return 4;
-                        break;
-                    case 4:
-                        if (val <= 3) return 3;
-                        break;
-                    case 6:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "In": //49
-                switch (charge) {
-                    case -4:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -3:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case -2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case -1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        break;
-                    case 0:
-                        if (val <= 3) return 3;
-                        break;
-                    case 2:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Sn": //50
-            case "Pb": //82
-                switch (charge) {
-                    case -3:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -2:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case -1:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 0:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        break;
-                    case 1:
-                        if (val <= 3) return 3;
-                        break;
-                    case 3:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Sb": //51
-            case "Bi": //83
-                switch (charge) {
-                    case -2:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 0:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        break;
-                    case 2:
-                        if (val <= 3) return 3;
-                        break;
-                    case 4:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Te": //52
-            case "Po": //84
-                switch (charge) {
-                    case -1:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case 0:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 1:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 2:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        break;
-                    case 3:
-                        if (val <= 3) return 3;
-                        break;
-                    case 5:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "I": //53
-            case "At": //85
-                switch (charge) {
-                    case 0:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case 1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case 2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case 3:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        break;
-                    case 4:
-                        if (val <= 3) return 3;
-                        break;
-                    case 6:
-                        if (val <= 1) return 1;
-                        break;
-                }
-                break;
-
-            case "Tl": //81
-                switch (charge) {
-                    case -4:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        if (val <= 7) return 7;
-                        break;
-                    case -3:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        if (val <= 6) return 6;
-                        break;
-                    case -2:
-                        if (val <= 3) return 3;
-                        if (val <= 5) return 5;
-                        break;
-                    case -1:
-                        if (val <= 2) return 2;
-                        if (val <= 4) return 4;
-                        break;
-                    case 0:
-                        if (val <= 1) return 1;
-                        if (val <= 3) return 3;
-                        break;
-                }
-                break;
-        }
+        int atomicNumber = PeriodicTable.getAtomicNumberFromElementSymbol(elName);
+        if (atomicNumber < 0 || charge < MIN_MDL_VALENCE_CHARGE || charge > MAX_MDL_VALENCE_CHARGE)
+            return val;
+        int[][] valencesByCharge = MDL_VALENCES[atomicNumber];
+        if (valencesByCharge == null)
+            return val;
+        int[] valences = valencesByCharge[charge - MIN_MDL_VALENCE_CHARGE];
+        if (valences != null)
+            for (int valence : valences)
+                if (val <= valence)
+                    return valence;
 
         return val;
     }
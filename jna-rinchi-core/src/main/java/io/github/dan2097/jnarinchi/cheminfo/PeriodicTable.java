@@ -178,10 +178,19 @@ public class PeriodicTable {
      * @return the atomic number of the provided element symbol, -1 if <code>elementSymbol</code> equals <code>null</code> or the element symbol is not valid
      */
     public static int getAtomicNumberFromElementSymbol(String elementSymbol) {
-        if (elementSymbol == null || !elementSymbolAtomicNumberMap.containsKey(elementSymbol)) {
+        if (elementSymbol == null) {
             return (-1);
         }
+        Integer atomicNumber = elementSymbolAtomicNumberMap.get(elementSymbol);
+        return atomicNumber == null ? -1 : atomicNumber;
+    }
 
-        return elementSymbolAtomicNumberMap.get(elementSymbol);
+    /**
+     * Returns the number of element symbols, i.e. the highest supported atomic number plus one.
+     *
+     * @return the number of element symbols, including the "*" symbol for atomic number 0
+     */
+    static int getNumberOfElements() {
+        return mElementSymbol.length;
     }
 }
@@ -0,0 +1,224 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import io.github.dan2097.jnarinchi.ReactionFileFormat;
+import io.github.dan2097.jnarinchi.RinchiInput;
+
+/**
+ * Reads the reaction records of a multi-record RDFile one at a time, see {@link MdlReactionReader#readRdfile(java.io.Reader)}.
+ * <p>
+ * Only the record that is currently being read is held in memory, so RDFiles of any size may be read.
+ * A record that cannot be read gives an {@link RdfileRecord} with errors, and does not prevent reading the following records.
+ * Each reaction ($RFMT) record is read as by {@link MdlReactionReader#fileTextToRinchiInput(String)}, with agents taken from its
+ * $DATUM $MFMT molecules. Molecule ($MFMT) records are reported as errors.
+ * </p>
+ * An <code>IOException</code> from the underlying reader is rethrown as an {@link UncheckedIOException}.
+ * The reader is closed by {@link #close()}, or by closing the stream from {@link #stream()}.
+ * <pre>
+ * try (RdfileReader rdfileReader = new MdlReactionReader().readRdfile(path)) {
+ *     while (rdfileReader.hasNext()) {
+ *         RdfileRecord record = rdfileReader.next();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public final class RdfileReader implements Iterator<RdfileRecord>, Closeable {
+
+    private static final String RDFILE_LINE = "$RDFILE";
+    private static final String DATM_LINE = "$DATM";
+    private static final String REACTION_RECORD_LINE = "$RFMT";
+    private static final String MOLECULE_RECORD_LINE = "$MFMT";
+    private static final String DTYPE_LINE = "$DTYPE";
+    private static final String DATUM_LINE = "$DATUM";
+    private static final char CONTINUATION_CHAR = '+';
+
+    private final BufferedReader reader;
+    private final MdlReactionReader recordReader;
+
+    /** The $RDFILE and $DATM lines, which are given to the record reader ahead of each record */
+    private String fileHeader;
+    /** The first line of the next record, which has already been read */
+    private String nextRecordLine;
+    private int lineNumber = 0;
+    private int recordIndex = 0;
+    private RdfileRecord nextRecord;
+    private boolean finished = false;
+
+    RdfileReader(BufferedReader reader, boolean guessTetrahedralChiralityFromBondsInfo) {
+        this.reader = reader;
+        this.recordReader = new MdlReactionReader(ReactionFileFormat.RD, guessTetrahedralChiralityFromBondsInfo);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextRecord == null && !finished) {
+            nextRecord = readRecord();
+            if (nextRecord == null) {
+                finished = true;
+            }
+        }
+        return nextRecord != null;
+    }
+
+    @Override
+    public RdfileRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RdfileRecord record = nextRecord;
+        nextRecord = null;
+        return record;
+    }
+
+    /**
+     * Returns the remaining records as a sequential stream. Closing the stream closes this reader.
+     * @return stream of records
+     */
+    public Stream<RdfileRecord> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        nextRecord = null;
+        reader.close();
+    }
+
+    private String readLine() {
+        try {
+            String line = reader.readLine();
+            if (line != null) {
+                lineNumber++;
+            }
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isRecordStart(String line) {
+        return line.startsWith(REACTION_RECORD_LINE) || line.startsWith(MOLECULE_RECORD_LINE);
+    }
+
+    private RdfileRecord readRecord() {
+        if (fileHeader == null) {
+            String line = readLine();
+            if (line == null || !line.startsWith(RDFILE_LINE)) {
+                //Not an RDFile, so there are no further records
+                finished = true;
+                return errorRecord(1, "RDFile Header: Line 1 is missing or does not start with $RDFILE");
+            }
+            String datmLine = DATM_LINE;
+            while ((line = readLine()) != null && !isRecordStart(line)) {
+                if (line.startsWith(DATM_LINE)) {
+                    datmLine = line;
+                }
+            }
+            fileHeader = RDFILE_LINE + " 1\n" + datmLine + "\n";
+            nextRecordLine = line;
+        }
+        if (nextRecordLine == null) {
+            return null;
+        }
+
+        int recordLineNumber = lineNumber;
+        String recordLine = nextRecordLine;
+        StringBuilder recordText = new StringBuilder(fileHeader).append(recordLine).append('\n');
+        Map<String, String> dataFields = new LinkedHashMap<>();
+        String fieldName = null;
+        String valueName = null;
+        StringBuilder fieldValue = null;
+        String line;
+        while ((line = readLine()) != null && !isRecordStart(line)) {
+            recordText.append(line).append('\n');
+            if (line.startsWith("$")) {
+                if (fieldValue != null) {
+                    dataFields.put(valueName, fieldValue.toString());
+                    fieldValue = null;
+                }
+                if (line.startsWith(DTYPE_LINE)) {
+                    fieldName = line.substring(DTYPE_LINE.length()).trim();
+                } else if (line.startsWith(DATUM_LINE) && fieldName != null) {
+                    String value = line.length() > DATUM_LINE.length() ? line.substring(DATUM_LINE.length() + 1) : "";
+                    //A molecule is read as an agent
+                    if (!value.startsWith(MOLECULE_RECORD_LINE)) {
+                        valueName = fieldName;
+                        fieldValue = new StringBuilder(value);
+                    }
+                    fieldName = null;
+                } else {
+                    fieldName = null;
+                }
+            } else if (fieldValue != null) {
+                //Continuation of a data value: a trailing '+' joins the lines without a line break
+                int end = fieldValue.length() - 1;
+                if (end >= 0 && fieldValue.charAt(end) == CONTINUATION_CHAR) {
+                    fieldValue.setLength(end);
+                } else {
+                    fieldValue.append('\n');
+                }
+                fieldValue.append(line);
+            }
+        }
+        if (fieldValue != null) {
+            dataFields.put(valueName, fieldValue.toString());
+        }
+        nextRecordLine = line;
+
+        int index = recordIndex++;
+        if (recordLine.startsWith(MOLECULE_RECORD_LINE)) {
+            return new RdfileRecord(index, recordLineNumber, null, dataFields,
+                    Collections.singletonList("Record is a molecule ($MFMT) rather than a reaction ($RFMT)"));
+        }
+        try {
+            RinchiInput rinchiInput = recordReader.fileTextToRinchiInput(recordText.toString());
+            return new RdfileRecord(index, recordLineNumber, rinchiInput, dataFields, Collections.emptyList());
+        } catch (MdlReactionReaderException e) {
+            return new RdfileRecord(index, recordLineNumber, null, dataFields, new ArrayList<>(e.getErrors()));
+        }
+    }
+
+    private RdfileRecord errorRecord(int recordLineNumber, String error) {
+        return new RdfileRecord(recordIndex++, recordLineNumber, null, Collections.emptyMap(), Collections.singletonList(error));
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.github.dan2097.jnarinchi.RinchiInput;
+
+/**
+ * Immutable data class for one reaction record of an RDFile, as read by {@link RdfileReader}.
+ * <p>
+ * If the record could not be read, {@link #getRinchiInput()} returns <code>null</code> and
+ * {@link #getErrors()} gives the reasons.
+ * </p>
+ */
+public final class RdfileRecord {
+    private final int index;
+    private final int lineNumber;
+    private final RinchiInput rinchiInput;
+    private final Map<String, String> dataFields;
+    private final List<String> errors;
+
+    RdfileRecord(int index, int lineNumber, RinchiInput rinchiInput, Map<String, String> dataFields, List<String> errors) {
+        this.index = index;
+        this.lineNumber = lineNumber;
+        this.rinchiInput = rinchiInput;
+        this.dataFields = Collections.unmodifiableMap(dataFields);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets the zero-based index of this record within the RDFile.
+     * @return record index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the line number of the first line ($RFMT or $MFMT) of this record within the RDFile.
+     * @return one-based line number
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets the reaction of this record.
+     * @return RinchiInput object or <code>null</code> if the record could not be read
+     */
+    public RinchiInput getRinchiInput() {
+        return rinchiInput;
+    }
+
+    /**
+     * Gets the data fields of this record, mapping each $DTYPE to its $DATUM in the order of the file.
+     * Molecules given as a $DATUM ($MFMT) are read as agents of the reaction rather than as data fields.
+     * @return unmodifiable map of data fields
+     */
+    public Map<String, String> getDataFields() {
+        return dataFields;
+    }
+
+    /**
+     * Gets the errors encountered whilst reading this record.
+     * Line numbers in the errors are relative to the record, where the $RFMT line is line 3.
+     * @return unmodifiable list of errors, empty if the record was read successfully
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "RdfileRecord{index=" + index + ", lineNumber=" + lineNumber + ", errors=" + errors + "}";
+    }
+}
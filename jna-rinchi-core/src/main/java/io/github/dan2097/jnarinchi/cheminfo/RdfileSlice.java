@@ -0,0 +1,91 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The bytes of one record of an RDFile, as located by {@link RdfileSplitter}: a reaction, or a molecule (which, as for
+ * {@link RdfileReader}, is reported as an error rather than read).
+ * The bytes are a view of the memory-mapped file and are only decoded by {@link #getText()}.
+ */
+public final class RdfileSlice {
+    private final int index;
+    private final long offset;
+    private final ByteBuffer record;
+    private final String fileHeader;
+    private final boolean molecule;
+
+    RdfileSlice(int index, long offset, ByteBuffer record, String fileHeader, boolean molecule) {
+        this.index = index;
+        this.offset = offset;
+        this.record = record;
+        this.fileHeader = fileHeader;
+        this.molecule = molecule;
+    }
+
+    /**
+     * Gets the zero-based index of this record within the RDFile.
+     * @return record index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Whether this is a molecule record ($MFMT) rather than a reaction record ($RFMT).
+     * @return true for a molecule record
+     */
+    public boolean isMoleculeRecord() {
+        return molecule;
+    }
+
+    /**
+     * Gets the byte offset of this record within the RDFile.
+     * @return byte offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the length of this record in bytes.
+     * @return length in bytes
+     */
+    public int getLength() {
+        return record.remaining();
+    }
+
+    /**
+     * Gets the bytes of this record, from its $RFMT (or $MFMT) line up to the next record.
+     * @return read-only buffer positioned at the start of the record
+     */
+    public ByteBuffer getRecord() {
+        return record.duplicate();
+    }
+
+    /**
+     * Decodes this record as UTF-8, preceded by the $RDFILE and $DATM header of the file, so that the text is
+     * an RDFile of a single record that can be read by {@link MdlReactionReader#fileTextToRinchiInput(String)}.
+     * @return RDFile text of this record
+     */
+    public String getText() {
+        return fileHeader + StandardCharsets.UTF_8.decode(record.duplicate());
+    }
+}
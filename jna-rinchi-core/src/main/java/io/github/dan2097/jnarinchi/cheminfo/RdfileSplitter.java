@@ -0,0 +1,225 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits an RDFile into the byte ranges of its records, for example so that the records can be read and
+ * converted to RInChI by several threads.
+ * <p>
+ * The file is memory-mapped in windows of a fixed size, and the start of each record (a line starting with $RFMT,
+ * or $MFMT for a molecule record, as for {@link RdfileReader}) is located by scanning the bytes, without decoding them. Each {@link RdfileSlice} is a view of the window that
+ * contains it; a record that crosses the end of a window is mapped on its own. Hence the heap used does not depend on
+ * the size of the file, and a window is unmapped once it and the slices within it are no longer referenced.
+ * </p>
+ * Errors on mapping the file are rethrown as {@link UncheckedIOException}. Instances are NOT thread-safe.
+ * <pre>
+ * try (RdfileSplitter splitter = new RdfileSplitter(path)) {
+ *     while (splitter.hasNext()) {
+ *         RdfileSlice slice = splitter.next();
+ *         //e.g. hand the slice to a worker thread, which reads slice.getText()
+ *     }
+ * }
+ * </pre>
+ */
+public final class RdfileSplitter implements Iterator<RdfileSlice>, Closeable {
+    /** Size of the memory-mapped windows, unless otherwise specified */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    /** Smallest window size, as each window is a separate mapping */
+    public static final int MIN_WINDOW_SIZE = 4096;
+
+    private static final byte[] REACTION_RECORD_START = "$RFMT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MOLECULE_RECORD_START = "$MFMT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte LINE_FEED = '\n';
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private final String fileHeader;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long nextRecordStart;
+    private int recordIndex = 0;
+
+    /**
+     * Opens an RDFile, mapping it in windows of {@value #DEFAULT_WINDOW_SIZE} bytes.
+     * @param path path of the RDFile
+     * @throws IOException if the file cannot be opened
+     */
+    public RdfileSplitter(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens an RDFile, mapping it in windows of the given size.
+     * @param path path of the RDFile
+     * @param windowSize size in bytes of the memory-mapped windows, at least {@value #MIN_WINDOW_SIZE}
+     * @throws IOException if the file cannot be opened
+     */
+    public RdfileSplitter(Path path, int windowSize) throws IOException {
+        if (windowSize < MIN_WINDOW_SIZE) {
+            throw new IllegalArgumentException("The window size must be at least " + MIN_WINDOW_SIZE + " bytes: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.fileSize = channel.size();
+            long firstRecordStart = recordStartAt(0) != null ? 0 : findRecordStart(0);
+            this.fileHeader = StandardCharsets.UTF_8.decode(slice(0, firstRecordStart)).toString();
+            this.nextRecordStart = firstRecordStart;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the header of the file, i.e. the $RDFILE and $DATM lines before the first record.
+     * @return header text
+     */
+    public String getFileHeader() {
+        return fileHeader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextRecordStart < fileSize;
+    }
+
+    @Override
+    public RdfileSlice next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            long start = nextRecordStart;
+            boolean molecule = recordStartAt(start) == MOLECULE_RECORD_START;
+            long end = findRecordStart(start);
+            nextRecordStart = end;
+            return new RdfileSlice(recordIndex++, start, slice(start, end), fileHeader, molecule);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        nextRecordStart = fileSize;
+        channel.close();
+    }
+
+    /**
+     * Finds the start of the first record that starts on a line after the given position, or the end of the file
+     */
+    private long findRecordStart(long from) throws IOException {
+        long pos = from;
+        while (pos < fileSize) {
+            mapWindow(pos);
+            int limit = window.limit();
+            int i = (int) (pos - windowStart);
+            while (i < limit && window.get(i) != LINE_FEED) {
+                i++;
+            }
+            if (i == limit) {
+                pos = windowStart + limit;
+                continue;
+            }
+            long lineStart = windowStart + i + 1;
+            if (recordStartAt(lineStart) != null) {
+                return lineStart;
+            }
+            pos = lineStart;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Returns the record start tag at the given position, or null if there is none
+     */
+    private byte[] recordStartAt(long pos) throws IOException {
+        //Both tags have the same length
+        int length = REACTION_RECORD_START.length;
+        if (pos + length > fileSize) {
+            return null;
+        }
+        mapWindow(pos);
+        if (pos + length > windowStart + window.limit()) {
+            //The candidate crosses the end of the window
+            mapWindow(pos, true);
+        }
+        int offset = (int) (pos - windowStart);
+        if (matches(offset, REACTION_RECORD_START)) {
+            return REACTION_RECORD_START;
+        }
+        if (matches(offset, MOLECULE_RECORD_START)) {
+            return MOLECULE_RECORD_START;
+        }
+        return null;
+    }
+
+    private boolean matches(int offset, byte[] tag) {
+        for (int i = 0; i < tag.length; i++) {
+            if (window.get(offset + i) != tag[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void mapWindow(long pos) throws IOException {
+        mapWindow(pos, false);
+    }
+
+    private void mapWindow(long pos, boolean force) throws IOException {
+        if (!force && window != null && pos >= windowStart && pos < windowStart + window.limit()) {
+            return;
+        }
+        windowStart = pos;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, fileSize - pos));
+    }
+
+    /**
+     * Read-only view of the bytes between start and end, from the current window if it contains them
+     */
+    private ByteBuffer slice(long start, long end) throws IOException {
+        long length = end - start;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("RDFile record at byte " + start + " is too large: " + length + " bytes");
+        }
+        if (window != null && start >= windowStart && end <= windowStart + window.limit()) {
+            ByteBuffer view = window.duplicate();
+            view.position((int) (start - windowStart));
+            view.limit((int) (end - windowStart));
+            return view.slice().asReadOnlyBuffer();
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, length).asReadOnlyBuffer();
+    }
+}
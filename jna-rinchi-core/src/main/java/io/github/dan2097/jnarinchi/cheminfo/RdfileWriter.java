@@ -0,0 +1,136 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import io.github.dan2097.jnarinchi.RinchiInput;
+
+/**
+ * Writes reactions as the records of a multi-record RDFile, see {@link MdlReactionWriter#writeRdfile(Writer)}.
+ * <p>
+ * The $RDFILE and $DATM header lines are written once, before the first record or when the writer is closed,
+ * and each reaction is then written as a $RFMT record. Reactions are passed on to the underlying writer
+ * one molecule at a time, so RDFiles with any number of reactions may be written in constant memory.
+ * </p>
+ * <pre>
+ * try (RdfileWriter rdfileWriter = new MdlReactionWriter().writeRdfile(path)) {
+ *     rdfileWriter.write(reactions);
+ * }
+ * </pre>
+ */
+public final class RdfileWriter implements Closeable, Flushable {
+
+    private final MdlReactionWriter recordWriter;
+    private final Writer writer;
+
+    private boolean headerWritten = false;
+    private boolean closed = false;
+    private int recordCount = 0;
+
+    RdfileWriter(MdlReactionWriter recordWriter, Writer writer) {
+        this.recordWriter = recordWriter;
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the reaction as the next record of the RDFile.
+     *
+     * @param rinchiInput reaction to write
+     * @throws IOException if the underlying writer throws an IOException
+     * @throws IllegalStateException if this writer has been closed
+     */
+    public void write(RinchiInput rinchiInput) throws IOException {
+        if (rinchiInput == null) {
+            throw new IllegalArgumentException("RinchiInput is null!");
+        }
+        ensureOpen();
+        writeHeader();
+        recordWriter.writeRdfileRecord(rinchiInput, writer);
+        recordCount++;
+    }
+
+    /**
+     * Writes each reaction of the stream as the next record of the RDFile, in encounter order.
+     * The stream is consumed but not closed.
+     *
+     * @param rinchiInputs reactions to write
+     * @return the number of reactions written
+     * @throws IOException if the underlying writer throws an IOException
+     * @throws IllegalStateException if this writer has been closed
+     */
+    public int write(Stream<RinchiInput> rinchiInputs) throws IOException {
+        if (rinchiInputs == null) {
+            throw new IllegalArgumentException("Stream is null!");
+        }
+        int count = 0;
+        for (Iterator<RinchiInput> it = rinchiInputs.iterator(); it.hasNext(); ) {
+            write(it.next());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Number of records written so far
+     * @return
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writer.flush();
+    }
+
+    /**
+     * Writes the header if no records have been written, so that the RDFile is valid, and closes the underlying writer.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeHeader();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            headerWritten = true;
+            recordWriter.writeRdfileHeader(writer);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("RdfileWriter has been closed");
+        }
+    }
+}
@@ -151,7 +151,7 @@ public class StereoUtils {
             return null;
 
         List<InchiAtom> sortedList = new ArrayList<>(atoms);
-        sortedList.sort(Comparator.comparingInt(atom -> inchiInput.getAtoms().indexOf(atom)));
+        sortedList.sort(Comparator.comparingInt(inchiInput::getAtomIndex));
 
         return sortedList.toArray(new InchiAtom[sortedList.size()]);
     }
@@ -188,7 +188,7 @@ public class StereoUtils {
         int k = n - numImplH;
         for (int i = k - 1; i >= 0; i--)
             for (int j = 0; j < i; j++)
-                if (inchiInput.getAtoms().indexOf(ligands[i]) > inchiInput.getAtoms().indexOf(ligands[j])) {
+                if (inchiInput.getAtomIndex(ligands[i]) > inchiInput.getAtomIndex(ligands[j])) {
                     swap(i, j, ligands);
                     numOfSwaps++;
                 }
@@ -211,7 +211,7 @@ public class StereoUtils {
      * @param ric target RinchiInputComponent object
      */
     public static void guessUndefinedTetrahedralStereosBasedOnBondInfo(RinchiInputComponent ric, Set<InchiAtom> knownCenters) {
-        List<InchiAtom> newCenters = new ArrayList<>();
+        Set<InchiAtom> newCenters = new HashSet<>();
         for (int i = 0; i < ric.getBonds().size(); i++) {
             InchiBond bo = ric.getBonds().get(i);
             if (bo.getType() != InchiBondType.SINGLE)
@@ -0,0 +1,112 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static io.github.dan2097.jnarinchi.RinchiWorkerProtocol.RESPONSE_OUTPUT;
+import static io.github.dan2097.jnarinchi.RinchiWorkerProtocol.writeEnum;
+import static io.github.dan2097.jnarinchi.RinchiWorkerProtocol.writeString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A worker that supports additional operations that stall, used to test the deadline handling of {@link RinchiWorkerPool}.
+ */
+final class FaultInjectingRinchiWorker extends RinchiWorker {
+
+    /** Sleeps for the given number of milliseconds */
+    private static final int SLEEP = 101;
+    /** Sends a successful response one byte at a time, with the given number of milliseconds between bytes */
+    private static final int SLOW_RESPONSE = 102;
+
+    private FaultInjectingRinchiWorker(DataInputStream in, DataOutputStream out) {
+        super(in, out);
+    }
+
+    public static void main(String[] args) throws IOException {
+        run(args, FaultInjectingRinchiWorker::new);
+    }
+
+    static RinchiWorkerPool.RinchiWorkerPoolBuilder poolBuilder() {
+        return RinchiWorkerPool.builder().withWorkerMainClass(FaultInjectingRinchiWorker.class);
+    }
+
+    /**
+     * Occupies a worker for the given time
+     * @return null if the worker responded before the deadline, otherwise the error message
+     */
+    static String sleep(RinchiWorkerPool pool, long sleepMilliSecs, long timeoutMilliSecs) {
+        return pool.call(timeoutMilliSecs, out -> {
+            out.writeInt(SLEEP);
+            out.writeLong(sleepMilliSecs);
+        }, (in, status, errorCode, errorMessage) -> null, (errorCode, errorMessage) -> errorMessage);
+    }
+
+    /**
+     * Has a worker send its response one byte at a time, to test that the deadline limits the whole call
+     * @return null if the worker responded before the deadline, otherwise the error message
+     */
+    static String slowResponse(RinchiWorkerPool pool, long byteIntervalMilliSecs, long timeoutMilliSecs) {
+        return pool.call(timeoutMilliSecs, out -> {
+            out.writeInt(SLOW_RESPONSE);
+            out.writeLong(byteIntervalMilliSecs);
+        }, (in, status, errorCode, errorMessage) -> null, (errorCode, errorMessage) -> errorMessage);
+    }
+
+    @Override
+    void execute(int operation) throws IOException {
+        switch (operation) {
+        case SLEEP: {
+            long millis = in.readLong();
+            sleep(millis);
+            writeSuccess(out);
+            break;
+        }
+        case SLOW_RESPONSE: {
+            long millis = in.readLong();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            writeSuccess(new DataOutputStream(response));
+            for (byte b : response.toByteArray()) {
+                out.writeByte(b);
+                out.flush();
+                sleep(millis);
+            }
+            break;
+        }
+        default:
+            super.execute(operation);
+        }
+    }
+
+    private static void writeSuccess(DataOutputStream out) throws IOException {
+        out.writeByte(RESPONSE_OUTPUT);
+        writeEnum(out, Status.SUCCESS);
+        out.writeInt(0);
+        writeString(out, "");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
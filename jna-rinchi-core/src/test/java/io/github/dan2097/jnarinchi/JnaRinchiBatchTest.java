@@ -0,0 +1,126 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the batch methods of JnaRinchi give the same results as the corresponding single calls.
+ */
+class JnaRinchiBatchTest {
+
+    private static final String[] EXAMPLES = {"Esterification_01_flat.rdf", "Esterification_02.rdf", "Tautomerization_01.rxn",
+            "RingOpening01.rxn", "R005a_with_agents.rxn", "Example_01_CCR.rdf", "Example_03_metab_UDM.rdf",
+            "5_variations_1_step_each.rdf", "err__R_reactant-A_product.rxn", "nostruct_one_in_products.rxn", "X_-_1_product.rxn"};
+
+    private static List<String> readExamples() throws IOException {
+        List<String> fileTexts = new ArrayList<>();
+        for (String example : EXAMPLES) {
+            fileTexts.add(TestUtils.readTextFromResourceAsString("examples/" + example));
+        }
+        return fileTexts;
+    }
+
+    @Test
+    void testFileTextToRinchiBatch() throws IOException {
+        List<String> fileTexts = readExamples();
+        RinchiBatchOutput<RinchiOutput> batchOutput = JnaRinchi.fileTextToRinchiBatch(fileTexts, RinchiOptions.DEFAULT_OPTIONS, 3);
+
+        assertEquals(fileTexts.size(), batchOutput.getOutputs().size());
+        assertEquals(4, batchOutput.getChunkCount());
+        assertTrue(batchOutput.getSlowestIndex() >= 0);
+        assertTrue(batchOutput.getSlowestNanoSeconds() <= batchOutput.getElapsedNanoSeconds());
+        boolean hasError = false;
+        for (int i = 0; i < fileTexts.size(); i++) {
+            RinchiOutput expected = JnaRinchi.fileTextToRinchi(fileTexts.get(i));
+            RinchiOutput actual = batchOutput.getOutputs().get(i);
+            assertEquals(expected.getStatus(), actual.getStatus(), EXAMPLES[i]);
+            assertEquals(expected.getErrorMessage(), actual.getErrorMessage(), EXAMPLES[i]);
+            assertEquals(expected.getRinchi(), actual.getRinchi(), EXAMPLES[i]);
+            assertEquals(expected.getAuxInfo(), actual.getAuxInfo(), EXAMPLES[i]);
+            hasError |= actual.getStatus() == Status.ERROR;
+        }
+        //An error does not stop the rest of the batch
+        assertTrue(hasError);
+    }
+
+    @Test
+    void testRinchiToRinchiKeyBatch() throws IOException {
+        List<String> rinchis = new ArrayList<>();
+        for (String fileText : readExamples()) {
+            rinchis.add(JnaRinchi.fileTextToRinchi(fileText).getRinchi());
+        }
+        for (RinchiKeyType keyType : RinchiKeyType.values()) {
+            RinchiBatchOutput<RinchiKeyOutput> batchOutput = JnaRinchi.rinchiToRinchiKeyBatch(keyType, rinchis);
+            assertEquals(1, batchOutput.getChunkCount());
+            for (int i = 0; i < rinchis.size(); i++) {
+                RinchiKeyOutput expected = JnaRinchi.rinchiToRinchiKey(keyType, rinchis.get(i));
+                RinchiKeyOutput actual = batchOutput.getOutputs().get(i);
+                assertEquals(expected.getStatus(), actual.getStatus(), rinchis.get(i));
+                assertEquals(expected.getRinchiKey(), actual.getRinchiKey(), rinchis.get(i));
+                assertEquals(keyType, actual.getRinchiKeyType());
+            }
+        }
+    }
+
+    @Test
+    void testExceptionGivesErrorOutput() {
+        List<String> rinchis = Arrays.asList("RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d+", "throw", "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d+");
+        RinchiBatchOutput<RinchiKeyOutput> batchOutput = JnaRinchi.runBatch(rinchis, "rinchis", 2,
+                (api, rinchi) -> {
+                    if (rinchi.equals("throw")) {
+                        throw new IllegalStateException("Unexpected failure");
+                    }
+                    return JnaRinchi.rinchiToRinchiKeyDirect(RinchiKeyType.LONG, rinchi);
+                },
+                (pool, rinchi) -> pool.rinchiToRinchiKey(RinchiKeyType.LONG, rinchi),
+                errorMessage -> new RinchiKeyOutput("", RinchiKeyType.LONG, Status.ERROR, JnaRinchi.ERROR_CODE_BATCH_EXCEPTION, errorMessage));
+
+        assertEquals(3, batchOutput.getOutputs().size());
+        assertEquals(Status.SUCCESS, batchOutput.getOutputs().get(0).getStatus());
+        RinchiKeyOutput error = batchOutput.getOutputs().get(1);
+        assertEquals(Status.ERROR, error.getStatus());
+        assertEquals(JnaRinchi.ERROR_CODE_BATCH_EXCEPTION, error.getErrorCode());
+        assertTrue(error.getErrorMessage().contains("Unexpected failure"), error.getErrorMessage());
+        assertEquals(Status.SUCCESS, batchOutput.getOutputs().get(2).getStatus());
+        assertEquals(batchOutput.getOutputs().get(0).getRinchiKey(), batchOutput.getOutputs().get(2).getRinchiKey());
+    }
+
+    @Test
+    void testEmptyAndInvalidBatches() {
+        RinchiBatchOutput<RinchiKeyOutput> batchOutput = JnaRinchi.rinchiToRinchiKeyBatch(RinchiKeyType.LONG, Collections.emptyList());
+        assertEquals(0, batchOutput.getOutputs().size());
+        assertEquals(0, batchOutput.getChunkCount());
+        assertEquals(-1, batchOutput.getSlowestIndex());
+
+        List<String> rinchis = Arrays.asList("RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d+", null);
+        assertThrows(IllegalArgumentException.class, () -> JnaRinchi.rinchiToRinchiKeyBatch(RinchiKeyType.LONG, rinchis));
+        assertThrows(IllegalArgumentException.class, () -> JnaRinchi.rinchiToRinchiKeyBatch(RinchiKeyType.LONG, rinchis.subList(0, 1), 0));
+        assertThrows(IllegalArgumentException.class, () -> JnaRinchi.fileTextToRinchiBatch(null, RinchiOptions.DEFAULT_OPTIONS));
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import io.github.dan2097.jnainchi.InchiAtom;
+import io.github.dan2097.jnainchi.InchiBond;
+import io.github.dan2097.jnainchi.InchiBondType;
+import io.github.dan2097.jnarinchi.cheminfo.MdlReactionReader;
+
+/**
+ * Checks that RInChI assembled in Java is the same as that of the native RInChI library.
+ */
+class JnaRinchiDirectTest {
+
+    private static final String[] EXAMPLES = {"Esterification_02.rdf", "Tautomerization_01.rxn", "RingOpening01.rxn",
+            "R005a_with_agents.rxn", "Example_01_CCR.rdf", "5_variations_1_step_each.rdf", "nostruct_one_in_products.rxn",
+            "ok__star_star-nostruct.rdf", "star_star_-_nostruct.rxn"};
+
+    private static final RinchiOptions FORCE_EQUILIBRIUM = RinchiOptions.builder().withFlag(RinchiFlag.ForceEquilibrium).build();
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2);
+
+    @AfterAll
+    static void shutdownExecutor() {
+        EXECUTOR.shutdown();
+    }
+
+    private static void assertSameAsNative(RinchiInput rinchiInput) {
+        for (RinchiOptions options : new RinchiOptions[] {RinchiOptions.DEFAULT_OPTIONS, FORCE_EQUILIBRIUM}) {
+            RinchiOutput expected = JnaRinchi.toRinchi(rinchiInput, options);
+            assertSameOutput(expected, JnaRinchi.toRinchiDirect(rinchiInput, options));
+            assertSameOutput(expected, JnaRinchi.toRinchiDirect(rinchiInput, options, EXECUTOR));
+        }
+    }
+
+    private static void assertSameOutput(RinchiOutput expected, RinchiOutput actual) {
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getRinchi(), actual.getRinchi());
+        assertEquals(expected.getAuxInfo(), actual.getAuxInfo());
+    }
+
+    private static RinchiInputComponent component(ReactionComponentRole role, String... elements) {
+        RinchiInputComponent component = new RinchiInputComponent();
+        component.setRole(role);
+        InchiAtom previous = null;
+        for (int i = 0; i < elements.length; i++) {
+            InchiAtom atom = new InchiAtom(elements[i], i, 0, 0);
+            component.addAtom(atom);
+            if (previous != null) {
+                component.addBond(new InchiBond(previous, atom, InchiBondType.SINGLE));
+            }
+            previous = atom;
+        }
+        return component;
+    }
+
+    private static RinchiInput reaction(RinchiInputComponent... components) {
+        RinchiInput rinchiInput = new RinchiInput();
+        for (RinchiInputComponent component : components) {
+            rinchiInput.addComponent(component);
+        }
+        return rinchiInput;
+    }
+
+    @Test
+    void testExamples() throws Exception {
+        MdlReactionReader mdlReader = new MdlReactionReader();
+        for (String example : EXAMPLES) {
+            String fileText = TestUtils.readTextFromResourceAsString("examples/" + example);
+            assertSameAsNative(mdlReader.fileTextToRinchiInput(fileText));
+        }
+    }
+
+    @Test
+    void testDirection() {
+        ReactionComponentRole reagent = ReactionComponentRole.REAGENT;
+        ReactionComponentRole product = ReactionComponentRole.PRODUCT;
+        assertSameAsNative(reaction(component(reagent, "C", "C"), component(product, "C")));
+        assertSameAsNative(reaction(component(reagent, "C"), component(product, "C", "C")));
+        assertSameAsNative(reaction(component(reagent, "C"), component(product, "C")));
+        assertSameAsNative(reaction(component(reagent, "C"), component(reagent, "O"), component(product, "C")));
+        assertSameAsNative(reaction(component(product, "N"), component(product, "O"), component(reagent, "C")));
+        assertSameAsNative(reaction(component(product, "C")));
+        assertSameAsNative(reaction());
+    }
+
+    @Test
+    void testNoStructures() {
+        ReactionComponentRole reagent = ReactionComponentRole.REAGENT;
+        ReactionComponentRole product = ReactionComponentRole.PRODUCT;
+        ReactionComponentRole agent = ReactionComponentRole.AGENT;
+        assertSameAsNative(reaction(component(reagent), component(product)));
+        assertSameAsNative(reaction(component(reagent, "*"), component(product, "C"), component(agent, "R#")));
+        assertSameAsNative(reaction(component(reagent, "A"), component(reagent, "X"), component(product, "R"), component(agent, "O")));
+    }
+
+    @Test
+    void testInvalidComponent() {
+        RinchiInput rinchiInput = reaction(component(ReactionComponentRole.REAGENT, "Q"), component(ReactionComponentRole.PRODUCT, "C"));
+        assertSameAsNative(rinchiInput);
+        assertEquals(Status.ERROR, JnaRinchi.toRinchiDirect(rinchiInput).getStatus());
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that dispatching calls across several copies of the native library gives the same results as a single copy.
+ */
+class JnaRinchiLibraryInstancesTest {
+
+    private static final String[] EXAMPLES = {"Esterification_01_flat.rdf", "Esterification_02.rdf", "Tautomerization_01.rxn",
+            "RingOpening01.rxn", "R005a_with_agents.rxn", "Example_01_CCR.rdf", "Example_03_metab_UDM.rdf",
+            "5_variations_1_step_each.rdf", "err__R_reactant-A_product.rxn", "nostruct_one_in_products.rxn", "X_-_1_product.rxn"};
+
+    @AfterEach
+    void resetLibraryInstances() {
+        JnaRinchi.setLibraryInstances(1);
+    }
+
+    /**
+     * Runs every JnaRinchi entry point, recording the outputs (including error messages) as strings.
+     */
+    private static List<String> runAll(List<String> fileTexts) {
+        List<String> results = new ArrayList<>();
+        for (String fileText : fileTexts) {
+            RinchiOutput rinchiOutput = JnaRinchi.fileTextToRinchi(fileText);
+            results.add(rinchiOutput.getStatus() + " " + rinchiOutput.getErrorMessage() + " " + rinchiOutput.getRinchi() + " " + rinchiOutput.getAuxInfo());
+            for (RinchiKeyType keyType : RinchiKeyType.values()) {
+                RinchiKeyOutput keyOutput = JnaRinchi.fileTextToRinchiKey(fileText, keyType);
+                results.add(keyOutput.getStatus() + " " + keyOutput.getErrorMessage() + " " + keyOutput.getRinchiKey());
+                keyOutput = JnaRinchi.rinchiToRinchiKey(keyType, rinchiOutput.getRinchi());
+                results.add(keyOutput.getStatus() + " " + keyOutput.getErrorMessage() + " " + keyOutput.getRinchiKey());
+            }
+            FileTextOutput fileTextOutput = JnaRinchi.rinchiToFileText(rinchiOutput.getRinchi(), rinchiOutput.getAuxInfo(), ReactionFileFormat.RD);
+            //The RDFile includes the time it was written
+            String reactionFileText = fileTextOutput.getReactionFileText().replaceAll("\\$DATM[^\n]*", "");
+            results.add(fileTextOutput.getStatus() + " " + fileTextOutput.getErrorMessage() + " " + reactionFileText);
+            RinchiDecompositionOutput decomposition = JnaRinchi.decomposeRinchi(rinchiOutput.getRinchi(), rinchiOutput.getAuxInfo());
+            results.add(decomposition.getStatus() + " " + decomposition.getErrorMessage() + " " + decomposition.getDirection() + " "
+                    + Arrays.toString(decomposition.getInchis()) + " " + Arrays.toString(decomposition.getAuxInfos()));
+        }
+        return results;
+    }
+
+    @Test
+    void testConcurrentResultsMatchSingleInstance() throws Exception {
+        List<String> fileTexts = new ArrayList<>();
+        for (String example : EXAMPLES) {
+            fileTexts.add(readExample(example));
+        }
+        List<String> expected = runAll(fileTexts);
+
+        JnaRinchi.setLibraryInstances(4);
+        assertEquals(4, JnaRinchi.getLibraryInstances());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> runAll(fileTexts)));
+            }
+            for (Future<List<String>> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * When the native library is in a jar, JNA deletes the file that it extracts the library to, so the copies must be
+     * extracted from the jar. Run in a child JVM, with the native library only available from a jar.
+     */
+    @Test
+    void testCopiesOfLibraryFromJar(@TempDir Path tempDir) throws Exception {
+        String expected = JnaRinchi.fileTextToRinchi(readExample(EXAMPLES[0])).getRinchi();
+        String classpath = classpathWithLibraryInJar(tempDir);
+
+        List<String> output = runChild(classpath, "-D" + JnaRinchi.LIBRARY_INSTANCES_PROPERTY + "=1");
+        assertEquals(Arrays.asList("1", "null", expected, expected), output);
+        output = runChild(classpath, "-D" + JnaRinchi.LIBRARY_INSTANCES_PROPERTY + "=2");
+        assertEquals(Arrays.asList("2", "null", expected, expected), output);
+    }
+
+    /**
+     * A failure to load the copies requested by the system property leaves JnaRinchi usable with a single copy.
+     */
+    @Test
+    void testLibraryInstancesPropertyFailureFallsBackToSingleInstance(@TempDir Path tempDir) throws Exception {
+        String expected = JnaRinchi.fileTextToRinchi(readExample(EXAMPLES[0])).getRinchi();
+        //The copies are made in java.io.tmpdir, JNA extracts the library to jna.tmpdir
+        String missingTempDir = tempDir.resolve("missing").toString();
+        List<String> output = runChild(System.getProperty("java.class.path"), "-D" + JnaRinchi.LIBRARY_INSTANCES_PROPERTY + "=2",
+                "-Djava.io.tmpdir=" + missingTempDir, "-Djna.tmpdir=" + tempDir);
+        assertEquals(4, output.size(), output.toString());
+        assertEquals("1", output.get(0));
+        assertEquals(IllegalStateException.class.getName(), output.get(1));
+        assertEquals(expected, output.get(2));
+        assertEquals(expected, output.get(3));
+    }
+
+    /**
+     * Returns the classpath of this JVM with the native library moved from its directory or jar to a new jar
+     */
+    private static String classpathWithLibraryInJar(Path tempDir) throws IOException {
+        String resourceName = RinchiLibraryDispatcher.libraryResourceName();
+        Path libraryJar = tempDir.resolve("jna-rinchi-native.jar");
+        try (InputStream is = JnaRinchiLibraryInstancesTest.class.getClassLoader().getResourceAsStream(resourceName);
+             JarOutputStream jar = new JarOutputStream(Files.newOutputStream(libraryJar))) {
+            jar.putNextEntry(new JarEntry(resourceName));
+            copy(is, jar);
+            jar.closeEntry();
+        }
+        StringBuilder classpath = new StringBuilder(libraryJar.toString());
+        int removed = 0;
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (containsResource(new File(entry), resourceName)) {
+                removed++;
+                continue;
+            }
+            classpath.append(File.pathSeparator).append(entry);
+        }
+        assertTrue(removed > 0, "The native library was not found on the classpath: " + resourceName);
+        return classpath.toString();
+    }
+
+    private static boolean containsResource(File entry, String resourceName) throws IOException {
+        if (entry.isDirectory()) {
+            return new File(entry, resourceName).isFile();
+        }
+        if (entry.isFile()) {
+            try (JarFile jarFile = new JarFile(entry)) {
+                return jarFile.getEntry(resourceName) != null;
+            }
+        }
+        return false;
+    }
+
+    private static void copy(InputStream is, OutputStream os) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            os.write(buffer, 0, read);
+        }
+    }
+
+    private static List<String> runChild(String classpath, String... jvmOptions) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(Arrays.asList(jvmOptions));
+        command.add("-cp");
+        command.add(classpath);
+        command.add(LibraryInstancesCheck.class.getName());
+        command.add(EXAMPLES[0]);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        byte[] output;
+        try (InputStream is = process.getInputStream()) {
+            output = readFully(is);
+        }
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+        String text = new String(output, StandardCharsets.UTF_8);
+        assertEquals(0, process.exitValue(), text);
+        return Arrays.asList(text.trim().split("\\r?\\n"));
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        copy(is, os);
+        return os.toByteArray();
+    }
+
+    /**
+     * Prints the number of library copies, the class of the error loading them (or null), then the RInChI of the given
+     * example from two consecutive calls, which are placed on different copies if there are several
+     */
+    static final class LibraryInstancesCheck {
+
+        public static void main(String[] args) throws IOException {
+            String fileText = readExample(args[0]);
+            System.out.println(JnaRinchi.getLibraryInstances());
+            Throwable error = JnaRinchi.getLibraryInstancesError();
+            System.out.println(error != null ? error.getClass().getName() : "null");
+            System.out.println(JnaRinchi.fileTextToRinchi(fileText).getRinchi());
+            System.out.println(JnaRinchi.fileTextToRinchi(fileText).getRinchi());
+        }
+    }
+
+    private static String readExample(String fileName) throws IOException {
+        return TestUtils.readTextFromResourceAsString("examples/" + fileName);
+    }
+}
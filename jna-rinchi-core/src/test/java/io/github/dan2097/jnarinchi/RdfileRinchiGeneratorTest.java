@@ -0,0 +1,119 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.dan2097.jnarinchi.cheminfo.MdlReactionReader;
+
+class RdfileRinchiGeneratorTest {
+
+    private static final String HEADER = "$RDFILE 1\n$DATM 01/01/20 00:00\n";
+    private static final String BROKEN_RECORD = "$RFMT\n$RXN\n\n\n\nxxxyyy\n";
+    private static final String MOLECULE_RECORD = "$MFMT\n\n  test\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+            + "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n";
+    private static final String[] EXAMPLES = {"ok__star_star-nostruct.rdf", "5_variations_1_step_each.rdf", "Esterification_02.rdf"};
+
+    private Path path;
+    private final List<String> expectedRinchis = new ArrayList<>();
+
+    @BeforeEach
+    void writeRdfile() throws Exception {
+        StringBuilder sb = new StringBuilder(HEADER);
+        MdlReactionReader reader = new MdlReactionReader();
+        for (int i = 0; i < 10; i++) {
+            for (String example : EXAMPLES) {
+                String text = TestUtils.readTextFromResourceAsString("examples/" + example);
+                sb.append(text, text.indexOf("$RFMT"), text.length());
+                expectedRinchis.add(JnaRinchi.toRinchi(reader.fileTextToRinchiInput(text)).getRinchi());
+            }
+            sb.append(BROKEN_RECORD);
+            expectedRinchis.add("");
+            sb.append(MOLECULE_RECORD);
+            expectedRinchis.add("");
+        }
+        path = Files.createTempFile("jnarinchi", ".rdf");
+        Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void deleteRdfile() throws IOException {
+        Files.delete(path);
+    }
+
+    @Test
+    void testInOrder() throws IOException {
+        List<RdfileRinchiOutput> outputs = new ArrayList<>();
+        int records = new RdfileRinchiGenerator(3, true).generate(path, outputs::add);
+
+        assertEquals(expectedRinchis.size(), records);
+        assertEquals(expectedRinchis.size(), outputs.size());
+        for (int i = 0; i < outputs.size(); i++) {
+            RdfileRinchiOutput output = outputs.get(i);
+            assertEquals(i, output.getIndex());
+            assertEquals(expectedRinchis.get(i), output.getRinchi());
+            assertEquals(expectedRinchis.get(i).isEmpty() ? Status.ERROR : Status.SUCCESS, output.getStatus());
+        }
+    }
+
+    @Test
+    void testAnyOrder() throws IOException {
+        String[] rinchis = new String[expectedRinchis.size()];
+        int records = new RdfileRinchiGenerator(4, false, RinchiOptions.DEFAULT_OPTIONS, 4096)
+                .generate(path, output -> rinchis[output.getIndex()] = output.getRinchi());
+
+        assertEquals(expectedRinchis.size(), records);
+        for (int i = 0; i < rinchis.length; i++) {
+            assertEquals(expectedRinchis.get(i), rinchis[i]);
+        }
+    }
+
+    @Test
+    void testSeveralLibraryInstances() throws IOException {
+        JnaRinchi.setLibraryInstances(3);
+        try {
+            List<RdfileRinchiOutput> outputs = new ArrayList<>();
+            int records = new RdfileRinchiGenerator(3, true).generate(path, outputs::add);
+
+            assertEquals(expectedRinchis.size(), records);
+            for (int i = 0; i < outputs.size(); i++) {
+                assertEquals(expectedRinchis.get(i), outputs.get(i).getRinchi());
+            }
+        } finally {
+            JnaRinchi.setLibraryInstances(1);
+        }
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RdfileRinchiGenerator(0, true));
+        assertThrows(IllegalArgumentException.class, () -> new RdfileRinchiGenerator(1, true, null, 4096));
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that RInChIs decomposed in Java give the same output as the native RInChI library.
+ */
+class RinchiDecomposerTest {
+
+    private static final String CH4_AUXINFO = "0/N:1/rA:1nC/rB:/rC:0,0,0;";
+    private static final String H2O_AUXINFO = "0/N:1/rA:1nO/rB:/rC:0,0,0;";
+
+    private static void assertSameAsNative(String rinchi, String auxInfo) {
+        RinchiDecompositionOutput expected = JnaRinchi.decomposeRinchi(rinchi, auxInfo);
+        RinchiDecompositionOutput actual = JnaRinchi.decomposeRinchiDirect(rinchi, auxInfo);
+        assertEquals(expected.getStatus(), actual.getStatus(), rinchi);
+        assertEquals(expected.getErrorCode(), actual.getErrorCode(), rinchi);
+        assertEquals(expected.getDirection(), actual.getDirection(), rinchi);
+        assertArrayEquals(expected.getInchis(), actual.getInchis(), rinchi);
+        assertArrayEquals(expected.getAuxInfos(), actual.getAuxInfos(), rinchi);
+        assertArrayEquals(expected.getRoles(), actual.getRoles(), rinchi);
+    }
+
+    private static void assertError(String rinchi, String auxInfo) {
+        RinchiDecompositionOutput output = JnaRinchi.decomposeRinchiDirect(rinchi, auxInfo);
+        assertEquals(Status.ERROR, output.getStatus(), rinchi);
+        assertEquals(RinchiDecomposer.ERROR_CODE, output.getErrorCode());
+        assertNull(output.getInchis());
+    }
+
+    @Test
+    void testExamples() throws Exception {
+        File examples = new File(RinchiDecomposerTest.class.getResource("examples").toURI());
+        for (String fileName : examples.list()) {
+            if (fileName.endsWith(".txt")) {
+                continue;
+            }
+            RinchiOutput rinchiOutput = JnaRinchi.fileTextToRinchi(TestUtils.readTextFromResourceAsString("examples/" + fileName));
+            if (rinchiOutput.getStatus() != Status.ERROR) {
+                assertSameAsNative(rinchiOutput.getRinchi(), rinchiOutput.getAuxInfo());
+                assertSameAsNative(rinchiOutput.getRinchi(), "");
+            }
+        }
+    }
+
+    @Test
+    void testDirectionAndNoStructures() {
+        assertSameAsNative("RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2", "");
+        assertSameAsNative("RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d=", "");
+        assertSameAsNative("RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d-/u1-2-3", "");
+        assertSameAsNative("RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/u1-2-3/d-", "");
+        assertSameAsNative("RInChI=1.00.1S/<><>H2O/h1H2/d+", "");
+        assertSameAsNative("RInChI=1.00.1S/CH4/h1H4<>/d+/u1-0-0", "");
+        assertSameAsNative("RInChI=1.00.1S//d+", "");
+        assertSameAsNative("RInChI=1.00.1S/", "");
+    }
+
+    @Test
+    void testAuxInfo() {
+        String rinchi = "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d+";
+        assertSameAsNative(rinchi, "RAuxInfo=1.00.1/" + CH4_AUXINFO + "<>" + H2O_AUXINFO);
+        assertSameAsNative(rinchi.replace("/d+", "/d-"), "RAuxInfo=1.00.1/" + CH4_AUXINFO + "<>" + H2O_AUXINFO);
+        assertSameAsNative(rinchi + "/u1-0-1", "RAuxInfo=1.00.1/" + CH4_AUXINFO + "<>" + H2O_AUXINFO);
+        assertSameAsNative(rinchi, "RAuxInfo=1.00.1/" + CH4_AUXINFO);
+        assertSameAsNative(rinchi, "RAuxInfo=1.00.1/<>" + H2O_AUXINFO);
+        assertSameAsNative(rinchi + "/u1-0-0", "RAuxInfo=1.00.1/");
+    }
+
+    @Test
+    void testInvalidInput() {
+        String rinchi = "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d+";
+        for (String invalidRinchi : new String[] {"", "RInChI=1.00.1S", "RInChI=1.00.1B/CH4/h1H4<>H2O/h1H2/d+", "InChI=1S/CH4/h1H4",
+                "RInChI=1.00.1S/CH4/h1H4!!H2O/h1H2/d+", "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2<>CH4/h1H4<>CH4/h1H4/d+",
+                rinchi + "/ux", rinchi + "/u-1-0-0", rinchi + "/u1-0-0/u1-0-0", rinchi + "/d+"}) {
+            assertSameAsNative(invalidRinchi, "");
+            assertError(invalidRinchi, "");
+        }
+        assertError(rinchi + "/u1-2", "");
+        assertError(rinchi.replace("/d+", "/d*"), "");
+        for (String invalidAuxInfo : new String[] {"RAuxInfo=1.00.1", "garbage",
+                "RAuxInfo=1.00.1/" + CH4_AUXINFO + "!" + H2O_AUXINFO,
+                "RAuxInfo=1.00.1/" + CH4_AUXINFO + "<>" + H2O_AUXINFO + "<>" + CH4_AUXINFO,
+                "RAuxInfo=1.00.1/<><><>"}) {
+            assertSameAsNative(rinchi, invalidAuxInfo);
+        }
+        assertThrows(IllegalArgumentException.class, () -> JnaRinchi.decomposeRinchiDirect(null));
+        assertThrows(IllegalArgumentException.class, () -> JnaRinchi.decomposeRinchiDirect(rinchi, null));
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.dan2097.jnainchi.InchiAtom;
+import io.github.dan2097.jnainchi.InchiBond;
+import io.github.dan2097.jnainchi.InchiBondStereo;
+import io.github.dan2097.jnainchi.InchiBondType;
+import io.github.dan2097.jnainchi.InchiStereo;
+import io.github.dan2097.jnainchi.InchiStereoParity;
+import io.github.dan2097.jnarinchi.cheminfo.StereoUtils;
+
+class RinchiInputComponentTest {
+
+    @Test
+    void testConnectedAtomsAndBonds() {
+        RinchiInputComponent ric = new RinchiInputComponent();
+        InchiAtom c1 = new InchiAtom("C");
+        InchiAtom c2 = new InchiAtom("C");
+        InchiAtom o = new InchiAtom("O");
+        InchiAtom n = new InchiAtom("N");
+        ric.addAtom(c1);
+        ric.addAtom(c2);
+        ric.addAtom(o);
+        ric.addAtom(n);
+        InchiBond c2c1 = new InchiBond(c2, c1, InchiBondType.SINGLE);
+        InchiBond c1o = new InchiBond(c1, o, InchiBondType.DOUBLE);
+        ric.addBond(c2c1);
+        ric.addBond(c1o);
+
+        //Connected atoms are in the order of the bonds
+        assertEquals(Arrays.asList(c2, o), ric.getConnectedAtomList(c1));
+        assertEquals(Collections.singletonList(c1), ric.getConnectedAtomList(c2));
+        assertEquals(Collections.emptyList(), ric.getConnectedAtomList(n));
+        assertNull(ric.getConnectedAtomList(null));
+        assertSame(c2c1, ric.getBond(c1, c2));
+        assertSame(c2c1, ric.getBond(c2, c1));
+        assertSame(c1o, ric.getBond(o, c1));
+        assertNull(ric.getBond(c2, o));
+        assertNull(ric.getBond(c1, null));
+        assertNull(ric.getBond(null, c1));
+
+        //The index is updated when bonds and atoms are added
+        InchiBond c2n = new InchiBond(c2, n, InchiBondType.SINGLE);
+        ric.addBond(c2n);
+        assertEquals(Arrays.asList(c1, n), ric.getConnectedAtomList(c2));
+        assertSame(c2n, ric.getBond(n, c2));
+        InchiAtom cl = new InchiAtom("Cl");
+        ric.addAtom(cl);
+        ric.addBond(new InchiBond(cl, n, InchiBondType.SINGLE));
+        assertEquals(Arrays.asList(c2, cl), ric.getConnectedAtomList(n));
+        assertEquals(Collections.singletonList(n), ric.getConnectedAtomList(cl));
+    }
+
+    @Test
+    void testAtomsThatAreNotInTheComponent() {
+        RinchiInputComponent ric = new RinchiInputComponent();
+        InchiAtom c = new InchiAtom("C");
+        InchiAtom o = new InchiAtom("O");
+        InchiAtom other = new InchiAtom("N");
+        ric.addAtom(c);
+        ric.addAtom(o);
+        ric.addBond(new InchiBond(c, o, InchiBondType.SINGLE));
+        //A bond may reference an atom that has not been added, as before the bonds were indexed
+        InchiBond bondToOther = new InchiBond(other, c, InchiBondType.SINGLE);
+        ric.addBond(bondToOther);
+
+        assertEquals(Arrays.asList(o, other), ric.getConnectedAtomList(c));
+        assertEquals(Collections.singletonList(c), ric.getConnectedAtomList(other));
+        assertSame(bondToOther, ric.getBond(other, c));
+        assertSame(bondToOther, ric.getBond(c, other));
+        assertNull(ric.getBond(other, new InchiAtom("C")));
+    }
+
+    @Test
+    void testStereoPerceptionOfLargeComponent() {
+        //Chain with a fluorine and chlorine on each inner atom: odd atoms have a parity, even atoms a wedge bond
+        int chainLength = 3400;
+        RinchiInputComponent ric = new RinchiInputComponent();
+        for (int i = 0; i < chainLength; i++)
+            ric.addAtom(new InchiAtom("C", i * 1.5, 0, 0));
+        for (int i = 1; i < chainLength; i++)
+            ric.addBond(new InchiBond(ric.getAtom(i - 1), ric.getAtom(i), InchiBondType.SINGLE));
+        for (int i = 1; i < chainLength - 1; i++) {
+            InchiAtom f = new InchiAtom("F", i * 1.5, 1, 0);
+            InchiAtom cl = new InchiAtom("Cl", i * 1.5, -1, 0);
+            ric.addAtom(f);
+            ric.addAtom(cl);
+            ric.addBond(new InchiBond(ric.getAtom(i), f, InchiBondType.SINGLE,
+                    i % 2 == 0 ? InchiBondStereo.SINGLE_1UP : InchiBondStereo.NONE));
+            ric.addBond(new InchiBond(ric.getAtom(i), cl, InchiBondType.SINGLE));
+        }
+
+        for (int i = 1; i < chainLength - 1; i += 2) {
+            InchiStereo stereo = StereoUtils.createTetrahedralStereo(ric, ric.getAtom(i), InchiStereoParity.ODD);
+            ric.addStereo(stereo);
+        }
+        Map<InchiAtom, InchiStereoParity> parities = StereoUtils.getAtomParities(ric, true);
+        assertEquals(chainLength / 2 - 1, parities.size());
+        StereoUtils.guessUndefinedTetrahedralStereosBasedOnBondInfo(ric, new HashSet<>(parities.keySet()));
+        assertEquals(chainLength - 2, ric.getStereos().size());
+        for (InchiStereo stereo : ric.getStereos()) {
+            assertEquals(4, stereo.getAtoms().length);
+            for (InchiAtom ligand : stereo.getAtoms())
+                assertNotNull(ric.getBond(stereo.getCentralAtom(), ligand));
+        }
+    }
+}
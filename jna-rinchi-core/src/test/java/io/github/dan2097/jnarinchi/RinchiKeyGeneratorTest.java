@@ -0,0 +1,109 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the RInChIKeys generated in Java are the same as those of the native RInChI library.
+ */
+class RinchiKeyGeneratorTest {
+
+    private static List<String> readExampleRinchis() throws Exception {
+        File examples = new File(RinchiKeyGeneratorTest.class.getResource("examples").toURI());
+        List<String> rinchis = new ArrayList<>();
+        for (String fileName : examples.list()) {
+            String text = TestUtils.readTextFromResourceAsString("examples/" + fileName);
+            if (fileName.endsWith(".txt")) {
+                for (String line : text.split("\n")) {
+                    if (line.startsWith("RInChI=")) {
+                        rinchis.add(line);
+                    }
+                }
+            } else {
+                RinchiOutput rinchiOutput = JnaRinchi.fileTextToRinchi(text);
+                if (rinchiOutput.getStatus() != Status.ERROR) {
+                    rinchis.add(rinchiOutput.getRinchi());
+                }
+            }
+        }
+        return rinchis;
+    }
+
+    private static void assertSameAsNative(RinchiKeyGenerator keyGenerator, String rinchi) {
+        for (RinchiKeyType keyType : RinchiKeyType.values()) {
+            RinchiKeyOutput expected = JnaRinchi.rinchiToRinchiKey(keyType, rinchi);
+            RinchiKeyOutput actual = keyGenerator.generate(keyType, rinchi);
+            assertEquals(expected.getStatus(), actual.getStatus(), rinchi);
+            assertEquals(expected.getRinchiKey(), actual.getRinchiKey(), rinchi);
+            assertEquals(keyType, actual.getRinchiKeyType());
+        }
+    }
+
+    @Test
+    void testExamples() throws Exception {
+        List<String> rinchis = readExampleRinchis();
+        assertTrue(rinchis.size() > 50);
+        RinchiKeyGenerator keyGenerator = new RinchiKeyGenerator();
+        for (String rinchi : rinchis) {
+            assertSameAsNative(keyGenerator, rinchi);
+        }
+    }
+
+    @Test
+    void testNormalization() {
+        RinchiKeyGenerator keyGenerator = new RinchiKeyGenerator();
+        //Reversed reactants and products, unsorted components, no direction
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/H2O/h1H2<>CH4/h1H4/d+");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/H2O/h1H2!CH4/h1H4/d+");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/<>CH4/h1H4/d-");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/u1-0-0/d=");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S//d+");
+    }
+
+    @Test
+    void testNoStructuresAndProtonation() {
+        RinchiKeyGenerator keyGenerator = new RinchiKeyGenerator();
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S//d+/u0-0-2");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d+/u26-27-25");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/H2O/h1H2/p+1<>H2O/h1H2/p-1/d+");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/H2O/h1H2/p+7!H2O/h1H2/p+7<>H2O/h1H2/p-7!H2O/h1H2/p-7/d+");
+    }
+
+    @Test
+    void testInvalidRinchi() {
+        RinchiKeyGenerator keyGenerator = new RinchiKeyGenerator();
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1B/CH4/h1H4<>H2O/h1H2/d+");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/CH4/h1H4!!H2O/h1H2/d+");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d+/u1-0-0/u1-0-0");
+        assertSameAsNative(keyGenerator, "RInChI=1.00.1S/CH4/h1H4<>H2O/h1H2/d+/ua-b-c");
+        assertEquals(Status.ERROR, JnaRinchi.rinchiToRinchiKeyDirect(RinchiKeyType.LONG, "").getStatus());
+        assertThrows(IllegalArgumentException.class, () -> keyGenerator.generate(null, "RInChI=1.00.1S//d+"));
+        assertThrows(IllegalArgumentException.class, () -> JnaRinchi.rinchiToRinchiKeyDirect(RinchiKeyType.WEB, null));
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests execution of RInChI calls in child JVMs.
+ */
+class RinchiWorkerPoolTest {
+
+    private static RinchiWorkerPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = FaultInjectingRinchiWorker.poolBuilder().withWorkers(2).withTimeoutMilliSeconds(30000).build();
+    }
+
+    @AfterAll
+    static void closePool() {
+        JnaRinchi.setWorkerPool(null);
+        pool.close();
+    }
+
+    @Test
+    void testResultsMatchInProcess() throws Exception {
+        for (String example : new String[] {"Esterification_02.rdf", "Example_03_metab_UDM.rdf", "err__R_reactant-A_product.rxn"}) {
+            String fileText = TestUtils.readTextFromResourceAsString("examples/" + example);
+            RinchiOutput expected = JnaRinchi.fileTextToRinchi(fileText);
+            RinchiOutput actual = pool.fileTextToRinchi(fileText, RinchiOptions.DEFAULT_OPTIONS, ReactionFileFormat.AUTO);
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertEquals(expected.getErrorCode(), actual.getErrorCode());
+            assertEquals(expected.getErrorMessage(), actual.getErrorMessage());
+            assertEquals(expected.getRinchi(), actual.getRinchi());
+            assertEquals(expected.getAuxInfo(), actual.getAuxInfo());
+
+            for (RinchiKeyType keyType : RinchiKeyType.values()) {
+                assertEquals(JnaRinchi.fileTextToRinchiKey(fileText, keyType).getRinchiKey(),
+                        pool.fileTextToRinchiKey(fileText, keyType, RinchiOptions.DEFAULT_OPTIONS, ReactionFileFormat.AUTO).getRinchiKey());
+                assertEquals(JnaRinchi.rinchiToRinchiKey(keyType, expected.getRinchi()).getRinchiKey(),
+                        pool.rinchiToRinchiKey(keyType, expected.getRinchi()).getRinchiKey());
+            }
+
+            RinchiDecompositionOutput expectedDecomposition = JnaRinchi.decomposeRinchi(expected.getRinchi(), expected.getAuxInfo());
+            RinchiDecompositionOutput actualDecomposition = pool.decomposeRinchi(expected.getRinchi(), expected.getAuxInfo());
+            assertEquals(expectedDecomposition.getStatus(), actualDecomposition.getStatus());
+            assertEquals(expectedDecomposition.getDirection(), actualDecomposition.getDirection());
+            assertArrayEquals(expectedDecomposition.getInchis(), actualDecomposition.getInchis());
+            assertArrayEquals(expectedDecomposition.getAuxInfos(), actualDecomposition.getAuxInfos());
+            assertArrayEquals(expectedDecomposition.getRoles(), actualDecomposition.getRoles());
+
+            assertEquals(JnaRinchi.rinchiToFileText(expected.getRinchi(), expected.getAuxInfo(), ReactionFileFormat.RXN).getStatus(),
+                    pool.rinchiToFileText(expected.getRinchi(), expected.getAuxInfo(), ReactionFileFormat.RXN).getStatus());
+        }
+    }
+
+    @Test
+    void testJnaRinchiDispatchesToPool() throws Exception {
+        String fileText = TestUtils.readTextFromResourceAsString("examples/Esterification_02.rdf");
+        String expected = JnaRinchi.fileTextToRinchi(fileText).getRinchi();
+        JnaRinchi.setWorkerPool(pool);
+        try {
+            assertSame(pool, JnaRinchi.getWorkerPool());
+            assertEquals(expected, JnaRinchi.fileTextToRinchi(fileText).getRinchi());
+        } finally {
+            JnaRinchi.setWorkerPool(null);
+        }
+        assertThrows(IllegalArgumentException.class, () -> pool.rinchiToRinchiKey(RinchiKeyType.LONG, null));
+    }
+
+    @Test
+    void testTimeoutRestartsWorker() {
+        String message = FaultInjectingRinchiWorker.sleep(pool, 60000, 500);
+        assertTrue(message.contains("500 ms"), message);
+        RinchiKeyOutput timedOut = pool.rinchiToRinchiKey(RinchiKeyType.LONG, "RInChI=1.00.1S/H2O/h1H2<>H2O/h1H2/d+", 1);
+        if (timedOut.getStatus() == Status.ERROR) {
+            //a restarted worker can't be expected to respond within 1 ms
+            assertEquals(RinchiWorkerPool.ERROR_CODE_TIMEOUT, timedOut.getErrorCode());
+        }
+        assertNull(FaultInjectingRinchiWorker.sleep(pool, 0, 30000));
+    }
+
+    @Test
+    void testDeadlineLimitsSlowResponse() {
+        //Each byte arrives well within the timeout, but the whole response takes several seconds
+        long start = System.nanoTime();
+        String message = FaultInjectingRinchiWorker.slowResponse(pool, 200, 1000);
+        long elapsedMilliSecs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertNotNull(message);
+        assertTrue(message.contains("1000 ms"), message);
+        assertTrue(elapsedMilliSecs < 3000, "Call took " + elapsedMilliSecs + " ms");
+        assertNull(FaultInjectingRinchiWorker.slowResponse(pool, 0, 30000));
+    }
+
+    @Test
+    void testCrashedWorkerIsRestarted() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> inFlight = executor.submit(() -> FaultInjectingRinchiWorker.sleep(pool, 60000, 30000));
+            //wait for the call to be running
+            Thread.sleep(500);
+            pool.killWorkerProcesses();
+            String message = inFlight.get();
+            assertTrue(message.contains("terminated unexpectedly"), message);
+        } finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < pool.getWorkers(); i++) {
+            RinchiKeyOutput output = pool.rinchiToRinchiKey(RinchiKeyType.SHORT, "RInChI=1.00.1S/H2O/h1H2<>H2O/h1H2/d+");
+            assertEquals(Status.SUCCESS, output.getStatus(), output.getErrorMessage());
+        }
+    }
+
+    @Test
+    void testCallsRunInParallel() throws Exception {
+        //warm up both workers
+        assertNull(FaultInjectingRinchiWorker.sleep(pool, 0, 30000));
+        ExecutorService executor = Executors.newFixedThreadPool(pool.getWorkers());
+        try {
+            long start = System.nanoTime();
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < pool.getWorkers(); i++) {
+                futures.add(executor.submit(() -> FaultInjectingRinchiWorker.sleep(pool, 1000, 30000)));
+            }
+            for (Future<String> future : futures) {
+                assertNull(future.get());
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1000000;
+            assertTrue(elapsedMillis < 1000 * pool.getWorkers(), "Calls did not run in parallel: " + elapsedMillis + " ms");
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
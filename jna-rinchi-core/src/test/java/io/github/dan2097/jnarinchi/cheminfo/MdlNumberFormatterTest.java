@@ -0,0 +1,116 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MdlNumberFormatterTest {
+
+    private static String format(double value) {
+        StringBuilder sb = new StringBuilder();
+        MdlNumberFormatter.appendCoordinate(sb, value);
+        return sb.toString();
+    }
+
+    /** The NumberFormat previously used by MdlReactionWriter, padded as it was */
+    private static String formatWithNumberFormat(NumberFormat numberFormat, double value) {
+        String s = numberFormat.format(Double.isNaN(value) || Double.isInfinite(value) ? 0.0 : value);
+        if (s.length() > MdlReactionUtils.MDL_FLOAT_SPACES)
+            s = "0";
+        StringBuilder sb = new StringBuilder();
+        for (int i = s.length(); i < MdlReactionUtils.MDL_FLOAT_SPACES; i++)
+            sb.append(' ');
+        return sb.append(s).toString();
+    }
+
+    private static NumberFormat createNumberFormat() {
+        NumberFormat numberFormat = NumberFormat.getNumberInstance(Locale.ENGLISH);
+        numberFormat.setMinimumIntegerDigits(1);
+        numberFormat.setMaximumIntegerDigits(4);
+        numberFormat.setMinimumFractionDigits(4);
+        numberFormat.setMaximumFractionDigits(4);
+        numberFormat.setGroupingUsed(false);
+        return numberFormat;
+    }
+
+    @Test
+    void testAppendCoordinate() {
+        assertEquals("    0.0000", format(0.0));
+        assertEquals("   -0.0000", format(-0.0));
+        assertEquals("    1.2346", format(1.23456));
+        assertEquals("   -1.5000", format(-1.5));
+        assertEquals("-9999.9999", format(-9999.9999));
+        assertEquals("    0.0000", format(Double.NaN));
+        assertEquals("    0.0000", format(Double.NEGATIVE_INFINITY));
+        //Only the last 4 integer digits are written
+        assertEquals(" 2345.6000", format(12345.6));
+        assertEquals(" 0000.0000", format(9999.99999));
+    }
+
+    @Test
+    void testAppendCoordinateMatchesNumberFormat() {
+        NumberFormat numberFormat = createNumberFormat();
+        double[] values = {0.00005, -0.00005, 0.00015, 0.00025, 1.00005, 2.675, 1234.56785, -10000.4, 10005, 1e20, -1e-300,
+                123456789.12345, 99999999.99995, Double.MAX_VALUE, Double.MIN_VALUE, 0.5e-4, 1.5e-4, 2.5e-4};
+        for (double value : values) {
+            assertEquals(formatWithNumberFormat(numberFormat, value), format(value), Double.toString(value));
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            double value;
+            switch (i % 5) {
+                case 0:
+                    value = (random.nextDouble() - 0.5) * 200;
+                    break;
+                case 1:
+                    value = (random.nextDouble() - 0.5) * 2e6;
+                    break;
+                case 2:
+                    //Ties and their neighbours
+                    value = (random.nextInt(2000000) - 1000000 + 0.5) / 1e4;
+                    value += (random.nextInt(5) - 2) * Math.ulp(value);
+                    break;
+                case 3:
+                    value = (random.nextDouble() - 0.5) * 2e11;
+                    break;
+                default:
+                    value = Math.round((random.nextDouble() - 0.5) * 2e5) / 1e4;
+            }
+            assertEquals(formatWithNumberFormat(numberFormat, value), format(value), Double.toString(value));
+        }
+    }
+
+    @Test
+    void testAppendInteger() {
+        StringBuilder sb = new StringBuilder();
+        MdlNumberFormatter.appendInteger(sb, 7, 3);
+        MdlNumberFormatter.appendInteger(sb, -12, 3);
+        MdlNumberFormatter.appendInteger(sb, 999, 3);
+        MdlNumberFormatter.appendInteger(sb, 1000, 3);
+        MdlNumberFormatter.appendInteger(sb, -100, 3);
+        MdlNumberFormatter.appendInteger(sb, Integer.MIN_VALUE, 11);
+        assertEquals("  7-12999  0  0-2147483648", sb.toString());
+    }
+}
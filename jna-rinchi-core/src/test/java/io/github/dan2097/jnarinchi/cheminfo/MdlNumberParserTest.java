@@ -0,0 +1,72 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MdlNumberParserTest {
+
+    @Test
+    void testParseInteger() {
+        for (String field : new String[] {"  0", "  1", "-12", "+12", "999", " 42 ", "0007", "2147483647", "-2147483648"}) {
+            assertEquals(Integer.parseInt(field.trim()), MdlNumberParser.parseInteger(field, 0, field.length()), field);
+        }
+        assertEquals(23, MdlNumberParser.parseInteger("  1 23  4", 3, 6));
+    }
+
+    @Test
+    void testParseIntegerNotParsed() {
+        for (String field : new String[] {"", "   ", " - ", "+", "1.0", "1 2", "a12", "2147483648", "-2147483649", "99999999999999999999"}) {
+            assertEquals(MdlNumberParser.NOT_PARSED, MdlNumberParser.parseInteger(field, 0, field.length()), field);
+        }
+    }
+
+    @Test
+    void testParseFixedPoint() {
+        for (String field : new String[] {"    0.0000", "   -0.0000", "    1.2345", "   -1.2345", "-9999.9999", "99999.9999",
+                "    0.1000", "    1.", "     .5", "+1.5", "12345678.123456"}) {
+            double expected = Double.parseDouble(field.trim());
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(MdlNumberParser.parseFixedPoint(field, 0, field.length())), field);
+        }
+        assertEquals(-1.5, MdlNumberParser.parseFixedPoint("    0.0000   -1.5000", 10, 20));
+    }
+
+    @Test
+    void testParseFixedPointMatchesParseDouble() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            String field = String.format(Locale.ROOT, "%10.4f", (random.nextDouble() - 0.5) * 20000);
+            double expected = Double.parseDouble(field.trim());
+            assertEquals(expected, MdlNumberParser.parseFixedPoint(field, 0, field.length()), field);
+        }
+    }
+
+    @Test
+    void testParseFixedPointNotParsed() {
+        for (String field : new String[] {"", "    ", "   -", "    .", "1.2.3", "1e5", "   1.0e-1", "NaN", "Infinity", "0x1p3", "1.0d",
+                "1234567890.123456"}) {
+            assertTrue(Double.isNaN(MdlNumberParser.parseFixedPoint(field, 0, field.length())), field);
+        }
+    }
+}
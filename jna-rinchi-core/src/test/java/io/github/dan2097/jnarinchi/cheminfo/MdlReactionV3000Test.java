@@ -0,0 +1,257 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.dan2097.jnainchi.InchiAtom;
+import io.github.dan2097.jnainchi.InchiBond;
+import io.github.dan2097.jnainchi.InchiBondStereo;
+import io.github.dan2097.jnainchi.InchiBondType;
+import io.github.dan2097.jnainchi.InchiRadical;
+import io.github.dan2097.jnainchi.InchiStereo;
+import io.github.dan2097.jnainchi.InchiStereoParity;
+import io.github.dan2097.jnarinchi.CtabVersion;
+import io.github.dan2097.jnarinchi.JnaRinchi;
+import io.github.dan2097.jnarinchi.ReactionComponentRole;
+import io.github.dan2097.jnarinchi.ReactionFileFormat;
+import io.github.dan2097.jnarinchi.RinchiInput;
+import io.github.dan2097.jnarinchi.RinchiInputComponent;
+import io.github.dan2097.jnarinchi.RinchiOutput;
+import io.github.dan2097.jnarinchi.Status;
+import io.github.dan2097.jnarinchi.TestUtils;
+
+class MdlReactionV3000Test {
+
+    private static final String[] EXAMPLES = {"ok__star_star-nostruct.rdf", "5_variations_1_step_each.rdf", "Esterification_02.rdf",
+            "Example_04_simple.rdf", "Example_01_CCR.rdf"};
+
+    private static RinchiInput read(String text) throws MdlReactionReaderException {
+        return new MdlReactionReader().fileTextToRinchiInput(text);
+    }
+
+    private static void assertSameComponents(RinchiInput expected, RinchiInput actual) {
+        assertEquals(expected.getComponents().size(), actual.getComponents().size());
+        for (int i = 0; i < expected.getComponents().size(); i++) {
+            RinchiInputComponent expectedComponent = expected.getComponents().get(i);
+            RinchiInputComponent actualComponent = actual.getComponents().get(i);
+            assertEquals(expectedComponent.getRole(), actualComponent.getRole());
+            assertEquals(expectedComponent.getAtoms().size(), actualComponent.getAtoms().size());
+            assertEquals(expectedComponent.getBonds().size(), actualComponent.getBonds().size());
+            for (int j = 0; j < expectedComponent.getAtoms().size(); j++) {
+                InchiAtom expectedAtom = expectedComponent.getAtom(j);
+                InchiAtom actualAtom = actualComponent.getAtom(j);
+                assertEquals(expectedAtom.getElName(), actualAtom.getElName());
+                assertEquals(expectedAtom.getX(), actualAtom.getX());
+                assertEquals(expectedAtom.getY(), actualAtom.getY());
+                assertEquals(expectedAtom.getZ(), actualAtom.getZ());
+                assertEquals(expectedAtom.getCharge(), actualAtom.getCharge());
+                assertEquals(expectedAtom.getIsotopicMass(), actualAtom.getIsotopicMass());
+                assertEquals(expectedAtom.getRadical(), actualAtom.getRadical());
+                assertEquals(expectedAtom.getImplicitHydrogen(), actualAtom.getImplicitHydrogen());
+            }
+            for (int j = 0; j < expectedComponent.getBonds().size(); j++) {
+                InchiBond expectedBond = expectedComponent.getBond(j);
+                InchiBond actualBond = actualComponent.getBond(j);
+                assertEquals(expectedComponent.getAtomIndex(expectedBond.getStart()), actualComponent.getAtomIndex(actualBond.getStart()));
+                assertEquals(expectedComponent.getAtomIndex(expectedBond.getEnd()), actualComponent.getAtomIndex(actualBond.getEnd()));
+                assertEquals(expectedBond.getType(), actualBond.getType());
+                assertEquals(expectedBond.getStereo(), actualBond.getStereo());
+            }
+            //Parities with ligands in order of increasing atom index, as written to the CTAB
+            Map<Integer, InchiStereoParity> expectedParities = new HashMap<>();
+            StereoUtils.getAtomParities(expectedComponent, true)
+                    .forEach((atom, parity) -> expectedParities.put(expectedComponent.getAtomIndex(atom), parity));
+            Map<Integer, InchiStereoParity> actualParities = new HashMap<>();
+            StereoUtils.getAtomParities(actualComponent, true)
+                    .forEach((atom, parity) -> actualParities.put(actualComponent.getAtomIndex(atom), parity));
+            assertEquals(expectedParities, actualParities);
+        }
+    }
+
+    @Test
+    void testRoundTripOfExamples() throws Exception {
+        for (String example : EXAMPLES) {
+            RinchiInput original = read(TestUtils.readTextFromResourceAsString("examples/" + example));
+            String expectedRinchi = JnaRinchi.toRinchi(original).getRinchi();
+            for (CtabVersion ctabVersion : CtabVersion.values()) {
+                MdlReactionWriter writer = new MdlReactionWriter(ReactionFileFormat.RD, ctabVersion);
+                String text = writer.rinchiInputToFileText(original);
+                assertEquals(ctabVersion == CtabVersion.V3000, text.contains("M  V30 BEGIN CTAB"), example);
+
+                RinchiInput roundTrip = read(text);
+                assertSameComponents(original, roundTrip);
+                //The native RInChI library reads V3000 CTABs within RXN and RDFile V2000
+                assertEquals(expectedRinchi, JnaRinchi.fileTextToRinchi(text).getRinchi(), example + " " + ctabVersion);
+            }
+        }
+    }
+
+    /**
+     * A chain of the given number of carbon atoms with a charged, an isotopic, a radical and a stereo centre atom,
+     * followed by a product of one atom
+     */
+    private static RinchiInput createChain(int atomCount) {
+        RinchiInputComponent ric = new RinchiInputComponent();
+        ric.setRole(ReactionComponentRole.REAGENT);
+        for (int i = 0; i < atomCount; i++) {
+            ric.addAtom(new InchiAtom(i == 10 ? "N" : "C", i * 1.5, i % 2 == 0 ? 0 : 0.8661, 0));
+        }
+        for (int i = 1; i < atomCount; i++) {
+            ric.addBond(new InchiBond(ric.getAtom(i - 1), ric.getAtom(i), InchiBondType.SINGLE));
+        }
+        ric.getAtom(10).setCharge(1);
+        ric.getAtom(20).setIsotopicMass(13);
+        ric.getAtom(30).setRadical(InchiRadical.DOUBLET);
+        InchiAtom methyl = new InchiAtom("C", 60, 2, 0);
+        ric.addAtom(methyl);
+        ric.addBond(new InchiBond(ric.getAtom(40), methyl, InchiBondType.SINGLE, InchiBondStereo.SINGLE_1UP));
+        InchiAtom chlorine = new InchiAtom("Cl", 60, -2, 0);
+        ric.addAtom(chlorine);
+        ric.addBond(new InchiBond(ric.getAtom(40), chlorine, InchiBondType.SINGLE));
+        ric.addStereo(InchiStereo.createTetrahedralStereo(ric.getAtom(40), ric.getAtom(39), ric.getAtom(41), methyl,
+                chlorine, InchiStereoParity.EVEN));
+
+        RinchiInputComponent product = new RinchiInputComponent();
+        product.setRole(ReactionComponentRole.PRODUCT);
+        product.addAtom(new InchiAtom("O"));
+        RinchiInput rinchiInput = new RinchiInput();
+        rinchiInput.addComponent(ric);
+        rinchiInput.addComponent(product);
+        return rinchiInput;
+    }
+
+    @Test
+    void testLargeComponentIsWrittenAsV3000() throws Exception {
+        RinchiInput rinchiInput = createChain(10000);
+        String text = new MdlReactionWriter().rinchiInputToFileText(rinchiInput);
+        //The large reagent is written as V3000, the small product as V2000
+        assertTrue(text.contains("  0  0  0     0  0            999 V3000"));
+        assertTrue(text.contains("M  V30 COUNTS 10002 10001 0 0 0"));
+        assertTrue(text.contains("  1  0  0  0  0  0  0  0  0  0999 V2000"));
+        for (String line : text.split("\n")) {
+            assertTrue(line.length() <= 80, line);
+        }
+
+        RinchiInput roundTrip = read(text);
+        RinchiInputComponent ric = roundTrip.getComponents().get(0);
+        assertEquals(10002, ric.getAtoms().size());
+        assertEquals(10001, ric.getBonds().size());
+        assertEquals(1, ric.getAtom(10).getCharge());
+        assertEquals(13, ric.getAtom(20).getIsotopicMass());
+        assertEquals(InchiRadical.DOUBLET, ric.getAtom(30).getRadical());
+        assertEquals(14998.5, ric.getAtom(9999).getX());
+        assertEquals(InchiBondStereo.SINGLE_1UP, ric.getBond(9999).getStereo());
+        assertEquals(1, ric.getStereos().size());
+        assertSameComponents(read(new MdlReactionWriter(ReactionFileFormat.RD, CtabVersion.V3000).rinchiInputToFileText(rinchiInput)), roundTrip);
+    }
+
+    @Test
+    void testToRinchiOfLargeComponent() {
+        //The native InChI library is limited to 1024 atoms
+        RinchiInput rinchiInput = createChain(1010);
+        RinchiOutput output = JnaRinchi.toRinchi(rinchiInput);
+        assertEquals(Status.SUCCESS, output.getStatus(), output.getErrorMessage());
+        assertEquals(JnaRinchi.toRinchiDirect(rinchiInput).getRinchi(), output.getRinchi());
+    }
+
+    private static final String V3000_MOLFILE_START = "$RXN\n\n      JNA-RIN  101720261200\n\n  1  0\n$MOL\n\n  JNA-RIN 1017261200\n\n"
+            + "  0  0  0     0  0            999 V3000\n"
+            + "M  V30 BEGIN CTAB\n"
+            + "M  V30 COUNTS 5 4 1 0 0\n";
+
+    @Test
+    void testV3000Features() throws Exception {
+        String text = V3000_MOLFILE_START
+                + "M  V30 BEGIN ATOM\n"
+                //Atom indices that are not 1 to 4, exponent notation and properties that are not used
+                + "M  V30 5 C 0 0 0 0 CFG=2 VAL=4\n"
+                + "M  V30 12 Cl 1.5E0 -2.25 0 0 CHG=-1 MASS=37\n"
+                + "M  V30 7 O -1 1 0 0 -\n"
+                + "M  V30 RAD=2\n"
+                + "M  V30 8 N 1 1 0 0\n"
+                + "M  V30 9 Br -1 -1 0 0\n"
+                + "M  V30 END ATOM\n"
+                + "M  V30 BEGIN BOND\n"
+                + "M  V30 1 1 5 12 CFG=3\n"
+                + "M  V30 2 1 5 7\n"
+                + "M  V30 3 1 5 8\n"
+                + "M  V30 4 1 5 9\n"
+                + "M  V30 END BOND\n"
+                + "M  V30 BEGIN SGROUP\n"
+                + "M  V30 1 SUP 0 ATOMS=(1 12) LABEL=\"Cl group\"\n"
+                + "M  V30 END SGROUP\n"
+                + "M  V30 END CTAB\n"
+                + "M  END\n";
+        RinchiInput rinchiInput = new MdlReactionReader(ReactionFileFormat.RXN, false).fileTextToRinchiInput(text);
+        List<RinchiInputComponent> components = rinchiInput.getComponents();
+        assertEquals(1, components.size());
+        RinchiInputComponent ric = components.get(0);
+        assertEquals(5, ric.getAtoms().size());
+        InchiAtom chlorine = ric.getAtom(1);
+        assertEquals("Cl", chlorine.getElName());
+        assertEquals(1.5, chlorine.getX());
+        assertEquals(-2.25, chlorine.getY());
+        assertEquals(-1, chlorine.getCharge());
+        assertEquals(37, chlorine.getIsotopicMass());
+        assertEquals(InchiRadical.DOUBLET, ric.getAtom(2).getRadical());
+        InchiBond bond = ric.getBond(0);
+        assertEquals(ric.getAtom(0), bond.getStart());
+        assertEquals(chlorine, bond.getEnd());
+        assertEquals(InchiBondStereo.SINGLE_1DOWN, bond.getStereo());
+        assertEquals(ric.getAtom(3), ric.getBond(2).getEnd());
+        assertEquals(1, ric.getStereos().size());
+        assertEquals(ric.getAtom(0), ric.getStereos().get(0).getCentralAtom());
+        assertEquals(InchiStereoParity.EVEN, ric.getStereos().get(0).getParity());
+    }
+
+    @Test
+    void testV3000Errors() {
+        String badSymbol = V3000_MOLFILE_START + "M  V30 BEGIN ATOM\nM  V30 1 Xx 0 0 0 0\n";
+        MdlReactionReaderException exception = assertThrows(MdlReactionReaderException.class, () -> read(badSymbol));
+        assertTrue(exception.getAllErrors().contains("atom symbol error"), exception.getAllErrors());
+
+        String badAtomNumber = V3000_MOLFILE_START + "M  V30 BEGIN ATOM\nM  V30 1 C 0 0 0 0\nM  V30 2 C 0 0 0 0\n"
+                + "M  V30 3 C 0 0 0 0\nM  V30 4 C 0 0 0 0\nM  V30 5 C 0 0 0 0\nM  V30 END ATOM\nM  V30 BEGIN BOND\nM  V30 1 1 1 9\n";
+        exception = assertThrows(MdlReactionReaderException.class, () -> read(badAtomNumber));
+        assertTrue(exception.getAllErrors().contains("incorrect atom number"), exception.getAllErrors());
+
+        String missingBonds = V3000_MOLFILE_START + "M  V30 BEGIN ATOM\nM  V30 1 C 0 0 0 0\nM  V30 2 C 0 0 0 0\n"
+                + "M  V30 3 C 0 0 0 0\nM  V30 4 C 0 0 0 0\nM  V30 5 C 0 0 0 0\nM  V30 END ATOM\nM  V30 END CTAB\nM  END\n";
+        exception = assertThrows(MdlReactionReaderException.class, () -> read(missingBonds));
+        assertTrue(exception.getAllErrors().contains("expected 5 atoms and 4 bonds"), exception.getAllErrors());
+
+        String notV3000 = V3000_MOLFILE_START + "  1  0  0\n";
+        exception = assertThrows(MdlReactionReaderException.class, () -> read(notV3000));
+        assertFalse(exception.getAllErrors().isEmpty());
+    }
+
+    @Test
+    void testInvalidCtabVersion() {
+        assertThrows(IllegalArgumentException.class, () -> new MdlReactionWriter(ReactionFileFormat.RD, null));
+    }
+}
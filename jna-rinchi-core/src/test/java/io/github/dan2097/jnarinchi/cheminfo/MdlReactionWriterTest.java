@@ -3,6 +3,8 @@ package io.github.dan2097.jnarinchi.cheminfo;
 import io.github.dan2097.jnainchi.InchiAtom;
 import io.github.dan2097.jnainchi.InchiBond;
 import io.github.dan2097.jnainchi.InchiBondType;
+import io.github.dan2097.jnainchi.InchiStereo;
+import io.github.dan2097.jnainchi.InchiStereoParity;
 import io.github.dan2097.jnarinchi.*;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -318,4 +320,38 @@ class MdlReactionWriterTest {
                     ": expected='" + expectedLines.get(index) + "'; actual='" + actualLines[index] +"'");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void test_LargeComponent_atomNumbering() throws MdlReactionReaderException {
+        // arrange: the largest molecule V2000 can hold, with bonds not in atom order
+        final int atomCount = 999;
+        RinchiInputComponent ric = new RinchiInputComponent();
+        ric.setRole(ReactionComponentRole.REAGENT);
+        for (int i = 0; i < atomCount; i++) {
+            ric.addAtom(new InchiAtom(i % 3 == 0 ? "N" : "C", i, i % 2, 0));
+        }
+        for (int i = atomCount - 1; i > 0; i--) {
+            ric.addBond(new InchiBond(ric.getAtom(i), ric.getAtom(i - 1), InchiBondType.SINGLE));
+        }
+        // ligands in decreasing index order, so they are resorted with an inverted parity
+        ric.addStereo(InchiStereo.createTetrahedralStereo(ric.getAtom(500), ric.getAtom(501), ric.getAtom(500),
+                InchiStereo.STEREO_IMPLICIT_H, ric.getAtom(499), InchiStereoParity.ODD));
+        RinchiInput rinchiInput = new RinchiInput();
+        rinchiInput.addComponent(ric);
+
+        // act
+        MdlReactionWriter writer = new MdlReactionWriter(ReactionFileFormat.RXN);
+        String reactionText = writer.rinchiInputToFileText(rinchiInput);
+        RinchiInputComponent actual = new MdlReactionReader().fileTextToRinchiInput(reactionText).getComponents().get(0);
+
+        // assert
+        Assertions.assertEquals(atomCount, actual.getAtoms().size());
+        Assertions.assertEquals(atomCount - 1, actual.getBonds().size());
+        for (int i = 0; i < atomCount - 1; i++) {
+            InchiBond bond = actual.getBond(i);
+            Assertions.assertEquals(atomCount - 1 - i, actual.getAtomIndex(bond.getStart()));
+            Assertions.assertEquals(atomCount - 2 - i, actual.getAtomIndex(bond.getEnd()));
+        }
+        Assertions.assertTrue(reactionText.contains("  500.0000    0.0000    0.0000 C   0  0  2"));
+    }
+}
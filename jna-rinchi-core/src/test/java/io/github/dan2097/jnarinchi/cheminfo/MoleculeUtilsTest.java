@@ -0,0 +1,88 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.dan2097.jnainchi.InchiAtom;
+import io.github.dan2097.jnainchi.InchiBond;
+import io.github.dan2097.jnainchi.InchiBondType;
+import io.github.dan2097.jnainchi.InchiInput;
+
+class MoleculeUtilsTest {
+
+    @Test
+    void testImplicitHAtomsCount() {
+        assertEquals(4, MoleculeUtils.getImplicitHAtomsCount("C", 0, 0));
+        assertEquals(4, MoleculeUtils.getImplicitHAtomsCount("C", 0, 4));
+        assertEquals(5, MoleculeUtils.getImplicitHAtomsCount("C", 0, 5));
+        assertEquals(3, MoleculeUtils.getImplicitHAtomsCount("N", 0, 2));
+        assertEquals(5, MoleculeUtils.getImplicitHAtomsCount("N", 0, 4));
+        assertEquals(4, MoleculeUtils.getImplicitHAtomsCount("N", 1, 3));
+        assertEquals(6, MoleculeUtils.getImplicitHAtomsCount("S", 0, 5));
+        assertEquals(7, MoleculeUtils.getImplicitHAtomsCount("Cl", 0, 6));
+        assertEquals(2, MoleculeUtils.getImplicitHAtomsCount("Pb", 0, 1));
+        assertEquals(1, MoleculeUtils.getImplicitHAtomsCount("H", 0, 0));
+        //Charges, elements and symbols without MDL valences
+        assertEquals(2, MoleculeUtils.getImplicitHAtomsCount("H", 1, 2));
+        assertEquals(3, MoleculeUtils.getImplicitHAtomsCount("C", 7, 3));
+        assertEquals(3, MoleculeUtils.getImplicitHAtomsCount("C", -5, 3));
+        assertEquals(2, MoleculeUtils.getImplicitHAtomsCount("Fe", 0, 2));
+        assertEquals(1, MoleculeUtils.getImplicitHAtomsCount("*", 0, 1));
+        assertEquals(1, MoleculeUtils.getImplicitHAtomsCount("Xx", 0, 1));
+    }
+
+    @Test
+    void testExplicitValenciesAndImplicitHydrogens() {
+        //Acetonitrile N-oxide: C-C#[N+]-[O-], with a chlorine that is bonded but not part of the molecule
+        InchiInput inchiInput = new InchiInput();
+        InchiAtom c1 = new InchiAtom("C");
+        InchiAtom c2 = new InchiAtom("C");
+        InchiAtom n = new InchiAtom("N");
+        n.setCharge(1);
+        InchiAtom o = new InchiAtom("O");
+        o.setCharge(-1);
+        inchiInput.addAtom(c1);
+        inchiInput.addAtom(c2);
+        inchiInput.addAtom(n);
+        inchiInput.addAtom(o);
+        inchiInput.addBond(new InchiBond(c1, c2, InchiBondType.SINGLE));
+        inchiInput.addBond(new InchiBond(c2, n, InchiBondType.TRIPLE));
+        inchiInput.addBond(new InchiBond(n, o, InchiBondType.SINGLE));
+        InchiAtom cl = new InchiAtom("Cl");
+        inchiInput.addBond(new InchiBond(cl, c1, InchiBondType.SINGLE));
+
+        assertArrayEquals(new int[]{2, 4, 4, 1}, MoleculeUtils.getExplicitAtomValenciesByIndex(inchiInput));
+        Map<InchiAtom, Integer> valencies = MoleculeUtils.getExplicitAtomValencies(inchiInput);
+        assertEquals(5, valencies.size());
+        assertEquals(2, valencies.get(c1));
+        assertEquals(4, valencies.get(c2));
+        assertEquals(1, valencies.get(cl));
+
+        MoleculeUtils.setImplicitHydrogenAtoms(inchiInput);
+        assertEquals(2, c1.getImplicitHydrogen());
+        assertEquals(0, c2.getImplicitHydrogen());
+        assertEquals(0, n.getImplicitHydrogen());
+        assertEquals(0, o.getImplicitHydrogen());
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.dan2097.jnarinchi.JnaRinchi;
+import io.github.dan2097.jnarinchi.TestUtils;
+
+class RdfileReaderTest {
+
+    private static final String BROKEN_RECORD = "$RFMT $RIREG 2\n$RXN\n\n\n\nxxxyyy\n$DTYPE NAME\n$DATUM broken\n";
+
+    /**
+     * The records of an RDFile, without the $RDFILE and $DATM lines
+     */
+    private static String readRecords(String fileName) throws IOException {
+        String text = TestUtils.readTextFromResourceAsString("examples/" + fileName);
+        return text.substring(text.indexOf("$RFMT"));
+    }
+
+    private static String rinchiOf(String fileName) throws Exception {
+        String text = TestUtils.readTextFromResourceAsString("examples/" + fileName);
+        return JnaRinchi.toRinchi(new MdlReactionReader().fileTextToRinchiInput(text)).getRinchi();
+    }
+
+    private static List<RdfileRecord> readAll(RdfileReader rdfileReader) throws IOException {
+        List<RdfileRecord> records = new ArrayList<>();
+        try (RdfileReader reader = rdfileReader) {
+            while (reader.hasNext()) {
+                records.add(reader.next());
+            }
+        }
+        return records;
+    }
+
+    @Test
+    void testMultipleRecords() throws Exception {
+        String text = "$RDFILE 1\n$DATM 01/01/20 00:00\n" + readRecords("ok__star_star-nostruct.rdf") + BROKEN_RECORD
+                + readRecords("5_variations_1_step_each.rdf") + readRecords("Example_04_simple.rdf");
+        List<RdfileRecord> records = readAll(new MdlReactionReader().readRdfile(new StringReader(text)));
+
+        assertEquals(5, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i, records.get(i).getIndex());
+        }
+        assertEquals(3, records.get(0).getLineNumber());
+        assertEquals(rinchiOf("ok__star_star-nostruct.rdf"), JnaRinchi.toRinchi(records.get(0).getRinchiInput()).getRinchi());
+
+        //A broken record does not prevent reading the following records
+        RdfileRecord broken = records.get(1);
+        assertTrue(broken.hasErrors());
+        assertNull(broken.getRinchiInput());
+        assertEquals("broken", broken.getDataFields().get("NAME"));
+
+        assertFalse(records.get(2).hasErrors());
+        assertEquals(rinchiOf("5_variations_1_step_each.rdf"), JnaRinchi.toRinchi(records.get(2).getRinchiInput()).getRinchi());
+        for (RdfileRecord record : records.subList(3, 5)) {
+            assertFalse(record.hasErrors(), record.getErrors().toString());
+            assertNotNull(record.getRinchiInput());
+            assertEquals("ROOT:RX_ID", record.getDataFields().keySet().iterator().next());
+        }
+    }
+
+    @Test
+    void testDataFields() throws Exception {
+        String text = TestUtils.readTextFromResourceAsString("examples/5_variations_1_step_each.rdf");
+        List<RdfileRecord> records = readAll(new MdlReactionReader().readRdfile(new StringReader(text)));
+        assertEquals(1, records.size());
+        RdfileRecord record = records.get(0);
+        assertEquals("29", record.getDataFields().get("RXN:RXNREGNO"));
+        //The '+' continuation of the line is joined without a line break
+        assertEquals("CHOWDHURY, R. L.; BAECKVALL, J.-E., J Chem Soc, Chem Commun [JCCCAT] (16), p. 1063-1064, 1991",
+                record.getDataFields().get("RXN:VARIATION(1):LITTEXT(1):LITTEXT"));
+    }
+
+    @Test
+    void testAgentsAreNotDataFields() throws Exception {
+        String text = TestUtils.readTextFromResourceAsString("examples/Example_01_CCR.rdf");
+        List<RdfileRecord> records = readAll(new MdlReactionReader().readRdfile(new StringReader(text)));
+        assertEquals(2, records.size());
+        for (String value : records.get(0).getDataFields().values()) {
+            assertFalse(value.startsWith("$MFMT"));
+        }
+        assertEquals(rinchiOf("Example_01_CCR.rdf").split("<>").length,
+                JnaRinchi.toRinchi(records.get(0).getRinchiInput()).getRinchi().split("<>").length);
+    }
+
+    @Test
+    void testPathAndStream() throws Exception {
+        String text = TestUtils.readTextFromResourceAsString("examples/Example_04_simple.rdf");
+        Path path = Files.createTempFile("jnarinchi", ".rdf");
+        try {
+            Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+            try (Stream<RdfileRecord> records = new MdlReactionReader().readRdfile(path).stream()) {
+                assertEquals(2, records.filter(record -> !record.hasErrors()).count());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testNotAnRdfile() throws Exception {
+        String text = TestUtils.readTextFromResourceAsString("examples/Tautomerization_01.rxn");
+        RdfileReader reader = new MdlReactionReader().readRdfile(new StringReader(text));
+        List<RdfileRecord> records = readAll(reader);
+        assertEquals(1, records.size());
+        assertTrue(records.get(0).hasErrors());
+        assertThrows(NoSuchElementException.class, reader::next);
+
+        assertEquals(0, readAll(new MdlReactionReader().readRdfile(new StringReader("$RDFILE 1\n$DATM\n"))).size());
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.dan2097.jnarinchi.TestUtils;
+
+class RdfileSplitterTest {
+
+    private static final String HEADER = "$RDFILE 1\n$DATM 01/01/20 00:00\n";
+    private static final String MOLECULE_RECORD = "$MFMT\n\n  test\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+            + "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n$DTYPE NAME\n$DATUM methane\n";
+    private static final String[] EXAMPLES = {"ok__star_star-nostruct.rdf", "5_variations_1_step_each.rdf", "Example_04_simple.rdf",
+            "Example_01_CCR.rdf"};
+
+    private Path path;
+    private List<String> records;
+
+    @BeforeEach
+    void writeRdfile() throws IOException {
+        records = new ArrayList<>();
+        for (String example : EXAMPLES) {
+            String text = TestUtils.readTextFromResourceAsString("examples/" + example);
+            int start = text.indexOf("$RFMT");
+            int next;
+            while ((next = text.indexOf("\n$RFMT", start)) >= 0) {
+                records.add(text.substring(start, next + 1));
+                start = next + 1;
+            }
+            records.add(text.substring(start));
+        }
+        path = Files.createTempFile("jnarinchi", ".rdf");
+        Files.write(path, (HEADER + String.join("", records)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void deleteRdfile() throws IOException {
+        Files.delete(path);
+    }
+
+    private void assertSplit(int windowSize) throws IOException {
+        try (RdfileSplitter splitter = new RdfileSplitter(path, windowSize)) {
+            assertEquals(HEADER, splitter.getFileHeader());
+            long offset = HEADER.length();
+            for (int i = 0; i < records.size(); i++) {
+                RdfileSlice slice = splitter.next();
+                assertEquals(i, slice.getIndex());
+                assertEquals(offset, slice.getOffset(), "window size " + windowSize);
+                assertEquals(HEADER + records.get(i), slice.getText(), "window size " + windowSize);
+                offset += slice.getLength();
+            }
+            assertFalse(splitter.hasNext());
+            assertThrows(NoSuchElementException.class, splitter::next);
+        }
+    }
+
+    @Test
+    void testDefaultWindow() throws IOException {
+        assertEquals(6, records.size());
+        assertSplit(RdfileSplitter.DEFAULT_WINDOW_SIZE);
+    }
+
+    @Test
+    void testRecordsAndStartTagsAcrossWindows() throws IOException {
+        assertTrue(Files.size(path) > 4 * RdfileSplitter.MIN_WINDOW_SIZE);
+        for (int windowSize = RdfileSplitter.MIN_WINDOW_SIZE; windowSize < 3 * RdfileSplitter.MIN_WINDOW_SIZE; windowSize += 61) {
+            assertSplit(windowSize);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new RdfileSplitter(path, RdfileSplitter.MIN_WINDOW_SIZE - 1));
+    }
+
+    @Test
+    void testSlicesAreReadable() throws Exception {
+        MdlReactionReader reader = new MdlReactionReader();
+        try (RdfileSplitter splitter = new RdfileSplitter(path, RdfileSplitter.MIN_WINDOW_SIZE)) {
+            RdfileSlice slice = splitter.next();
+            assertEquals(reader.fileTextToRinchiInput(HEADER + records.get(0)).getComponents().size(),
+                    reader.fileTextToRinchiInput(slice.getText()).getComponents().size());
+        }
+    }
+
+    @Test
+    void testMoleculeRecordsAreSeparate() throws IOException {
+        List<String> mixed = new ArrayList<>();
+        mixed.add(MOLECULE_RECORD);
+        mixed.add(records.get(0));
+        mixed.add(MOLECULE_RECORD);
+        mixed.add(records.get(1));
+        Files.write(path, (HEADER + String.join("", mixed)).getBytes(StandardCharsets.UTF_8));
+        try (RdfileSplitter splitter = new RdfileSplitter(path, RdfileSplitter.MIN_WINDOW_SIZE)) {
+            assertEquals(HEADER, splitter.getFileHeader());
+            for (int i = 0; i < mixed.size(); i++) {
+                RdfileSlice slice = splitter.next();
+                assertEquals(HEADER + mixed.get(i), slice.getText());
+                assertEquals(mixed.get(i) == MOLECULE_RECORD, slice.isMoleculeRecord());
+            }
+            assertFalse(splitter.hasNext());
+        }
+        //The same records as RdfileReader
+        try (RdfileReader reader = new MdlReactionReader().readRdfile(path)) {
+            int count = 0;
+            while (reader.hasNext()) {
+                RdfileRecord record = reader.next();
+                assertEquals(mixed.get(count) == MOLECULE_RECORD, !record.getErrors().isEmpty());
+                count++;
+            }
+            assertEquals(mixed.size(), count);
+        }
+    }
+
+    @Test
+    void testNoRecords() throws IOException {
+        Files.write(path, HEADER.getBytes(StandardCharsets.UTF_8));
+        try (RdfileSplitter splitter = new RdfileSplitter(path)) {
+            assertEquals(HEADER, splitter.getFileHeader());
+            assertFalse(splitter.hasNext());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * JNA-RInChI - Library for calling RInChI from Java
+ * Copyright © 2022 Nikolay Kochev
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnarinchi.cheminfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.dan2097.jnarinchi.JnaRinchi;
+import io.github.dan2097.jnarinchi.ReactionFileFormat;
+import io.github.dan2097.jnarinchi.RinchiInput;
+import io.github.dan2097.jnarinchi.TestUtils;
+
+class RdfileWriterTest {
+
+    private static final String[] EXAMPLES = {"ok__star_star-nostruct.rdf", "5_variations_1_step_each.rdf", "Esterification_02.rdf"};
+
+    private static RinchiInput read(String fileName) throws Exception {
+        String text = TestUtils.readTextFromResourceAsString("examples/" + fileName);
+        return new MdlReactionReader().fileTextToRinchiInput(text);
+    }
+
+    /**
+     * Replaces the date and time of the header lines, which may differ between two writes
+     */
+    private static String withoutTimestamps(String text) {
+        return text.replaceAll("(?m)^\\$DATM .*$", "\\$DATM")
+                .replaceAll("(?m)^(  JNA-RIN ).*$", "$1")
+                .replaceAll("(?m)^(      JNA-RIN  ).*$", "$1");
+    }
+
+    @Test
+    void testWriteRinchiInputIsIdenticalToFileText() throws Exception {
+        for (ReactionFileFormat format : new ReactionFileFormat[] {ReactionFileFormat.RD, ReactionFileFormat.RXN}) {
+            MdlReactionWriter writer = new MdlReactionWriter(format);
+            for (String example : EXAMPLES) {
+                RinchiInput rinchiInput = read(example);
+                String expected = withoutTimestamps(writer.rinchiInputToFileText(rinchiInput));
+
+                StringBuilder sb = new StringBuilder();
+                writer.writeRinchiInput(rinchiInput, sb);
+                assertEquals(expected, withoutTimestamps(sb.toString()));
+
+                StringWriter stringWriter = new StringWriter();
+                writer.writeRinchiInput(rinchiInput, stringWriter);
+                assertEquals(expected, withoutTimestamps(stringWriter.toString()));
+
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                writer.writeRinchiInput(rinchiInput, outputStream);
+                assertEquals(expected, withoutTimestamps(new String(outputStream.toByteArray(), StandardCharsets.UTF_8)));
+            }
+        }
+    }
+
+    @Test
+    void testRdfileSession() throws Exception {
+        List<RinchiInput> rinchiInputs = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        MdlReactionWriter writer = new MdlReactionWriter(ReactionFileFormat.RXN);
+        MdlReactionWriter rdWriter = new MdlReactionWriter(ReactionFileFormat.RD);
+        for (String example : EXAMPLES) {
+            RinchiInput rinchiInput = read(example);
+            rinchiInputs.add(rinchiInput);
+            String text = rdWriter.rinchiInputToFileText(rinchiInput);
+            if (expected.length() == 0) {
+                expected.append(text);
+            } else {
+                //Each record is identical to the text of a single reaction, without the $RDFILE and $DATM lines
+                expected.append(text.substring(text.indexOf("$RFMT")));
+            }
+        }
+
+        StringWriter stringWriter = new StringWriter();
+        try (RdfileWriter rdfileWriter = writer.writeRdfile(stringWriter)) {
+            rdfileWriter.write(rinchiInputs.get(0));
+            assertEquals(2, rdfileWriter.write(rinchiInputs.subList(1, 3).stream()));
+            assertEquals(3, rdfileWriter.getRecordCount());
+        }
+        String text = stringWriter.toString();
+        assertEquals(withoutTimestamps(expected.toString()), withoutTimestamps(text));
+
+        List<RdfileRecord> records = new ArrayList<>();
+        try (RdfileReader rdfileReader = new MdlReactionReader().readRdfile(new StringReader(text))) {
+            rdfileReader.forEachRemaining(records::add);
+        }
+        assertEquals(3, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertFalse(records.get(i).hasErrors(), records.get(i).getErrors().toString());
+            assertEquals(JnaRinchi.toRinchi(rinchiInputs.get(i)).getRinchi(), JnaRinchi.toRinchi(records.get(i).getRinchiInput()).getRinchi());
+        }
+    }
+
+    @Test
+    void testRdfileSessionOutputStream() throws Exception {
+        RinchiInput rinchiInput = read(EXAMPLES[2]);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (RdfileWriter rdfileWriter = new MdlReactionWriter().writeRdfile(outputStream)) {
+            rdfileWriter.write(Stream.of(rinchiInput, rinchiInput));
+        }
+        String text = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("$RDFILE 1\n$DATM"));
+        assertEquals(2, text.split("\\$RFMT", -1).length - 1);
+    }
+
+    @Test
+    void testEmptyRdfile() throws IOException {
+        StringWriter stringWriter = new StringWriter();
+        RdfileWriter rdfileWriter = new MdlReactionWriter().writeRdfile(stringWriter);
+        rdfileWriter.close();
+        rdfileWriter.close();
+        assertEquals("$RDFILE 1\n$DATM", withoutTimestamps(stringWriter.toString()).trim());
+        assertEquals(0, rdfileWriter.getRecordCount());
+        assertThrows(IllegalStateException.class, () -> rdfileWriter.write(new RinchiInput()));
+        assertThrows(IllegalStateException.class, rdfileWriter::flush);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        MdlReactionWriter writer = new MdlReactionWriter();
+        assertThrows(IllegalArgumentException.class, () -> writer.writeRinchiInput(new RinchiInput(), (Appendable) null));
+        assertThrows(IllegalArgumentException.class, () -> writer.writeRinchiInput(null, new StringBuilder()));
+        assertThrows(IllegalArgumentException.class, () -> writer.writeRdfile((StringWriter) null));
+        RdfileWriter rdfileWriter = writer.writeRdfile(new StringWriter());
+        assertThrows(IllegalArgumentException.class, () -> rdfileWriter.write((RinchiInput) null));
+    }
+}